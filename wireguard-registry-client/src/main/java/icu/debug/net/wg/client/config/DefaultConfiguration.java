@@ -1,10 +1,14 @@
 package icu.debug.net.wg.client.config;
 
 import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * @author hanjinxiang@debug.icu
  * @date 2024-02-04 1:55
@@ -18,4 +22,13 @@ public class DefaultConfiguration {
         return new WireGuardNetProperties();
     }
 
+    /**
+     * 并行生成配置使用的线程池，parallelism 大于 0 时启用
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("${wireguard.generate.parallelism:0} > 0")
+    public ForkJoinPool generateForkJoinPool(@Value("${wireguard.generate.parallelism}") int parallelism) {
+        return new ForkJoinPool(parallelism);
+    }
+
 }
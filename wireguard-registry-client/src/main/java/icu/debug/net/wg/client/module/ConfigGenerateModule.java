@@ -6,10 +6,13 @@ import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
 import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkStruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -18,6 +21,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author hanjinxiang@debug.icu
@@ -29,8 +33,23 @@ public class ConfigGenerateModule {
 
     private final WireGuardNetProperties defaultProperties;
 
+    /**
+     * 并行生成线程池，未配置时串行生成
+     */
+    private final ForkJoinPool generatePool;
+
     public ConfigGenerateModule(WireGuardNetProperties defaultProperties) {
+        this(defaultProperties, (ForkJoinPool) null);
+    }
+
+    @Autowired
+    public ConfigGenerateModule(WireGuardNetProperties defaultProperties, ObjectProvider<ForkJoinPool> generatePool) {
+        this(defaultProperties, generatePool.getIfAvailable());
+    }
+
+    public ConfigGenerateModule(WireGuardNetProperties defaultProperties, ForkJoinPool generatePool) {
         this.defaultProperties = defaultProperties;
+        this.generatePool = generatePool;
         log.info("default properties {}", this.defaultProperties);
     }
 
@@ -41,22 +60,20 @@ public class ConfigGenerateModule {
         WireGuardNetworkStruct struct = WireGuardNetworkStruct.ofJson(content);
         // 生成配置内容
         WireGuardConfigGenerator generator = new WireGuardConfigGenerator(struct, defaultProperties);
-        Map<String, WireGuardIniConfig> configMap = generator.buildWireGuardIniConfigMap();
+        Map<String, WireGuardIniConfig> configMap = generator.buildWireGuardIniConfigMap(generatePool);
         // 生成配置文件
         initOutputDir(outputPath);
         List<Path> result = new ArrayList<>();
-        configMap.forEach((k, v) -> result.add(createConfigFile(outputPath, k, v.toIniString())));
+        configMap.forEach((k, v) -> result.add(createConfigFile(outputPath, k, v)));
         // 返回生成的配置文件路径列表
         return result;
 
     }
 
-    private static Path createConfigFile(String outputPath, String name, String config) {
-        //
+    private static Path createConfigFile(String outputPath, String name, WireGuardIniConfig config) {
         Path path = Paths.get(outputPath, name + ".conf");
-        //Path file = Files.c(path);
-        try {
-            Files.write(path, config.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            config.writeTo(writer);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
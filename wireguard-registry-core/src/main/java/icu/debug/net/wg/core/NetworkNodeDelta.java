@@ -0,0 +1,60 @@
+package icu.debug.net.wg.core;
+
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 单个网络节点的变更描述
+ * <p>
+ * 用于在上一次构建结果的基础上增量更新配置，见 {@link WireGuardConfigGenerator#applyDelta(NetworkNodeDelta)}
+ * </p>
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class NetworkNodeDelta {
+
+    public enum Type {
+
+        /**
+         * 新增节点
+         */
+        ADDED,
+
+        /**
+         * 更新节点
+         */
+        UPDATED,
+
+        /**
+         * 移除节点
+         */
+        REMOVED
+    }
+
+    private final Type type;
+
+    private final String hostname;
+
+    /**
+     * 节点所属局域网名称，为空时沿用节点当前所在局域网
+     */
+    private final String localAreaNetwork;
+
+    private final WireGuardNetworkNode node;
+
+    public static NetworkNodeDelta added(String localAreaNetwork, WireGuardNetworkNode node) {
+        return new NetworkNodeDelta(Type.ADDED, node.getServerNode().getHostname(), localAreaNetwork, node);
+    }
+
+    public static NetworkNodeDelta updated(String localAreaNetwork, WireGuardNetworkNode node) {
+        return new NetworkNodeDelta(Type.UPDATED, node.getServerNode().getHostname(), localAreaNetwork, node);
+    }
+
+    public static NetworkNodeDelta removed(String hostname) {
+        return new NetworkNodeDelta(Type.REMOVED, hostname, null, null);
+    }
+}
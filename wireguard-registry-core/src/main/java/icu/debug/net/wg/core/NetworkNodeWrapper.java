@@ -1,15 +1,20 @@
 package icu.debug.net.wg.core;
 
+import icu.debug.net.wg.core.helper.PublicKeyCache;
 import icu.debug.net.wg.core.model.config.WireGuardInterface;
 import icu.debug.net.wg.core.model.config.WireGuardPeer;
 import icu.debug.net.wg.core.model.network.EndpointType;
 import icu.debug.net.wg.core.model.network.NetworkType;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import org.springframework.util.ObjectUtils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * 包装网络节点配置相关信息的对象
  * <p>
@@ -32,6 +37,25 @@ public class NetworkNodeWrapper {
 
     private NetworkType networkType;
 
+    /**
+     * 已构建的 peer，按端点类型和心跳时间区分，所有请求节点共享，替换节点时失效
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final Map<PeerVariant, WireGuardPeer> peerCache = new ConcurrentHashMap<>();
+
+    /**
+     * 生成器持有的公钥派生缓存，为空时直接派生
+     */
+    @ToString.Exclude
+    private PublicKeyCache publicKeyCache;
+
+    public void setNode(WireGuardNetworkNode node) {
+        this.node = node;
+        this.peerCache.clear();
+    }
+
     public WireGuardInterface toInterface() {
         return node.toInterface();
     }
@@ -50,14 +74,26 @@ public class NetworkNodeWrapper {
         return EndpointType.UNKNOWN;
     }
 
+    /**
+     * 构建当前节点在请求节点配置中的 peer
+     * <p>
+     * 端点类型与心跳时间相同的请求节点共享同一个 peer 对象，调用方不应修改返回的 peer
+     * </p>
+     */
     public WireGuardPeer buildPeer(NetworkNodeWrapper requestWrapper) {
         EndpointType endpointType = this.getEndpointType(requestWrapper);
-        WireGuardPeer peer = this.getNode().toPeer(endpointType);
         // 设置客户端向服务端宣告自身地址时间
         Integer keepalive = requestWrapper.getNode().getKeepalive();
-        if (!ObjectUtils.isEmpty(keepalive) && keepalive > 0) {
-            peer.setPersistentKeepalive(keepalive);
-        }
+        Integer persistentKeepalive = !ObjectUtils.isEmpty(keepalive) && keepalive > 0 ? keepalive : null;
+        return peerCache.computeIfAbsent(new PeerVariant(endpointType, persistentKeepalive), this::createPeer);
+    }
+
+    private WireGuardPeer createPeer(PeerVariant variant) {
+        WireGuardPeer peer = this.getNode().toPeer(variant.endpointType(), publicKeyCache);
+        peer.setPersistentKeepalive(variant.persistentKeepalive());
         return peer;
     }
+
+    private record PeerVariant(EndpointType endpointType, Integer persistentKeepalive) {
+    }
 }
@@ -1,5 +1,6 @@
 package icu.debug.net.wg.core;
 
+import icu.debug.net.wg.core.helper.PublicKeyCache;
 import icu.debug.net.wg.core.helper.WireGuardGenKeyHelper;
 import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
 import icu.debug.net.wg.core.model.config.WireGuardInterface;
@@ -13,24 +14,49 @@ import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class WireGuardConfigGenerator {
 
+    /**
+     * 并行生成时单个任务处理的最大节点数，节点数不超过该值时直接串行生成
+     */
+    private static final int PARALLEL_BATCH_SIZE = 32;
+
     // TODO: 默认配置必需属性校验
     private final WireGuardNetProperties defaultConfiguration;
 
     private final WireGuardNetworkStruct networkStruct;
 
-    private final Map<String, NetworkNodeWrapper> nodeWrapperMap = new HashMap<>();
+    private final Map<String, NetworkNodeWrapper> nodeWrapperMap = new LinkedHashMap<>();
+
+    /**
+     * 上一次构建的配置结果，增量更新基于此进行
+     */
+    private final Map<String, NetworkNodeConfigWrapper> builtConfigMap = new LinkedHashMap<>();
+
+    /**
+     * 节点在 peers 列表中的位置，所有节点配置中 peers 的顺序与 nodeWrapperMap 一致
+     */
+    private final Map<String, Integer> peerIndexMap = new HashMap<>();
+
+    /**
+     * 地址分配器，线程安全，允许在生成器的锁外预先分配地址
+     */
+    private final ConcurrentNetAddressAllocator netAddressAllocator;
 
-    private final NetAddressAllocator netAddressAllocator;
+    /**
+     * 公钥派生缓存，随生成器释放，并行生成时各线程共享
+     */
+    private final PublicKeyCache publicKeyCache = new PublicKeyCache();
 
     public WireGuardConfigGenerator(WireGuardNetworkStruct struct, WireGuardNetProperties defaultConfiguration) {
         this.defaultConfiguration = defaultConfiguration;
         this.networkStruct = this.mergeSubNetProp(struct);
-        this.netAddressAllocator = new NetAddressAllocator(this.networkStruct.getAddress(), this.networkStruct.getNetmask());
+        this.netAddressAllocator = new ConcurrentNetAddressAllocator(this.networkStruct.getAddress(), this.networkStruct.getNetmask());
         this.registryUsedSubNetAddress(this.networkStruct);
         // 全局默认配置设置
         this.appendDefaultProperties();
@@ -81,6 +107,26 @@ public class WireGuardConfigGenerator {
         });
     }
 
+    /**
+     * 为即将新增的节点预先分配子网地址
+     * <p>
+     * 地址分配器是线程安全的，本方法可以在调用 {@link #applyDelta(NetworkNodeDelta)} 之前、不持有生成器锁时调用，
+     * 并发注册的多个新节点并行分配地址；已指定子网内地址或忽略默认属性的节点不做处理。
+     * 预先分配的地址在应用变更时按已使用地址登记。
+     * </p>
+     *
+     * @param node 新节点
+     */
+    public void preallocateAddress(WireGuardNetworkNode node) {
+        if (node.isIgnoreDefault()) {
+            return;
+        }
+        if (StringUtils.hasLength(node.getAddress()) && netAddressAllocator.isInSubnet(node.getAddress())) {
+            return;
+        }
+        allocateSubNetAddress(node);
+    }
+
     private void handlerDefaultBaseProp(WireGuardNetworkNode node) {
         if (node.getListenPort() == null) {
             node.setListenPort(defaultConfiguration.getListenPort());
@@ -96,21 +142,22 @@ public class WireGuardConfigGenerator {
         }
     }
 
-    private static void handlerKeyAllecte(WireGuardNetworkNode node) {
+    private void handlerKeyAllecte(WireGuardNetworkNode node) {
         // 密钥分配
         if (!StringUtils.hasLength(node.getPrivateKey()) || !WireGuardGenKeyHelper.formatValid(node.getPrivateKey())) {
             String privateKey = WireGuardGenKeyHelper.genPrivateKey();
             node.setPrivateKey(privateKey);
-            node.setPublicKey(WireGuardGenKeyHelper.genPubKeyByPrivateKey(privateKey));
+            node.setPublicKey(publicKeyCache.getPublicKey(privateKey));
         }
 
+        // 公钥与私钥派生结果一致即视为匹配，派生结果在生成 peer 时复用
         String publicKey = node.getPublicKey();
         boolean formatNotValid = !StringUtils.hasLength(publicKey) || !WireGuardGenKeyHelper.formatValid(publicKey);
-        if (formatNotValid || !WireGuardGenKeyHelper.verify(node.getPrivateKey(), publicKey)) {
+        if (formatNotValid || !publicKey.equals(publicKeyCache.getPublicKey(node.getPrivateKey()))) {
             log.info("WireGuard Struct node [{}] public key is empty or not valid, regenerate private and public key", node);
             String privateKey = WireGuardGenKeyHelper.genPrivateKey();
             node.setPrivateKey(privateKey);
-            node.setPublicKey(WireGuardGenKeyHelper.genPubKeyByPrivateKey(privateKey));
+            node.setPublicKey(publicKeyCache.getPublicKey(privateKey));
         }
     }
 
@@ -174,8 +221,9 @@ public class WireGuardConfigGenerator {
         }
     }
 
-    private static NetworkNodeWrapper buildNodeWrapper(LocalAreaNetwork localAreaNetwork, int i, WireGuardNetworkNode networkNode) {
+    private NetworkNodeWrapper buildNodeWrapper(LocalAreaNetwork localAreaNetwork, int i, WireGuardNetworkNode networkNode) {
         NetworkNodeWrapper nodeWrapper = new NetworkNodeWrapper();
+        nodeWrapper.setPublicKeyCache(publicKeyCache);
         nodeWrapper.setNode(networkNode);
         nodeWrapper.setNetworkType(localAreaNetwork.getNetworkType());
         nodeWrapper.setLocalAreaNetwork(localAreaNetwork.getName());
@@ -212,13 +260,243 @@ public class WireGuardConfigGenerator {
     public List<NetworkNodeConfigWrapper> buildWireGuardIniConfigs() {
         List<NetworkNodeConfigWrapper> result = new ArrayList<>();
         nodeWrapperMap.forEach((key, value) -> result.add(buildConfig(key)));
+        refreshBuiltConfigs(result);
+        return result;
+    }
+
+    /**
+     * 使用指定的 ForkJoinPool 并行生成所有节点配置
+     * <p>
+     * 结果顺序与串行生成一致，pool 为空时串行生成
+     * </p>
+     *
+     * @param pool 并行生成使用的线程池
+     * @return 所有节点配置
+     */
+    public List<NetworkNodeConfigWrapper> buildWireGuardIniConfigs(ForkJoinPool pool) {
+        if (pool == null || nodeWrapperMap.size() <= PARALLEL_BATCH_SIZE) {
+            return buildWireGuardIniConfigs();
+        }
+        String[] hostnames = nodeWrapperMap.keySet().toArray(new String[0]);
+        NetworkNodeConfigWrapper[] configs = new NetworkNodeConfigWrapper[hostnames.length];
+        pool.invoke(new BuildConfigAction(hostnames, configs, 0, hostnames.length));
+        List<NetworkNodeConfigWrapper> result = Arrays.asList(configs);
+        refreshBuiltConfigs(result);
         return result;
     }
 
     public Map<String, WireGuardIniConfig> buildWireGuardIniConfigMap() {
-        return buildWireGuardIniConfigs()
-                .stream()
-                .collect(Collectors.toMap(NetworkNodeConfigWrapper::getHostName, NetworkNodeConfigWrapper::getConfig));
+        return toConfigMap(buildWireGuardIniConfigs());
+    }
+
+    public Map<String, WireGuardIniConfig> buildWireGuardIniConfigMap(ForkJoinPool pool) {
+        return toConfigMap(buildWireGuardIniConfigs(pool));
+    }
+
+    private static Map<String, WireGuardIniConfig> toConfigMap(List<NetworkNodeConfigWrapper> configs) {
+        return configs.stream()
+                .collect(Collectors.toMap(NetworkNodeConfigWrapper::getHostName, NetworkNodeConfigWrapper::getConfig, (a, b) -> b, LinkedHashMap::new));
+    }
+
+    /**
+     * 按节点下标二分拆分的配置生成任务，结果写入对应下标保证输出顺序确定
+     */
+    private class BuildConfigAction extends RecursiveAction {
+
+        private final String[] hostnames;
+
+        private final NetworkNodeConfigWrapper[] configs;
+
+        private final int from;
+
+        private final int to;
+
+        BuildConfigAction(String[] hostnames, NetworkNodeConfigWrapper[] configs, int from, int to) {
+            this.hostnames = hostnames;
+            this.configs = configs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_BATCH_SIZE) {
+                for (int i = from; i < to; i++) {
+                    configs[i] = buildConfig(hostnames[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BuildConfigAction(hostnames, configs, from, middle),
+                    new BuildConfigAction(hostnames, configs, middle, to));
+        }
+    }
+
+    /**
+     * 基于上一次构建结果应用单个节点变更
+     * <p>
+     * 仅重新构建变更节点自身的配置，其余节点只替换变更节点对应的一条 peer，peer 与之前相同的配置不复制也不返回，
+     * 未进行过全量构建时退化为全量构建。已返回的配置对象不会被修改。移除不存在的节点时没有配置变化。
+     * </p>
+     *
+     * @param delta 节点变更
+     * @return 发生变化的节点配置
+     */
+    public List<NetworkNodeConfigWrapper> applyDelta(NetworkNodeDelta delta) {
+        Assert.notNull(delta, "delta it must not null");
+        Assert.hasLength(delta.getHostname(), "hostname it must has length");
+        boolean incremental = !builtConfigMap.isEmpty();
+        Map<String, NetworkNodeConfigWrapper> result = new LinkedHashMap<>();
+        if (delta.getType() == NetworkNodeDelta.Type.REMOVED) {
+            if (!nodeWrapperMap.containsKey(delta.getHostname())) {
+                return new ArrayList<>();
+            }
+            removeNode(delta.getHostname(), incremental, result);
+        } else {
+            upsertNode(delta.getLocalAreaNetwork(), delta.getNode(), incremental, result);
+        }
+        if (!incremental) {
+            return buildWireGuardIniConfigs();
+        }
+        log.debug("WireGuard Struct apply delta [{} {}], {} configs changed", delta.getType(), delta.getHostname(), result.size());
+        return new ArrayList<>(result.values());
+    }
+
+    private void upsertNode(String lanName, WireGuardNetworkNode node, boolean incremental, Map<String, NetworkNodeConfigWrapper> result) {
+        Assert.notNull(node, "node it must not null");
+        String hostname = node.getServerNode().getHostname();
+        NetworkNodeWrapper existing = nodeWrapperMap.get(hostname);
+        if (existing != null && lanName != null && !lanName.equals(existing.getLocalAreaNetwork())) {
+            // 跨局域网迁移视为先移除后新增
+            removeNode(hostname, incremental, result);
+            existing = null;
+        }
+        if (existing != null) {
+            String oldAddress = existing.getNode().getAddress();
+            if (!StringUtils.hasLength(node.getAddress())) {
+                // 未指定地址时沿用已分配的地址
+                node.setAddress(oldAddress);
+            } else if (StringUtils.hasLength(oldAddress) && !oldAddress.equals(node.getAddress())) {
+                netAddressAllocator.releaseIP(oldAddress);
+            }
+            List<WireGuardNetworkNode> lanNodes = getLocalAreaNetwork(existing.getLocalAreaNetwork()).getNetworkNodes();
+            lanNodes.set(lanNodes.indexOf(existing.getNode()), node);
+            existing.setNode(node);
+        } else {
+            LocalAreaNetwork lan = getOrCreateLocalAreaNetwork(lanName == null ? hostname : lanName);
+            lan.getNetworkNodes().add(node);
+            nodeWrapperMap.put(hostname, buildNodeWrapper(lan, lan.getNetworkNodes().size() - 1, node));
+        }
+        if (StringUtils.hasLength(node.getAddress())) {
+            netAddressAllocator.registerAllocatedIP(node.getAddress());
+        }
+        appendDefaultProperties(node);
+        if (incremental) {
+            rebuildNodePeer(hostname, result);
+        }
+    }
+
+    private void removeNode(String hostname, boolean incremental, Map<String, NetworkNodeConfigWrapper> result) {
+        NetworkNodeWrapper removed = nodeWrapperMap.remove(hostname);
+        Assert.notNull(removed, "hostname: " + hostname + " is not exist");
+        LocalAreaNetwork lan = getLocalAreaNetwork(removed.getLocalAreaNetwork());
+        lan.getNetworkNodes().remove(removed.getNode());
+        if (StringUtils.hasLength(removed.getNode().getAddress())) {
+            netAddressAllocator.releaseIP(removed.getNode().getAddress());
+        }
+        // 中继节点被移除后，由局域网内下一个节点接任
+        NetworkNodeWrapper newBridge = null;
+        if (removed.isBridge() && !lan.getNetworkNodes().isEmpty()) {
+            newBridge = nodeWrapperMap.get(lan.getNetworkNodes().get(0).getServerNode().getHostname());
+            newBridge.setBridge(true);
+        }
+        if (!incremental) {
+            return;
+        }
+        builtConfigMap.remove(hostname);
+        int index = peerIndexMap.remove(hostname);
+        peerIndexMap.replaceAll((key, value) -> value > index ? value - 1 : value);
+        for (Map.Entry<String, NetworkNodeConfigWrapper> entry : builtConfigMap.entrySet()) {
+            WireGuardIniConfig old = entry.getValue().getConfig();
+            List<WireGuardPeer> peers = new ArrayList<>(old.getPeers());
+            peers.remove(index);
+            entry.setValue(new NetworkNodeConfigWrapper(entry.getValue().getNode(), new WireGuardIniConfig(old.getName(), old.getWgInterface(), peers)));
+            result.put(entry.getKey(), entry.getValue());
+        }
+        if (newBridge != null) {
+            rebuildNodePeer(newBridge.getNode().getServerNode().getHostname(), result);
+        }
+    }
+
+    /**
+     * 重建指定节点的完整配置，并替换其余节点配置中该节点对应的 peer，内容发生变化的配置写入 result
+     */
+    private void rebuildNodePeer(String hostname, Map<String, NetworkNodeConfigWrapper> result) {
+        NetworkNodeWrapper changed = nodeWrapperMap.get(hostname);
+        Integer index = peerIndexMap.get(hostname);
+        for (Map.Entry<String, NetworkNodeConfigWrapper> entry : builtConfigMap.entrySet()) {
+            if (entry.getKey().equals(hostname)) {
+                continue;
+            }
+            NetworkNodeWrapper requestWrapper = nodeWrapperMap.get(entry.getKey());
+            WireGuardIniConfig old = entry.getValue().getConfig();
+            WireGuardPeer peer = changed.buildPeer(requestWrapper);
+            if (index != null && peer.equals(old.getPeers().get(index))) {
+                continue;
+            }
+            List<WireGuardPeer> peers = new ArrayList<>(old.getPeers().size() + 1);
+            peers.addAll(old.getPeers());
+            if (index == null) {
+                peers.add(peer);
+            } else {
+                peers.set(index, peer);
+            }
+            entry.setValue(new NetworkNodeConfigWrapper(requestWrapper.getNode(), new WireGuardIniConfig(old.getName(), old.getWgInterface(), peers)));
+            result.put(entry.getKey(), entry.getValue());
+        }
+        if (index == null) {
+            peerIndexMap.put(hostname, peerIndexMap.size());
+        }
+        NetworkNodeConfigWrapper rebuilt = buildConfig(hostname);
+        NetworkNodeConfigWrapper previous = builtConfigMap.put(hostname, rebuilt);
+        if (previous == null || !previous.getConfig().equals(rebuilt.getConfig())) {
+            result.put(hostname, rebuilt);
+        }
+    }
+
+    private void refreshBuiltConfigs(List<NetworkNodeConfigWrapper> configs) {
+        builtConfigMap.clear();
+        peerIndexMap.clear();
+        for (NetworkNodeConfigWrapper config : configs) {
+            peerIndexMap.put(config.getHostName(), peerIndexMap.size());
+            builtConfigMap.put(config.getHostName(), config);
+        }
+        log.debug("WireGuard Struct built {} configs, public key cache stats {}", configs.size(), publicKeyCache.getStats());
+    }
+
+    private LocalAreaNetwork getLocalAreaNetwork(String name) {
+        return this.networkStruct.getLocalAreaNetworks().stream()
+                .filter(lan -> lan.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("local area network: " + name + " is not exist"));
+    }
+
+    private LocalAreaNetwork getOrCreateLocalAreaNetwork(String name) {
+        for (LocalAreaNetwork lan : this.networkStruct.getLocalAreaNetworks()) {
+            if (lan.getName().equals(name)) {
+                if (lan.getNetworkNodes() == null) {
+                    lan.setNetworkNodes(new ArrayList<>());
+                }
+                return lan;
+            }
+        }
+        // 未声明的局域网按 WAN 处理
+        LocalAreaNetwork lan = new LocalAreaNetwork();
+        lan.setName(name);
+        lan.setNetworkType(NetworkType.WAN);
+        lan.setNetworkNodes(new ArrayList<>());
+        this.networkStruct.getLocalAreaNetworks().add(lan);
+        return lan;
     }
 
 }
@@ -10,8 +10,14 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * 节点认证服务
@@ -22,6 +28,8 @@ public class NodeAuthService {
 
     private final Curve25519 curve25519;
     private final AuthStorage authStorage;
+    private final NodePublicKeyCache publicKeyCache;
+    private final ForkJoinPool verificationPool;
     private final SecureRandom secureRandom = new SecureRandom();
     
     // 临时密钥有效期（秒）
@@ -29,10 +37,29 @@ public class NodeAuthService {
     
     // 请求签名有效期（秒）
     private static final long SIGNATURE_EXPIRY = 60; // 1分钟
+
+    // 使用缓存公钥验证失败后，同一节点重新读取存储的最小间隔（毫秒）
+    private static final long KEY_RELOAD_INTERVAL = 1000;
+
+    // 批量验证时每个任务至少验证的签名数
+    private static final int VERIFY_BATCH_SIZE = 16;
     
     public NodeAuthService(AuthStorage authStorage) {
+        this(authStorage, new NodePublicKeyCache(NodePublicKeyCache.DEFAULT_MAX_SIZE, NodePublicKeyCache.DEFAULT_TTL_MILLIS));
+    }
+
+    public NodeAuthService(AuthStorage authStorage, NodePublicKeyCache publicKeyCache) {
+        this(authStorage, publicKeyCache, null);
+    }
+
+    /**
+     * @param verificationPool 批量验证签名使用的线程池，为 null 时在调用线程上逐个验证
+     */
+    public NodeAuthService(AuthStorage authStorage, NodePublicKeyCache publicKeyCache, ForkJoinPool verificationPool) {
         this.curve25519 = Curve25519.getInstance(Curve25519.BEST);
         this.authStorage = authStorage;
+        this.publicKeyCache = publicKeyCache;
+        this.verificationPool = verificationPool;
     }
 
     /**
@@ -108,6 +135,7 @@ public class NodeAuthService {
             }
             
             authStorage.saveNodePublicKey(nodeId, publicKey);
+            publicKeyCache.invalidate(nodeId);
             log.info("Registered public key for node {}", nodeId);
             
         } catch (Exception e) {
@@ -118,22 +146,30 @@ public class NodeAuthService {
 
     /**
      * 验证节点签名
+     * <p>
+     * 公钥优先从缓存读取，命中时只需一次 Curve25519 验证。使用缓存的公钥验证失败或缓存中节点不存在时，
+     * 公钥可能已在其他实例上更新，按 {@link #KEY_RELOAD_INTERVAL} 限制频率重新读取存储后再验证一次
+     * </p>
      */
     public boolean verifyNodeSignature(String nodeId, String signature, String message) {
-        Optional<String> publicKeyOpt = authStorage.getNodePublicKey(nodeId);
-        if (!publicKeyOpt.isPresent()) {
-            log.warn("Public key not found for node {}", nodeId);
-            return false;
-        }
-        
-        String publicKey = publicKeyOpt.get();
-        
         try {
-            byte[] publicKeyBytes = Base64.getDecoder().decode(publicKey);
+            byte[] publicKeyBytes = publicKeyCache.get(nodeId, this::loadNodePublicKey);
+            if (publicKeyBytes == null && publicKeyCache.invalidateIfOlderThan(nodeId, KEY_RELOAD_INTERVAL)) {
+                publicKeyBytes = publicKeyCache.get(nodeId, this::loadNodePublicKey);
+            }
+            if (publicKeyBytes == null) {
+                log.warn("Public key not found for node {}", nodeId);
+                return false;
+            }
             byte[] signatureBytes = Base64.getDecoder().decode(signature);
             byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
             
             boolean valid = curve25519.verifySignature(publicKeyBytes, messageBytes, signatureBytes);
+            if (!valid && publicKeyCache.invalidateIfOlderThan(nodeId, KEY_RELOAD_INTERVAL)) {
+                byte[] currentKey = publicKeyCache.get(nodeId, this::loadNodePublicKey);
+                valid = currentKey != null && !Arrays.equals(currentKey, publicKeyBytes)
+                        && curve25519.verifySignature(currentKey, messageBytes, signatureBytes);
+            }
             
             if (valid) {
                 log.debug("Node signature verified for {}", nodeId);
@@ -164,6 +200,71 @@ public class NodeAuthService {
         return verifyNodeSignature(nodeId, signature, message);
     }
 
+    /**
+     * 批量验证带时间戳的签名
+     * <p>
+     * 按下标二分拆分到验证线程池并行验证，每个任务至少验证 {@link #VERIFY_BATCH_SIZE} 个签名，
+     * 未指定线程池或数量较少时在调用线程上逐个验证
+     * </p>
+     *
+     * @return 第 i 位为 true 表示第 i 个签名有效
+     */
+    public BitSet verifySignaturesWithTimestamp(List<SignedMessage> messages) {
+        SignedMessage[] batch = messages.toArray(new SignedMessage[0]);
+        boolean[] valid = new boolean[batch.length];
+        if (verificationPool == null || batch.length <= VERIFY_BATCH_SIZE) {
+            verifyRange(batch, valid, 0, batch.length);
+        } else {
+            verificationPool.invoke(new VerifyAction(batch, valid, 0, batch.length));
+        }
+        BitSet results = new BitSet(batch.length);
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                results.set(i);
+            }
+        }
+        return results;
+    }
+
+    private void verifyRange(SignedMessage[] batch, boolean[] valid, int from, int to) {
+        for (int i = from; i < to; i++) {
+            SignedMessage message = batch[i];
+            valid[i] = verifySignatureWithTimestamp(message.getNodeId(), message.getSignature(), message.getData(), message.getTimestamp());
+        }
+    }
+
+    /**
+     * 按下标二分拆分的签名验证任务，结果写入对应下标
+     */
+    private class VerifyAction extends RecursiveAction {
+
+        private final SignedMessage[] batch;
+
+        private final boolean[] valid;
+
+        private final int from;
+
+        private final int to;
+
+        VerifyAction(SignedMessage[] batch, boolean[] valid, int from, int to) {
+            this.batch = batch;
+            this.valid = valid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= VERIFY_BATCH_SIZE) {
+                verifyRange(batch, valid, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new VerifyAction(batch, valid, from, middle),
+                    new VerifyAction(batch, valid, middle, to));
+        }
+    }
+
     /**
      * 生成签名消息
      */
@@ -197,9 +298,28 @@ public class NodeAuthService {
      */
     public void removeNodePublicKey(String nodeId) {
         authStorage.deleteNodePublicKey(nodeId);
+        publicKeyCache.invalidate(nodeId);
         log.info("Removed public key for node {}", nodeId);
     }
 
+    /**
+     * 获取公钥缓存统计信息
+     */
+    public Map<String, Object> getPublicKeyCacheStats() {
+        return publicKeyCache.getStats();
+    }
+
+    /**
+     * 从存储读取并解码节点公钥，由公钥缓存在未命中时调用
+     *
+     * @return 节点未注册时返回 null
+     */
+    private byte[] loadNodePublicKey(String nodeId) {
+        return authStorage.getNodePublicKey(nodeId)
+                .map(publicKey -> Base64.getDecoder().decode(publicKey))
+                .orElse(null);
+    }
+
     /**
      * 清理过期的临时密钥
      */
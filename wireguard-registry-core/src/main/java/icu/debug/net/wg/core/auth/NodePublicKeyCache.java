@@ -0,0 +1,227 @@
+package icu.debug.net.wg.core.auth;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 节点公钥缓存
+ * <p>
+ * 按节点ID缓存解码后的 32 字节公钥，验证签名时不需要读取认证存储（集群模式下为一次数据库查询）和 Base64 解码。
+ * 未注册的节点同样缓存为空结果，重复请求不会每次读取存储。每个条目持有自己的加载任务，同一节点的并发未命中只读取一次存储，
+ * 读写不加全局锁；{@link #invalidate(String)} 只移除该节点的条目，失效前开始的加载完成后不会把旧公钥放回缓存。
+ * 条目记录最近访问时间，容量超出后由一个线程按访问时间批量淘汰最久未访问的条目，大量不存在的节点ID不会挤掉频繁验证的公钥；
+ * 条目在有效期后过期，其他实例上更新或删除的公钥最迟在有效期后生效。
+ * </p>
+ */
+public class NodePublicKeyCache {
+
+    public static final int DEFAULT_MAX_SIZE = 65536;
+
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final Map<String, CachedKey> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * @param maxSize   最多缓存的节点数
+     * @param ttlMillis 条目的有效期（毫秒），0 表示不过期
+     */
+    public NodePublicKeyCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+    }
+
+    /**
+     * 获取节点公钥，未缓存或已过期时由调用线程执行加载，其他线程等待同一加载结果。返回的数组由缓存共享，调用方不能修改
+     *
+     * @param loader 从存储读取并解码公钥，节点未注册时返回 null
+     * @return 节点未注册时返回 null
+     */
+    public byte[] get(String nodeId, Function<String, byte[]> loader) {
+        long now = System.nanoTime();
+        CachedKey cached = cache.get(nodeId);
+        if (cached != null && isExpired(cached, now)) {
+            cache.remove(nodeId, cached);
+            cached = null;
+        }
+        if (cached == null) {
+            CachedKey loading = new CachedKey(new CompletableFuture<>(), now);
+            cached = cache.putIfAbsent(nodeId, loading);
+            if (cached == null) {
+                missCount.increment();
+                if (cache.size() > maxSize) {
+                    evictLeastRecentlyUsed();
+                }
+                return load(nodeId, loading, loader);
+            }
+        }
+        cached.accessedAt = now;
+        hitCount.increment();
+        return await(cached);
+    }
+
+    public void invalidate(String nodeId) {
+        cache.remove(nodeId);
+    }
+
+    /**
+     * 条目加载的时间超过指定值时失效，用于签名验证失败或节点不存在时限制重新读取存储的频率
+     *
+     * @return 条目已失效或不存在时返回 true
+     */
+    public boolean invalidateIfOlderThan(String nodeId, long millis) {
+        CachedKey cached = cache.get(nodeId);
+        if (cached == null) {
+            return true;
+        }
+        if (System.nanoTime() - cached.loadedAt < millis * 1_000_000) {
+            return false;
+        }
+        return cache.remove(nodeId, cached);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlNanos / 1_000_000);
+        stats.put("hitCount", getHitCount());
+        stats.put("missCount", getMissCount());
+        stats.put("evictionCount", getEvictionCount());
+        return stats;
+    }
+
+    private boolean isExpired(CachedKey cached, long now) {
+        return ttlNanos != 0 && now - cached.loadedAt >= ttlNanos;
+    }
+
+    /**
+     * 执行加载并完成条目，加载失败时移除条目，等待的线程收到同一异常
+     */
+    private byte[] load(String nodeId, CachedKey loading, Function<String, byte[]> loader) {
+        try {
+            byte[] publicKey = loader.apply(nodeId);
+            loading.publicKey.complete(publicKey);
+            return publicKey;
+        } catch (RuntimeException e) {
+            cache.remove(nodeId, loading);
+            loading.publicKey.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static byte[] await(CachedKey cached) {
+        try {
+            return cached.publicKey.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 按访问时间淘汰最久未访问的条目，一次淘汰到容量的九成，排序的开销分摊到之后的多次写入。
+     * 同一时间只有一个线程执行淘汰，其他线程不等待，淘汰期间缓存可能短暂超出容量
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = cache.size() - (maxSize - maxSize / 10);
+            if (excess <= 0) {
+                return;
+            }
+            // 访问时间在排序期间可能被读取方更新，先固定快照
+            List<AccessSnapshot> snapshots = new ArrayList<>(cache.size());
+            cache.forEach((nodeId, cached) -> snapshots.add(new AccessSnapshot(nodeId, cached, cached.accessedAt)));
+            snapshots.sort(Comparator.comparingLong(AccessSnapshot::accessedAt));
+            for (int i = 0; i < excess && i < snapshots.size(); i++) {
+                AccessSnapshot snapshot = snapshots.get(i);
+                if (cache.remove(snapshot.nodeId(), snapshot.cached())) {
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static final class CachedKey {
+
+        /**
+         * 加载完成后为解码的公钥，节点未注册时为 null
+         */
+        private final CompletableFuture<byte[]> publicKey;
+
+        /**
+         * 开始加载的时间
+         */
+        private final long loadedAt;
+
+        /**
+         * 最近访问的时间，读取时直接覆盖，不加锁
+         */
+        private volatile long accessedAt;
+
+        private CachedKey(CompletableFuture<byte[]> publicKey, long loadedAt) {
+            this.publicKey = publicKey;
+            this.loadedAt = loadedAt;
+            this.accessedAt = loadedAt;
+        }
+    }
+
+    private record AccessSnapshot(String nodeId, CachedKey cached, long accessedAt) {
+    }
+}
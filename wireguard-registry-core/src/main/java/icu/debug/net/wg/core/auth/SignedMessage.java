@@ -0,0 +1,28 @@
+package icu.debug.net.wg.core.auth;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 待验证的节点签名，签名的消息为 {@code data + ":" + timestamp}
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SignedMessage {
+
+    private final String nodeId;
+
+    /**
+     * Base64 编码的签名
+     */
+    private final String signature;
+
+    private final String data;
+
+    /**
+     * 签名时间戳（秒）
+     */
+    private final long timestamp;
+}
@@ -1,21 +1,29 @@
 package icu.debug.net.wg.core.auth.storage.impl;
 
+import icu.debug.net.wg.core.auth.AdminRole;
 import icu.debug.net.wg.core.auth.AdminUser;
 import icu.debug.net.wg.core.auth.TemporaryKey;
 import icu.debug.net.wg.core.auth.storage.AuthStorage;
+import icu.debug.net.wg.core.storage.wal.WriteAheadJournal;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.*;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * 内存认证存储实现
  * 适用于单机模式
+ * <p>
+ * 指定日志目录时通过 {@link WriteAheadJournal} 持久化，重启后节点公钥与管理员用户仍然有效
+ * </p>
  */
 @Slf4j
-public class MemoryAuthStorage implements AuthStorage {
+public class MemoryAuthStorage implements AuthStorage, Closeable {
 
     // 节点公钥存储
     private final Map<String, String> nodePublicKeys = new ConcurrentHashMap<>();
@@ -32,10 +40,30 @@ public class MemoryAuthStorage implements AuthStorage {
     // 数据版本号
     private final AtomicLong dataVersion = new AtomicLong(1);
 
+    private final WriteAheadJournal<JournalEntry, Snapshot> journal;
+
+    public MemoryAuthStorage() {
+        this.journal = null;
+    }
+
+    /**
+     * 使用快照加预写日志持久化，已有数据时恢复
+     *
+     * @param directory           快照与日志文件目录
+     * @param flushIntervalMillis 两次刷盘之间的最小间隔（毫秒）
+     * @param snapshotEntries     写入快照的日志条目数阈值
+     */
+    public MemoryAuthStorage(Path directory, long flushIntervalMillis, long snapshotEntries) {
+        this.journal = new WriteAheadJournal<>(directory, "auth", new JournalCodec(), flushIntervalMillis, snapshotEntries);
+        journal.open(this::restore, this::replay, this::snapshot);
+    }
+
     @Override
     public void saveNodePublicKey(String nodeId, String publicKey) {
-        nodePublicKeys.put(nodeId, publicKey);
-        updateDataVersion();
+        record(() -> {
+            nodePublicKeys.put(nodeId, publicKey);
+            return new JournalEntry(Operation.SAVE_PUBLIC_KEY, nodeId, publicKey, null, null, null, dataVersion.incrementAndGet());
+        });
         log.debug("Saved public key for node: {}", nodeId);
     }
 
@@ -46,8 +74,10 @@ public class MemoryAuthStorage implements AuthStorage {
 
     @Override
     public void deleteNodePublicKey(String nodeId) {
-        nodePublicKeys.remove(nodeId);
-        updateDataVersion();
+        record(() -> {
+            nodePublicKeys.remove(nodeId);
+            return new JournalEntry(Operation.DELETE_PUBLIC_KEY, nodeId, null, null, null, null, dataVersion.incrementAndGet());
+        });
         log.debug("Deleted public key for node: {}", nodeId);
     }
 
@@ -58,8 +88,10 @@ public class MemoryAuthStorage implements AuthStorage {
 
     @Override
     public void saveTemporaryKey(TemporaryKey tempKey) {
-        temporaryKeys.put(tempKey.getKeyId(), tempKey);
-        updateDataVersion();
+        record(() -> {
+            temporaryKeys.put(tempKey.getKeyId(), tempKey);
+            return new JournalEntry(Operation.SAVE_TEMPORARY_KEY, tempKey.getKeyId(), null, tempKey, null, null, dataVersion.incrementAndGet());
+        });
         log.debug("Saved temporary key: {}", tempKey.getKeyId());
     }
 
@@ -76,35 +108,44 @@ public class MemoryAuthStorage implements AuthStorage {
 
     @Override
     public void deleteTemporaryKey(String keyId) {
-        temporaryKeys.remove(keyId);
-        updateDataVersion();
+        record(() -> {
+            temporaryKeys.remove(keyId);
+            return new JournalEntry(Operation.DELETE_TEMPORARY_KEYS, null, null, null, null, List.of(keyId), dataVersion.incrementAndGet());
+        });
         log.debug("Deleted temporary key: {}", keyId);
     }
 
     @Override
     public void cleanupExpiredTemporaryKeys() {
         Instant now = Instant.now();
-        int removedCount = 0;
+        List<String> removed = new ArrayList<>();
         
-        Iterator<Map.Entry<String, TemporaryKey>> iterator = temporaryKeys.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, TemporaryKey> entry = iterator.next();
-            if (entry.getValue().getExpiresAt().isBefore(now)) {
-                iterator.remove();
-                removedCount++;
+        record(() -> {
+            Iterator<Map.Entry<String, TemporaryKey>> iterator = temporaryKeys.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, TemporaryKey> entry = iterator.next();
+                if (entry.getValue().getExpiresAt().isBefore(now)) {
+                    iterator.remove();
+                    removed.add(entry.getKey());
+                }
             }
-        }
+            if (removed.isEmpty()) {
+                return null;
+            }
+            return new JournalEntry(Operation.DELETE_TEMPORARY_KEYS, null, null, null, null, removed, dataVersion.incrementAndGet());
+        });
         
-        if (removedCount > 0) {
-            updateDataVersion();
-            log.debug("Cleaned up {} expired temporary keys", removedCount);
+        if (!removed.isEmpty()) {
+            log.debug("Cleaned up {} expired temporary keys", removed.size());
         }
     }
 
     @Override
     public void saveAdminUser(AdminUser user) {
-        adminUsers.put(user.getUsername(), user);
-        updateDataVersion();
+        record(() -> {
+            adminUsers.put(user.getUsername(), user);
+            return new JournalEntry(Operation.SAVE_ADMIN_USER, user.getUsername(), null, null, user, null, dataVersion.incrementAndGet());
+        });
         log.debug("Saved admin user: {}", user.getUsername());
     }
 
@@ -120,24 +161,35 @@ public class MemoryAuthStorage implements AuthStorage {
 
     @Override
     public void deleteAdminUser(String username) {
-        adminUsers.remove(username);
-        updateDataVersion();
+        record(() -> {
+            adminUsers.remove(username);
+            return new JournalEntry(Operation.DELETE_ADMIN_USER, username, null, null, null, null, dataVersion.incrementAndGet());
+        });
         log.debug("Deleted admin user: {}", username);
     }
 
     @Override
     public void updateAdminUser(AdminUser user) {
-        if (adminUsers.containsKey(user.getUsername())) {
+        boolean[] updated = new boolean[1];
+        record(() -> {
+            if (!adminUsers.containsKey(user.getUsername())) {
+                return null;
+            }
             adminUsers.put(user.getUsername(), user);
-            updateDataVersion();
+            updated[0] = true;
+            return new JournalEntry(Operation.SAVE_ADMIN_USER, user.getUsername(), null, null, user, null, dataVersion.incrementAndGet());
+        });
+        if (updated[0]) {
             log.debug("Updated admin user: {}", user.getUsername());
         }
     }
 
     @Override
     public void revokeToken(String token) {
-        revokedTokens.add(token);
-        updateDataVersion();
+        record(() -> {
+            revokedTokens.add(token);
+            return new JournalEntry(Operation.REVOKE_TOKEN, token, null, null, null, null, dataVersion.incrementAndGet());
+        });
         log.debug("Revoked token");
     }
 
@@ -152,15 +204,17 @@ public class MemoryAuthStorage implements AuthStorage {
         // 可以根据Token的创建时间来判断，但这需要解析JWT
         // 这里简单实现：如果撤销Token太多，清理一部分
         if (revokedTokens.size() > 10000) {
-            int removeCount = revokedTokens.size() / 2;
-            Iterator<String> iterator = revokedTokens.iterator();
-            int removed = 0;
-            while (iterator.hasNext() && removed < removeCount) {
-                iterator.next();
-                iterator.remove();
-                removed++;
-            }
-            log.debug("Cleaned up {} revoked tokens", removed);
+            List<String> removed = new ArrayList<>();
+            record(() -> {
+                int removeCount = revokedTokens.size() / 2;
+                Iterator<String> iterator = revokedTokens.iterator();
+                while (iterator.hasNext() && removed.size() < removeCount) {
+                    removed.add(iterator.next());
+                    iterator.remove();
+                }
+                return new JournalEntry(Operation.REMOVE_REVOKED_TOKENS, null, null, null, null, removed, dataVersion.get());
+            });
+            log.debug("Cleaned up {} revoked tokens", removed.size());
         }
     }
 
@@ -171,12 +225,13 @@ public class MemoryAuthStorage implements AuthStorage {
 
     @Override
     public void updateDataVersion() {
-        dataVersion.incrementAndGet();
+        record(() -> new JournalEntry(Operation.DATA_VERSION, null, null, null, null, null, dataVersion.incrementAndGet()));
     }
 
     @Override
     public boolean isHealthy() {
-        return true; // 内存存储总是健康的
+        // 内存存储总是健康的，启用持久化时取决于日志能否写入磁盘
+        return journal == null || journal.isHealthy();
     }
 
     /**
@@ -189,6 +244,9 @@ public class MemoryAuthStorage implements AuthStorage {
         stats.put("adminUsers", adminUsers.size());
         stats.put("revokedTokens", revokedTokens.size());
         stats.put("dataVersion", dataVersion.get());
+        if (journal != null) {
+            stats.put("journal", journal.getStats());
+        }
         return stats;
     }
 
@@ -196,11 +254,243 @@ public class MemoryAuthStorage implements AuthStorage {
      * 清空所有数据（仅用于测试）
      */
     public void clear() {
+        record(() -> {
+            clearAll();
+            return new JournalEntry(Operation.CLEAR, null, null, null, null, null, 1);
+        });
+        log.warn("Cleared all auth storage data");
+    }
+
+    /**
+     * 写完未刷盘的日志并写入快照，未启用持久化时不做任何事
+     */
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void record(Supplier<JournalEntry> mutation) {
+        if (journal == null) {
+            mutation.get();
+        } else {
+            journal.record(mutation);
+        }
+    }
+
+    private void clearAll() {
         nodePublicKeys.clear();
         temporaryKeys.clear();
         adminUsers.clear();
         revokedTokens.clear();
         dataVersion.set(1);
-        log.warn("Cleared all auth storage data");
+    }
+
+    private void replay(JournalEntry entry) {
+        switch (entry.operation()) {
+            case SAVE_PUBLIC_KEY -> nodePublicKeys.put(entry.key(), entry.value());
+            case DELETE_PUBLIC_KEY -> nodePublicKeys.remove(entry.key());
+            case SAVE_TEMPORARY_KEY -> temporaryKeys.put(entry.key(), entry.temporaryKey());
+            case DELETE_TEMPORARY_KEYS -> entry.keys().forEach(temporaryKeys::remove);
+            case SAVE_ADMIN_USER -> adminUsers.put(entry.key(), entry.adminUser());
+            case DELETE_ADMIN_USER -> adminUsers.remove(entry.key());
+            case REVOKE_TOKEN -> revokedTokens.add(entry.key());
+            case REMOVE_REVOKED_TOKENS -> entry.keys().forEach(revokedTokens::remove);
+            case CLEAR -> clearAll();
+            case DATA_VERSION -> {
+            }
+        }
+        dataVersion.set(entry.dataVersion());
+    }
+
+    private Snapshot snapshot() {
+        return new Snapshot(new HashMap<>(nodePublicKeys), new ArrayList<>(temporaryKeys.values()),
+                new ArrayList<>(adminUsers.values()), new ArrayList<>(revokedTokens), dataVersion.get());
+    }
+
+    private void restore(Snapshot snapshot) {
+        nodePublicKeys.putAll(snapshot.nodePublicKeys());
+        snapshot.temporaryKeys().forEach(key -> temporaryKeys.put(key.getKeyId(), key));
+        snapshot.adminUsers().forEach(user -> adminUsers.put(user.getUsername(), user));
+        revokedTokens.addAll(snapshot.revokedTokens());
+        dataVersion.set(snapshot.dataVersion());
+    }
+
+    private enum Operation {
+        SAVE_PUBLIC_KEY, DELETE_PUBLIC_KEY, SAVE_TEMPORARY_KEY, DELETE_TEMPORARY_KEYS, SAVE_ADMIN_USER, DELETE_ADMIN_USER,
+        REVOKE_TOKEN, REMOVE_REVOKED_TOKENS, DATA_VERSION, CLEAR
+    }
+
+    /**
+     * 日志条目，按操作类型使用其中的字段，dataVersion 为操作后的数据版本号
+     */
+    private record JournalEntry(Operation operation, String key, String value, TemporaryKey temporaryKey,
+                                AdminUser adminUser, List<String> keys, long dataVersion) {
+    }
+
+    private record Snapshot(Map<String, String> nodePublicKeys, List<TemporaryKey> temporaryKeys, List<AdminUser> adminUsers,
+                            List<String> revokedTokens, long dataVersion) {
+    }
+
+    /**
+     * 按字段顺序写入的二进制编解码器，可为空的字段以一个存在标记开头
+     */
+    private static final class JournalCodec implements WriteAheadJournal.Codec<JournalEntry, Snapshot> {
+
+        @Override
+        public byte[] encodeEntry(JournalEntry entry) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(entry.operation().ordinal());
+            writeString(out, entry.key());
+            writeString(out, entry.value());
+            out.writeBoolean(entry.temporaryKey() != null);
+            if (entry.temporaryKey() != null) {
+                writeTemporaryKey(out, entry.temporaryKey());
+            }
+            out.writeBoolean(entry.adminUser() != null);
+            if (entry.adminUser() != null) {
+                writeAdminUser(out, entry.adminUser());
+            }
+            writeStrings(out, entry.keys() == null ? List.of() : entry.keys());
+            out.writeLong(entry.dataVersion());
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public JournalEntry decodeEntry(byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            Operation operation = Operation.values()[in.readUnsignedByte()];
+            String key = readString(in);
+            String value = readString(in);
+            TemporaryKey temporaryKey = in.readBoolean() ? readTemporaryKey(in) : null;
+            AdminUser adminUser = in.readBoolean() ? readAdminUser(in) : null;
+            List<String> keys = readStrings(in);
+            return new JournalEntry(operation, key, value, temporaryKey, adminUser, keys, in.readLong());
+        }
+
+        @Override
+        public byte[] encodeSnapshot(Snapshot snapshot) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(snapshot.nodePublicKeys().size());
+            for (Map.Entry<String, String> entry : snapshot.nodePublicKeys().entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.writeInt(snapshot.temporaryKeys().size());
+            for (TemporaryKey key : snapshot.temporaryKeys()) {
+                writeTemporaryKey(out, key);
+            }
+            out.writeInt(snapshot.adminUsers().size());
+            for (AdminUser user : snapshot.adminUsers()) {
+                writeAdminUser(out, user);
+            }
+            writeStrings(out, snapshot.revokedTokens());
+            out.writeLong(snapshot.dataVersion());
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public Snapshot decodeSnapshot(byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            Map<String, String> publicKeys = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                publicKeys.put(in.readUTF(), in.readUTF());
+            }
+            List<TemporaryKey> temporaryKeys = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                temporaryKeys.add(readTemporaryKey(in));
+            }
+            List<AdminUser> adminUsers = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                adminUsers.add(readAdminUser(in));
+            }
+            List<String> revokedTokens = readStrings(in);
+            return new Snapshot(publicKeys, temporaryKeys, adminUsers, revokedTokens, in.readLong());
+        }
+
+        private static void writeTemporaryKey(DataOutputStream out, TemporaryKey key) throws IOException {
+            writeString(out, key.getKeyId());
+            writeString(out, key.getNetworkId());
+            writeString(out, key.getPrivateKey());
+            writeString(out, key.getPublicKey());
+            writeInstant(out, key.getExpiresAt());
+        }
+
+        private static TemporaryKey readTemporaryKey(DataInputStream in) throws IOException {
+            return new TemporaryKey(readString(in), readString(in), readString(in), readString(in), readInstant(in));
+        }
+
+        private static void writeAdminUser(DataOutputStream out, AdminUser user) throws IOException {
+            writeString(out, user.getUsername());
+            writeString(out, user.getPasswordHash());
+            writeString(out, user.getEmail());
+            Set<AdminRole> roles = user.getRoles() == null ? Set.of() : user.getRoles();
+            out.writeInt(roles.size());
+            for (AdminRole role : roles) {
+                out.writeUTF(role.name());
+            }
+            out.writeBoolean(user.isActive());
+            writeInstant(out, user.getCreatedAt());
+            writeInstant(out, user.getUpdatedAt());
+            writeInstant(out, user.getLastLoginAt());
+        }
+
+        private static AdminUser readAdminUser(DataInputStream in) throws IOException {
+            AdminUser user = new AdminUser();
+            user.setUsername(readString(in));
+            user.setPasswordHash(readString(in));
+            user.setEmail(readString(in));
+            Set<AdminRole> roles = new HashSet<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                roles.add(AdminRole.valueOf(in.readUTF()));
+            }
+            user.setRoles(roles);
+            user.setActive(in.readBoolean());
+            user.setCreatedAt(readInstant(in));
+            user.setUpdatedAt(readInstant(in));
+            user.setLastLoginAt(readInstant(in));
+            return user;
+        }
+
+        private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static List<String> readStrings(DataInputStream in) throws IOException {
+            List<String> values = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                values.add(in.readUTF());
+            }
+            return values;
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value.getEpochSecond());
+                out.writeInt(value.getNano());
+            }
+        }
+
+        private static Instant readInstant(DataInputStream in) throws IOException {
+            return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+        }
     }
 }
\ No newline at end of file
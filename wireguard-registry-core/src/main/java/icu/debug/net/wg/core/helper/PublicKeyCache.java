@@ -0,0 +1,138 @@
+package icu.debug.net.wg.core.helper;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 公钥派生缓存
+ * <p>
+ * 基于私钥派生公钥需要一次 Curve25519 标量乘法，生成配置时每个节点的公钥会在所有节点的 peer 中重复使用，
+ * 按私钥字节缓存派生结果。缓存由配置生成器持有，随生成器一起释放，不在进程内全局保存私钥；
+ * 读写不加全局锁，并行生成时各线程互不阻塞。容量有限，超出后淘汰任意一个条目。
+ * </p>
+ */
+public class PublicKeyCache {
+
+    public static final int DEFAULT_MAX_SIZE = 65536;
+
+    private final int maxSize;
+
+    private final Map<PrivateKeyBytes, String> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    public PublicKeyCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public PublicKeyCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 获取私钥对应的公钥，未命中时派生并缓存
+     *
+     * @param privateKey Base64 编码的私钥
+     * @return Base64 编码的公钥
+     */
+    public String getPublicKey(String privateKey) {
+        return getPublicKey(Base64.getDecoder().decode(privateKey));
+    }
+
+    public String getPublicKey(byte[] privateKey) {
+        PrivateKeyBytes key = new PrivateKeyBytes(privateKey);
+        String publicKey = cache.get(key);
+        if (publicKey != null) {
+            hitCount.increment();
+            return publicKey;
+        }
+        missCount.increment();
+        // 并发未命中时可能重复派生，结果一致
+        publicKey = WireGuardGenKeyHelper.genPubKeyByPrivateKey(privateKey);
+        if (cache.put(key, publicKey) == null && cache.size() > maxSize) {
+            evictOne(key);
+        }
+        return publicKey;
+    }
+
+    private void evictOne(PrivateKeyBytes retained) {
+        Iterator<PrivateKeyBytes> iterator = cache.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().equals(retained)) {
+                iterator.remove();
+                evictionCount.increment();
+                return;
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hitCount", getHitCount());
+        stats.put("missCount", getMissCount());
+        stats.put("evictionCount", getEvictionCount());
+        return stats;
+    }
+
+    /**
+     * 以字节内容比较的私钥，持有副本避免外部修改
+     */
+    private static final class PrivateKeyBytes {
+
+        private final byte[] bytes;
+
+        private final int hash;
+
+        private PrivateKeyBytes(byte[] bytes) {
+            this.bytes = bytes.clone();
+            this.hash = Arrays.hashCode(this.bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PrivateKeyBytes other && Arrays.equals(bytes, other.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
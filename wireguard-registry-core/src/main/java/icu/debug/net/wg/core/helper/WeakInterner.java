@@ -0,0 +1,57 @@
+package icu.debug.net.wg.core.helper;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 弱引用规范化池
+ * <p>
+ * 相等的不可变值只保留一个实例，池中的值不再被引用后随 GC 回收，删除节点不会让池无限增长。
+ * 放入池中的值必须不可变，否则修改后会影响所有共享它的对象
+ * </p>
+ *
+ * @param <T> 不可变且正确实现 equals/hashCode 的值类型
+ */
+public class WeakInterner<T> {
+
+    private final Map<T, WeakReference<T>> pool = new WeakHashMap<>();
+
+    private long hitCount;
+
+    private long missCount;
+
+    /**
+     * 返回与参数相等的规范实例，池中没有时放入参数本身
+     */
+    public synchronized T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<T> reference = pool.get(value);
+        T canonical = reference == null ? null : reference.get();
+        if (canonical != null) {
+            hitCount++;
+            return canonical;
+        }
+        missCount++;
+        pool.put(value, new WeakReference<>(value));
+        return value;
+    }
+
+    public synchronized int size() {
+        return pool.size();
+    }
+
+    /**
+     * 获取规范化统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", pool.size());
+        stats.put("hitCount", hitCount);
+        stats.put("missCount", missCount);
+        return stats;
+    }
+}
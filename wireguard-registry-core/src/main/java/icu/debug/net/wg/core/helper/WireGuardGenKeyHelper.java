@@ -21,8 +21,11 @@ public class WireGuardGenKeyHelper {
 
 
     public static String genPubKeyByPrivateKey(String privateKey) {
-        byte[] bytes = Base64.getDecoder().decode(privateKey);
-        byte[] publicKey = PROVIDER.generatePublicKey(bytes);
+        return genPubKeyByPrivateKey(Base64.getDecoder().decode(privateKey));
+    }
+
+    public static String genPubKeyByPrivateKey(byte[] privateKey) {
+        byte[] publicKey = PROVIDER.generatePublicKey(privateKey);
         return Base64.getEncoder().encodeToString(publicKey);
     }
 
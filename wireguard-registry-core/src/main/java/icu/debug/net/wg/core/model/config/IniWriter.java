@@ -0,0 +1,58 @@
+package icu.debug.net.wg.core.model.config;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * ini 文本写入助手，直接写入目标 Appendable，不产生中间行列表
+ */
+@UtilityClass
+class IniWriter {
+
+    /**
+     * 写入一行 key = value，值为空时忽略
+     */
+    static void writeLine(Appendable out, String key, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            out.append('\n').append(key).append(" = ").append(value);
+        }
+    }
+
+    /**
+     * 写入一行 key = v1,v2,...，值列表为空时忽略
+     */
+    static void writeJoinedLine(Appendable out, String key, List<String> values) throws IOException {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        out.append('\n').append(key).append(" = ");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(values.get(i));
+        }
+    }
+
+    /**
+     * 渲染到字符串
+     */
+    static String render(StringBuilder builder, IniWritable writable) {
+        try {
+            writable.writeIni(builder);
+        } catch (IOException e) {
+            // StringBuilder 不会抛出 IOException
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    @FunctionalInterface
+    interface IniWritable {
+
+        void writeIni(Appendable out) throws IOException;
+    }
+}
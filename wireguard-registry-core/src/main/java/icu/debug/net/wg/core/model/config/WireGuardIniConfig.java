@@ -2,6 +2,10 @@ package icu.debug.net.wg.core.model.config;
 
 import lombok.*;
 
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -10,6 +14,7 @@ import java.util.List;
 @Getter
 @Setter
 @ToString
+@EqualsAndHashCode
 @AllArgsConstructor
 @NoArgsConstructor
 public class WireGuardIniConfig {
@@ -29,10 +34,44 @@ public class WireGuardIniConfig {
      * @return
      */
     public String toIniString() {
-        StringBuilder iniBuilder = new StringBuilder();
-        iniBuilder.append(wgInterface.toIniString()+"\n");
-        peers.forEach(item -> iniBuilder.append("\n\n"+item.toIniString()));
-        return iniBuilder.toString();
+        // 按每个 peer 的典型长度预估容量，避免多次扩容
+        return IniWriter.render(new StringBuilder(256 + peers.size() * 192), this::writeTo);
+    }
+
+    /**
+     * 将 Ini 格式文本配置直接写入目标
+     *
+     * @param out 写入目标
+     */
+    public void writeTo(Appendable out) throws IOException {
+        wgInterface.writeIni(out);
+        out.append('\n');
+        for (WireGuardPeer peer : peers) {
+            out.append("\n\n");
+            peer.writeIni(out);
+        }
+    }
+
+    /**
+     * 以 UTF-8 编码写入输出流，写入后 flush，不关闭输出流
+     *
+     * @param out 输出流
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeTo(writer);
+        writer.flush();
+    }
+
+    /**
+     * 以 UTF-8 编码写入通道，写入后 flush，不关闭通道
+     *
+     * @param channel 写入通道
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        writeTo(writer);
+        writer.flush();
     }
 
 
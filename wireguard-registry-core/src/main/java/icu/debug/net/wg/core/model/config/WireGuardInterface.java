@@ -1,9 +1,11 @@
 package icu.debug.net.wg.core.model.config;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Function;
 
@@ -28,6 +30,7 @@ import java.util.function.Function;
 @Getter
 @Setter
 @ToString
+@EqualsAndHashCode
 public class WireGuardInterface {
 
     private static final Map<String, Function<WireGuardInterface, String>> FORMAT_SINGLE_FUNC_MAT = new LinkedHashMap<>();
@@ -137,24 +140,26 @@ public class WireGuardInterface {
 
 
     public String toIniString() {
-        List<String> content = new ArrayList<>();
-        content.add("[Interface]");
-        FORMAT_SINGLE_FUNC_MAT.forEach((key, func) -> {
-            String value = func.apply(this);
-            if (Objects.nonNull(value) && !value.isEmpty()) {
-                content.add(key + " = " + value);
+        return IniWriter.render(new StringBuilder(256), this::writeIni);
+    }
+
+    /**
+     * 将 [Interface] 段直接写入目标，不含结尾换行
+     */
+    public void writeIni(Appendable out) throws IOException {
+        out.append("[Interface]");
+        for (Map.Entry<String, Function<WireGuardInterface, String>> entry : FORMAT_SINGLE_FUNC_MAT.entrySet()) {
+            IniWriter.writeLine(out, entry.getKey(), entry.getValue().apply(this));
+        }
+        for (Map.Entry<String, Function<WireGuardInterface, List<String>>> entry : FORMAT_MULTI_FUNC_MAT.entrySet()) {
+            List<String> values = entry.getValue().apply(this);
+            if (Objects.isNull(values)) {
+                continue;
             }
-        });
-        FORMAT_MULTI_FUNC_MAT.forEach((key, func) -> {
-            List<String> values = func.apply(this);
-            if (Objects.nonNull(values) && !values.isEmpty()) {
-                values.stream().filter(Objects::nonNull)
-                        .filter(value -> !value.isEmpty())
-                        .forEach(value -> content.add(key + " = " + value));
+            for (String value : values) {
+                IniWriter.writeLine(out, entry.getKey(), value);
             }
-        });
-        return String.join("\n", content);
+        }
     }
 
 }
-
@@ -1,9 +1,12 @@
 package icu.debug.net.wg.core.model.config;
 
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Function;
 
@@ -24,14 +27,13 @@ import java.util.function.Function;
 @Getter
 @Setter
 @ToString
+@EqualsAndHashCode
 public class WireGuardPeer {
 
     private final static Map<String, Function<WireGuardPeer,String>> FORMAT_SINGLE_FUNC_MAT = new LinkedHashMap<>(){{
         put("# Name", WireGuardPeer::getName);
         put("Endpoint", WireGuardPeer::getEndpoint);
         put("PublicKey", WireGuardPeer::getPublicKey);
-        put("AllowedIPs", item-> Optional.ofNullable(item.getAllowedIPs()).map(v->String.join(",",v)).orElse(""));
-        put("PersistentKeepalive", item-> Optional.ofNullable(item.getPersistentKeepalive()).map(String::valueOf).orElse(""));
     }};
 
 
@@ -43,6 +45,9 @@ public class WireGuardPeer {
     /**
      * 允许该对等节点（peer）发送过来的 VPN 流量中的源地址范围。同时这个字段也会作为本机路由表中 wg0 绑定的 IP 地址范围。如果对等节点（peer）是常规的客户端，则将其设置为节点本身的单个 IP；如果对等节点（peer）是中继服务器，则将其设置为可路由的子网范围。
      * 指定多个 IP 或子网范围
+     * <p>
+     * 设置时复制为不可修改的列表，修改传入或读取到的列表不会使已渲染的 ini 文本过期
+     * </p>
      */
     private List<String> allowedIPs;
 
@@ -70,16 +75,72 @@ public class WireGuardPeer {
      */
     private Integer persistentKeepalive;
 
+    /**
+     * 已渲染的 ini 文本，同一个 peer 会被多个节点配置共享，只需渲染一次，修改属性时失效
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient String iniString;
+
+    public void setName(String name) {
+        this.name = name;
+        this.iniString = null;
+    }
+
+    public void setAllowedIPs(List<String> allowedIPs) {
+        this.allowedIPs = allowedIPs == null ? null : List.copyOf(allowedIPs);
+        this.iniString = null;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+        this.iniString = null;
+    }
+
+    public void setPublicKey(String publicKey) {
+        this.publicKey = publicKey;
+        this.iniString = null;
+    }
+
+    public void setPersistentKeepalive(Integer persistentKeepalive) {
+        this.persistentKeepalive = persistentKeepalive;
+        this.iniString = null;
+    }
+
     public String toIniString() {
-        List<String> content = new ArrayList<>();
-        content.add("[Peer]");
-        FORMAT_SINGLE_FUNC_MAT.forEach((key, func) -> {
-            String value = func.apply(this);
-            if (Objects.nonNull(value) && !value.isEmpty()) {
-                content.add(key + " = " + value);
-            }
-        });
-        return String.join("\n",content);
+        String cached = this.iniString;
+        if (cached == null) {
+            cached = renderIniString();
+            this.iniString = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * 将 [Peer] 段直接写入目标，不含结尾换行
+     * <p>
+     * 已渲染过文本时直接写入缓存的文本，否则逐个字段写入，不产生中间字符串
+     * </p>
+     */
+    public void writeIni(Appendable out) throws IOException {
+        String cached = this.iniString;
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        out.append("[Peer]");
+        for (Map.Entry<String, Function<WireGuardPeer, String>> entry : FORMAT_SINGLE_FUNC_MAT.entrySet()) {
+            IniWriter.writeLine(out, entry.getKey(), entry.getValue().apply(this));
+        }
+        IniWriter.writeJoinedLine(out, "AllowedIPs", allowedIPs);
+        if (persistentKeepalive != null) {
+            out.append("\nPersistentKeepalive = ").append(String.valueOf(persistentKeepalive));
+        }
     }
-}
 
+    private String renderIniString() {
+        return IniWriter.render(new StringBuilder(192), this::writeIni);
+    }
+}
@@ -0,0 +1,227 @@
+package icu.debug.net.wg.core.model.network;
+
+import org.apache.commons.net.util.SubnetUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 线程安全的网络地址分配器
+ * <p>
+ * 位图按 64 位字存放在 {@link AtomicLongArray} 中，通过对单个字 CAS 抢占地址，没有全局锁，
+ * 大量节点同时注册时可以并行分配。位图按页懒加载，大子网不会一次性占用内存。
+ * </p>
+ * <p>
+ * 游标只是提示值：并发释放与分配交错时不保证总是分配最小的空闲地址，
+ * 但保证同一地址不会被重复分配，且释放的地址最终会被复用。
+ * </p>
+ * <p>
+ * 对外方法与 {@link NetAddressAllocator} 一致，配置生成器使用本类分配节点地址，并发注册的新节点可以在生成器的锁外预先分配地址。
+ * </p>
+ */
+public class ConcurrentNetAddressAllocator {
+
+    private static final int WORD_BITS = 64;
+
+    private static final int PAGE_WORDS = 1024;
+
+    private static final long FULL_WORD = -1L;
+
+    private final SubnetUtils subnetUtils;
+
+    /**
+     * 第一个可分配主机地址（整数形式）
+     */
+    private final int lowAddress;
+
+    /**
+     * 可分配主机地址数量
+     */
+    private final int hostCount;
+
+    private final int wordCount;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+
+    /**
+     * 游标，通常小于该位置的字均已分配满
+     */
+    private final AtomicInteger rover = new AtomicInteger();
+
+    public ConcurrentNetAddressAllocator(SubnetUtils subnetUtils) {
+        this.subnetUtils = subnetUtils;
+        SubnetUtils.SubnetInfo info = subnetUtils.getInfo();
+        long count = info.getAddressCountLong();
+        this.hostCount = (int) Math.min(count, Integer.MAX_VALUE);
+        this.lowAddress = count > 0 ? info.asInteger(info.getLowAddress()) : 0;
+        this.wordCount = (int) ((hostCount + (long) WORD_BITS - 1) / WORD_BITS);
+        this.pages = new AtomicReferenceArray<>((wordCount + PAGE_WORDS - 1) / PAGE_WORDS);
+    }
+
+    public ConcurrentNetAddressAllocator(String cidrNotation) {
+        this(new SubnetUtils(cidrNotation));
+    }
+
+    public ConcurrentNetAddressAllocator(String address, String mask) {
+        this(new SubnetUtils(address, mask));
+    }
+
+    // 判断 IP 地址是否属于当前子网
+    public boolean isInSubnet(String ip) {
+        return this.subnetUtils.getInfo().isInRange(ip);
+    }
+
+    // 判断 IP 是否已经分配
+    public boolean isAllocated(String ip) {
+        long address = NetAddressAllocator.toInteger(ip);
+        return address >= 0 && isAllocated((int) address);
+    }
+
+    public boolean isAllocated(int address) {
+        int index = indexOf(address);
+        if (index < 0) {
+            return false;
+        }
+        AtomicLongArray page = pages.get(index / WORD_BITS / PAGE_WORDS);
+        return page != null && (page.get(index / WORD_BITS % PAGE_WORDS) & bit(index)) != 0;
+    }
+
+    // 注册已经分配的 IP 地址
+    public void registerAllocatedIP(String ip) {
+        long address = NetAddressAllocator.toInteger(ip);
+        if (address >= 0) {
+            registerAllocatedIP((int) address);
+        }
+    }
+
+    public void registerAllocatedIP(int address) {
+        int index = indexOf(address);
+        if (index >= 0) {
+            page(index / WORD_BITS).getAndAccumulate(index / WORD_BITS % PAGE_WORDS, bit(index), (w, b) -> w | b);
+        }
+    }
+
+    // 注册已经分配的 IP 地址列表
+    public void registerAllocatedIPs(List<String> ips) {
+        for (String ip : ips) {
+            registerAllocatedIP(ip);
+        }
+    }
+
+    // 按顺序分配 IP 地址
+    public Optional<String> allocateIP() {
+        OptionalInt address = allocateAddress();
+        return address.isPresent() ? Optional.of(NetAddressAllocator.toAddress(address.getAsInt())) : Optional.empty();
+    }
+
+    /**
+     * 分配一个空闲地址，通常为最小的空闲地址
+     *
+     * @return 整数形式的地址，没有可用地址时为空
+     */
+    public OptionalInt allocateAddress() {
+        int start = rover.get();
+        OptionalInt address = allocateFrom(start, wordCount);
+        if (address.isEmpty() && start > 0) {
+            // 游标可能越过了并发释放的地址，从头补扫一次
+            address = allocateFrom(0, start);
+        }
+        return address;
+    }
+
+    // 释放 IP 地址
+    public void releaseIP(String ip) {
+        long address = NetAddressAllocator.toInteger(ip);
+        if (address >= 0) {
+            releaseIP((int) address);
+        }
+    }
+
+    public void releaseIP(int address) {
+        int index = indexOf(address);
+        if (index < 0) {
+            return;
+        }
+        AtomicLongArray page = pages.get(index / WORD_BITS / PAGE_WORDS);
+        if (page == null) {
+            return;
+        }
+        long mask = bit(index);
+        long previous = page.getAndAccumulate(index / WORD_BITS % PAGE_WORDS, mask, (w, b) -> w & ~b);
+        if ((previous & mask) != 0) {
+            int word = index / WORD_BITS;
+            rover.accumulateAndGet(word, Math::min);
+        }
+    }
+
+    /**
+     * 已分配地址数量
+     */
+    public int getAllocatedCount() {
+        int count = 0;
+        for (int i = 0; i < pages.length(); i++) {
+            AtomicLongArray page = pages.get(i);
+            if (page == null) {
+                continue;
+            }
+            for (int j = 0; j < page.length(); j++) {
+                count += Long.bitCount(page.get(j));
+            }
+        }
+        return count;
+    }
+
+    private OptionalInt allocateFrom(int fromWord, int toWord) {
+        for (int word = fromWord; word < toWord; word++) {
+            AtomicLongArray page = page(word);
+            int offset = word % PAGE_WORDS;
+            long current = page.get(offset);
+            while (current != FULL_WORD) {
+                int bitIndex = Long.numberOfTrailingZeros(~current);
+                int index = word * WORD_BITS + bitIndex;
+                if (index >= hostCount) {
+                    // 最后一个字的剩余位超出子网范围
+                    return OptionalInt.empty();
+                }
+                long next = current | (1L << bitIndex);
+                long witness = page.compareAndExchange(offset, current, next);
+                if (witness == current) {
+                    if (next == FULL_WORD) {
+                        rover.compareAndSet(word, word + 1);
+                    }
+                    return OptionalInt.of(lowAddress + index);
+                }
+                current = witness;
+            }
+            rover.compareAndSet(word, word + 1);
+        }
+        return OptionalInt.empty();
+    }
+
+    private AtomicLongArray page(int word) {
+        int pageIndex = word / PAGE_WORDS;
+        AtomicLongArray page = pages.get(pageIndex);
+        if (page == null) {
+            int length = Math.min(PAGE_WORDS, wordCount - pageIndex * PAGE_WORDS);
+            pages.compareAndSet(pageIndex, null, new AtomicLongArray(length));
+            page = pages.get(pageIndex);
+        }
+        return page;
+    }
+
+    /**
+     * 地址在位图中的下标，不在可分配范围时返回 -1
+     */
+    private int indexOf(int address) {
+        long offset = Integer.toUnsignedLong(address) - Integer.toUnsignedLong(this.lowAddress);
+        return offset >= 0 && offset < this.hostCount ? (int) offset : -1;
+    }
+
+    private static long bit(int index) {
+        return 1L << (index % WORD_BITS);
+    }
+}
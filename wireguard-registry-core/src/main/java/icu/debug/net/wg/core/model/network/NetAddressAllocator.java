@@ -2,13 +2,17 @@ package icu.debug.net.wg.core.model.network;
 
 import org.apache.commons.net.util.SubnetUtils;
 
-import java.util.LinkedHashSet;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.OptionalInt;
 
 /**
  * 网络地址分配器
+ * <p>
+ * 以子网内主机序号为下标的位图记录分配状态，配合游标指向最小的可能空闲位置，
+ * 顺序分配为均摊 O(1)，不再展开子网内全部地址；字符串与整数地址仅在接口边界转换
+ * </p>
  *
  * @author hanjinxiang@debug.icu
  * @date 2024-01-29 22:58
@@ -17,19 +21,41 @@ public class NetAddressAllocator {
 
     private final SubnetUtils subnetUtils;
 
-    private Set<String> allocatedIPs = new LinkedHashSet<>();
+    /**
+     * 第一个可分配主机地址（整数形式）
+     */
+    private final int lowAddress;
+
+    /**
+     * 可分配主机地址数量
+     */
+    private final int hostCount;
+
+    /**
+     * 已分配位图，下标为相对 lowAddress 的偏移
+     */
+    private final BitSet allocated = new BitSet();
+
+    /**
+     * 游标，小于该位置的地址均已分配
+     */
+    private int rover;
 
 
     public NetAddressAllocator(SubnetUtils subnetUtils) {
         this.subnetUtils = subnetUtils;
+        SubnetUtils.SubnetInfo info = subnetUtils.getInfo();
+        long count = info.getAddressCountLong();
+        this.hostCount = (int) Math.min(count, Integer.MAX_VALUE);
+        this.lowAddress = count > 0 ? info.asInteger(info.getLowAddress()) : 0;
     }
 
     public NetAddressAllocator(String cidrNotation) {
-        this.subnetUtils = new SubnetUtils(cidrNotation);
+        this(new SubnetUtils(cidrNotation));
     }
 
     public NetAddressAllocator(String address, String mask) {
-        this.subnetUtils = new SubnetUtils(address, mask);
+        this(new SubnetUtils(address, mask));
     }
 
     // 判断 IP 地址是否属于当前子网
@@ -39,13 +65,27 @@ public class NetAddressAllocator {
 
     // 判断 IP 是否已经分配
     public boolean isAllocated(String ip) {
-        return this.allocatedIPs.contains(ip);
+        long address = toInteger(ip);
+        return address >= 0 && isAllocated((int) address);
+    }
+
+    public boolean isAllocated(int address) {
+        int index = indexOf(address);
+        return index >= 0 && this.allocated.get(index);
     }
 
     // 注册已经分配的 IP 地址
     public void registerAllocatedIP(String ip) {
-        if (isInSubnet(ip) && !isAllocated(ip)) {
-            this.allocatedIPs.add(ip);
+        long address = toInteger(ip);
+        if (address >= 0) {
+            registerAllocatedIP((int) address);
+        }
+    }
+
+    public void registerAllocatedIP(int address) {
+        int index = indexOf(address);
+        if (index >= 0) {
+            this.allocated.set(index);
         }
     }
 
@@ -58,20 +98,95 @@ public class NetAddressAllocator {
 
     // 按顺序分配 IP 地址
     public Optional<String> allocateIP() {
-        String[] allIps = this.subnetUtils.getInfo().getAllAddresses();
-        for (String ip : allIps) {
-            if (!this.allocatedIPs.contains(ip)) {
-                this.allocatedIPs.add(ip);
-                return Optional.ofNullable(ip);
-            }
+        OptionalInt address = allocateAddress();
+        return address.isPresent() ? Optional.of(toAddress(address.getAsInt())) : Optional.empty();
+    }
+
+    /**
+     * 按顺序分配最小的空闲地址
+     *
+     * @return 整数形式的地址，没有可用地址时为空
+     */
+    public OptionalInt allocateAddress() {
+        int index = this.allocated.nextClearBit(this.rover);
+        if (index >= this.hostCount) {
+            this.rover = this.hostCount;
+            return OptionalInt.empty(); // 没有可用的 IP 地址
         }
-        return Optional.empty(); // 没有可用的 IP 地址
+        this.allocated.set(index);
+        this.rover = index + 1;
+        return OptionalInt.of(this.lowAddress + index);
     }
 
     // 释放 IP 地址
     public void releaseIP(String ip) {
-        this.allocatedIPs.remove(ip);
+        long address = toInteger(ip);
+        if (address >= 0) {
+            releaseIP((int) address);
+        }
+    }
+
+    public void releaseIP(int address) {
+        int index = indexOf(address);
+        if (index >= 0 && this.allocated.get(index)) {
+            this.allocated.clear(index);
+            this.rover = Math.min(this.rover, index);
+        }
+    }
+
+    /**
+     * 已分配地址数量
+     */
+    public int getAllocatedCount() {
+        return this.allocated.cardinality();
     }
 
+    private int indexOf(int address) {
+        long offset = Integer.toUnsignedLong(address) - Integer.toUnsignedLong(this.lowAddress);
+        return offset >= 0 && offset < this.hostCount ? (int) offset : -1;
+    }
+
+    /**
+     * 点分十进制地址转为整数，格式非法时返回 -1
+     */
+    public static long toInteger(String ip) {
+        if (ip == null) {
+            return -1;
+        }
+        long result = 0;
+        int part = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    return -1;
+                }
+                result = (result << 8) | part;
+                part = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 3) {
+                part = part * 10 + (c - '0');
+                digits++;
+                if (part > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || dots != 3) {
+            return -1;
+        }
+        return (result << 8) | part;
+    }
+
+    /**
+     * 整数地址转为点分十进制
+     */
+    public static String toAddress(int address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
 
 }
@@ -1,5 +1,6 @@
 package icu.debug.net.wg.core.model.network;
 
+import icu.debug.net.wg.core.helper.PublicKeyCache;
 import icu.debug.net.wg.core.helper.WireGuardGenKeyHelper;
 import icu.debug.net.wg.core.model.config.Endpoint;
 import icu.debug.net.wg.core.model.config.WireGuardInterface;
@@ -94,19 +95,27 @@ public class WireGuardNetworkNode {
         wireGuardInterface.setPostUp(postUp);
         wireGuardInterface.setPreDown(preDown);
         wireGuardInterface.setPreUp(preUp);
-        wireGuardInterface.setPrivateKey(privateKey);
+        wireGuardInterface.setPrivateKey(getPrivateKey());
         wireGuardInterface.setTable(table);
         return wireGuardInterface;
     }
 
     public WireGuardPeer toPeer(EndpointType endpointType) {
+        return toPeer(endpointType, null);
+    }
+
+    /**
+     * @param publicKeyCache 派生公钥使用的缓存，为空时直接派生
+     */
+    public WireGuardPeer toPeer(EndpointType endpointType, PublicKeyCache publicKeyCache) {
         WireGuardPeer peer = new WireGuardPeer();
         peer.setName(serverNode.getHostname());
         EndpointType.buildEndpoint(endpointType, this.serverNode, this.listenPort)
                 .map(Endpoint::toString)
                 .ifPresent(peer::setEndpoint);
+        String privateKey = getPrivateKey();
         if (privateKey != null) {
-            peer.setPublicKey(WireGuardGenKeyHelper.genPubKeyByPrivateKey(privateKey));
+            peer.setPublicKey(publicKeyCache != null ? publicKeyCache.getPublicKey(privateKey) : WireGuardGenKeyHelper.genPubKeyByPrivateKey(privateKey));
         }
         if (!ObjectUtils.isEmpty(address)) {
             peer.setAllowedIPs(List.of(address));
@@ -2,9 +2,12 @@ package icu.debug.net.wg.core.registry;
 
 import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.RenderedConfig;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * 配置注册中心接口
@@ -37,6 +40,11 @@ public interface ConfigRegistry {
      */
     List<WireGuardNetworkNode> getNodes(String networkId);
 
+    /**
+     * 按节点ID顺序逐页加载网络下的所有节点，用于输出大网络
+     */
+    Stream<WireGuardNetworkNode> streamNodes(String networkId, int pageSize);
+
     /**
      * 生成并分发配置
      */
@@ -47,11 +55,21 @@ public interface ConfigRegistry {
      */
     WireGuardIniConfig getNodeConfig(String networkId, String nodeId);
 
+    /**
+     * 获取渲染后的节点配置文件，不存在时返回 null
+     */
+    RenderedConfig getRenderedNodeConfig(String networkId, String nodeId);
+
     /**
      * 获取网络的所有配置
      */
     Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId);
 
+    /**
+     * 按节点ID顺序逐页加载网络的所有配置，用于输出大网络
+     */
+    Stream<Map.Entry<String, WireGuardIniConfig>> streamNetworkConfigs(String networkId, int pageSize);
+
     /**
      * 订阅配置变更
      */
@@ -67,6 +85,11 @@ public interface ConfigRegistry {
      */
     long getNetworkVersion(String networkId);
 
+    /**
+     * 获取指定版本之后的节点变更，用于增量同步节点列表
+     */
+    NodeChangeFeed getChangesSince(String networkId, long version, int limit);
+
     /**
      * 检查节点是否在线
      */
@@ -0,0 +1,369 @@
+package icu.debug.net.wg.core.registry.impl;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.registry.ConfigChangeListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 配置变更监听器异步分发器
+ * <p>
+ * 每个监听器拥有独立的有界队列，事件在分发线程池中按入队顺序串行投递给监听器，
+ * 调用方只负责入队，慢监听器不会拖慢注册中心的写入路径。队列满时按 {@link OverflowPolicy} 处理。
+ * </p>
+ */
+@Slf4j
+public class AsyncListenerDispatcher {
+
+    /**
+     * 单次投递的最大事件数，超过后让出线程，避免单个监听器独占分发线程
+     */
+    private static final int DRAIN_BATCH_SIZE = 64;
+
+    public enum OverflowPolicy {
+
+        /**
+         * 丢弃最早的事件
+         */
+        DROP_OLDEST,
+
+        /**
+         * 合并队列中的配置变更事件，只保留最新版本
+         */
+        COALESCE_LATEST,
+
+        /**
+         * 阻塞调用方直到队列有空位，超过等待时间后丢弃最早的事件
+         */
+        BLOCK
+    }
+
+    private final ExecutorService executor;
+
+    private final int queueCapacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final long blockTimeoutMillis;
+
+    /**
+     * 按监听器实例区分队列，不依赖监听器的 equals/hashCode
+     */
+    private final Map<ListenerKey, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final LongAdder dispatchedCount = new LongAdder();
+
+    private final LongAdder deliveredCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder totalLagNanos = new LongAdder();
+
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    private final AtomicLong lastLagNanos = new AtomicLong();
+
+    public AsyncListenerDispatcher(int threads, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this(threads, queueCapacity, overflowPolicy, 1000);
+    }
+
+    /**
+     * @param threads            分发线程数
+     * @param queueCapacity      每个监听器的队列容量
+     * @param overflowPolicy     队列满时的处理策略
+     * @param blockTimeoutMillis {@link OverflowPolicy#BLOCK} 策略下的最长等待时间（毫秒）
+     */
+    public AsyncListenerDispatcher(int threads, int queueCapacity, OverflowPolicy overflowPolicy, long blockTimeoutMillis) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("threads and queueCapacity must be positive");
+        }
+        AtomicInteger index = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "config-listener-dispatch-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    /**
+     * 分发配置变更事件
+     *
+     * @param version 配置提交时的网络版本号
+     */
+    public void dispatchConfigChanged(ConfigChangeListener listener, String networkId, String nodeId,
+                                      WireGuardIniConfig oldConfig, WireGuardIniConfig newConfig, long version) {
+        dispatch(listener, new ListenerEvent(ListenerEvent.Type.CONFIG_CHANGED, networkId, nodeId, oldConfig, newConfig, version));
+    }
+
+    /**
+     * 分发节点下线事件
+     */
+    public void dispatchNodeOffline(ConfigChangeListener listener, String networkId, String nodeId) {
+        dispatch(listener, new ListenerEvent(ListenerEvent.Type.NODE_OFFLINE, networkId, nodeId, null, null, 0));
+    }
+
+    /**
+     * 分发网络删除事件
+     */
+    public void dispatchNetworkDeleted(ConfigChangeListener listener, String networkId) {
+        dispatch(listener, new ListenerEvent(ListenerEvent.Type.NETWORK_DELETED, networkId, null, null, null, 0));
+    }
+
+    /**
+     * 移除监听器的队列，已入队的事件仍会投递
+     */
+    public void remove(ConfigChangeListener listener) {
+        mailboxes.remove(new ListenerKey(listener));
+    }
+
+    /**
+     * 停止分发
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 获取分发统计信息
+     */
+    public Map<String, Object> getStats() {
+        int totalDepth = 0;
+        int maxDepth = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            int depth = mailbox.depth();
+            totalDepth += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        long delivered = deliveredCount.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("listeners", mailboxes.size());
+        stats.put("queueDepth", totalDepth);
+        stats.put("maxQueueDepth", maxDepth);
+        stats.put("dispatched", dispatchedCount.sum());
+        stats.put("delivered", delivered);
+        stats.put("dropped", droppedCount.sum());
+        stats.put("coalesced", coalescedCount.sum());
+        stats.put("failed", failedCount.sum());
+        stats.put("lastLagMillis", TimeUnit.NANOSECONDS.toMillis(lastLagNanos.get()));
+        stats.put("maxLagMillis", TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()));
+        stats.put("avgLagMillis", delivered == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLagNanos.sum() / delivered));
+        stats.put("overflowPolicy", overflowPolicy.name());
+        return stats;
+    }
+
+    private void dispatch(ConfigChangeListener listener, ListenerEvent event) {
+        dispatchedCount.increment();
+        Mailbox mailbox = mailboxes.computeIfAbsent(new ListenerKey(listener), key -> new Mailbox(listener));
+        if (mailbox.offer(event)) {
+            executor.execute(mailbox::drain);
+        }
+    }
+
+    private void recordLag(long lagNanos) {
+        deliveredCount.increment();
+        totalLagNanos.add(lagNanos);
+        lastLagNanos.set(lagNanos);
+        maxLagNanos.accumulateAndGet(lagNanos, Math::max);
+    }
+
+    /**
+     * 以监听器实例身份作为键
+     */
+    private record ListenerKey(ConfigChangeListener listener) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ListenerKey other && other.listener == listener;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(listener);
+        }
+    }
+
+    /**
+     * 单个监听器的事件队列
+     */
+    private class Mailbox {
+
+        private final ConfigChangeListener listener;
+
+        private final ArrayDeque<ListenerEvent> queue = new ArrayDeque<>();
+
+        /**
+         * 是否已提交投递任务
+         */
+        private boolean scheduled;
+
+        Mailbox(ConfigChangeListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized int depth() {
+            return queue.size();
+        }
+
+        /**
+         * 入队
+         *
+         * @return 是否需要提交投递任务
+         */
+        synchronized boolean offer(ListenerEvent event) {
+            if (queue.size() >= queueCapacity) {
+                handleOverflow(event);
+            }
+            if (queue.size() >= queueCapacity) {
+                queue.pollFirst();
+                droppedCount.increment();
+            }
+            queue.addLast(event);
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        private void handleOverflow(ListenerEvent event) {
+            switch (overflowPolicy) {
+                case COALESCE_LATEST -> coalesce(event);
+                case BLOCK -> awaitSpace();
+                default -> {
+                    // DROP_OLDEST 由调用方统一处理
+                }
+            }
+        }
+
+        /**
+         * 移除同一节点待投递的配置变更事件，新事件沿用其中最早的旧配置
+         */
+        private void coalesce(ListenerEvent event) {
+            if (event.type != ListenerEvent.Type.CONFIG_CHANGED) {
+                return;
+            }
+            boolean merged = false;
+            Iterator<ListenerEvent> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                ListenerEvent pending = iterator.next();
+                if (pending.type == ListenerEvent.Type.CONFIG_CHANGED
+                        && Objects.equals(pending.networkId, event.networkId)
+                        && Objects.equals(pending.nodeId, event.nodeId)) {
+                    iterator.remove();
+                    if (!merged) {
+                        event.oldConfig = pending.oldConfig;
+                        event.enqueuedNanos = pending.enqueuedNanos;
+                        merged = true;
+                    }
+                    coalescedCount.increment();
+                }
+            }
+        }
+
+        private void awaitSpace() {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+            long remaining;
+            while (queue.size() >= queueCapacity && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private synchronized ListenerEvent poll() {
+            ListenerEvent event = queue.pollFirst();
+            if (event != null) {
+                notifyAll();
+            }
+            return event;
+        }
+
+        /**
+         * @return 队列是否还有事件
+         */
+        private synchronized boolean finishBatch() {
+            if (queue.isEmpty()) {
+                scheduled = false;
+                return false;
+            }
+            return true;
+        }
+
+        void drain() {
+            for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+                ListenerEvent event = poll();
+                if (event == null) {
+                    break;
+                }
+                recordLag(System.nanoTime() - event.enqueuedNanos);
+                try {
+                    event.deliver(listener);
+                } catch (Exception e) {
+                    failedCount.increment();
+                    log.error("Error notifying {} for node {} in network {}", event.type, event.nodeId, event.networkId, e);
+                }
+            }
+            if (finishBatch()) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * 待投递的监听事件
+     */
+    private static class ListenerEvent {
+
+        enum Type {
+            CONFIG_CHANGED,
+            NODE_OFFLINE,
+            NETWORK_DELETED
+        }
+
+        private final Type type;
+
+        private final String networkId;
+
+        private final String nodeId;
+
+        private WireGuardIniConfig oldConfig;
+
+        private final WireGuardIniConfig newConfig;
+
+        private final long version;
+
+        private long enqueuedNanos = System.nanoTime();
+
+        ListenerEvent(Type type, String networkId, String nodeId, WireGuardIniConfig oldConfig, WireGuardIniConfig newConfig, long version) {
+            this.type = type;
+            this.networkId = networkId;
+            this.nodeId = nodeId;
+            this.oldConfig = oldConfig;
+            this.newConfig = newConfig;
+            this.version = version;
+        }
+
+        void deliver(ConfigChangeListener listener) {
+            switch (type) {
+                case CONFIG_CHANGED -> listener.onConfigChanged(networkId, nodeId, oldConfig, newConfig, version);
+                case NODE_OFFLINE -> listener.onNodeOffline(networkId, nodeId);
+                case NETWORK_DELETED -> listener.onNetworkDeleted(networkId);
+            }
+        }
+    }
+}
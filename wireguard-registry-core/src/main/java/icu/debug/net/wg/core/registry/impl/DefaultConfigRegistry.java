@@ -1,78 +1,232 @@
 package icu.debug.net.wg.core.registry.impl;
 
+import icu.debug.net.wg.core.NetworkNodeConfigWrapper;
+import icu.debug.net.wg.core.NetworkNodeDelta;
 import icu.debug.net.wg.core.WireGuardConfigGenerator;
 import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
+import icu.debug.net.wg.core.model.network.LocalAreaNetwork;
+import icu.debug.net.wg.core.model.network.NetworkType;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkStruct;
 import icu.debug.net.wg.core.registry.ConfigChangeListener;
 import icu.debug.net.wg.core.registry.ConfigRegistry;
 import icu.debug.net.wg.core.storage.ConfigStorage;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.RenderedConfig;
+import icu.debug.net.wg.core.storage.impl.CachingConfigStorage;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.Closeable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * 默认配置注册中心实现
+ * <p>
+ * 持有心跳检测、合并重新生成与监听器分发的线程，不再使用时调用 {@link #close()} 停止
+ * </p>
  */
 @Slf4j
-public class DefaultConfigRegistry implements ConfigRegistry {
+public class DefaultConfigRegistry implements ConfigRegistry, Closeable {
 
     private final ConfigStorage configStorage;
-    private final WireGuardConfigGenerator configGenerator;
+    private final WireGuardNetProperties defaultProperties;
+    private final Map<String, GeneratedNetwork> generatedNetworks = new ConcurrentHashMap<>();
     private final Map<String, Map<String, ConfigChangeListener>> listeners = new ConcurrentHashMap<>();
     private final Map<String, Map<String, Long>> nodeLastHeartbeat = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
 
+    /**
+     * 合并重新生成使用的线程池，与心跳检测分开，耗时的全量生成不会推迟心跳超时检测
+     */
+    private final ScheduledExecutorService regenerateExecutor;
+
+    /**
+     * 合并重新生成调度器，为空时每次注册同步增量生成
+     */
+    private final RegenerationScheduler regenerationScheduler;
+
+    /**
+     * 心跳超时时间轮
+     */
+    private final HeartbeatTimingWheel heartbeatWheel;
+
+    /**
+     * 监听器异步分发器
+     */
+    private final AsyncListenerDispatcher listenerDispatcher;
+
+    /**
+     * 全量生成配置使用的线程池，为空时串行生成
+     */
+    private volatile ForkJoinPool generatePool;
+
+    // 关闭时等待已排队的合并重新生成完成的最长时间（秒）
+    private static final long CLOSE_TIMEOUT = 5;
+
     // 心跳超时时间（秒）
     private static final long HEARTBEAT_TIMEOUT = 30;
 
-    public DefaultConfigRegistry(ConfigStorage configStorage, WireGuardConfigGenerator configGenerator) {
+    // 默认心跳时间轮刻度（毫秒）
+    private static final long DEFAULT_HEARTBEAT_RESOLUTION = 1000;
+
+    public DefaultConfigRegistry(ConfigStorage configStorage, WireGuardNetProperties defaultProperties) {
+        this(configStorage, defaultProperties, 0, 0);
+    }
+
+    /**
+     * @param regenerateWindowMillis   合并重新生成的窗口（毫秒），小于等于 0 时不合并，注册时同步生成
+     * @param regenerateMaxDelayMillis 首次变更到重新生成的最大延迟（毫秒）
+     */
+    public DefaultConfigRegistry(ConfigStorage configStorage, WireGuardNetProperties defaultProperties,
+                                 long regenerateWindowMillis, long regenerateMaxDelayMillis) {
+        this(configStorage, defaultProperties, regenerateWindowMillis, regenerateMaxDelayMillis, DEFAULT_HEARTBEAT_RESOLUTION);
+    }
+
+    /**
+     * @param regenerateWindowMillis    合并重新生成的窗口（毫秒），小于等于 0 时不合并，注册时同步生成
+     * @param regenerateMaxDelayMillis  首次变更到重新生成的最大延迟（毫秒）
+     * @param heartbeatResolutionMillis 心跳时间轮刻度（毫秒），节点下线检测延迟不超过超时时间加一个刻度
+     */
+    public DefaultConfigRegistry(ConfigStorage configStorage, WireGuardNetProperties defaultProperties,
+                                 long regenerateWindowMillis, long regenerateMaxDelayMillis, long heartbeatResolutionMillis) {
+        this(configStorage, defaultProperties, regenerateWindowMillis, regenerateMaxDelayMillis, heartbeatResolutionMillis,
+                new AsyncListenerDispatcher(1, 1024, AsyncListenerDispatcher.OverflowPolicy.COALESCE_LATEST));
+    }
+
+    /**
+     * @param listenerDispatcher 监听器异步分发器，监听器回调不在注册中心的调用线程上执行
+     */
+    public DefaultConfigRegistry(ConfigStorage configStorage, WireGuardNetProperties defaultProperties,
+                                 long regenerateWindowMillis, long regenerateMaxDelayMillis, long heartbeatResolutionMillis,
+                                 AsyncListenerDispatcher listenerDispatcher) {
         this.configStorage = configStorage;
-        this.configGenerator = configGenerator;
+        this.listenerDispatcher = listenerDispatcher;
+        this.defaultProperties = defaultProperties;
+        if (regenerateWindowMillis > 0) {
+            this.regenerateExecutor = Executors.newScheduledThreadPool(2);
+            this.regenerationScheduler = new RegenerationScheduler(regenerateExecutor, regenerateWindowMillis, regenerateMaxDelayMillis,
+                    this::regenerateAndNotify);
+        } else {
+            this.regenerateExecutor = null;
+            this.regenerationScheduler = null;
+        }
+        this.heartbeatWheel = new HeartbeatTimingWheel(scheduler, HEARTBEAT_TIMEOUT * 1000,
+                heartbeatResolutionMillis > 0 ? heartbeatResolutionMillis : DEFAULT_HEARTBEAT_RESOLUTION, this::onHeartbeatExpired);
         
         // 启动心跳检查定时任务
-        startHeartbeatCheck();
+        heartbeatWheel.start();
+    }
+
+    /**
+     * 设置全量生成配置使用的线程池，节点数较多时按节点并行生成，为空时串行生成
+     */
+    public void setGeneratePool(ForkJoinPool generatePool) {
+        this.generatePool = generatePool;
+    }
+
+    /**
+     * 停止心跳检测、合并重新生成与监听器分发，等待已排队的重新生成完成，可重复调用
+     * <p>
+     * 构造时传入的监听器分发器一并停止
+     * </p>
+     */
+    @Override
+    public void close() {
+        heartbeatWheel.stop();
+        scheduler.shutdownNow();
+        if (regenerateExecutor != null) {
+            regenerateExecutor.shutdown();
+            try {
+                if (!regenerateExecutor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                    log.warn("Pending regenerations not finished in {} seconds, cancel them", CLOSE_TIMEOUT);
+                    regenerateExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                regenerateExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        listenerDispatcher.shutdown();
     }
 
     @Override
     public void registerNode(String networkId, WireGuardNetworkNode node) {
         log.info("Registering node {} in network {}", node.getServerNode().getHostname(), networkId);
         
-        // 获取旧配置
         String nodeId = node.getServerNode().getHostname();
-        WireGuardIniConfig oldConfig = configStorage.getGeneratedConfig(networkId, nodeId).orElse(null);
-        
-        // 保存节点
-        configStorage.saveNetworkNode(networkId, node);
+        checkAddressConflict(networkId, nodeId, node.getAddress());
+        ConfigUnitOfWork unitOfWork = new ConfigUnitOfWork(networkId).saveNode(node);
         
         // 更新心跳时间
         updateNodeHeartbeat(networkId, nodeId);
         
-        // 重新生成配置
-        generateAndDistributeConfig(networkId);
+        if (regenerationScheduler != null) {
+            // 保存节点，合并到下一次重新生成，生成后统一通知
+            configStorage.commit(unitOfWork);
+            regenerationScheduler.trigger(networkId);
+            return;
+        }
+        
+        // 获取旧配置
+        WireGuardIniConfig oldConfig = configStorage.getGeneratedConfig(networkId, nodeId).orElse(null);
+        boolean exists = configStorage.getNetworkNode(networkId, nodeId).isPresent();
+        
+        // 新节点在生成器锁外预先分配地址，并发注册的节点并行分配
+        GeneratedNetwork generated = generatedNetworks.get(networkId);
+        if (!exists && generated != null) {
+            generated.generator.preallocateAddress(node);
+        }
+        
+        // 增量更新配置，与节点一起提交
+        long savedVersion = applyNodeDelta(networkId,
+                exists ? NetworkNodeDelta.updated(nodeId, node) : NetworkNodeDelta.added(nodeId, node), unitOfWork);
         
         // 通知配置变更
         WireGuardIniConfig newConfig = configStorage.getGeneratedConfig(networkId, nodeId).orElse(null);
-        notifyConfigChange(networkId, nodeId, oldConfig, newConfig);
+        notifyConfigChange(networkId, nodeId, oldConfig, newConfig, savedVersion);
+    }
+
+    /**
+     * 指定的组网地址已被网络中的其他节点使用时拒绝注册，地址由存储的二级索引查找
+     */
+    private void checkAddressConflict(String networkId, String nodeId, String address) {
+        if (address == null || address.isBlank()) {
+            return;
+        }
+        for (WireGuardNetworkNode other : configStorage.findNodesByAddress(networkId, address)) {
+            String otherId = other.getServerNode().getHostname();
+            if (!nodeId.equals(otherId)) {
+                throw new IllegalArgumentException("Address " + address + " is already used by node " + otherId + " in network " + networkId);
+            }
+        }
     }
 
     @Override
     public void unregisterNode(String networkId, String nodeId) {
         log.info("Unregistering node {} from network {}", nodeId, networkId);
-        
-        // 删除节点
-        configStorage.deleteNetworkNode(networkId, nodeId);
-        configStorage.deleteGeneratedConfig(networkId, nodeId);
+        boolean exists = configStorage.getNetworkNode(networkId, nodeId).isPresent();
+        ConfigUnitOfWork unitOfWork = new ConfigUnitOfWork(networkId).deleteNode(nodeId).deleteConfig(nodeId);
         
         // 移除心跳记录
         removeNodeHeartbeat(networkId, nodeId);
         
-        // 重新生成配置
-        generateAndDistributeConfig(networkId);
+        // 删除节点，增量更新配置
+        if (regenerationScheduler != null) {
+            configStorage.commit(unitOfWork);
+            regenerationScheduler.trigger(networkId);
+        } else if (exists) {
+            applyNodeDelta(networkId, NetworkNodeDelta.removed(nodeId), unitOfWork);
+        } else {
+            generateAndCommit(networkId, unitOfWork);
+        }
         
         // 通知节点下线
         notifyNodeOffline(networkId, nodeId);
@@ -91,59 +245,105 @@ public class DefaultConfigRegistry implements ConfigRegistry {
         return configStorage.getNetworkNodes(networkId);
     }
 
+    @Override
+    public Stream<WireGuardNetworkNode> streamNodes(String networkId, int pageSize) {
+        return configStorage.streamNetworkNodes(networkId, pageSize);
+    }
+
     @Override
     public void generateAndDistributeConfig(String networkId) {
+        generateAndCommit(networkId, new ConfigUnitOfWork(networkId));
+    }
+
+    /**
+     * 基于叠加了未提交节点变更的节点列表全量生成配置，与节点变更一起提交
+     * <p>
+     * 生成器为节点分配的地址与密钥一并保存，之后的生成沿用已分配的值
+     * </p>
+     *
+     * @return 提交后的网络版本号
+     */
+    private long generateAndCommit(String networkId, ConfigUnitOfWork unitOfWork) {
         log.info("Generating and distributing config for network {}", networkId);
         
         try {
-            List<WireGuardNetworkNode> nodes = configStorage.getNetworkNodes(networkId);
+            long version = configStorage.getNetworkVersion(networkId);
+            List<WireGuardNetworkNode> nodes = unitOfWork.applyToNodes(configStorage.getNetworkNodes(networkId));
             if (nodes.isEmpty()) {
                 log.warn("No nodes found in network {}", networkId);
-                return;
+                generatedNetworks.remove(networkId);
+                return configStorage.commit(unitOfWork);
             }
             
             // 创建网络结构
-            WireGuardNetworkStruct networkStruct = new WireGuardNetworkStruct();
-            // TODO: 需要正确设置 networkStruct 的 localAreaNetworks
+            WireGuardNetworkStruct networkStruct = buildNetworkStruct(networkId, nodes);
+            Map<String, List<String>> assigned = new HashMap<>();
+            nodes.forEach(node -> assigned.put(node.getServerNode().getHostname(), assignment(node)));
             
             // 生成配置
-            WireGuardConfigGenerator generator = new WireGuardConfigGenerator(networkStruct, null);
-            Map<String, WireGuardIniConfig> configs = generator.buildWireGuardIniConfigMap();
+            WireGuardConfigGenerator generator = new WireGuardConfigGenerator(networkStruct, defaultProperties);
+            Map<String, WireGuardIniConfig> configs = generator.buildWireGuardIniConfigMap(generatePool);
+            for (WireGuardNetworkNode node : nodes) {
+                if (!assignment(node).equals(assigned.get(node.getServerNode().getHostname()))) {
+                    unitOfWork.saveNode(node);
+                }
+            }
             
             // 保存配置
-            for (Map.Entry<String, WireGuardIniConfig> entry : configs.entrySet()) {
-                configStorage.saveGeneratedConfig(networkId, entry.getKey(), entry.getValue());
-            }
+            long savedVersion = configStorage.commit(unitOfWork.saveConfigs(configs));
+            // 生成期间网络被其他调用修改时不缓存版本，下一次变更会重新全量生成
+            generatedNetworks.put(networkId, new GeneratedNetwork(generator, savedVersion == version + 1 ? savedVersion : -1));
             
             log.info("Generated and saved {} configs for network {}", configs.size(), networkId);
-            
+            return savedVersion;
         } catch (Exception e) {
             log.error("Failed to generate config for network {}", networkId, e);
             throw new RuntimeException("Failed to generate config", e);
         }
     }
 
+    /**
+     * 生成器可能为节点分配的属性：地址、私钥与公钥
+     */
+    private static List<String> assignment(WireGuardNetworkNode node) {
+        return Arrays.asList(node.getAddress(), node.getPrivateKey(), node.getPublicKey());
+    }
+
     @Override
     public WireGuardIniConfig getNodeConfig(String networkId, String nodeId) {
         return configStorage.getGeneratedConfig(networkId, nodeId).orElse(null);
     }
 
+    @Override
+    public RenderedConfig getRenderedNodeConfig(String networkId, String nodeId) {
+        return configStorage.getRenderedConfig(networkId, nodeId).orElse(null);
+    }
+
     @Override
     public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId) {
         return configStorage.getNetworkConfigs(networkId);
     }
 
+    @Override
+    public Stream<Map.Entry<String, WireGuardIniConfig>> streamNetworkConfigs(String networkId, int pageSize) {
+        return configStorage.streamNetworkConfigs(networkId, pageSize);
+    }
+
     @Override
     public void subscribeConfigChange(String networkId, String nodeId, ConfigChangeListener listener) {
-        listeners.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>())
+        ConfigChangeListener previous = listeners.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>())
                 .put(nodeId, listener);
+        if (previous != null && previous != listener) {
+            listenerDispatcher.remove(previous);
+        }
         log.info("Subscribed config change for node {} in network {}", nodeId, networkId);
     }
 
     @Override
     public void unsubscribeConfigChange(String networkId, String nodeId) {
         Optional.ofNullable(listeners.get(networkId))
-                .ifPresent(networkListeners -> networkListeners.remove(nodeId));
+                .map(networkListeners -> networkListeners.remove(nodeId))
+                .ifPresent(listenerDispatcher::remove);
         log.info("Unsubscribed config change for node {} in network {}", nodeId, networkId);
     }
 
@@ -152,6 +352,11 @@ public class DefaultConfigRegistry implements ConfigRegistry {
         return configStorage.getNetworkVersion(networkId);
     }
 
+    @Override
+    public NodeChangeFeed getChangesSince(String networkId, long version, int limit) {
+        return configStorage.getChangesSince(networkId, version, limit);
+    }
+
     @Override
     public boolean isNodeOnline(String networkId, String nodeId) {
         return Optional.ofNullable(nodeLastHeartbeat.get(networkId))
@@ -186,8 +391,14 @@ public class DefaultConfigRegistry implements ConfigRegistry {
         configStorage.deleteNetwork(networkId);
         
         // 清理内存数据
-        listeners.remove(networkId);
+        if (regenerationScheduler != null) {
+            regenerationScheduler.cancel(networkId);
+        }
+        generatedNetworks.remove(networkId);
+        Optional.ofNullable(listeners.remove(networkId))
+                .ifPresent(networkListeners -> networkListeners.values().forEach(listenerDispatcher::remove));
         nodeLastHeartbeat.remove(networkId);
+        heartbeatWheel.cancelNetwork(networkId);
     }
 
     @Override
@@ -206,87 +417,166 @@ public class DefaultConfigRegistry implements ConfigRegistry {
         log.info("Network created successfully: {}", networkId);
     }
 
+    /**
+     * 获取注册中心统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("generatedNetworks", generatedNetworks.size());
+        stats.put("heartbeatNodes", heartbeatWheel.size());
+        stats.put("listenerDispatch", listenerDispatcher.getStats());
+        stats.put("regenerate", regenerationScheduler != null ? regenerationScheduler.getStats() : Collections.emptyMap());
+        if (configStorage instanceof CachingConfigStorage cachingConfigStorage) {
+            stats.put("storageCache", cachingConfigStorage.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * 全量重新生成网络配置，并通知配置发生变化的节点
+     */
+    private void regenerateAndNotify(String networkId) {
+        Map<String, WireGuardIniConfig> oldConfigs = configStorage.getNetworkConfigs(networkId);
+        long savedVersion = generateAndCommit(networkId, new ConfigUnitOfWork(networkId));
+        Map<String, ConfigChangeListener> networkListeners = listeners.get(networkId);
+        if (networkListeners == null || networkListeners.isEmpty()) {
+            return;
+        }
+        Map<String, WireGuardIniConfig> newConfigs = configStorage.getNetworkConfigs(networkId);
+        for (String nodeId : networkListeners.keySet()) {
+            WireGuardIniConfig oldConfig = oldConfigs.get(nodeId);
+            WireGuardIniConfig newConfig = newConfigs.get(nodeId);
+            // 按字段比较，不需要渲染 ini 文本
+            if (newConfig != null && !newConfig.equals(oldConfig)) {
+                notifyConfigChange(networkId, nodeId, oldConfig, newConfig, savedVersion);
+            }
+        }
+    }
+
+    /**
+     * 在上一次生成结果上增量应用节点变更
+     * <p>
+     * 上一次生成时的网络版本与本次变更前的版本不一致（首次生成或被其他实例修改）时，退化为全量生成
+     * </p>
+     *
+     * @return 提交后的网络版本号
+     */
+    private long applyNodeDelta(String networkId, NetworkNodeDelta delta, ConfigUnitOfWork unitOfWork) {
+        GeneratedNetwork generated = generatedNetworks.get(networkId);
+        if (generated == null) {
+            return generateAndCommit(networkId, unitOfWork);
+        }
+        synchronized (generated) {
+            // 在锁内读取版本，本实例上并发的变更依次基于前一次提交的版本
+            long baseVersion = configStorage.getNetworkVersion(networkId);
+            if (generated.version != baseVersion || generatedNetworks.get(networkId) != generated) {
+                log.debug("Network {} generated version {} not match {}, regenerate all configs", networkId, generated.version, baseVersion);
+                return generateAndCommit(networkId, unitOfWork);
+            }
+            try {
+                List<NetworkNodeConfigWrapper> changed = generated.generator.applyDelta(delta);
+                for (NetworkNodeConfigWrapper config : changed) {
+                    if (!unitOfWork.getDeletedConfigs().contains(config.getHostName())) {
+                        unitOfWork.saveConfig(config.getHostName(), config.getConfig());
+                    }
+                }
+                long savedVersion = configStorage.commit(unitOfWork);
+                // 节点变更与配置保存一起提交，只递增一次版本
+                generated.version = savedVersion == baseVersion + 1 ? savedVersion : -1;
+                log.info("Applied delta [{} {}] and saved {} configs for network {}", delta.getType(), delta.getHostname(), changed.size(), networkId);
+                return savedVersion;
+            } catch (Exception e) {
+                log.error("Failed to apply delta for network {}", networkId, e);
+                generatedNetworks.remove(networkId);
+                throw new RuntimeException("Failed to generate config", e);
+            }
+        }
+    }
+
+    /**
+     * 注册的节点不携带局域网信息，每个节点视为独立的 WAN 局域网，节点之间通过公网地址互联
+     */
+    private static WireGuardNetworkStruct buildNetworkStruct(String networkId, List<WireGuardNetworkNode> nodes) {
+        List<LocalAreaNetwork> localAreaNetworks = new ArrayList<>();
+        for (WireGuardNetworkNode node : nodes) {
+            LocalAreaNetwork localAreaNetwork = new LocalAreaNetwork();
+            localAreaNetwork.setName(node.getServerNode().getHostname());
+            localAreaNetwork.setNetworkType(NetworkType.WAN);
+            localAreaNetwork.setNetworkNodes(new ArrayList<>(List.of(node)));
+            localAreaNetworks.add(localAreaNetwork);
+        }
+        WireGuardNetworkStruct networkStruct = new WireGuardNetworkStruct();
+        networkStruct.setName(networkId);
+        networkStruct.setLocalAreaNetworks(localAreaNetworks);
+        return networkStruct;
+    }
+
     private void updateNodeHeartbeat(String networkId, String nodeId) {
         nodeLastHeartbeat.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>())
                 .put(nodeId, System.currentTimeMillis());
+        heartbeatWheel.touch(networkId, nodeId);
     }
 
     private void removeNodeHeartbeat(String networkId, String nodeId) {
         Optional.ofNullable(nodeLastHeartbeat.get(networkId))
                 .ifPresent(networkHeartbeats -> networkHeartbeats.remove(nodeId));
+        heartbeatWheel.cancel(networkId, nodeId);
     }
 
-    private void startHeartbeatCheck() {
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                checkOfflineNodes();
-            } catch (Exception e) {
-                log.error("Error checking offline nodes", e);
-            }
-        }, HEARTBEAT_TIMEOUT, HEARTBEAT_TIMEOUT, TimeUnit.SECONDS);
-    }
-
-    private void checkOfflineNodes() {
-        long currentTime = System.currentTimeMillis();
-        
-        for (Map.Entry<String, Map<String, Long>> networkEntry : nodeLastHeartbeat.entrySet()) {
-            String networkId = networkEntry.getKey();
-            Map<String, Long> networkHeartbeats = networkEntry.getValue();
-            
-            List<String> offlineNodes = new ArrayList<>();
-            
-            for (Map.Entry<String, Long> nodeEntry : networkHeartbeats.entrySet()) {
-                String nodeId = nodeEntry.getKey();
-                long lastHeartbeat = nodeEntry.getValue();
-                
-                if (currentTime - lastHeartbeat > HEARTBEAT_TIMEOUT * 1000) {
-                    offlineNodes.add(nodeId);
-                }
-            }
-            
-            for (String nodeId : offlineNodes) {
-                log.warn("Node {} in network {} is offline", nodeId, networkId);
-                notifyNodeOffline(networkId, nodeId);
-                networkHeartbeats.remove(nodeId);
-            }
+    /**
+     * 时间轮回调，节点在超时时间内没有心跳
+     */
+    private void onHeartbeatExpired(String networkId, String nodeId) {
+        Map<String, Long> networkHeartbeats = nodeLastHeartbeat.get(networkId);
+        Long lastHeartbeat = networkHeartbeats == null ? null : networkHeartbeats.get(nodeId);
+        if (lastHeartbeat == null || System.currentTimeMillis() - lastHeartbeat < HEARTBEAT_TIMEOUT * 1000) {
+            // 已移除或回调期间收到了新的心跳
+            return;
+        }
+        if (networkHeartbeats.remove(nodeId, lastHeartbeat)) {
+            log.warn("Node {} in network {} is offline", nodeId, networkId);
+            notifyNodeOffline(networkId, nodeId);
         }
     }
 
-    private void notifyConfigChange(String networkId, String nodeId, WireGuardIniConfig oldConfig, WireGuardIniConfig newConfig) {
+    /**
+     * @param version 配置提交时的网络版本号，监听器据此判断收到的配置是否已过时
+     */
+    private void notifyConfigChange(String networkId, String nodeId, WireGuardIniConfig oldConfig, WireGuardIniConfig newConfig,
+                                    long version) {
         Optional.ofNullable(listeners.get(networkId))
                 .map(networkListeners -> networkListeners.get(nodeId))
-                .ifPresent(listener -> {
-                    try {
-                        long version = getNetworkVersion(networkId);
-                        listener.onConfigChanged(networkId, nodeId, oldConfig, newConfig, version);
-                    } catch (Exception e) {
-                        log.error("Error notifying config change for node {} in network {}", nodeId, networkId, e);
-                    }
-                });
+                .ifPresent(listener -> listenerDispatcher.dispatchConfigChanged(listener, networkId, nodeId,
+                        oldConfig, newConfig, version));
     }
 
     private void notifyNodeOffline(String networkId, String nodeId) {
         Optional.ofNullable(listeners.get(networkId))
                 .map(networkListeners -> networkListeners.get(nodeId))
-                .ifPresent(listener -> {
-                    try {
-                        listener.onNodeOffline(networkId, nodeId);
-                    } catch (Exception e) {
-                        log.error("Error notifying node offline for node {} in network {}", nodeId, networkId, e);
-                    }
-                });
+                .ifPresent(listener -> listenerDispatcher.dispatchNodeOffline(listener, networkId, nodeId));
     }
 
     private void notifyNetworkDeleted(String networkId) {
         Optional.ofNullable(listeners.get(networkId))
                 .ifPresent(networkListeners -> {
                     for (ConfigChangeListener listener : networkListeners.values()) {
-                        try {
-                            listener.onNetworkDeleted(networkId);
-                        } catch (Exception e) {
-                            log.error("Error notifying network deleted for network {}", networkId, e);
-                        }
+                        listenerDispatcher.dispatchNetworkDeleted(listener, networkId);
                     }
                 });
     }
+
+    /**
+     * 网络的生成器及其对应的网络版本
+     */
+    private static class GeneratedNetwork {
+
+        private final WireGuardConfigGenerator generator;
+
+        private long version;
+
+        GeneratedNetwork(WireGuardConfigGenerator generator, long version) {
+            this.generator = generator;
+            this.version = version;
+        }
+    }
 }
\ No newline at end of file
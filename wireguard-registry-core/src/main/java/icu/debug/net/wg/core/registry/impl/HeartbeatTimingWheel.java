@@ -0,0 +1,220 @@
+package icu.debug.net.wg.core.registry.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 心跳超时哈希时间轮
+ * <p>
+ * 每个节点的超时时间挂在对应槽位的双向链表上，心跳只是把节点从旧槽位摘下挂到新槽位，复杂度 O(1)；
+ * 每次 tick 只处理当前槽位上的节点，不再扫描全部节点。超时检测延迟不超过超时时间加一个刻度。
+ * </p>
+ */
+@Slf4j
+public class HeartbeatTimingWheel {
+
+    private final ScheduledExecutorService executor;
+
+    private final long timeoutTicks;
+
+    private final long resolutionNanos;
+
+    private final Entry[] wheel;
+
+    private final int mask;
+
+    private final Map<NodeKey, Entry> entries = new HashMap<>();
+
+    private final BiConsumer<String, String> expiredHandler;
+
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * 已处理到的刻度
+     */
+    private long currentTick;
+
+    private volatile ScheduledFuture<?> advanceTask;
+
+    /**
+     * @param executor         驱动时间轮的调度线程池
+     * @param timeoutMillis    心跳超时时间（毫秒）
+     * @param resolutionMillis 时间轮刻度（毫秒）
+     * @param expiredHandler   节点超时回调，参数为网络ID与节点ID
+     */
+    public HeartbeatTimingWheel(ScheduledExecutorService executor, long timeoutMillis, long resolutionMillis,
+                                BiConsumer<String, String> expiredHandler) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("resolution must be positive");
+        }
+        this.executor = executor;
+        this.resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+        this.timeoutTicks = Math.max(1, (timeoutMillis + resolutionMillis - 1) / resolutionMillis);
+        int size = Integer.highestOneBit((int) Math.min(timeoutTicks, 1 << 20)) << 1;
+        this.wheel = new Entry[size];
+        this.mask = size - 1;
+        this.expiredHandler = expiredHandler;
+    }
+
+    /**
+     * 启动时间轮
+     */
+    public void start() {
+        long resolutionMillis = TimeUnit.NANOSECONDS.toMillis(resolutionNanos);
+        advanceTask = executor.scheduleAtFixedRate(() -> {
+            try {
+                advance();
+            } catch (Exception e) {
+                log.error("Error advancing heartbeat timing wheel", e);
+            }
+        }, resolutionMillis, resolutionMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止时间轮，之后不再检测超时，调度线程池由调用方关闭
+     */
+    public void stop() {
+        ScheduledFuture<?> task = advanceTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * 记录心跳，从当前时间起重新计算超时
+     */
+    public void touch(String networkId, String nodeId) {
+        NodeKey key = new NodeKey(networkId, nodeId);
+        long deadline = currentTimeTick() + timeoutTicks;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key);
+                entries.put(key, entry);
+            } else {
+                unlink(entry);
+            }
+            entry.deadline = deadline;
+            link(entry);
+        }
+    }
+
+    /**
+     * 移除节点的超时检测
+     */
+    public synchronized void cancel(String networkId, String nodeId) {
+        Entry entry = entries.remove(new NodeKey(networkId, nodeId));
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    /**
+     * 移除网络下所有节点的超时检测
+     */
+    public synchronized void cancelNetwork(String networkId) {
+        List<NodeKey> keys = new ArrayList<>();
+        for (NodeKey key : entries.keySet()) {
+            if (key.networkId.equals(networkId)) {
+                keys.add(key);
+            }
+        }
+        for (NodeKey key : keys) {
+            unlink(entries.remove(key));
+        }
+    }
+
+    /**
+     * 跟踪中的节点数量
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 推进到当前时间，处理途经槽位上到期的节点
+     */
+    void advance() {
+        List<NodeKey> expired = new ArrayList<>();
+        long targetTick = currentTimeTick();
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                currentTick++;
+                Entry entry = wheel[(int) (currentTick & mask)];
+                while (entry != null) {
+                    Entry next = entry.next;
+                    if (entry.deadline <= currentTick) {
+                        unlink(entry);
+                        entries.remove(entry.key);
+                        expired.add(entry.key);
+                    }
+                    entry = next;
+                }
+            }
+        }
+        for (NodeKey key : expired) {
+            try {
+                expiredHandler.accept(key.networkId, key.nodeId);
+            } catch (Exception e) {
+                log.error("Error handling heartbeat expiry for node {} in network {}", key.nodeId, key.networkId, e);
+            }
+        }
+    }
+
+    private long currentTimeTick() {
+        return (System.nanoTime() - startNanos) / resolutionNanos;
+    }
+
+    private void link(Entry entry) {
+        int slot = (int) (entry.deadline & mask);
+        Entry head = wheel[slot];
+        entry.slot = slot;
+        entry.prev = null;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        wheel[slot] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else if (wheel[entry.slot] == entry) {
+            wheel[entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private record NodeKey(String networkId, String nodeId) {
+    }
+
+    private static class Entry {
+
+        private final NodeKey key;
+
+        private long deadline;
+
+        private int slot;
+
+        private Entry prev;
+
+        private Entry next;
+
+        Entry(NodeKey key) {
+            this.key = key;
+        }
+    }
+}
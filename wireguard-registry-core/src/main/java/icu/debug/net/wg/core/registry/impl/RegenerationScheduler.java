@@ -0,0 +1,177 @@
+package icu.debug.net.wg.core.registry.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 网络配置重新生成调度器
+ * <p>
+ * 触发时只把网络标记为待生成，同一网络在窗口期内的多次触发合并为一次生成：
+ * 每次触发把执行时间推迟到当前时间加窗口期，但不会晚于首次触发时间加最大延迟。
+ * 同一网络的生成任务不会并发执行。
+ * </p>
+ */
+@Slf4j
+public class RegenerationScheduler {
+
+    private final ScheduledExecutorService executor;
+
+    private final long windowNanos;
+
+    private final long maxDelayNanos;
+
+    private final Consumer<String> regenerateTask;
+
+    private final Map<String, Pending> pendingNetworks = new ConcurrentHashMap<>();
+
+    private final Set<String> runningNetworks = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder triggerCount = new LongAdder();
+
+    private final LongAdder mergedTriggerCount = new LongAdder();
+
+    private final LongAdder regenerateCount = new LongAdder();
+
+    private final LongAdder failureCount = new LongAdder();
+
+    /**
+     * @param executor       调度线程池
+     * @param windowMillis   合并窗口（毫秒），窗口内无新触发时执行生成
+     * @param maxDelayMillis 首次触发到执行生成的最大延迟（毫秒）
+     * @param regenerateTask 生成任务，参数为网络ID
+     */
+    public RegenerationScheduler(ScheduledExecutorService executor, long windowMillis, long maxDelayMillis, Consumer<String> regenerateTask) {
+        this.executor = executor;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(windowMillis, maxDelayMillis));
+        this.regenerateTask = regenerateTask;
+    }
+
+    /**
+     * 标记网络需要重新生成
+     */
+    public void trigger(String networkId) {
+        triggerCount.increment();
+        long now = System.nanoTime();
+        boolean[] created = {false};
+        pendingNetworks.compute(networkId, (key, pending) -> {
+            if (pending == null) {
+                created[0] = true;
+                return new Pending(now, now + windowNanos);
+            }
+            pending.deadline = Math.min(now + windowNanos, pending.firstTrigger + maxDelayNanos);
+            mergedTriggerCount.increment();
+            return pending;
+        });
+        if (created[0]) {
+            schedule(networkId, windowNanos);
+        }
+    }
+
+    /**
+     * 取消网络待执行的生成
+     */
+    public void cancel(String networkId) {
+        pendingNetworks.remove(networkId);
+    }
+
+    /**
+     * 网络是否有待执行的生成
+     */
+    public boolean isPending(String networkId) {
+        return pendingNetworks.containsKey(networkId);
+    }
+
+    public long getTriggerCount() {
+        return triggerCount.sum();
+    }
+
+    /**
+     * 被合并（未单独触发生成）的触发次数
+     */
+    public long getMergedTriggerCount() {
+        return mergedTriggerCount.sum();
+    }
+
+    public long getRegenerateCount() {
+        return regenerateCount.sum();
+    }
+
+    /**
+     * 获取调度统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("triggers", triggerCount.sum());
+        stats.put("mergedTriggers", mergedTriggerCount.sum());
+        stats.put("regenerations", regenerateCount.sum());
+        stats.put("failures", failureCount.sum());
+        stats.put("pendingNetworks", pendingNetworks.size());
+        return stats;
+    }
+
+    private void schedule(String networkId, long delayNanos) {
+        executor.schedule(() -> fire(networkId), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void fire(String networkId) {
+        if (!runningNetworks.add(networkId)) {
+            // 上一次生成尚未结束，等待下一个窗口
+            schedule(networkId, windowNanos);
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            long[] remaining = {0};
+            boolean[] due = {false};
+            pendingNetworks.computeIfPresent(networkId, (key, pending) -> {
+                remaining[0] = pending.deadline - now;
+                if (remaining[0] > 0) {
+                    return pending;
+                }
+                due[0] = true;
+                return null;
+            });
+            if (remaining[0] > 0) {
+                schedule(networkId, remaining[0]);
+            } else if (due[0]) {
+                regenerate(networkId);
+            }
+        } finally {
+            runningNetworks.remove(networkId);
+        }
+    }
+
+    private void regenerate(String networkId) {
+        try {
+            regenerateTask.accept(networkId);
+            regenerateCount.increment();
+        } catch (Exception e) {
+            failureCount.increment();
+            log.error("Failed to regenerate config for network {}", networkId, e);
+        }
+    }
+
+    /**
+     * 待执行的生成
+     */
+    private static class Pending {
+
+        private final long firstTrigger;
+
+        private long deadline;
+
+        Pending(long firstTrigger, long deadline) {
+            this.firstTrigger = firstTrigger;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -3,9 +3,13 @@ package icu.debug.net.wg.core.storage;
 import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 配置存储接口
@@ -28,6 +32,51 @@ public interface ConfigStorage {
      */
     List<WireGuardNetworkNode> getNetworkNodes(String networkId);
 
+    /**
+     * 按节点ID升序分页获取节点
+     *
+     * @param afterNodeId 上一页最后一个节点ID，为 null 时从第一页开始
+     * @param limit       最多返回的节点数
+     */
+    List<WireGuardNetworkNode> getNetworkNodes(String networkId, String afterNodeId, int limit);
+
+    /**
+     * 逐页加载网络下的所有节点，内存中最多保留一页
+     */
+    default Stream<WireGuardNetworkNode> streamNetworkNodes(String networkId, int pageSize) {
+        return KeysetCursor.stream((afterNodeId, limit) -> getNetworkNodes(networkId, afterNodeId, limit),
+                node -> node.getServerNode().getHostname(), pageSize);
+    }
+
+    /**
+     * 按公钥查找节点，未设置公钥的节点按私钥推导的公钥匹配
+     * <p>
+     * 默认实现遍历网络下的全部节点，维护了二级索引的实现应覆盖
+     * </p>
+     */
+    default Optional<WireGuardNetworkNode> findNodeByPublicKey(String networkId, String publicKey) {
+        return getNetworkNodes(networkId).stream()
+                .filter(node -> publicKey.equals(NodeIndex.publicKeyOf(node)))
+                .findFirst();
+    }
+
+    /**
+     * 查找使用指定组网地址的节点，地址去掉前缀长度后比较，返回多个节点时说明地址冲突
+     * <p>
+     * 默认实现遍历网络下的全部节点，维护了二级索引的实现应覆盖
+     * </p>
+     */
+    default List<WireGuardNetworkNode> findNodesByAddress(String networkId, String address) {
+        String normalized = NodeIndex.normalizeAddress(address);
+        if (normalized == null) {
+            return new ArrayList<>();
+        }
+        return getNetworkNodes(networkId).stream()
+                .filter(node -> normalized.equals(NodeIndex.normalizeAddress(node.getAddress())))
+                .sorted(Comparator.comparing(node -> node.getServerNode().getHostname()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * 删除网络节点
      */
@@ -38,6 +87,13 @@ public interface ConfigStorage {
      */
     void saveGeneratedConfig(String networkId, String nodeId, WireGuardIniConfig config);
 
+    /**
+     * 批量保存生成的配置
+     *
+     * @param configs 节点ID到配置的映射
+     */
+    void saveGeneratedConfigs(String networkId, Map<String, WireGuardIniConfig> configs);
+
     /**
      * 获取生成的配置
      */
@@ -48,6 +104,34 @@ public interface ConfigStorage {
      */
     Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId);
 
+    /**
+     * 按节点ID升序分页获取生成的配置
+     *
+     * @param afterNodeId 上一页最后一个节点ID，为 null 时从第一页开始
+     * @param limit       最多返回的配置数
+     * @return 按节点ID升序排列的映射
+     */
+    Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId, String afterNodeId, int limit);
+
+    /**
+     * 逐页加载网络的所有配置，内存中最多保留一页
+     */
+    default Stream<Map.Entry<String, WireGuardIniConfig>> streamNetworkConfigs(String networkId, int pageSize) {
+        return KeysetCursor.stream((afterNodeId, limit) -> new ArrayList<>(getNetworkConfigs(networkId, afterNodeId, limit).entrySet()),
+                Map.Entry::getKey, pageSize);
+    }
+
+    /**
+     * 获取渲染后的节点配置文件
+     * <p>
+     * 默认实现读取配置后渲染，版本号取当前的网络版本号；保存了渲染结果的实现应覆盖
+     * </p>
+     */
+    default Optional<RenderedConfig> getRenderedConfig(String networkId, String nodeId) {
+        return getGeneratedConfig(networkId, nodeId)
+                .map(config -> RenderedConfig.of(networkId, nodeId, getNetworkVersion(networkId), config));
+    }
+
     /**
      * 删除生成的配置
      */
@@ -77,4 +161,24 @@ public interface ConfigStorage {
      * 更新网络版本号
      */
     void updateNetworkVersion(String networkId);
+
+    /**
+     * 原子提交变更单元，所有写入完成后递增一次网络版本
+     *
+     * @return 提交后的网络版本号，变更单元为空时不递增，返回当前版本号
+     */
+    long commit(ConfigUnitOfWork unitOfWork);
+
+    /**
+     * 获取指定版本之后的节点新增、更新与删除，按版本号升序
+     *
+     * @param version 调用方已同步到的版本号
+     * @param limit   最多返回的变更数，同一版本的变更总是一起返回，结果可能略多于该值
+     */
+    NodeChangeFeed getChangesSince(String networkId, long version, int limit);
+
+    /**
+     * 清理指定版本之前的节点变更，之后从更早的版本读取时返回 {@link NodeChangeFeed#reset}
+     */
+    void truncateChanges(String networkId, long beforeVersion);
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.*;
+
+/**
+ * 单个网络的存储变更单元
+ * <p>
+ * 收集节点保存与删除、生成配置保存与删除，由 {@link ConfigStorage#commit(ConfigUnitOfWork)} 一次提交：
+ * 所有写入在同一事务中批量执行，并且只递增一次网络版本，读取方不会看到新版本号搭配旧配置。
+ * 同一节点先保存后删除（或相反）时以最后一次操作为准
+ * </p>
+ */
+@Getter
+@ToString
+public class ConfigUnitOfWork {
+
+    private final String networkId;
+
+    private final Map<String, WireGuardNetworkNode> savedNodes = new LinkedHashMap<>();
+
+    private final Set<String> deletedNodes = new LinkedHashSet<>();
+
+    private final Map<String, WireGuardIniConfig> savedConfigs = new LinkedHashMap<>();
+
+    private final Set<String> deletedConfigs = new LinkedHashSet<>();
+
+    public ConfigUnitOfWork(String networkId) {
+        this.networkId = networkId;
+    }
+
+    public ConfigUnitOfWork saveNode(WireGuardNetworkNode node) {
+        String nodeId = node.getServerNode().getHostname();
+        deletedNodes.remove(nodeId);
+        savedNodes.put(nodeId, node);
+        return this;
+    }
+
+    public ConfigUnitOfWork deleteNode(String nodeId) {
+        savedNodes.remove(nodeId);
+        deletedNodes.add(nodeId);
+        return this;
+    }
+
+    public ConfigUnitOfWork saveConfig(String nodeId, WireGuardIniConfig config) {
+        deletedConfigs.remove(nodeId);
+        savedConfigs.put(nodeId, config);
+        return this;
+    }
+
+    public ConfigUnitOfWork saveConfigs(Map<String, WireGuardIniConfig> configs) {
+        configs.forEach(this::saveConfig);
+        return this;
+    }
+
+    public ConfigUnitOfWork deleteConfig(String nodeId) {
+        savedConfigs.remove(nodeId);
+        deletedConfigs.add(nodeId);
+        return this;
+    }
+
+    /**
+     * 在已存储的节点上叠加本次变更，用于提交前基于变更后的节点全量生成配置
+     */
+    public List<WireGuardNetworkNode> applyToNodes(List<WireGuardNetworkNode> storedNodes) {
+        Map<String, WireGuardNetworkNode> nodes = new LinkedHashMap<>();
+        for (WireGuardNetworkNode node : storedNodes) {
+            nodes.put(node.getServerNode().getHostname(), node);
+        }
+        deletedNodes.forEach(nodes::remove);
+        nodes.putAll(savedNodes);
+        return new ArrayList<>(nodes.values());
+    }
+
+    public boolean isEmpty() {
+        return savedNodes.isEmpty() && deletedNodes.isEmpty() && savedConfigs.isEmpty() && deletedConfigs.isEmpty();
+    }
+}
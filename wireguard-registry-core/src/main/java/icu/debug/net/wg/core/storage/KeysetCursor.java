@@ -0,0 +1,92 @@
+package icu.debug.net.wg.core.storage;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按键分页的游标
+ * <p>
+ * 每页以上一页最后一个元素的键为起点查询，只在消费到当前页末尾时加载下一页，内存中最多保留一页数据；
+ * 不同页之间没有快照隔离，遍历期间的写入可能出现在之后的页中，也可能不出现
+ * </p>
+ *
+ * @param <T> 元素类型
+ */
+public class KeysetCursor<T> implements Iterator<T> {
+
+    private final PageLoader<T> loader;
+
+    private final Function<T, String> keyExtractor;
+
+    private final int pageSize;
+
+    private Iterator<T> page = Collections.emptyIterator();
+
+    private String lastKey;
+
+    private boolean finished;
+
+    /**
+     * @param loader       按起点键与条数加载一页，结果按键升序
+     * @param keyExtractor 从元素中取出分页键
+     * @param pageSize     每页条数
+     */
+    public KeysetCursor(PageLoader<T> loader, Function<T, String> keyExtractor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.loader = loader;
+        this.keyExtractor = keyExtractor;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * 以惰性加载的顺序流遍历全部元素
+     */
+    public static <T> Stream<T> stream(PageLoader<T> loader, Function<T, String> keyExtractor, int pageSize) {
+        KeysetCursor<T> cursor = new KeysetCursor<>(loader, keyExtractor, pageSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page.hasNext()) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        // 加载函数可能跳过无法解码的数据，不足一页不代表已到末尾，以空页作为结束
+        List<T> next = loader.load(lastKey, pageSize);
+        if (next.isEmpty()) {
+            finished = true;
+            return false;
+        }
+        lastKey = keyExtractor.apply(next.get(next.size() - 1));
+        page = next.iterator();
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /**
+     * 分页加载函数
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+
+        /**
+         * @param afterKey 上一页最后一个元素的键，为 null 时从第一页开始
+         * @param limit    最多返回的条数
+         */
+        List<T> load(String afterKey, int limit);
+    }
+}
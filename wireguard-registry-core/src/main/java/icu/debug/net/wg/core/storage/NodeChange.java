@@ -0,0 +1,36 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 网络节点变更记录，与引起变更的写入在同一次提交中记录
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class NodeChange {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        UPSERT, DELETE
+    }
+
+    /**
+     * 变更后的网络版本号，同一次提交中的多个变更版本号相同
+     */
+    private final long version;
+
+    private final String nodeId;
+
+    private final Type type;
+
+    /**
+     * 变更后的节点，删除时为 null
+     */
+    private final WireGuardNetworkNode node;
+}
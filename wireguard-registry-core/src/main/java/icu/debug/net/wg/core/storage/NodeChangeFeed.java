@@ -0,0 +1,48 @@
+package icu.debug.net.wg.core.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 指定版本之后的节点变更
+ * <p>
+ * 变更按版本号升序排列，同一版本的变更总是一起返回。{@code resetRequired} 为 true 时请求的版本之后的部分变更已被保留策略清理，
+ * 调用方需要先获取网络版本号再全量获取节点；否则应用 {@code changes} 后以 {@code nextVersion} 作为下一次请求的起点，
+ * {@code hasMore} 为 true 时还有未返回的变更。
+ * </p>
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class NodeChangeFeed {
+
+    private final String networkId;
+
+    private final long fromVersion;
+
+    private final List<NodeChange> changes;
+
+    private final boolean hasMore;
+
+    private final boolean resetRequired;
+
+    /**
+     * 下一次请求的起点，为最后一条变更的版本号，没有变更时不变
+     */
+    private final long nextVersion;
+
+    public static NodeChangeFeed of(String networkId, long fromVersion, List<NodeChange> changes, boolean hasMore) {
+        long nextVersion = changes.isEmpty() ? fromVersion : changes.get(changes.size() - 1).getVersion();
+        return new NodeChangeFeed(networkId, fromVersion, changes, hasMore, false, nextVersion);
+    }
+
+    /**
+     * 请求的版本之后的变更已不完整
+     */
+    public static NodeChangeFeed reset(String networkId, long fromVersion) {
+        return new NodeChangeFeed(networkId, fromVersion, List.of(), false, true, fromVersion);
+    }
+}
@@ -0,0 +1,87 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 单个网络在内存中的节点变更日志，按版本号排序
+ * <p>
+ * 记录已清理变更中的最大版本号，请求的版本小于它时返回 {@link NodeChangeFeed#reset}。
+ * 写入方应在同一个监视器内分配版本号并追加变更，读取方才不会越过尚未追加的版本。
+ * </p>
+ *
+ * @param <T> 变更携带的节点数据，由读取时的解析函数转换为节点
+ */
+public class NodeChangeLog<T> {
+
+    private final TreeMap<Long, List<Entry<T>>> versions = new TreeMap<>();
+
+    private long truncatedVersion;
+
+    public synchronized void append(long version, String nodeId, NodeChange.Type type, T payload) {
+        versions.computeIfAbsent(version, k -> new ArrayList<>(1)).add(new Entry<>(nodeId, type, payload));
+    }
+
+    /**
+     * 清理指定版本之前的变更
+     */
+    public synchronized void truncate(long beforeVersion) {
+        SortedMap<Long, List<Entry<T>>> head = versions.headMap(beforeVersion);
+        if (!head.isEmpty()) {
+            truncatedVersion = Math.max(truncatedVersion, head.lastKey());
+            head.clear();
+        }
+    }
+
+    /**
+     * 丢弃全部变更，之后只能从指定版本开始读取，用于从快照恢复或压缩之后
+     */
+    public synchronized void reset(long version) {
+        versions.clear();
+        truncatedVersion = version;
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (List<Entry<T>> entries : versions.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    /**
+     * 读取指定版本之后的变更
+     *
+     * @param resolver 把变更携带的数据转换为节点，在锁外调用
+     */
+    public NodeChangeFeed read(String networkId, long fromVersion, int limit, Function<T, WireGuardNetworkNode> resolver) {
+        List<Map.Entry<Long, List<Entry<T>>>> selected = new ArrayList<>();
+        boolean hasMore;
+        synchronized (this) {
+            if (fromVersion < truncatedVersion) {
+                return NodeChangeFeed.reset(networkId, fromVersion);
+            }
+            int count = 0;
+            Iterator<Map.Entry<Long, List<Entry<T>>>> iterator = versions.tailMap(fromVersion, false).entrySet().iterator();
+            while (iterator.hasNext() && count < limit) {
+                Map.Entry<Long, List<Entry<T>>> version = iterator.next();
+                selected.add(Map.entry(version.getKey(), List.copyOf(version.getValue())));
+                count += version.getValue().size();
+            }
+            hasMore = iterator.hasNext();
+        }
+        List<NodeChange> changes = new ArrayList<>();
+        for (Map.Entry<Long, List<Entry<T>>> version : selected) {
+            for (Entry<T> entry : version.getValue()) {
+                WireGuardNetworkNode node = entry.type() == NodeChange.Type.UPSERT ? resolver.apply(entry.payload()) : null;
+                changes.add(new NodeChange(version.getKey(), entry.nodeId(), entry.type(), node));
+            }
+        }
+        return NodeChangeFeed.of(networkId, fromVersion, changes, hasMore);
+    }
+
+    private record Entry<T>(String nodeId, NodeChange.Type type, T payload) {
+    }
+}
@@ -0,0 +1,137 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.helper.WireGuardGenKeyHelper;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+
+import java.util.*;
+
+/**
+ * 单个网络的节点二级索引，按公钥与组网地址查找节点ID
+ * <p>
+ * 公钥优先取节点的 publicKey，未设置时由私钥推导，与生成 peer 时使用的公钥一致；地址去掉前缀长度后比较。
+ * 索引记录每个节点建立索引时使用的键，节点对象被原地修改后再次保存也能移除旧键。
+ * 键通常只对应一个节点，此时直接保存节点ID，出现多个节点时才使用集合。
+ * 本类不是线程安全的，调用方应在同一个监视器内修改节点与索引。
+ * </p>
+ */
+public class NodeIndex {
+
+    // 值为单个节点ID（String）或节点ID集合（Set<String>）
+    private final Map<String, Object> publicKeys = new HashMap<>();
+
+    private final Map<String, Object> addresses = new HashMap<>();
+
+    private final Map<String, IndexedKeys> indexedKeys = new HashMap<>();
+
+    /**
+     * 更新节点的索引
+     *
+     * @param node 保存后的节点，为 null 表示节点已删除
+     */
+    public void update(String nodeId, WireGuardNetworkNode node) {
+        IndexedKeys previous = indexedKeys.remove(nodeId);
+        if (previous != null) {
+            remove(publicKeys, previous.publicKey(), nodeId);
+            remove(addresses, previous.address(), nodeId);
+        }
+        if (node != null) {
+            IndexedKeys keys = new IndexedKeys(publicKeyOf(node), normalizeAddress(node.getAddress()));
+            add(publicKeys, keys.publicKey(), nodeId);
+            add(addresses, keys.address(), nodeId);
+            indexedKeys.put(nodeId, keys);
+        }
+    }
+
+    /**
+     * 使用指定公钥的节点ID，正常情况下最多一个
+     */
+    public Set<String> findByPublicKey(String publicKey) {
+        return copy(publicKeys.get(publicKey));
+    }
+
+    /**
+     * 使用指定地址的节点ID，多于一个时说明地址冲突
+     */
+    public Set<String> findByAddress(String address) {
+        return copy(addresses.get(normalizeAddress(address)));
+    }
+
+    public void clear() {
+        publicKeys.clear();
+        addresses.clear();
+        indexedKeys.clear();
+    }
+
+    /**
+     * 节点的公钥，未设置时由私钥推导
+     *
+     * @return 公钥与私钥都未设置时返回 null
+     */
+    public static String publicKeyOf(WireGuardNetworkNode node) {
+        if (node.getPublicKey() != null && !node.getPublicKey().isEmpty()) {
+            return node.getPublicKey();
+        }
+        if (node.getPrivateKey() != null && !node.getPrivateKey().isEmpty()) {
+            return WireGuardGenKeyHelper.genPubKeyByPrivateKey(node.getPrivateKey());
+        }
+        return null;
+    }
+
+    /**
+     * 去掉地址的前缀长度，例如 10.201.0.2/32 与 10.201.0.2 视为同一地址
+     */
+    public static String normalizeAddress(String address) {
+        if (address == null) {
+            return null;
+        }
+        int slash = address.indexOf('/');
+        String host = (slash < 0 ? address : address.substring(0, slash)).trim();
+        return host.isEmpty() ? null : host;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Map<String, Object> index, String key, String nodeId) {
+        if (key == null) {
+            return;
+        }
+        index.merge(key, nodeId, (existing, added) -> {
+            if (existing instanceof Set) {
+                ((Set<String>) existing).add(nodeId);
+                return existing;
+            }
+            if (existing.equals(nodeId)) {
+                return existing;
+            }
+            Set<String> nodeIds = new HashSet<>(4);
+            nodeIds.add((String) existing);
+            nodeIds.add(nodeId);
+            return nodeIds;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void remove(Map<String, Object> index, String key, String nodeId) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, existing) -> {
+            if (!(existing instanceof Set)) {
+                return existing.equals(nodeId) ? null : existing;
+            }
+            Set<String> nodeIds = (Set<String>) existing;
+            nodeIds.remove(nodeId);
+            return nodeIds.size() == 1 ? nodeIds.iterator().next() : existing;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> copy(Object nodeIds) {
+        if (nodeIds == null) {
+            return Set.of();
+        }
+        return nodeIds instanceof Set ? Set.copyOf((Set<String>) nodeIds) : Set.of((String) nodeIds);
+    }
+
+    private record IndexedKeys(String publicKey, String address) {
+    }
+}
@@ -0,0 +1,51 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 渲染后的节点配置文件（UTF-8 编码的 ini 文本）
+ * <p>
+ * {@code content} 为只读缓冲区，可能直接指向存储的堆外内存，调用方不应长期持有。
+ * {@code version} 为保存配置时的网络版本号。
+ * </p>
+ */
+@Getter
+@ToString(exclude = "content")
+@AllArgsConstructor
+public class RenderedConfig {
+
+    private final String networkId;
+
+    private final String nodeId;
+
+    private final long version;
+
+    private final ByteBuffer content;
+
+    public static RenderedConfig of(String networkId, String nodeId, long version, WireGuardIniConfig config) {
+        byte[] bytes = config.toIniString().getBytes(StandardCharsets.UTF_8);
+        return new RenderedConfig(networkId, nodeId, version, ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    public int getLength() {
+        return content.remaining();
+    }
+
+    /**
+     * 写入通道，不改变 {@code content} 的位置，可重复调用
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = content.duplicate();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package icu.debug.net.wg.core.storage.codec;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardInterface;
+import icu.debug.net.wg.core.model.config.WireGuardPeer;
+import icu.debug.net.wg.core.model.network.ServerNode;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 紧凑二进制编解码器
+ * <p>
+ * 首字节为格式版本：{@link #FORMAT_BINARY} 为二进制，{@link #FORMAT_BINARY_DEFLATE} 为 Deflate 压缩后的二进制，
+ * 其他首字节视为旧的 JSON 文本，交给 {@link JsonBlobCodec} 解码，因此旧数据无需迁移即可读取。
+ * </p>
+ * <p>
+ * 对象以字段存在位图开头，随后依次写入存在的字段；密钥写为 32 字节原始数据，IPv4 地址与 CIDR、Endpoint 按字节打包，
+ * 无法无损打包的值退化为字符串。
+ * </p>
+ */
+public class BinaryBlobCodec implements BlobCodec {
+
+    public static final byte FORMAT_BINARY = 1;
+
+    public static final byte FORMAT_BINARY_DEFLATE = 2;
+
+    private final boolean compress;
+
+    private final BlobCodec legacyCodec;
+
+    /**
+     * @param compress    是否使用 Deflate 压缩
+     * @param legacyCodec 旧格式（JSON）数据的解码器
+     */
+    public BinaryBlobCodec(boolean compress, BlobCodec legacyCodec) {
+        this.compress = compress;
+        this.legacyCodec = legacyCodec;
+    }
+
+    @Override
+    public byte[] encodeNode(WireGuardNetworkNode node) throws IOException {
+        return encode(out -> writeNode(out, node));
+    }
+
+    @Override
+    public WireGuardNetworkNode decodeNode(byte[] data) throws IOException {
+        if (!isBinary(data)) {
+            return legacyCodec.decodeNode(data);
+        }
+        return readNode(open(data));
+    }
+
+    @Override
+    public byte[] encodeConfig(WireGuardIniConfig config) throws IOException {
+        return encode(out -> writeConfig(out, config));
+    }
+
+    @Override
+    public WireGuardIniConfig decodeConfig(byte[] data) throws IOException {
+        if (!isBinary(data)) {
+            return legacyCodec.decodeConfig(data);
+        }
+        return readConfig(open(data));
+    }
+
+    private static boolean isBinary(byte[] data) {
+        return data.length > 0 && (data[0] == FORMAT_BINARY || data[0] == FORMAT_BINARY_DEFLATE);
+    }
+
+    private byte[] encode(BodyWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        bytes.write(compress ? FORMAT_BINARY_DEFLATE : FORMAT_BINARY);
+        if (compress) {
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(bytes)) {
+                writer.write(new BinaryBlobOutput(deflater));
+            }
+        } else {
+            writer.write(new BinaryBlobOutput(bytes));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BinaryBlobInput open(byte[] data) {
+        InputStream in = new ByteArrayInputStream(data, 1, data.length - 1);
+        if (data[0] == FORMAT_BINARY_DEFLATE) {
+            in = new InflaterInputStream(in);
+        }
+        return new BinaryBlobInput(in);
+    }
+
+    // ==================== 生成配置 ====================
+
+    private static void writeConfig(BinaryBlobOutput out, WireGuardIniConfig config) throws IOException {
+        out.writeFields(config.getName() != null, config.getWgInterface() != null, config.getPeers() != null);
+        if (config.getName() != null) {
+            out.writeString(config.getName());
+        }
+        if (config.getWgInterface() != null) {
+            writeInterface(out, config.getWgInterface());
+        }
+        if (config.getPeers() != null) {
+            out.writeVarInt(config.getPeers().size());
+            for (WireGuardPeer peer : config.getPeers()) {
+                writePeer(out, peer);
+            }
+        }
+    }
+
+    private static WireGuardIniConfig readConfig(BinaryBlobInput in) throws IOException {
+        int fields = in.readVarInt();
+        WireGuardIniConfig config = new WireGuardIniConfig();
+        if (has(fields, 0)) {
+            config.setName(in.readString());
+        }
+        if (has(fields, 1)) {
+            config.setWgInterface(readInterface(in));
+        }
+        if (has(fields, 2)) {
+            int size = in.readVarInt();
+            List<WireGuardPeer> peers = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                peers.add(readPeer(in));
+            }
+            config.setPeers(peers);
+        }
+        return config;
+    }
+
+    private static void writeInterface(BinaryBlobOutput out, WireGuardInterface wgInterface) throws IOException {
+        out.writeFields(wgInterface.getName() != null, wgInterface.getAddress() != null, wgInterface.getListenPort() != null,
+                wgInterface.getPrivateKey() != null, wgInterface.getDns() != null, wgInterface.getTable() != null,
+                wgInterface.getMtu() != null, wgInterface.getPreUp() != null, wgInterface.getPostUp() != null,
+                wgInterface.getPreDown() != null, wgInterface.getPostDown() != null);
+        if (wgInterface.getName() != null) {
+            out.writeString(wgInterface.getName());
+        }
+        if (wgInterface.getAddress() != null) {
+            out.writeAddress(wgInterface.getAddress());
+        }
+        if (wgInterface.getListenPort() != null) {
+            out.writeVarInt(wgInterface.getListenPort());
+        }
+        if (wgInterface.getPrivateKey() != null) {
+            out.writeKey(wgInterface.getPrivateKey());
+        }
+        if (wgInterface.getDns() != null) {
+            out.writeAddressList(wgInterface.getDns());
+        }
+        if (wgInterface.getTable() != null) {
+            out.writeString(wgInterface.getTable());
+        }
+        if (wgInterface.getMtu() != null) {
+            out.writeVarInt(wgInterface.getMtu());
+        }
+        writeStringListIfPresent(out, wgInterface.getPreUp());
+        writeStringListIfPresent(out, wgInterface.getPostUp());
+        writeStringListIfPresent(out, wgInterface.getPreDown());
+        writeStringListIfPresent(out, wgInterface.getPostDown());
+    }
+
+    private static WireGuardInterface readInterface(BinaryBlobInput in) throws IOException {
+        int fields = in.readVarInt();
+        WireGuardInterface wgInterface = new WireGuardInterface();
+        if (has(fields, 0)) {
+            wgInterface.setName(in.readString());
+        }
+        if (has(fields, 1)) {
+            wgInterface.setAddress(in.readAddress());
+        }
+        if (has(fields, 2)) {
+            wgInterface.setListenPort(in.readVarInt());
+        }
+        if (has(fields, 3)) {
+            wgInterface.setPrivateKey(in.readKey());
+        }
+        if (has(fields, 4)) {
+            wgInterface.setDns(in.readAddressList());
+        }
+        if (has(fields, 5)) {
+            wgInterface.setTable(in.readString());
+        }
+        if (has(fields, 6)) {
+            wgInterface.setMtu(in.readVarInt());
+        }
+        if (has(fields, 7)) {
+            wgInterface.setPreUp(in.readStringList());
+        }
+        if (has(fields, 8)) {
+            wgInterface.setPostUp(in.readStringList());
+        }
+        if (has(fields, 9)) {
+            wgInterface.setPreDown(in.readStringList());
+        }
+        if (has(fields, 10)) {
+            wgInterface.setPostDown(in.readStringList());
+        }
+        return wgInterface;
+    }
+
+    private static void writePeer(BinaryBlobOutput out, WireGuardPeer peer) throws IOException {
+        out.writeFields(peer.getName() != null, peer.getAllowedIPs() != null, peer.getEndpoint() != null,
+                peer.getPublicKey() != null, peer.getPersistentKeepalive() != null);
+        if (peer.getName() != null) {
+            out.writeString(peer.getName());
+        }
+        if (peer.getAllowedIPs() != null) {
+            out.writeAddressList(peer.getAllowedIPs());
+        }
+        if (peer.getEndpoint() != null) {
+            out.writeAddress(peer.getEndpoint());
+        }
+        if (peer.getPublicKey() != null) {
+            out.writeKey(peer.getPublicKey());
+        }
+        if (peer.getPersistentKeepalive() != null) {
+            out.writeVarInt(peer.getPersistentKeepalive());
+        }
+    }
+
+    private static WireGuardPeer readPeer(BinaryBlobInput in) throws IOException {
+        int fields = in.readVarInt();
+        WireGuardPeer peer = new WireGuardPeer();
+        if (has(fields, 0)) {
+            peer.setName(in.readString());
+        }
+        if (has(fields, 1)) {
+            peer.setAllowedIPs(in.readAddressList());
+        }
+        if (has(fields, 2)) {
+            peer.setEndpoint(in.readAddress());
+        }
+        if (has(fields, 3)) {
+            peer.setPublicKey(in.readKey());
+        }
+        if (has(fields, 4)) {
+            peer.setPersistentKeepalive(in.readVarInt());
+        }
+        return peer;
+    }
+
+    // ==================== 网络节点 ====================
+
+    private static void writeNode(BinaryBlobOutput out, WireGuardNetworkNode node) throws IOException {
+        ServerNode serverNode = node.getServerNode();
+        out.writeFields(serverNode != null, node.isIgnoreDefault(), node.getAddress() != null, node.getListenPort() != null,
+                node.getKeepalive() != null, node.getPublicKey() != null, node.getPrivateKey() != null,
+                node.getDns() != null, node.getTable() != null, node.getMtu() != null, node.getPreUp() != null,
+                node.getPostUp() != null, node.getPreDown() != null, node.getPostDown() != null);
+        if (serverNode != null) {
+            out.writeFields(serverNode.getHostname() != null, serverNode.getPublicAddress() != null, serverNode.getPrivateAddress() != null);
+            if (serverNode.getHostname() != null) {
+                out.writeString(serverNode.getHostname());
+            }
+            if (serverNode.getPublicAddress() != null) {
+                out.writeAddress(serverNode.getPublicAddress());
+            }
+            if (serverNode.getPrivateAddress() != null) {
+                out.writeAddress(serverNode.getPrivateAddress());
+            }
+        }
+        if (node.getAddress() != null) {
+            out.writeAddress(node.getAddress());
+        }
+        if (node.getListenPort() != null) {
+            out.writeVarInt(node.getListenPort());
+        }
+        if (node.getKeepalive() != null) {
+            out.writeVarInt(node.getKeepalive());
+        }
+        if (node.getPublicKey() != null) {
+            out.writeKey(node.getPublicKey());
+        }
+        if (node.getPrivateKey() != null) {
+            out.writeKey(node.getPrivateKey());
+        }
+        if (node.getDns() != null) {
+            out.writeAddressList(node.getDns());
+        }
+        if (node.getTable() != null) {
+            out.writeString(node.getTable());
+        }
+        if (node.getMtu() != null) {
+            out.writeVarInt(node.getMtu());
+        }
+        writeStringListIfPresent(out, node.getPreUp());
+        writeStringListIfPresent(out, node.getPostUp());
+        writeStringListIfPresent(out, node.getPreDown());
+        writeStringListIfPresent(out, node.getPostDown());
+    }
+
+    private static WireGuardNetworkNode readNode(BinaryBlobInput in) throws IOException {
+        int fields = in.readVarInt();
+        WireGuardNetworkNode node = new WireGuardNetworkNode();
+        if (has(fields, 0)) {
+            int serverFields = in.readVarInt();
+            ServerNode serverNode = new ServerNode();
+            if (has(serverFields, 0)) {
+                serverNode.setHostname(in.readString());
+            }
+            if (has(serverFields, 1)) {
+                serverNode.setPublicAddress(in.readAddress());
+            }
+            if (has(serverFields, 2)) {
+                serverNode.setPrivateAddress(in.readAddress());
+            }
+            node.setServerNode(serverNode);
+        }
+        node.setIgnoreDefault(has(fields, 1));
+        if (has(fields, 2)) {
+            node.setAddress(in.readAddress());
+        }
+        if (has(fields, 3)) {
+            node.setListenPort(in.readVarInt());
+        }
+        if (has(fields, 4)) {
+            node.setKeepalive(in.readVarInt());
+        }
+        if (has(fields, 5)) {
+            node.setPublicKey(in.readKey());
+        }
+        if (has(fields, 6)) {
+            node.setPrivateKey(in.readKey());
+        }
+        if (has(fields, 7)) {
+            node.setDns(in.readAddressList());
+        }
+        if (has(fields, 8)) {
+            node.setTable(in.readString());
+        }
+        if (has(fields, 9)) {
+            node.setMtu(in.readVarInt());
+        }
+        if (has(fields, 10)) {
+            node.setPreUp(in.readStringList());
+        }
+        if (has(fields, 11)) {
+            node.setPostUp(in.readStringList());
+        }
+        if (has(fields, 12)) {
+            node.setPreDown(in.readStringList());
+        }
+        if (has(fields, 13)) {
+            node.setPostDown(in.readStringList());
+        }
+        return node;
+    }
+
+    private static void writeStringListIfPresent(BinaryBlobOutput out, List<String> values) throws IOException {
+        if (values != null) {
+            out.writeStringList(values);
+        }
+    }
+
+    private static boolean has(int fields, int index) {
+        return (fields & (1 << index)) != 0;
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+
+        void write(BinaryBlobOutput out) throws IOException;
+    }
+}
@@ -0,0 +1,120 @@
+package icu.debug.net.wg.core.storage.codec;
+
+import icu.debug.net.wg.core.model.network.NetAddressAllocator;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 二进制编码输入，见 {@link BinaryBlobCodec}
+ */
+class BinaryBlobInput {
+
+    private final InputStream in;
+
+    BinaryBlobInput(InputStream in) {
+        this.in = in;
+    }
+
+    int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    String readString() throws IOException {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        return new String(readBytes(length - 1), StandardCharsets.UTF_8);
+    }
+
+    byte[] readBytes() throws IOException {
+        return readBytes(readVarInt());
+    }
+
+    List<String> readStringList() throws IOException {
+        int size = readVarInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    String readKey() throws IOException {
+        int type = readByte();
+        if (type == BinaryBlobOutput.KEY_RAW) {
+            return Base64.getEncoder().encodeToString(readBytes(BinaryBlobOutput.KEY_LENGTH));
+        }
+        return readString();
+    }
+
+    String readAddress() throws IOException {
+        int type = readByte();
+        return switch (type) {
+            case BinaryBlobOutput.ADDRESS_IPV4 -> NetAddressAllocator.toAddress(readInt());
+            case BinaryBlobOutput.ADDRESS_IPV4_PREFIX -> NetAddressAllocator.toAddress(readInt()) + "/" + readByte();
+            case BinaryBlobOutput.ADDRESS_IPV4_PORT -> {
+                String ip = NetAddressAllocator.toAddress(readInt());
+                int port = (readByte() << 8) | readByte();
+                yield ip + ":" + port;
+            }
+            case BinaryBlobOutput.ADDRESS_STRING -> readString();
+            default -> throw new IOException("Unknown address type " + type);
+        };
+    }
+
+    List<String> readAddressList() throws IOException {
+        int size = readVarInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readAddress());
+        }
+        return values;
+    }
+
+    private int readInt() throws IOException {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,198 @@
+package icu.debug.net.wg.core.storage.codec;
+
+import icu.debug.net.wg.core.model.network.NetAddressAllocator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 二进制编码输出，见 {@link BinaryBlobCodec}
+ */
+class BinaryBlobOutput {
+
+    static final int ADDRESS_STRING = 0;
+
+    static final int ADDRESS_IPV4 = 1;
+
+    static final int ADDRESS_IPV4_PREFIX = 2;
+
+    static final int ADDRESS_IPV4_PORT = 3;
+
+    static final int KEY_STRING = 0;
+
+    static final int KEY_RAW = 1;
+
+    static final int KEY_LENGTH = 32;
+
+    private final OutputStream out;
+
+    BinaryBlobOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * 写入字段存在位图
+     */
+    void writeFields(boolean... present) throws IOException {
+        int fields = 0;
+        for (int i = 0; i < present.length; i++) {
+            if (present[i]) {
+                fields |= 1 << i;
+            }
+        }
+        writeVarInt(fields);
+    }
+
+    void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 长度加一后写入，0 表示 null
+     */
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        out.write(bytes);
+    }
+
+    /**
+     * 写入长度前缀的字节数组
+     */
+    void writeBytes(byte[] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    void writeStringList(List<String> values) throws IOException {
+        writeVarInt(values.size());
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    /**
+     * 写入 Base64 编码的密钥，能无损还原时写入 32 字节原始数据
+     */
+    void writeKey(String key) throws IOException {
+        byte[] raw = decodeKey(key);
+        if (raw == null) {
+            out.write(KEY_STRING);
+            writeString(key);
+            return;
+        }
+        out.write(KEY_RAW);
+        out.write(raw);
+    }
+
+    /**
+     * 写入 IPv4 地址、CIDR 或 地址:端口，能无损还原时按字节打包
+     */
+    void writeAddress(String address) throws IOException {
+        if (address != null) {
+            int slash = address.indexOf('/');
+            int colon = address.indexOf(':');
+            if (slash < 0 && colon < 0) {
+                long ip = packIPv4(address);
+                if (ip >= 0) {
+                    out.write(ADDRESS_IPV4);
+                    writeInt((int) ip);
+                    return;
+                }
+            } else if (slash > 0 && colon < 0) {
+                long ip = packIPv4(address.substring(0, slash));
+                int prefix = parseNumber(address, slash + 1, 32);
+                if (ip >= 0 && prefix >= 0) {
+                    out.write(ADDRESS_IPV4_PREFIX);
+                    writeInt((int) ip);
+                    out.write(prefix);
+                    return;
+                }
+            } else if (colon > 0 && slash < 0) {
+                long ip = packIPv4(address.substring(0, colon));
+                int port = parseNumber(address, colon + 1, 0xFFFF);
+                if (ip >= 0 && port >= 0) {
+                    out.write(ADDRESS_IPV4_PORT);
+                    writeInt((int) ip);
+                    out.write(port >>> 8);
+                    out.write(port);
+                    return;
+                }
+            }
+        }
+        out.write(ADDRESS_STRING);
+        writeString(address);
+    }
+
+    void writeAddressList(List<String> addresses) throws IOException {
+        writeVarInt(addresses.size());
+        for (String address : addresses) {
+            writeAddress(address);
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * 解析规范格式的 IPv4 地址，不合法或无法无损还原时返回 -1
+     */
+    private static long packIPv4(String address) {
+        long ip = NetAddressAllocator.toInteger(address);
+        return ip >= 0 && NetAddressAllocator.toAddress((int) ip).equals(address) ? ip : -1;
+    }
+
+    /**
+     * 解析规范的十进制数字（无前导零），不合法时返回 -1
+     */
+    private static int parseNumber(String text, int start, int max) {
+        int length = text.length() - start;
+        if (length <= 0 || length > 5 || (length > 1 && text.charAt(start) == '0')) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value <= max ? value : -1;
+    }
+
+    private static byte[] decodeKey(String key) {
+        try {
+            byte[] raw = Base64.getDecoder().decode(key);
+            if (raw.length == KEY_LENGTH && Base64.getEncoder().encodeToString(raw).equals(key)) {
+                return raw;
+            }
+        } catch (IllegalArgumentException e) {
+            // 非标准 Base64，按字符串保存
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package icu.debug.net.wg.core.storage.codec;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+
+import java.io.IOException;
+
+/**
+ * 数据库存储中节点与生成配置数据的编解码器
+ */
+public interface BlobCodec {
+
+    /**
+     * 编码网络节点
+     */
+    byte[] encodeNode(WireGuardNetworkNode node) throws IOException;
+
+    /**
+     * 解码网络节点
+     */
+    WireGuardNetworkNode decodeNode(byte[] data) throws IOException;
+
+    /**
+     * 编码生成配置
+     */
+    byte[] encodeConfig(WireGuardIniConfig config) throws IOException;
+
+    /**
+     * 解码生成配置
+     */
+    WireGuardIniConfig decodeConfig(byte[] data) throws IOException;
+}
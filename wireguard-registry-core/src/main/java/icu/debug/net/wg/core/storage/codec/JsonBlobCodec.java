@@ -0,0 +1,39 @@
+package icu.debug.net.wg.core.storage.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+
+import java.io.IOException;
+
+/**
+ * JSON 编解码器，数据为 UTF-8 编码的 JSON 文本
+ */
+public class JsonBlobCodec implements BlobCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonBlobCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encodeNode(WireGuardNetworkNode node) throws IOException {
+        return objectMapper.writeValueAsBytes(node);
+    }
+
+    @Override
+    public WireGuardNetworkNode decodeNode(byte[] data) throws IOException {
+        return objectMapper.readValue(data, WireGuardNetworkNode.class);
+    }
+
+    @Override
+    public byte[] encodeConfig(WireGuardIniConfig config) throws IOException {
+        return objectMapper.writeValueAsBytes(config);
+    }
+
+    @Override
+    public WireGuardIniConfig decodeConfig(byte[] data) throws IOException {
+        return objectMapper.readValue(data, WireGuardIniConfig.class);
+    }
+}
@@ -0,0 +1,95 @@
+package icu.debug.net.wg.core.storage.codec;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.storage.peer.NodePeerView;
+import icu.debug.net.wg.core.storage.peer.PeerTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 共享 peer 表与节点视图的编解码器
+ * <p>
+ * 首字节为 {@link #FORMAT_PEER_TABLE} 或 {@link #FORMAT_PEER_VIEW}，与 {@link BinaryBlobCodec} 的格式及 JSON 文本可以区分，
+ * 节点视图与完整配置可以混存在同一张表中。
+ * 接口段与 peer 仍交给 {@link BlobCodec} 编码，外层只写入代数、节点ID与引用区间
+ * </p>
+ */
+public class PeerTableCodec {
+
+    public static final byte FORMAT_PEER_TABLE = 3;
+
+    public static final byte FORMAT_PEER_VIEW = 4;
+
+    private final BlobCodec blobCodec;
+
+    /**
+     * @param blobCodec 接口段与 peer 的编解码器
+     */
+    public PeerTableCodec(BlobCodec blobCodec) {
+        this.blobCodec = blobCodec;
+    }
+
+    /**
+     * 是否为节点视图数据，否则为完整配置
+     */
+    public static boolean isPeerView(byte[] data) {
+        return data.length > 0 && data[0] == FORMAT_PEER_VIEW;
+    }
+
+    public byte[] encodeTable(PeerTable table) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        bytes.write(FORMAT_PEER_TABLE);
+        BinaryBlobOutput out = new BinaryBlobOutput(bytes);
+        out.writeVarLong(table.getGeneration());
+        out.writeStringList(new ArrayList<>(table.getNodeIds()));
+        out.writeBytes(blobCodec.encodeConfig(new WireGuardIniConfig(null, null, table.getPeers())));
+        return bytes.toByteArray();
+    }
+
+    public PeerTable decodeTable(byte[] data) throws IOException {
+        BinaryBlobInput in = open(data, FORMAT_PEER_TABLE);
+        long generation = in.readVarLong();
+        List<String> nodeIds = in.readStringList();
+        WireGuardIniConfig peers = blobCodec.decodeConfig(in.readBytes());
+        return new PeerTable(generation, nodeIds, peers.getPeers() == null ? Collections.emptyList() : peers.getPeers());
+    }
+
+    public byte[] encodeView(NodePeerView view) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        bytes.write(FORMAT_PEER_VIEW);
+        BinaryBlobOutput out = new BinaryBlobOutput(bytes);
+        out.writeVarLong(view.getGeneration());
+        out.writeVarInt(view.getRuns().length);
+        for (int value : view.getRuns()) {
+            out.writeVarInt(value);
+        }
+        out.writeBytes(blobCodec.encodeConfig(new WireGuardIniConfig(view.getName(), view.getWgInterface(), null)));
+        return bytes.toByteArray();
+    }
+
+    public NodePeerView decodeView(byte[] data) throws IOException {
+        BinaryBlobInput in = open(data, FORMAT_PEER_VIEW);
+        long generation = in.readVarLong();
+        int[] runs = new int[in.readVarInt()];
+        if (runs.length % 2 != 0) {
+            throw new IOException("Malformed peer view runs");
+        }
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = in.readVarInt();
+        }
+        WireGuardIniConfig config = blobCodec.decodeConfig(in.readBytes());
+        return new NodePeerView(generation, config.getName(), config.getWgInterface(), runs);
+    }
+
+    private static BinaryBlobInput open(byte[] data, byte format) throws IOException {
+        if (data.length == 0 || data[0] != format) {
+            throw new IOException("Unexpected data format, expected " + format);
+        }
+        return new BinaryBlobInput(new ByteArrayInputStream(data, 1, data.length - 1));
+    }
+}
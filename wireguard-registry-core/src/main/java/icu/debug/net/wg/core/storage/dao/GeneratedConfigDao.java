@@ -11,10 +11,19 @@ import java.util.Optional;
 public interface GeneratedConfigDao {
 
     /**
-     * 保存生成配置
+     * 保存生成配置，以 (networkId, nodeId) 为唯一键，已存在时更新
      */
     void save(GeneratedConfigEntity entity);
 
+    /**
+     * 批量插入或更新生成配置
+     * <p>
+     * 以 (networkId, nodeId) 为唯一键，已存在的记录更新配置数据与更新时间，
+     * 实现应在同一事务中以一条批量语句执行
+     * </p>
+     */
+    void upsertAll(List<GeneratedConfigEntity> entities);
+
     /**
      * 根据网络ID和节点ID查找配置
      */
@@ -25,6 +34,13 @@ public interface GeneratedConfigDao {
      */
     List<GeneratedConfigEntity> findByNetworkId(String networkId);
 
+    /**
+     * 按节点ID升序分页查询网络下的配置，以上一页最后一个节点ID为起点，不使用偏移量
+     *
+     * @param afterNodeId 上一页最后一个节点ID，为 null 时从第一页开始
+     */
+    List<GeneratedConfigEntity> findByNetworkIdAfter(String networkId, String afterNodeId, int limit);
+
     /**
      * 删除生成配置
      */
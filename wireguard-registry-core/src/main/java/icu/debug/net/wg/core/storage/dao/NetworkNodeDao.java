@@ -11,10 +11,18 @@ import java.util.Optional;
 public interface NetworkNodeDao {
 
     /**
-     * 保存网络节点
+     * 保存网络节点，以 (networkId, nodeId) 为唯一键，已存在时更新
      */
     void save(NetworkNodeEntity entity);
 
+    /**
+     * 批量插入或更新网络节点
+     * <p>
+     * 以 (networkId, nodeId) 为唯一键，实现应以一条批量语句执行
+     * </p>
+     */
+    void upsertAll(List<NetworkNodeEntity> entities);
+
     /**
      * 根据网络ID和节点ID查找节点
      */
@@ -25,6 +33,13 @@ public interface NetworkNodeDao {
      */
     List<NetworkNodeEntity> findByNetworkId(String networkId);
 
+    /**
+     * 按节点ID升序分页查询网络下的节点，以上一页最后一个节点ID为起点，不使用偏移量
+     *
+     * @param afterNodeId 上一页最后一个节点ID，为 null 时从第一页开始
+     */
+    List<NetworkNodeEntity> findByNetworkIdAfter(String networkId, String afterNodeId, int limit);
+
     /**
      * 删除网络节点
      */
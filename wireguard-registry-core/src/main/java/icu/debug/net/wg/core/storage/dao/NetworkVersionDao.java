@@ -26,9 +26,11 @@ public interface NetworkVersionDao {
     void deleteByNetworkId(String networkId);
 
     /**
-     * 递增网络版本
+     * 原子递增网络版本，不存在时创建为 1
+     *
+     * @return 递增后的版本号
      */
-    void incrementVersion(String networkId);
+    long incrementVersion(String networkId);
 
     /**
      * 获取所有网络ID
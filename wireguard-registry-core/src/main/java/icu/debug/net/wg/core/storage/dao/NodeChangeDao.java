@@ -0,0 +1,43 @@
+package icu.debug.net.wg.core.storage.dao;
+
+import icu.debug.net.wg.core.storage.entity.NodeChangeEntity;
+
+import java.util.List;
+
+/**
+ * 网络节点变更数据访问接口
+ */
+public interface NodeChangeDao {
+
+    /**
+     * 批量插入变更
+     */
+    void saveAll(List<NodeChangeEntity> entities);
+
+    /**
+     * 查询指定版本之后的变更，按版本号与节点ID升序
+     */
+    List<NodeChangeEntity> findByNetworkIdSince(String networkId, long version, int limit);
+
+    /**
+     * 查询指定版本的全部变更，用于补全被条数限制截断的版本
+     */
+    List<NodeChangeEntity> findByNetworkIdAndVersion(String networkId, long version);
+
+    /**
+     * 删除指定版本之前的变更，并把已删除的最大版本号记为清理水位
+     */
+    void deleteByNetworkIdBefore(String networkId, long beforeVersion);
+
+    /**
+     * 查询清理水位，请求的版本小于它时变更已不完整
+     *
+     * @return 没有清理过时返回 0
+     */
+    long findTruncatedVersion(String networkId);
+
+    /**
+     * 删除网络的全部变更与清理水位
+     */
+    void deleteByNetworkId(String networkId);
+}
@@ -0,0 +1,44 @@
+package icu.debug.net.wg.core.storage.dao;
+
+import icu.debug.net.wg.core.storage.entity.PeerTableEntity;
+
+import java.util.Optional;
+
+/**
+ * 网络共享 peer 表数据访问接口
+ */
+public interface PeerTableDao {
+
+    /**
+     * 插入或更新 peer 表
+     * <p>
+     * 以 networkId 为唯一键，已存在的记录更新表数据、版本号与更新时间
+     * </p>
+     */
+    void save(PeerTableEntity entity);
+
+    /**
+     * 按期望的版本号写入 peer 表，用于多个实例并发读改写同一网络的 peer 表
+     * <p>
+     * expectedVersion 为 0 时只在记录不存在时插入，否则只在记录当前版本号等于 expectedVersion 时更新
+     * </p>
+     *
+     * @return 是否写入，记录已被其他写入修改时返回 false
+     */
+    boolean saveIfVersion(PeerTableEntity entity, long expectedVersion);
+
+    /**
+     * 根据网络ID查找 peer 表
+     */
+    Optional<PeerTableEntity> findByNetworkId(String networkId);
+
+    /**
+     * 只查询 peer 表版本号，用于校验本地已解码的 peer 表
+     */
+    Optional<Long> findVersionByNetworkId(String networkId);
+
+    /**
+     * 删除网络的 peer 表
+     */
+    void deleteByNetworkId(String networkId);
+}
@@ -0,0 +1,43 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * JDBC 数据访问基类
+ * <p>
+ * SQL 文本在构造时生成一次，每次执行文本相同，驱动或连接池的预编译语句缓存可以命中；
+ * 批量写入在同一事务中使用同一个 PreparedStatement 执行
+ * </p>
+ */
+abstract class AbstractJdbcDao {
+
+    protected final JdbcTemplate jdbcTemplate;
+
+    protected final JdbcDialect dialect;
+
+    protected final TransactionTemplate transactionTemplate;
+
+    protected AbstractJdbcDao(JdbcTemplate jdbcTemplate, JdbcDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        // 已有外部事务时加入外部事务
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    protected static Timestamp toTimestamp(LocalDateTime time) {
+        return Timestamp.valueOf(time == null ? LocalDateTime.now() : time);
+    }
+
+    protected static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    protected static long versionOrDefault(Long version) {
+        return version == null ? 1L : version;
+    }
+}
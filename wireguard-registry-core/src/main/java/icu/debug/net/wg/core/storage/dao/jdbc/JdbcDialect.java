@@ -0,0 +1,184 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * JDBC 存储支持的数据库方言
+ * <p>
+ * 各数据库的插入或更新语法不同：SQLite 使用 {@code ON CONFLICT DO UPDATE}，H2 使用 {@code MERGE ... USING}，
+ * MySQL 使用 {@code ON DUPLICATE KEY UPDATE}，均为单条语句
+ * </p>
+ */
+public enum JdbcDialect {
+
+    SQLITE("BLOB", "TIMESTAMP"),
+
+    H2("BLOB", "TIMESTAMP"),
+
+    MYSQL("LONGBLOB", "DATETIME(3)");
+
+    private final String blobType;
+
+    private final String timestampType;
+
+    JdbcDialect(String blobType, String timestampType) {
+        this.blobType = blobType;
+        this.timestampType = timestampType;
+    }
+
+    public String getBlobType() {
+        return blobType;
+    }
+
+    public String getTimestampType() {
+        return timestampType;
+    }
+
+    /**
+     * 根据数据库产品名称识别方言
+     */
+    public static JdbcDialect detect(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+            if (product.contains("sqlite")) {
+                return SQLITE;
+            }
+            if (product.contains("h2")) {
+                return H2;
+            }
+            if (product.contains("mysql") || product.contains("mariadb")) {
+                return MYSQL;
+            }
+            throw new IllegalStateException("Unsupported database: " + product);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to detect database dialect", e);
+        }
+    }
+
+    /**
+     * 生成插入或更新语句，执行参数按 keyColumns、updateColumns、insertColumns 的顺序传给 {@link Upsert#args}
+     *
+     * @param keyColumns    唯一键列
+     * @param updateColumns 已存在时更新的列
+     * @param insertColumns 只在插入时写入的列
+     * @param counterColumn 已存在时自增的列，为 null 时不自增，插入时的值由 insertColumns 中的同名参数给出
+     */
+    Upsert upsert(String table, List<String> keyColumns, List<String> updateColumns, List<String> insertColumns, String counterColumn) {
+        List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(updateColumns);
+        columns.addAll(insertColumns);
+        String columnList = String.join(", ", columns);
+        String params = placeholders(columns.size());
+        List<String> assignments = new ArrayList<>();
+        return switch (this) {
+            case SQLITE -> {
+                updateColumns.forEach(column -> assignments.add(column + " = excluded." + column));
+                if (counterColumn != null) {
+                    assignments.add(counterColumn + " = " + table + "." + counterColumn + " + 1");
+                }
+                yield new Upsert("INSERT INTO " + table + " (" + columnList + ") VALUES (" + params + ")"
+                        + " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " + String.join(", ", assignments),
+                        keyColumns.size(), updateColumns.size(), false);
+            }
+            case H2 -> {
+                // USING 子句中的参数没有目标列可推断类型，会按字符串处理，只有键列放在 USING 中，其余参数直接绑定到目标列
+                updateColumns.forEach(column -> assignments.add(column + " = ?"));
+                if (counterColumn != null) {
+                    assignments.add(counterColumn + " = t." + counterColumn + " + 1");
+                }
+                String keyList = String.join(", ", keyColumns);
+                String on = String.join(" AND ", keyColumns.stream().map(column -> "t." + column + " = s." + column).toList());
+                String keyValues = String.join(", ", keyColumns.stream().map(column -> "s." + column).toList());
+                yield new Upsert("MERGE INTO " + table + " t USING (VALUES (" + placeholders(keyColumns.size()) + ")) s (" + keyList + ")"
+                        + " ON " + on
+                        + " WHEN MATCHED THEN UPDATE SET " + String.join(", ", assignments)
+                        + " WHEN NOT MATCHED THEN INSERT (" + columnList + ") VALUES (" + keyValues + ", "
+                        + placeholders(updateColumns.size() + insertColumns.size()) + ")",
+                        keyColumns.size(), updateColumns.size(), true);
+            }
+            case MYSQL -> {
+                updateColumns.forEach(column -> assignments.add(column + " = VALUES(" + column + ")"));
+                if (counterColumn != null) {
+                    assignments.add(counterColumn + " = " + counterColumn + " + 1");
+                }
+                yield new Upsert("INSERT INTO " + table + " (" + columnList + ") VALUES (" + params + ")"
+                        + " ON DUPLICATE KEY UPDATE " + String.join(", ", assignments),
+                        keyColumns.size(), updateColumns.size(), false);
+            }
+        };
+    }
+
+    /**
+     * 生成只在记录不存在时插入的语句，执行参数按 keyColumns、valueColumns 的顺序给出，影响行数为 0 表示记录已存在
+     *
+     * @param keyColumns   唯一键列
+     * @param valueColumns 其余插入的列
+     */
+    String insertIfAbsent(String table, List<String> keyColumns, List<String> valueColumns) {
+        List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(valueColumns);
+        String columnList = String.join(", ", columns);
+        String params = placeholders(columns.size());
+        return switch (this) {
+            case SQLITE -> "INSERT INTO " + table + " (" + columnList + ") VALUES (" + params + ")"
+                    + " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO NOTHING";
+            case H2 -> {
+                String on = String.join(" AND ", keyColumns.stream().map(column -> "t." + column + " = s." + column).toList());
+                String keyValues = String.join(", ", keyColumns.stream().map(column -> "s." + column).toList());
+                yield "MERGE INTO " + table + " t USING (VALUES (" + placeholders(keyColumns.size()) + ")) s ("
+                        + String.join(", ", keyColumns) + ") ON " + on
+                        + " WHEN NOT MATCHED THEN INSERT (" + columnList + ") VALUES (" + keyValues + ", "
+                        + placeholders(valueColumns.size()) + ")";
+            }
+            case MYSQL -> "INSERT IGNORE INTO " + table + " (" + columnList + ") VALUES (" + params + ")";
+        };
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 连接级初始化，SQLite 切换为 WAL 日志模式，读写互不阻塞
+     * <p>
+     * WAL 模式持久化在数据库文件中，{@code synchronous}、{@code busy_timeout} 是连接级设置，应通过 JDBC URL 参数为每个连接设置
+     * </p>
+     */
+    void initialize(JdbcTemplate jdbcTemplate) {
+        if (this == SQLITE) {
+            jdbcTemplate.queryForObject("PRAGMA journal_mode=WAL", String.class);
+        }
+    }
+
+    /**
+     * 插入或更新语句
+     *
+     * @param repeatUpdates 更新列的参数是否在插入部分再出现一次
+     */
+    record Upsert(String sql, int keyCount, int updateCount, boolean repeatUpdates) {
+
+        /**
+         * 按语句中的参数顺序排列参数
+         *
+         * @param values 按 keyColumns、updateColumns、insertColumns 顺序给出的参数
+         */
+        Object[] args(Object... values) {
+            if (!repeatUpdates) {
+                return values;
+            }
+            int prefix = keyCount + updateCount;
+            Object[] args = new Object[values.length + updateCount];
+            System.arraycopy(values, 0, args, 0, prefix);
+            System.arraycopy(values, keyCount, args, prefix, values.length - keyCount);
+            return args;
+        }
+    }
+}
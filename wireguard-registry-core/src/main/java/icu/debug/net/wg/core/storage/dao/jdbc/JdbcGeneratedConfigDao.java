@@ -0,0 +1,107 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import icu.debug.net.wg.core.storage.dao.GeneratedConfigDao;
+import icu.debug.net.wg.core.storage.entity.GeneratedConfigEntity;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.Optional;
+
+import static icu.debug.net.wg.core.storage.dao.jdbc.JdbcStorageSchema.GENERATED_CONFIG_TABLE;
+
+/**
+ * 生成配置 JDBC 数据访问实现
+ */
+public class JdbcGeneratedConfigDao extends AbstractJdbcDao implements GeneratedConfigDao {
+
+    /**
+     * 每批提交的语句数，MySQL 需开启 rewriteBatchedStatements 才会合并为多行语句
+     */
+    static final int BATCH_SIZE = 500;
+
+    private static final String SELECT = "SELECT network_id, node_id, config_data, created_at, updated_at, version FROM " + GENERATED_CONFIG_TABLE;
+
+    private static final String FIND_ONE = SELECT + " WHERE network_id = ? AND node_id = ?";
+
+    private static final String FIND_BY_NETWORK = SELECT + " WHERE network_id = ? ORDER BY node_id";
+
+    private static final String FIND_FIRST_PAGE = SELECT + " WHERE network_id = ? ORDER BY node_id LIMIT ?";
+
+    private static final String FIND_PAGE_AFTER = SELECT + " WHERE network_id = ? AND node_id > ? ORDER BY node_id LIMIT ?";
+
+    private static final String DELETE_ONE = "DELETE FROM " + GENERATED_CONFIG_TABLE + " WHERE network_id = ? AND node_id = ?";
+
+    private static final String DELETE_BY_NETWORK = "DELETE FROM " + GENERATED_CONFIG_TABLE + " WHERE network_id = ?";
+
+    private static final RowMapper<GeneratedConfigEntity> ROW_MAPPER = (rs, rowNum) -> new GeneratedConfigEntity(
+            null,
+            rs.getString("network_id"),
+            rs.getString("node_id"),
+            rs.getBytes("config_data"),
+            toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("updated_at")),
+            rs.getLong("version"));
+
+    private final JdbcDialect.Upsert upsert;
+
+    public JdbcGeneratedConfigDao(JdbcTemplate jdbcTemplate, JdbcDialect dialect) {
+        super(jdbcTemplate, dialect);
+        this.upsert = dialect.upsert(GENERATED_CONFIG_TABLE, List.of("network_id", "node_id"),
+                List.of("config_data", "updated_at"), List.of("created_at", "version"), "version");
+    }
+
+    /**
+     * 插入或更新配置，已存在时更新配置数据并递增记录版本
+     */
+    @Override
+    public void save(GeneratedConfigEntity entity) {
+        jdbcTemplate.update(upsert.sql(), upsertArgs(entity));
+    }
+
+    @Override
+    public void upsertAll(List<GeneratedConfigEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(upsert.sql(), entities, BATCH_SIZE,
+                (ps, entity) -> new ArgumentPreparedStatementSetter(upsertArgs(entity)).setValues(ps)));
+    }
+
+    private Object[] upsertArgs(GeneratedConfigEntity entity) {
+        return upsert.args(entity.getNetworkId(), entity.getNodeId(), entity.getConfigData(),
+                toTimestamp(entity.getUpdatedAt()), toTimestamp(entity.getCreatedAt()), versionOrDefault(entity.getVersion()));
+    }
+
+    @Override
+    public Optional<GeneratedConfigEntity> findByNetworkIdAndNodeId(String networkId, String nodeId) {
+        return jdbcTemplate.query(FIND_ONE, ROW_MAPPER, networkId, nodeId).stream().findFirst();
+    }
+
+    @Override
+    public List<GeneratedConfigEntity> findByNetworkId(String networkId) {
+        return jdbcTemplate.query(FIND_BY_NETWORK, ROW_MAPPER, networkId);
+    }
+
+    /**
+     * 按主键 (network_id, node_id) 索引定位起点，每页代价与页码无关
+     */
+    @Override
+    public List<GeneratedConfigEntity> findByNetworkIdAfter(String networkId, String afterNodeId, int limit) {
+        if (afterNodeId == null) {
+            return jdbcTemplate.query(FIND_FIRST_PAGE, ROW_MAPPER, networkId, limit);
+        }
+        return jdbcTemplate.query(FIND_PAGE_AFTER, ROW_MAPPER, networkId, afterNodeId, limit);
+    }
+
+    @Override
+    public void deleteByNetworkIdAndNodeId(String networkId, String nodeId) {
+        jdbcTemplate.update(DELETE_ONE, networkId, nodeId);
+    }
+
+    @Override
+    public void deleteByNetworkId(String networkId) {
+        jdbcTemplate.update(DELETE_BY_NETWORK, networkId);
+    }
+}
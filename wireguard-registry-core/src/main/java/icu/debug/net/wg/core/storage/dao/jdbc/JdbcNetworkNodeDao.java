@@ -0,0 +1,118 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import icu.debug.net.wg.core.storage.dao.NetworkNodeDao;
+import icu.debug.net.wg.core.storage.entity.NetworkNodeEntity;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static icu.debug.net.wg.core.storage.dao.jdbc.JdbcStorageSchema.NETWORK_NODE_TABLE;
+
+/**
+ * 网络节点 JDBC 数据访问实现
+ */
+public class JdbcNetworkNodeDao extends AbstractJdbcDao implements NetworkNodeDao {
+
+    private static final String SELECT = "SELECT network_id, node_id, node_data, created_at, updated_at, version FROM " + NETWORK_NODE_TABLE;
+
+    private static final String FIND_ONE = SELECT + " WHERE network_id = ? AND node_id = ?";
+
+    private static final String FIND_BY_NETWORK = SELECT + " WHERE network_id = ? ORDER BY node_id";
+
+    private static final String FIND_FIRST_PAGE = SELECT + " WHERE network_id = ? ORDER BY node_id LIMIT ?";
+
+    private static final String FIND_PAGE_AFTER = SELECT + " WHERE network_id = ? AND node_id > ? ORDER BY node_id LIMIT ?";
+
+    private static final String DELETE_ONE = "DELETE FROM " + NETWORK_NODE_TABLE + " WHERE network_id = ? AND node_id = ?";
+
+    private static final String DELETE_BY_NETWORK = "DELETE FROM " + NETWORK_NODE_TABLE + " WHERE network_id = ?";
+
+    private static final String FIND_NETWORK_IDS = "SELECT DISTINCT network_id FROM " + NETWORK_NODE_TABLE;
+
+    private static final String EXISTS_BY_NETWORK = "SELECT 1 FROM " + NETWORK_NODE_TABLE + " WHERE network_id = ? LIMIT 1";
+
+    private static final RowMapper<NetworkNodeEntity> ROW_MAPPER = (rs, rowNum) -> new NetworkNodeEntity(
+            null,
+            rs.getString("network_id"),
+            rs.getString("node_id"),
+            rs.getBytes("node_data"),
+            toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("updated_at")),
+            rs.getLong("version"));
+
+    private final JdbcDialect.Upsert upsert;
+
+    public JdbcNetworkNodeDao(JdbcTemplate jdbcTemplate, JdbcDialect dialect) {
+        super(jdbcTemplate, dialect);
+        this.upsert = dialect.upsert(NETWORK_NODE_TABLE, List.of("network_id", "node_id"),
+                List.of("node_data", "updated_at"), List.of("created_at", "version"), "version");
+    }
+
+    /**
+     * 插入或更新节点，已存在时更新节点数据并递增记录版本
+     */
+    @Override
+    public void save(NetworkNodeEntity entity) {
+        jdbcTemplate.update(upsert.sql(), upsertArgs(entity));
+    }
+
+    @Override
+    public void upsertAll(List<NetworkNodeEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(upsert.sql(), entities, JdbcGeneratedConfigDao.BATCH_SIZE,
+                (ps, entity) -> new ArgumentPreparedStatementSetter(upsertArgs(entity)).setValues(ps)));
+    }
+
+    private Object[] upsertArgs(NetworkNodeEntity entity) {
+        return upsert.args(entity.getNetworkId(), entity.getNodeId(), entity.getNodeData(),
+                toTimestamp(entity.getUpdatedAt()), toTimestamp(entity.getCreatedAt()), versionOrDefault(entity.getVersion()));
+    }
+
+    @Override
+    public Optional<NetworkNodeEntity> findByNetworkIdAndNodeId(String networkId, String nodeId) {
+        return jdbcTemplate.query(FIND_ONE, ROW_MAPPER, networkId, nodeId).stream().findFirst();
+    }
+
+    @Override
+    public List<NetworkNodeEntity> findByNetworkId(String networkId) {
+        return jdbcTemplate.query(FIND_BY_NETWORK, ROW_MAPPER, networkId);
+    }
+
+    /**
+     * 按主键 (network_id, node_id) 索引定位起点，每页代价与页码无关
+     */
+    @Override
+    public List<NetworkNodeEntity> findByNetworkIdAfter(String networkId, String afterNodeId, int limit) {
+        if (afterNodeId == null) {
+            return jdbcTemplate.query(FIND_FIRST_PAGE, ROW_MAPPER, networkId, limit);
+        }
+        return jdbcTemplate.query(FIND_PAGE_AFTER, ROW_MAPPER, networkId, afterNodeId, limit);
+    }
+
+    @Override
+    public void deleteByNetworkIdAndNodeId(String networkId, String nodeId) {
+        jdbcTemplate.update(DELETE_ONE, networkId, nodeId);
+    }
+
+    @Override
+    public void deleteByNetworkId(String networkId) {
+        jdbcTemplate.update(DELETE_BY_NETWORK, networkId);
+    }
+
+    @Override
+    public List<String> findAllNetworkIds() {
+        return jdbcTemplate.queryForList(FIND_NETWORK_IDS, String.class);
+    }
+
+    @Override
+    public boolean existsByNetworkId(String networkId) {
+        return Boolean.TRUE.equals(jdbcTemplate.query(EXISTS_BY_NETWORK, (ResultSetExtractor<Boolean>) ResultSet::next, networkId));
+    }
+}
@@ -0,0 +1,107 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import icu.debug.net.wg.core.storage.dao.NetworkVersionDao;
+import icu.debug.net.wg.core.storage.entity.NetworkVersionEntity;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static icu.debug.net.wg.core.storage.dao.jdbc.JdbcStorageSchema.NETWORK_VERSION_TABLE;
+
+/**
+ * 网络版本 JDBC 数据访问实现
+ * <p>
+ * 版本递增为单条插入或更新语句并直接返回新值：SQLite 使用 {@code RETURNING}，H2 使用 {@code FINAL TABLE}，
+ * MySQL 通过 {@code LAST_INSERT_ID(expr)} 在同一连接上取回，并发递增不会丢失或读到其他连接的值
+ * </p>
+ */
+public class JdbcNetworkVersionDao extends AbstractJdbcDao implements NetworkVersionDao {
+
+    private static final String FIND_ONE = "SELECT network_id, version, created_at, updated_at FROM " + NETWORK_VERSION_TABLE
+            + " WHERE network_id = ?";
+
+    private static final String DELETE_ONE = "DELETE FROM " + NETWORK_VERSION_TABLE + " WHERE network_id = ?";
+
+    private static final String FIND_NETWORK_IDS = "SELECT network_id FROM " + NETWORK_VERSION_TABLE;
+
+    private static final String INCREMENT_SQLITE = "INSERT INTO " + NETWORK_VERSION_TABLE + " (network_id, version, created_at, updated_at)"
+            + " VALUES (?, 1, ?, ?) ON CONFLICT (network_id) DO UPDATE SET version = " + NETWORK_VERSION_TABLE + ".version + 1,"
+            + " updated_at = excluded.updated_at RETURNING version";
+
+    private static final String INCREMENT_H2 = "SELECT version FROM FINAL TABLE (MERGE INTO " + NETWORK_VERSION_TABLE + " t"
+            + " USING (VALUES (?)) s (network_id) ON t.network_id = s.network_id"
+            + " WHEN MATCHED THEN UPDATE SET version = t.version + 1, updated_at = ?"
+            + " WHEN NOT MATCHED THEN INSERT (network_id, version, created_at, updated_at) VALUES (s.network_id, 1, ?, ?))";
+
+    private static final String INCREMENT_MYSQL = "INSERT INTO " + NETWORK_VERSION_TABLE + " (network_id, version, created_at, updated_at)"
+            + " VALUES (?, LAST_INSERT_ID(1), ?, ?) ON DUPLICATE KEY UPDATE version = LAST_INSERT_ID(version + 1), updated_at = VALUES(updated_at)";
+
+    private static final RowMapper<NetworkVersionEntity> ROW_MAPPER = (rs, rowNum) -> new NetworkVersionEntity(
+            null,
+            rs.getString("network_id"),
+            rs.getLong("version"),
+            toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("updated_at")));
+
+    private final JdbcDialect.Upsert upsert;
+
+    public JdbcNetworkVersionDao(JdbcTemplate jdbcTemplate, JdbcDialect dialect) {
+        super(jdbcTemplate, dialect);
+        this.upsert = dialect.upsert(NETWORK_VERSION_TABLE, List.of("network_id"),
+                List.of("version", "updated_at"), List.of("created_at"), null);
+    }
+
+    @Override
+    public void save(NetworkVersionEntity entity) {
+        jdbcTemplate.update(upsert.sql(), upsert.args(entity.getNetworkId(), versionOrDefault(entity.getVersion()),
+                toTimestamp(entity.getUpdatedAt()), toTimestamp(entity.getCreatedAt())));
+    }
+
+    @Override
+    public Optional<NetworkVersionEntity> findByNetworkId(String networkId) {
+        return jdbcTemplate.query(FIND_ONE, ROW_MAPPER, networkId).stream().findFirst();
+    }
+
+    @Override
+    public void deleteByNetworkId(String networkId) {
+        jdbcTemplate.update(DELETE_ONE, networkId);
+    }
+
+    @Override
+    public long incrementVersion(String networkId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Long version = switch (dialect) {
+            case SQLITE -> jdbcTemplate.queryForObject(INCREMENT_SQLITE, Long.class, networkId, now, now);
+            case H2 -> jdbcTemplate.queryForObject(INCREMENT_H2, Long.class, networkId, now, now, now);
+            case MYSQL -> jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(INCREMENT_MYSQL)) {
+                    ps.setString(1, networkId);
+                    ps.setTimestamp(2, now);
+                    ps.setTimestamp(3, now);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = connection.prepareStatement("SELECT LAST_INSERT_ID()");
+                     ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            });
+        };
+        if (version == null) {
+            throw new IllegalStateException("Failed to increment version of network " + networkId);
+        }
+        return version;
+    }
+
+    @Override
+    public List<String> findAllNetworkIds() {
+        return jdbcTemplate.queryForList(FIND_NETWORK_IDS, String.class);
+    }
+}
@@ -0,0 +1,113 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import icu.debug.net.wg.core.storage.dao.NodeChangeDao;
+import icu.debug.net.wg.core.storage.entity.NodeChangeEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+
+import static icu.debug.net.wg.core.storage.dao.jdbc.JdbcStorageSchema.NODE_CHANGE_TABLE;
+import static icu.debug.net.wg.core.storage.dao.jdbc.JdbcStorageSchema.NODE_CHANGE_WATERMARK_TABLE;
+
+/**
+ * 网络节点变更 JDBC 数据访问实现
+ * <p>
+ * 按版本查询走 (network_id, version, node_id) 主键索引；清理水位只会增大，
+ * 先以条件更新推进，记录不存在时再插入
+ * </p>
+ */
+public class JdbcNodeChangeDao extends AbstractJdbcDao implements NodeChangeDao {
+
+    private static final String INSERT = "INSERT INTO " + NODE_CHANGE_TABLE
+            + " (network_id, version, node_id, change_type, node_data, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT = "SELECT network_id, version, node_id, change_type, node_data, created_at FROM " + NODE_CHANGE_TABLE;
+
+    private static final String FIND_SINCE = SELECT + " WHERE network_id = ? AND version > ? ORDER BY version, node_id LIMIT ?";
+
+    private static final String FIND_BY_VERSION = SELECT + " WHERE network_id = ? AND version = ? ORDER BY node_id";
+
+    private static final String MAX_VERSION_BEFORE = "SELECT MAX(version) FROM " + NODE_CHANGE_TABLE + " WHERE network_id = ? AND version < ?";
+
+    private static final String DELETE_BEFORE = "DELETE FROM " + NODE_CHANGE_TABLE + " WHERE network_id = ? AND version < ?";
+
+    private static final String DELETE_BY_NETWORK = "DELETE FROM " + NODE_CHANGE_TABLE + " WHERE network_id = ?";
+
+    private static final String FIND_WATERMARK = "SELECT truncated_version FROM " + NODE_CHANGE_WATERMARK_TABLE + " WHERE network_id = ?";
+
+    private static final String ADVANCE_WATERMARK = "UPDATE " + NODE_CHANGE_WATERMARK_TABLE
+            + " SET truncated_version = ? WHERE network_id = ? AND truncated_version < ?";
+
+    private static final String DELETE_WATERMARK = "DELETE FROM " + NODE_CHANGE_WATERMARK_TABLE + " WHERE network_id = ?";
+
+    private static final RowMapper<NodeChangeEntity> ROW_MAPPER = (rs, rowNum) -> new NodeChangeEntity(
+            rs.getString("network_id"),
+            rs.getLong("version"),
+            rs.getString("node_id"),
+            rs.getString("change_type"),
+            rs.getBytes("node_data"),
+            toLocalDateTime(rs.getTimestamp("created_at")));
+
+    private final JdbcDialect.Upsert watermarkUpsert;
+
+    public JdbcNodeChangeDao(JdbcTemplate jdbcTemplate, JdbcDialect dialect) {
+        super(jdbcTemplate, dialect);
+        this.watermarkUpsert = dialect.upsert(NODE_CHANGE_WATERMARK_TABLE, List.of("network_id"),
+                List.of("truncated_version"), List.of(), null);
+    }
+
+    @Override
+    public void saveAll(List<NodeChangeEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, entities, JdbcGeneratedConfigDao.BATCH_SIZE,
+                (ps, entity) -> {
+                    ps.setString(1, entity.getNetworkId());
+                    ps.setLong(2, entity.getVersion());
+                    ps.setString(3, entity.getNodeId());
+                    ps.setString(4, entity.getChangeType());
+                    ps.setBytes(5, entity.getNodeData());
+                    ps.setTimestamp(6, toTimestamp(entity.getCreatedAt()));
+                }));
+    }
+
+    @Override
+    public List<NodeChangeEntity> findByNetworkIdSince(String networkId, long version, int limit) {
+        return jdbcTemplate.query(FIND_SINCE, ROW_MAPPER, networkId, version, limit);
+    }
+
+    @Override
+    public List<NodeChangeEntity> findByNetworkIdAndVersion(String networkId, long version) {
+        return jdbcTemplate.query(FIND_BY_VERSION, ROW_MAPPER, networkId, version);
+    }
+
+    @Override
+    public void deleteByNetworkIdBefore(String networkId, long beforeVersion) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Long truncated = jdbcTemplate.queryForObject(MAX_VERSION_BEFORE, Long.class, networkId, beforeVersion);
+            if (truncated == null) {
+                return;
+            }
+            jdbcTemplate.update(DELETE_BEFORE, networkId, beforeVersion);
+            if (jdbcTemplate.update(ADVANCE_WATERMARK, truncated, networkId, truncated) == 0
+                    && jdbcTemplate.queryForList(FIND_WATERMARK, Long.class, networkId).isEmpty()) {
+                jdbcTemplate.update(watermarkUpsert.sql(), watermarkUpsert.args(networkId, truncated));
+            }
+        });
+    }
+
+    @Override
+    public long findTruncatedVersion(String networkId) {
+        return jdbcTemplate.queryForList(FIND_WATERMARK, Long.class, networkId).stream().findFirst().orElse(0L);
+    }
+
+    @Override
+    public void deleteByNetworkId(String networkId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_BY_NETWORK, networkId);
+            jdbcTemplate.update(DELETE_WATERMARK, networkId);
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import icu.debug.net.wg.core.storage.dao.PeerTableDao;
+import icu.debug.net.wg.core.storage.entity.PeerTableEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.Optional;
+
+import static icu.debug.net.wg.core.storage.dao.jdbc.JdbcStorageSchema.PEER_TABLE_TABLE;
+
+/**
+ * 网络共享 peer 表 JDBC 数据访问实现
+ */
+public class JdbcPeerTableDao extends AbstractJdbcDao implements PeerTableDao {
+
+    private static final String FIND_ONE = "SELECT network_id, table_data, created_at, updated_at, version FROM " + PEER_TABLE_TABLE
+            + " WHERE network_id = ?";
+
+    private static final String FIND_VERSION = "SELECT version FROM " + PEER_TABLE_TABLE + " WHERE network_id = ?";
+
+    private static final String UPDATE_IF_VERSION = "UPDATE " + PEER_TABLE_TABLE
+            + " SET table_data = ?, updated_at = ?, version = ? WHERE network_id = ? AND version = ?";
+
+    private static final String DELETE_BY_NETWORK = "DELETE FROM " + PEER_TABLE_TABLE + " WHERE network_id = ?";
+
+    private static final RowMapper<PeerTableEntity> ROW_MAPPER = (rs, rowNum) -> new PeerTableEntity(
+            null,
+            rs.getString("network_id"),
+            rs.getBytes("table_data"),
+            toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("updated_at")),
+            rs.getLong("version"));
+
+    private final JdbcDialect.Upsert upsert;
+
+    private final String insertIfAbsent;
+
+    public JdbcPeerTableDao(JdbcTemplate jdbcTemplate, JdbcDialect dialect) {
+        super(jdbcTemplate, dialect);
+        this.upsert = dialect.upsert(PEER_TABLE_TABLE, List.of("network_id"),
+                List.of("table_data", "updated_at", "version"), List.of("created_at"), null);
+        this.insertIfAbsent = dialect.insertIfAbsent(PEER_TABLE_TABLE, List.of("network_id"),
+                List.of("table_data", "created_at", "updated_at", "version"));
+    }
+
+    @Override
+    public void save(PeerTableEntity entity) {
+        jdbcTemplate.update(upsert.sql(), upsert.args(entity.getNetworkId(), entity.getTableData(), toTimestamp(entity.getUpdatedAt()),
+                versionOrDefault(entity.getVersion()), toTimestamp(entity.getCreatedAt())));
+    }
+
+    /**
+     * 条件更新在数据库中原子执行，不依赖本进程内的锁
+     */
+    @Override
+    public boolean saveIfVersion(PeerTableEntity entity, long expectedVersion) {
+        if (expectedVersion == 0) {
+            return jdbcTemplate.update(insertIfAbsent, entity.getNetworkId(), entity.getTableData(), toTimestamp(entity.getCreatedAt()),
+                    toTimestamp(entity.getUpdatedAt()), versionOrDefault(entity.getVersion())) > 0;
+        }
+        return jdbcTemplate.update(UPDATE_IF_VERSION, entity.getTableData(), toTimestamp(entity.getUpdatedAt()),
+                versionOrDefault(entity.getVersion()), entity.getNetworkId(), expectedVersion) > 0;
+    }
+
+    @Override
+    public Optional<PeerTableEntity> findByNetworkId(String networkId) {
+        return jdbcTemplate.query(FIND_ONE, ROW_MAPPER, networkId).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Long> findVersionByNetworkId(String networkId) {
+        return jdbcTemplate.queryForList(FIND_VERSION, Long.class, networkId).stream().findFirst();
+    }
+
+    @Override
+    public void deleteByNetworkId(String networkId) {
+        jdbcTemplate.update(DELETE_BY_NETWORK, networkId);
+    }
+}
@@ -0,0 +1,77 @@
+package icu.debug.net.wg.core.storage.dao.jdbc;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC 存储表结构
+ * <p>
+ * 节点与生成配置以 (network_id, node_id) 为主键，按网络查询与按节点查询都走主键索引；
+ * 数据列为二进制类型，旧版本以文本列保存的 JSON 数据通过 {@code getBytes} 仍可读取
+ * </p>
+ */
+@Slf4j
+@UtilityClass
+public class JdbcStorageSchema {
+
+    public static final String NETWORK_NODE_TABLE = "network_node";
+
+    public static final String GENERATED_CONFIG_TABLE = "generated_config";
+
+    public static final String NETWORK_VERSION_TABLE = "network_version";
+
+    public static final String PEER_TABLE_TABLE = "peer_table";
+
+    public static final String NODE_CHANGE_TABLE = "node_change";
+
+    public static final String NODE_CHANGE_WATERMARK_TABLE = "node_change_watermark";
+
+    /**
+     * 创建不存在的表，并执行方言的连接级初始化
+     */
+    public static void initialize(JdbcTemplate jdbcTemplate, JdbcDialect dialect) {
+        dialect.initialize(jdbcTemplate);
+        String blob = dialect.getBlobType();
+        String timestamp = dialect.getTimestampType();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + NETWORK_NODE_TABLE + " ("
+                + "network_id VARCHAR(128) NOT NULL, "
+                + "node_id VARCHAR(255) NOT NULL, "
+                + "node_data " + blob + " NOT NULL, "
+                + "created_at " + timestamp + ", "
+                + "updated_at " + timestamp + ", "
+                + "version BIGINT NOT NULL DEFAULT 1, "
+                + "PRIMARY KEY (network_id, node_id))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + GENERATED_CONFIG_TABLE + " ("
+                + "network_id VARCHAR(128) NOT NULL, "
+                + "node_id VARCHAR(255) NOT NULL, "
+                + "config_data " + blob + " NOT NULL, "
+                + "created_at " + timestamp + ", "
+                + "updated_at " + timestamp + ", "
+                + "version BIGINT NOT NULL DEFAULT 1, "
+                + "PRIMARY KEY (network_id, node_id))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + NETWORK_VERSION_TABLE + " ("
+                + "network_id VARCHAR(128) NOT NULL PRIMARY KEY, "
+                + "version BIGINT NOT NULL, "
+                + "created_at " + timestamp + ", "
+                + "updated_at " + timestamp + ")");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + PEER_TABLE_TABLE + " ("
+                + "network_id VARCHAR(128) NOT NULL PRIMARY KEY, "
+                + "table_data " + blob + " NOT NULL, "
+                + "created_at " + timestamp + ", "
+                + "updated_at " + timestamp + ", "
+                + "version BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + NODE_CHANGE_TABLE + " ("
+                + "network_id VARCHAR(128) NOT NULL, "
+                + "version BIGINT NOT NULL, "
+                + "node_id VARCHAR(255) NOT NULL, "
+                + "change_type VARCHAR(16) NOT NULL, "
+                + "node_data " + blob + ", "
+                + "created_at " + timestamp + ", "
+                + "PRIMARY KEY (network_id, version, node_id))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + NODE_CHANGE_WATERMARK_TABLE + " ("
+                + "network_id VARCHAR(128) NOT NULL PRIMARY KEY, "
+                + "truncated_version BIGINT NOT NULL)");
+        log.info("Initialized {} storage schema", dialect);
+    }
+}
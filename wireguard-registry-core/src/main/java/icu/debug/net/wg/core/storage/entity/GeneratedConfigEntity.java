@@ -17,12 +17,12 @@ public class GeneratedConfigEntity {
     private String id;
     private String networkId;
     private String nodeId;
-    private String configData; // JSON格式的配置数据
+    private byte[] configData; // 编码后的配置数据，见 BlobCodec
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Long version;
 
-    public GeneratedConfigEntity(String networkId, String nodeId, String configData) {
+    public GeneratedConfigEntity(String networkId, String nodeId, byte[] configData) {
         this.networkId = networkId;
         this.nodeId = nodeId;
         this.configData = configData;
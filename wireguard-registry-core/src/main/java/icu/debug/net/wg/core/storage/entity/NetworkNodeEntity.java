@@ -17,12 +17,12 @@ public class NetworkNodeEntity {
     private String id;
     private String networkId;
     private String nodeId;
-    private String nodeData; // JSON格式的节点数据
+    private byte[] nodeData; // 编码后的节点数据，见 BlobCodec
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Long version;
 
-    public NetworkNodeEntity(String networkId, String nodeId, String nodeData) {
+    public NetworkNodeEntity(String networkId, String nodeId, byte[] nodeData) {
         this.networkId = networkId;
         this.nodeId = nodeId;
         this.nodeData = nodeData;
@@ -0,0 +1,32 @@
+package icu.debug.net.wg.core.storage.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 网络节点变更实体类，以 (networkId, version, nodeId) 为主键
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeChangeEntity {
+
+    private String networkId;
+    private Long version;
+    private String nodeId;
+    private String changeType; // NodeChange.Type 的名称
+    private byte[] nodeData; // 编码后的节点数据，删除时为 null
+    private LocalDateTime createdAt;
+
+    public NodeChangeEntity(String networkId, long version, String nodeId, String changeType, byte[] nodeData) {
+        this.networkId = networkId;
+        this.version = version;
+        this.nodeId = nodeId;
+        this.changeType = changeType;
+        this.nodeData = nodeData;
+        this.createdAt = LocalDateTime.now();
+    }
+}
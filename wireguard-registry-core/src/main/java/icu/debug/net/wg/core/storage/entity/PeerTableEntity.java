@@ -0,0 +1,31 @@
+package icu.debug.net.wg.core.storage.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 网络共享 peer 表实体类，每个网络一条记录
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeerTableEntity {
+
+    private String id;
+    private String networkId;
+    private byte[] tableData; // 编码后的 peer 表，见 PeerTableCodec
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long version;
+
+    public PeerTableEntity(String networkId, byte[] tableData, long version) {
+        this.networkId = networkId;
+        this.tableData = tableData;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+        this.version = version;
+    }
+}
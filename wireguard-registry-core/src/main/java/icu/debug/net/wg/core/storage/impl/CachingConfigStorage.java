@@ -0,0 +1,432 @@
+package icu.debug.net.wg.core.storage.impl;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.ConfigStorage;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 带读缓存的配置存储装饰器
+ * <p>
+ * 节点与生成配置按 (networkId, nodeId) 缓存，缓存项记录读取时的网络版本号，
+ * 读取时先查询代价很低的 {@link ConfigStorage#getNetworkVersion(String)}，版本未变化则直接复用缓存，
+ * 避免每次读取都访问数据库。本实例的写操作会同步失效相关缓存项。
+ * </p>
+ * <p>
+ * 同时限制缓存项数量与总权重，生成配置的权重为 peer 数量加一，单项权重超过总权重上限时不缓存。
+ * 读取不加全局锁，缓存项记录最近访问时间，超出限制后由一个线程按访问时间批量淘汰最久未访问的缓存项，
+ * 一次淘汰到限制的九成。
+ * </p>
+ * <p>
+ * 缓存中保存编码后的字节，每次读取解码出新的实例，调用方（如配置生成器）修改返回的对象不会影响缓存内容。
+ * </p>
+ */
+@Slf4j
+public class CachingConfigStorage implements ConfigStorage {
+
+    private final ConfigStorage delegate;
+
+    private final BlobCodec blobCodec;
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param delegate   被缓存的存储
+     * @param maxEntries 最大缓存项数量
+     * @param maxWeight  最大缓存总权重
+     */
+    public CachingConfigStorage(ConfigStorage delegate, int maxEntries, long maxWeight) {
+        this(delegate, new BinaryBlobCodec(false, null), maxEntries, maxWeight);
+    }
+
+    /**
+     * @param delegate   被缓存的存储
+     * @param blobCodec  缓存项的编解码器
+     * @param maxEntries 最大缓存项数量
+     * @param maxWeight  最大缓存总权重
+     */
+    public CachingConfigStorage(ConfigStorage delegate, BlobCodec blobCodec, int maxEntries, long maxWeight) {
+        this.delegate = delegate;
+        this.blobCodec = blobCodec;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public void saveNetworkNode(String networkId, WireGuardNetworkNode node) {
+        delegate.saveNetworkNode(networkId, node);
+        invalidate(CacheKey.Type.NODE, networkId, node.getServerNode().getHostname());
+    }
+
+    @Override
+    public Optional<WireGuardNetworkNode> getNetworkNode(String networkId, String nodeId) {
+        byte[] data = read(CacheKey.Type.NODE, networkId, nodeId, () -> delegate.getNetworkNode(networkId, nodeId).orElse(null));
+        return Optional.ofNullable(data).map(this::decodeNode);
+    }
+
+    @Override
+    public List<WireGuardNetworkNode> getNetworkNodes(String networkId) {
+        List<byte[]> data = read(CacheKey.Type.NODES, networkId, null, () -> delegate.getNetworkNodes(networkId));
+        List<WireGuardNetworkNode> nodes = new ArrayList<>(data.size());
+        for (byte[] node : data) {
+            nodes.add(decodeNode(node));
+        }
+        return nodes;
+    }
+
+    /**
+     * 分页读取用于遍历大网络，直接读取下层存储，不占用缓存容量
+     */
+    @Override
+    public List<WireGuardNetworkNode> getNetworkNodes(String networkId, String afterNodeId, int limit) {
+        return delegate.getNetworkNodes(networkId, afterNodeId, limit);
+    }
+
+    @Override
+    public Optional<WireGuardNetworkNode> findNodeByPublicKey(String networkId, String publicKey) {
+        return delegate.findNodeByPublicKey(networkId, publicKey);
+    }
+
+    @Override
+    public List<WireGuardNetworkNode> findNodesByAddress(String networkId, String address) {
+        return delegate.findNodesByAddress(networkId, address);
+    }
+
+    @Override
+    public void deleteNetworkNode(String networkId, String nodeId) {
+        delegate.deleteNetworkNode(networkId, nodeId);
+        invalidate(CacheKey.Type.NODE, networkId, nodeId);
+    }
+
+    @Override
+    public void saveGeneratedConfig(String networkId, String nodeId, WireGuardIniConfig config) {
+        delegate.saveGeneratedConfig(networkId, nodeId, config);
+        invalidate(CacheKey.Type.CONFIG, networkId, nodeId);
+    }
+
+    @Override
+    public void saveGeneratedConfigs(String networkId, Map<String, WireGuardIniConfig> configs) {
+        delegate.saveGeneratedConfigs(networkId, configs);
+        invalidateNetwork(networkId);
+    }
+
+    @Override
+    public Optional<WireGuardIniConfig> getGeneratedConfig(String networkId, String nodeId) {
+        byte[] data = read(CacheKey.Type.CONFIG, networkId, nodeId, () -> delegate.getGeneratedConfig(networkId, nodeId).orElse(null));
+        return Optional.ofNullable(data).map(this::decodeConfig);
+    }
+
+    @Override
+    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId) {
+        Map<String, byte[]> data = read(CacheKey.Type.CONFIGS, networkId, null, () -> delegate.getNetworkConfigs(networkId));
+        Map<String, WireGuardIniConfig> configs = new HashMap<>(data.size() * 4 / 3 + 1);
+        data.forEach((nodeId, config) -> configs.put(nodeId, decodeConfig(config)));
+        return configs;
+    }
+
+    @Override
+    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId, String afterNodeId, int limit) {
+        return delegate.getNetworkConfigs(networkId, afterNodeId, limit);
+    }
+
+    @Override
+    public void deleteGeneratedConfig(String networkId, String nodeId) {
+        delegate.deleteGeneratedConfig(networkId, nodeId);
+        invalidate(CacheKey.Type.CONFIG, networkId, nodeId);
+    }
+
+    @Override
+    public List<String> getAllNetworkIds() {
+        return delegate.getAllNetworkIds();
+    }
+
+    @Override
+    public void deleteNetwork(String networkId) {
+        delegate.deleteNetwork(networkId);
+        invalidateNetwork(networkId);
+    }
+
+    @Override
+    public boolean networkExists(String networkId) {
+        return delegate.networkExists(networkId);
+    }
+
+    @Override
+    public long getNetworkVersion(String networkId) {
+        return delegate.getNetworkVersion(networkId);
+    }
+
+    @Override
+    public void updateNetworkVersion(String networkId) {
+        delegate.updateNetworkVersion(networkId);
+    }
+
+    @Override
+    public long commit(ConfigUnitOfWork unitOfWork) {
+        long version = delegate.commit(unitOfWork);
+        invalidateNetwork(unitOfWork.getNetworkId());
+        return version;
+    }
+
+    @Override
+    public NodeChangeFeed getChangesSince(String networkId, long version, int limit) {
+        return delegate.getChangesSince(networkId, version, limit);
+    }
+
+    @Override
+    public void truncateChanges(String networkId, long beforeVersion) {
+        delegate.truncateChanges(networkId, beforeVersion);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 缓存命中率
+     */
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hitCount.sum());
+        stats.put("misses", missCount.sum());
+        stats.put("evictions", evictionCount.sum());
+        stats.put("hitRatio", getHitRatio());
+        stats.put("size", cache.size());
+        stats.put("weight", totalWeight.get());
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxWeight", maxWeight);
+        return stats;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (CacheKey key : cache.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 读取缓存的编码数据，未命中时从下层存储加载并编码
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T read(CacheKey.Type type, String networkId, String nodeId, Supplier<?> loader) {
+        CacheKey key = new CacheKey(type, networkId, nodeId);
+        // 先读取版本再加载，加载期间版本变化时下一次读取会重新加载
+        long version = delegate.getNetworkVersion(networkId);
+        CacheEntry entry = cache.get(key);
+        if (entry != null && entry.version == version) {
+            entry.accessedAt = System.nanoTime();
+            hitCount.increment();
+            return (T) entry.value;
+        }
+        missCount.increment();
+        Object value = loader.get();
+        T encoded = (T) encode(value);
+        long weight = weigh(value);
+        // 超过总权重上限的缓存项放入后会立即被淘汰，还会挤掉其他缓存项
+        if (weight <= maxWeight) {
+            put(key, new CacheEntry(encoded, version, weight));
+        }
+        return encoded;
+    }
+
+    private Object encode(Object value) {
+        try {
+            if (value instanceof WireGuardNetworkNode node) {
+                return blobCodec.encodeNode(node);
+            }
+            if (value instanceof WireGuardIniConfig config) {
+                return blobCodec.encodeConfig(config);
+            }
+            if (value instanceof List<?> nodes) {
+                List<byte[]> encoded = new ArrayList<>(nodes.size());
+                for (Object node : nodes) {
+                    encoded.add(blobCodec.encodeNode((WireGuardNetworkNode) node));
+                }
+                return encoded;
+            }
+            if (value instanceof Map<?, ?> configs) {
+                Map<String, byte[]> encoded = new HashMap<>(configs.size() * 4 / 3 + 1);
+                for (Map.Entry<?, ?> entry : configs.entrySet()) {
+                    encoded.put((String) entry.getKey(), blobCodec.encodeConfig((WireGuardIniConfig) entry.getValue()));
+                }
+                return encoded;
+            }
+            return value;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode cached value", e);
+        }
+    }
+
+    private WireGuardNetworkNode decodeNode(byte[] data) {
+        try {
+            return blobCodec.decodeNode(data);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decode cached node", e);
+        }
+    }
+
+    private WireGuardIniConfig decodeConfig(byte[] data) {
+        try {
+            return blobCodec.decodeConfig(data);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decode cached config", e);
+        }
+    }
+
+    private void put(CacheKey key, CacheEntry entry) {
+        CacheEntry previous = cache.put(key, entry);
+        long weight = totalWeight.addAndGet(previous == null ? entry.weight : entry.weight - previous.weight);
+        if (cache.size() > maxEntries || weight > maxWeight) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * 按访问时间淘汰最久未访问的缓存项，直到数量与权重都不超过限制的九成，排序的开销分摊到之后的多次写入。
+     * 同一时间只有一个线程执行淘汰，其他线程不等待，淘汰期间缓存可能短暂超出限制
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int entriesTarget = maxEntries - maxEntries / 10;
+            long weightTarget = maxWeight - maxWeight / 10;
+            // 访问时间在排序期间可能被读取方更新，先固定快照
+            List<AccessSnapshot> snapshots = new ArrayList<>(cache.size());
+            cache.forEach((key, entry) -> snapshots.add(new AccessSnapshot(key, entry, entry.accessedAt)));
+            snapshots.sort(Comparator.comparingLong(AccessSnapshot::accessedAt));
+            for (AccessSnapshot snapshot : snapshots) {
+                if (cache.size() <= entriesTarget && totalWeight.get() <= weightTarget) {
+                    break;
+                }
+                if (cache.remove(snapshot.key(), snapshot.entry())) {
+                    totalWeight.addAndGet(-snapshot.entry().weight);
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void invalidate(CacheKey.Type type, String networkId, String nodeId) {
+        remove(new CacheKey(type, networkId, nodeId));
+        remove(new CacheKey(type == CacheKey.Type.NODE ? CacheKey.Type.NODES : CacheKey.Type.CONFIGS, networkId, null));
+    }
+
+    private void invalidateNetwork(String networkId) {
+        for (CacheKey key : cache.keySet()) {
+            if (key.networkId.equals(networkId)) {
+                remove(key);
+            }
+        }
+    }
+
+    private void remove(CacheKey key) {
+        CacheEntry removed = cache.remove(key);
+        if (removed != null) {
+            totalWeight.addAndGet(-removed.weight);
+        }
+    }
+
+    private static long weigh(Object value) {
+        if (value instanceof WireGuardIniConfig config) {
+            return 1 + (config.getPeers() == null ? 0 : config.getPeers().size());
+        }
+        if (value instanceof Collection<?> collection) {
+            long weight = 1;
+            for (Object item : collection) {
+                weight += weigh(item);
+            }
+            return weight;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return weigh(map.values());
+        }
+        return 1;
+    }
+
+    private record CacheKey(Type type, String networkId, String nodeId) {
+
+        enum Type {
+            NODE,
+            NODES,
+            CONFIG,
+            CONFIGS
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final Object value;
+
+        /**
+         * 读取时的网络版本号
+         */
+        private final long version;
+
+        private final long weight;
+
+        /**
+         * 最近访问的时间，读取时直接覆盖，不加锁
+         */
+        private volatile long accessedAt;
+
+        private CacheEntry(Object value, long version, long weight) {
+            this.value = value;
+            this.version = version;
+            this.weight = weight;
+            this.accessedAt = System.nanoTime();
+        }
+    }
+
+    private record AccessSnapshot(CacheKey key, CacheEntry entry, long accessedAt) {
+    }
+}
@@ -0,0 +1,182 @@
+package icu.debug.net.wg.core.storage.impl;
+
+import icu.debug.net.wg.core.helper.WeakInterner;
+import icu.debug.net.wg.core.model.network.ServerNode;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+
+import java.util.*;
+
+/**
+ * 内存存储中保存的紧凑节点
+ * <p>
+ * 大量节点的 dns、table 与 PreUp/PostUp/PreDown/PostDown 命令通常相同，保存时规范化为共享的不可变实例；
+ * Base64 公私钥以 32 字节数组保存，读取时再编码，每个密钥约节省一半空间。无法解码为 32 字节的密钥按原字符串保存。
+ * 列表为共享的不可变列表，修改列表需要通过 setter 整体替换。
+ * </p>
+ */
+public class CompactNetworkNode extends WireGuardNetworkNode {
+
+    private static final int KEY_LENGTH = 32;
+
+    private static final WeakInterner<String> STRINGS = new WeakInterner<>();
+
+    private static final WeakInterner<List<String>> LISTS = new WeakInterner<>();
+
+    private byte[] publicKeyBytes;
+
+    private byte[] privateKeyBytes;
+
+    /**
+     * 复制节点并规范化共享的值，节点ID与 {@link ServerNode} 保持引用
+     */
+    public static CompactNetworkNode of(WireGuardNetworkNode node) {
+        CompactNetworkNode compact = new CompactNetworkNode();
+        compact.setServerNode(node.getServerNode());
+        compact.setIgnoreDefault(node.isIgnoreDefault());
+        compact.setAddress(node.getAddress());
+        compact.setListenPort(node.getListenPort());
+        compact.setKeepalive(node.getKeepalive());
+        compact.setPublicKey(node.getPublicKey());
+        compact.setPrivateKey(node.getPrivateKey());
+        compact.setDns(node.getDns());
+        compact.setTable(node.getTable());
+        compact.setMtu(node.getMtu());
+        compact.setPreUp(node.getPreUp());
+        compact.setPostUp(node.getPostUp());
+        compact.setPreDown(node.getPreDown());
+        compact.setPostDown(node.getPostDown());
+        return compact;
+    }
+
+    /**
+     * 复制节点，共享已规范化的列表与密钥字节，{@link ServerNode} 复制为新实例。
+     * 存储返回副本，调用方（如配置生成器）修改节点不会改变存储中的节点与索引
+     */
+    public CompactNetworkNode copy() {
+        CompactNetworkNode copy = new CompactNetworkNode();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    private void copyFrom(CompactNetworkNode source) {
+        ServerNode sourceServerNode = source.getServerNode();
+        if (sourceServerNode != null) {
+            ServerNode serverNode = new ServerNode();
+            serverNode.setHostname(sourceServerNode.getHostname());
+            serverNode.setPublicAddress(sourceServerNode.getPublicAddress());
+            serverNode.setPrivateAddress(sourceServerNode.getPrivateAddress());
+            setServerNode(serverNode);
+        }
+        setIgnoreDefault(source.isIgnoreDefault());
+        setAddress(source.getAddress());
+        setListenPort(source.getListenPort());
+        setKeepalive(source.getKeepalive());
+        publicKeyBytes = source.publicKeyBytes;
+        super.setPublicKey(source.publicKeyBytes == null ? source.getPublicKey() : null);
+        privateKeyBytes = source.privateKeyBytes;
+        super.setPrivateKey(source.privateKeyBytes == null ? source.getPrivateKey() : null);
+        // 源节点的列表已规范化，不再重复规范化
+        super.setDns(source.getDns());
+        super.setTable(source.getTable());
+        setMtu(source.getMtu());
+        super.setPreUp(source.getPreUp());
+        super.setPostUp(source.getPostUp());
+        super.setPreDown(source.getPreDown());
+        super.setPostDown(source.getPostDown());
+    }
+
+    @Override
+    public String getPublicKey() {
+        return publicKeyBytes == null ? super.getPublicKey() : Base64.getEncoder().encodeToString(publicKeyBytes);
+    }
+
+    @Override
+    public void setPublicKey(String publicKey) {
+        publicKeyBytes = decodeKey(publicKey);
+        super.setPublicKey(publicKeyBytes == null ? publicKey : null);
+    }
+
+    @Override
+    public String getPrivateKey() {
+        return privateKeyBytes == null ? super.getPrivateKey() : Base64.getEncoder().encodeToString(privateKeyBytes);
+    }
+
+    @Override
+    public void setPrivateKey(String privateKey) {
+        privateKeyBytes = decodeKey(privateKey);
+        super.setPrivateKey(privateKeyBytes == null ? privateKey : null);
+    }
+
+    @Override
+    public void setDns(List<String> dns) {
+        super.setDns(canonicalize(dns));
+    }
+
+    @Override
+    public void setTable(String table) {
+        super.setTable(STRINGS.intern(table));
+    }
+
+    @Override
+    public void setPreUp(List<String> preUp) {
+        super.setPreUp(canonicalize(preUp));
+    }
+
+    @Override
+    public void setPostUp(List<String> postUp) {
+        super.setPostUp(canonicalize(postUp));
+    }
+
+    @Override
+    public void setPreDown(List<String> preDown) {
+        super.setPreDown(canonicalize(preDown));
+    }
+
+    @Override
+    public void setPostDown(List<String> postDown) {
+        super.setPostDown(canonicalize(postDown));
+    }
+
+    /**
+     * 获取字符串与列表规范化池的统计信息
+     */
+    public static Map<String, Object> getInternerStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("strings", STRINGS.getStats());
+        stats.put("lists", LISTS.getStats());
+        return stats;
+    }
+
+    /**
+     * 只接受规范的 32 字节 Base64 密钥，重新编码后与原字符串一致，读取时才能原样还原
+     */
+    private static byte[] decodeKey(String key) {
+        if (key == null || key.length() != 44) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getDecoder().decode(key);
+            if (bytes.length == KEY_LENGTH && Base64.getEncoder().encodeToString(bytes).equals(key)) {
+                return bytes;
+            }
+        } catch (IllegalArgumentException e) {
+            // 非 Base64 密钥按字符串保存
+        }
+        return null;
+    }
+
+    private static List<String> canonicalize(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        List<String> interned = new ArrayList<>(values.size());
+        for (String value : values) {
+            if (value == null) {
+                // 不可变列表不允许 null 元素，这类列表不共享
+                return new ArrayList<>(values);
+            }
+            interned.add(STRINGS.intern(value));
+        }
+        return LISTS.intern(List.copyOf(interned));
+    }
+}
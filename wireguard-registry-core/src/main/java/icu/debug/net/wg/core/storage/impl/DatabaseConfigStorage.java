@@ -1,62 +1,160 @@
 package icu.debug.net.wg.core.storage.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
 import icu.debug.net.wg.core.storage.ConfigStorage;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.NodeChange;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.codec.PeerTableCodec;
 import icu.debug.net.wg.core.storage.dao.GeneratedConfigDao;
 import icu.debug.net.wg.core.storage.dao.NetworkNodeDao;
 import icu.debug.net.wg.core.storage.dao.NetworkVersionDao;
+import icu.debug.net.wg.core.storage.dao.NodeChangeDao;
+import icu.debug.net.wg.core.storage.dao.PeerTableDao;
 import icu.debug.net.wg.core.storage.entity.GeneratedConfigEntity;
 import icu.debug.net.wg.core.storage.entity.NetworkNodeEntity;
 import icu.debug.net.wg.core.storage.entity.NetworkVersionEntity;
+import icu.debug.net.wg.core.storage.entity.NodeChangeEntity;
+import icu.debug.net.wg.core.storage.entity.PeerTableEntity;
+import icu.debug.net.wg.core.storage.peer.NodePeerView;
+import icu.debug.net.wg.core.storage.peer.PeerTable;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * 数据库配置存储实现
  * 支持MySQL、MongoDB、SQLite等多种数据库
+ * <p>
+ * 启用共享 peer 表模式时，生成配置拆分为每个网络一张 {@link PeerTable} 与每个节点一条 {@link NodePeerView}，
+ * 读取时组装；旧的完整配置记录仍可读取，下次保存时替换为节点视图
+ * </p>
+ * <p>
+ * 指定节点变更数据访问接口时，节点变更与递增版本号在同一事务中写入，版本号所在行的锁使变更按版本顺序提交；
+ * 每递增 {@value #CHANGE_TRUNCATE_INTERVAL} 个版本清理一次超出保留数的变更
+ * </p>
  */
 @Slf4j
 public class DatabaseConfigStorage implements ConfigStorage {
 
+    private static final int CHANGE_TRUNCATE_INTERVAL = 64;
+
+    /**
+     * peer 表条件写入失败（其他实例已先写入）后重新读取并重试的次数
+     */
+    private static final int PEER_TABLE_MAX_RETRIES = 16;
+
     private final NetworkNodeDao networkNodeDao;
     private final GeneratedConfigDao generatedConfigDao;
     private final NetworkVersionDao networkVersionDao;
-    private final ObjectMapper objectMapper;
+    private final BlobCodec blobCodec;
+    private final PeerTableDao peerTableDao;
+    private final PeerTableCodec peerTableCodec;
+    private final TransactionOperations transactionOperations;
+    private final NodeChangeDao nodeChangeDao;
+
+    /**
+     * 每个网络保留节点变更的版本数
+     */
+    @Setter
+    private long changeRetention = 1000;
+
+    /**
+     * 已解码的 peer 表，按表版本号校验
+     */
+    private final Map<String, CachedPeerTable> peerTables = new ConcurrentHashMap<>();
+
+    /**
+     * 本实例内同一网络的 peer 表读改写串行执行，实例之间由按版本号的条件写入保证
+     */
+    private final Map<String, Object> peerTableLocks = new ConcurrentHashMap<>();
 
     public DatabaseConfigStorage(NetworkNodeDao networkNodeDao, 
                                 GeneratedConfigDao generatedConfigDao,
                                 NetworkVersionDao networkVersionDao,
                                 ObjectMapper objectMapper) {
+        this(networkNodeDao, generatedConfigDao, networkVersionDao, new JsonBlobCodec(objectMapper));
+    }
+
+    /**
+     * @param blobCodec 节点与生成配置数据的编解码器
+     */
+    public DatabaseConfigStorage(NetworkNodeDao networkNodeDao,
+                                GeneratedConfigDao generatedConfigDao,
+                                NetworkVersionDao networkVersionDao,
+                                BlobCodec blobCodec) {
+        this(networkNodeDao, generatedConfigDao, networkVersionDao, blobCodec, null);
+    }
+
+    /**
+     * @param blobCodec    节点与生成配置数据的编解码器
+     * @param peerTableDao 共享 peer 表数据访问接口，为 null 时逐个节点保存完整配置
+     */
+    public DatabaseConfigStorage(NetworkNodeDao networkNodeDao,
+                                GeneratedConfigDao generatedConfigDao,
+                                NetworkVersionDao networkVersionDao,
+                                BlobCodec blobCodec,
+                                PeerTableDao peerTableDao) {
+        this(networkNodeDao, generatedConfigDao, networkVersionDao, blobCodec, peerTableDao, TransactionOperations.withoutTransaction());
+    }
+
+    /**
+     * @param blobCodec             节点与生成配置数据的编解码器
+     * @param peerTableDao          共享 peer 表数据访问接口，为 null 时逐个节点保存完整配置
+     * @param transactionOperations {@link #commit(ConfigUnitOfWork)} 使用的事务，应与数据访问实现使用同一数据源
+     */
+    public DatabaseConfigStorage(NetworkNodeDao networkNodeDao,
+                                GeneratedConfigDao generatedConfigDao,
+                                NetworkVersionDao networkVersionDao,
+                                BlobCodec blobCodec,
+                                PeerTableDao peerTableDao,
+                                TransactionOperations transactionOperations) {
+        this(networkNodeDao, generatedConfigDao, networkVersionDao, blobCodec, peerTableDao, transactionOperations, null);
+    }
+
+    /**
+     * @param blobCodec             节点与生成配置数据的编解码器
+     * @param peerTableDao          共享 peer 表数据访问接口，为 null 时逐个节点保存完整配置
+     * @param transactionOperations 写入使用的事务，应与数据访问实现使用同一数据源
+     * @param nodeChangeDao         节点变更数据访问接口，为 null 时不记录变更，{@link #getChangesSince} 总是要求全量同步
+     */
+    public DatabaseConfigStorage(NetworkNodeDao networkNodeDao,
+                                GeneratedConfigDao generatedConfigDao,
+                                NetworkVersionDao networkVersionDao,
+                                BlobCodec blobCodec,
+                                PeerTableDao peerTableDao,
+                                TransactionOperations transactionOperations,
+                                NodeChangeDao nodeChangeDao) {
         this.networkNodeDao = networkNodeDao;
         this.generatedConfigDao = generatedConfigDao;
         this.networkVersionDao = networkVersionDao;
-        this.objectMapper = objectMapper;
+        this.blobCodec = blobCodec;
+        this.peerTableDao = peerTableDao;
+        this.peerTableCodec = new PeerTableCodec(blobCodec);
+        this.transactionOperations = transactionOperations;
+        this.nodeChangeDao = nodeChangeDao;
     }
 
     @Override
     public void saveNetworkNode(String networkId, WireGuardNetworkNode node) {
         try {
-            String nodeData = objectMapper.writeValueAsString(node);
+            byte[] nodeData = blobCodec.encodeNode(node);
             String nodeId = node.getServerNode().getHostname();
-            
-            Optional<NetworkNodeEntity> existing = networkNodeDao.findByNetworkIdAndNodeId(networkId, nodeId);
-            if (existing.isPresent()) {
-                NetworkNodeEntity entity = existing.get();
-                entity.setNodeData(nodeData);
-                entity.setUpdatedAt(java.time.LocalDateTime.now());
-                networkNodeDao.save(entity);
-            } else {
-                NetworkNodeEntity entity = new NetworkNodeEntity(networkId, nodeId, nodeData);
-                networkNodeDao.save(entity);
-            }
-            
-            updateNetworkVersion(networkId);
-        } catch (JsonProcessingException e) {
+            transactionOperations.executeWithoutResult(status -> {
+                networkNodeDao.save(new NetworkNodeEntity(networkId, nodeId, nodeData));
+                long version = networkVersionDao.incrementVersion(networkId);
+                saveChanges(networkId, version, Map.of(nodeId, nodeData), Set.of());
+            });
+        } catch (IOException e) {
             log.error("Failed to serialize network node", e);
             throw new RuntimeException("Failed to save network node", e);
         }
@@ -67,8 +165,8 @@ public class DatabaseConfigStorage implements ConfigStorage {
         return networkNodeDao.findByNetworkIdAndNodeId(networkId, nodeId)
                 .map(entity -> {
                     try {
-                        return objectMapper.readValue(entity.getNodeData(), WireGuardNetworkNode.class);
-                    } catch (JsonProcessingException e) {
+                        return blobCodec.decodeNode(entity.getNodeData());
+                    } catch (IOException e) {
                         log.error("Failed to deserialize network node", e);
                         return null;
                     }
@@ -77,12 +175,20 @@ public class DatabaseConfigStorage implements ConfigStorage {
 
     @Override
     public List<WireGuardNetworkNode> getNetworkNodes(String networkId) {
-        return networkNodeDao.findByNetworkId(networkId)
-                .stream()
+        return decodeNodes(networkNodeDao.findByNetworkId(networkId));
+    }
+
+    @Override
+    public List<WireGuardNetworkNode> getNetworkNodes(String networkId, String afterNodeId, int limit) {
+        return decodeNodes(networkNodeDao.findByNetworkIdAfter(networkId, afterNodeId, limit));
+    }
+
+    private List<WireGuardNetworkNode> decodeNodes(List<NetworkNodeEntity> entities) {
+        return entities.stream()
                 .map(entity -> {
                     try {
-                        return objectMapper.readValue(entity.getNodeData(), WireGuardNetworkNode.class);
-                    } catch (JsonProcessingException e) {
+                        return blobCodec.decodeNode(entity.getNodeData());
+                    } catch (IOException e) {
                         log.error("Failed to deserialize network node", e);
                         return null;
                     }
@@ -93,68 +199,87 @@ public class DatabaseConfigStorage implements ConfigStorage {
 
     @Override
     public void deleteNetworkNode(String networkId, String nodeId) {
-        networkNodeDao.deleteByNetworkIdAndNodeId(networkId, nodeId);
-        updateNetworkVersion(networkId);
+        transactionOperations.executeWithoutResult(status -> {
+            networkNodeDao.deleteByNetworkIdAndNodeId(networkId, nodeId);
+            long version = networkVersionDao.incrementVersion(networkId);
+            saveChanges(networkId, version, Map.of(), Set.of(nodeId));
+        });
     }
 
     @Override
     public void saveGeneratedConfig(String networkId, String nodeId, WireGuardIniConfig config) {
+        if (peerTableDao != null) {
+            saveGeneratedConfigs(networkId, Collections.singletonMap(nodeId, config));
+            return;
+        }
         try {
-            String configData = objectMapper.writeValueAsString(config);
-            
-            Optional<GeneratedConfigEntity> existing = generatedConfigDao.findByNetworkIdAndNodeId(networkId, nodeId);
-            if (existing.isPresent()) {
-                GeneratedConfigEntity entity = existing.get();
-                entity.setConfigData(configData);
-                entity.setUpdatedAt(java.time.LocalDateTime.now());
-                generatedConfigDao.save(entity);
-            } else {
-                GeneratedConfigEntity entity = new GeneratedConfigEntity(networkId, nodeId, configData);
-                generatedConfigDao.save(entity);
-            }
-        } catch (JsonProcessingException e) {
+            byte[] configData = blobCodec.encodeConfig(config);
+            generatedConfigDao.save(new GeneratedConfigEntity(networkId, nodeId, configData));
+        } catch (IOException e) {
             log.error("Failed to serialize generated config", e);
             throw new RuntimeException("Failed to save generated config", e);
         }
     }
 
+    @Override
+    public void saveGeneratedConfigs(String networkId, Map<String, WireGuardIniConfig> configs) {
+        if (configs.isEmpty()) {
+            return;
+        }
+        if (peerTableDao != null) {
+            savePeerViews(networkId, configs);
+            return;
+        }
+        List<GeneratedConfigEntity> entities = new ArrayList<>(configs.size());
+        try {
+            for (Map.Entry<String, WireGuardIniConfig> entry : configs.entrySet()) {
+                byte[] configData = blobCodec.encodeConfig(entry.getValue());
+                entities.add(new GeneratedConfigEntity(networkId, entry.getKey(), configData));
+            }
+        } catch (IOException e) {
+            log.error("Failed to serialize generated config", e);
+            throw new RuntimeException("Failed to save generated configs", e);
+        }
+        generatedConfigDao.upsertAll(entities);
+    }
+
     @Override
     public Optional<WireGuardIniConfig> getGeneratedConfig(String networkId, String nodeId) {
         return generatedConfigDao.findByNetworkIdAndNodeId(networkId, nodeId)
-                .map(entity -> {
-                    try {
-                        return objectMapper.readValue(entity.getConfigData(), WireGuardIniConfig.class);
-                    } catch (JsonProcessingException e) {
-                        log.error("Failed to deserialize generated config", e);
-                        return null;
-                    }
-                });
+                .map(entity -> decodeConfig(entity, new PeerTableLoader(networkId)));
     }
 
     @Override
     public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId) {
-        return generatedConfigDao.findByNetworkId(networkId)
-                .stream()
-                .collect(Collectors.toMap(
-                        GeneratedConfigEntity::getNodeId,
-                        entity -> {
-                            try {
-                                return objectMapper.readValue(entity.getConfigData(), WireGuardIniConfig.class);
-                            } catch (JsonProcessingException e) {
-                                log.error("Failed to deserialize generated config", e);
-                                return null;
-                            }
-                        }
-                ))
-                .entrySet()
-                .stream()
-                .filter(entry -> entry.getValue() != null)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        return decodeConfigs(networkId, generatedConfigDao.findByNetworkId(networkId), new HashMap<>());
+    }
+
+    /**
+     * 每页最多加载一次 peer 表，版本号未变化时复用已解码的表
+     */
+    @Override
+    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId, String afterNodeId, int limit) {
+        return decodeConfigs(networkId, generatedConfigDao.findByNetworkIdAfter(networkId, afterNodeId, limit), new LinkedHashMap<>());
+    }
+
+    private Map<String, WireGuardIniConfig> decodeConfigs(String networkId, List<GeneratedConfigEntity> entities,
+                                                          Map<String, WireGuardIniConfig> configs) {
+        PeerTableLoader loader = new PeerTableLoader(networkId);
+        for (GeneratedConfigEntity entity : entities) {
+            WireGuardIniConfig config = decodeConfig(entity, loader);
+            if (config != null) {
+                configs.put(entity.getNodeId(), config);
+            }
+        }
+        return configs;
     }
 
     @Override
     public void deleteGeneratedConfig(String networkId, String nodeId) {
         generatedConfigDao.deleteByNetworkIdAndNodeId(networkId, nodeId);
+        if (peerTableDao != null) {
+            removePeerTableNode(networkId, nodeId);
+        }
     }
 
     @Override
@@ -171,6 +296,14 @@ public class DatabaseConfigStorage implements ConfigStorage {
         networkNodeDao.deleteByNetworkId(networkId);
         generatedConfigDao.deleteByNetworkId(networkId);
         networkVersionDao.deleteByNetworkId(networkId);
+        if (peerTableDao != null) {
+            peerTableDao.deleteByNetworkId(networkId);
+            peerTables.remove(networkId);
+            peerTableLocks.remove(networkId);
+        }
+        if (nodeChangeDao != null) {
+            nodeChangeDao.deleteByNetworkId(networkId);
+        }
     }
 
     @Override
@@ -189,12 +322,253 @@ public class DatabaseConfigStorage implements ConfigStorage {
 
     @Override
     public void updateNetworkVersion(String networkId) {
-        Optional<NetworkVersionEntity> existing = networkVersionDao.findByNetworkId(networkId);
-        if (existing.isPresent()) {
-            networkVersionDao.incrementVersion(networkId);
-        } else {
-            NetworkVersionEntity entity = new NetworkVersionEntity(networkId);
-            networkVersionDao.save(entity);
+        networkVersionDao.incrementVersion(networkId);
+    }
+
+    /**
+     * 在一个事务中批量写入节点与配置，最后递增版本；节点数据在事务开始前编码
+     */
+    @Override
+    public long commit(ConfigUnitOfWork unitOfWork) {
+        String networkId = unitOfWork.getNetworkId();
+        if (unitOfWork.isEmpty()) {
+            return getNetworkVersion(networkId);
+        }
+        List<NetworkNodeEntity> nodes = new ArrayList<>(unitOfWork.getSavedNodes().size());
+        Map<String, byte[]> savedNodes = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, WireGuardNetworkNode> entry : unitOfWork.getSavedNodes().entrySet()) {
+                byte[] nodeData = blobCodec.encodeNode(entry.getValue());
+                nodes.add(new NetworkNodeEntity(networkId, entry.getKey(), nodeData));
+                savedNodes.put(entry.getKey(), nodeData);
+            }
+        } catch (IOException e) {
+            log.error("Failed to serialize network node", e);
+            throw new RuntimeException("Failed to commit network " + networkId, e);
+        }
+        Long version = transactionOperations.execute(status -> {
+            networkNodeDao.upsertAll(nodes);
+            unitOfWork.getDeletedNodes().forEach(nodeId -> networkNodeDao.deleteByNetworkIdAndNodeId(networkId, nodeId));
+            saveGeneratedConfigs(networkId, unitOfWork.getSavedConfigs());
+            unitOfWork.getDeletedConfigs().forEach(nodeId -> deleteGeneratedConfig(networkId, nodeId));
+            long incremented = networkVersionDao.incrementVersion(networkId);
+            saveChanges(networkId, incremented, savedNodes, unitOfWork.getDeletedNodes());
+            return incremented;
+        });
+        return Objects.requireNonNull(version);
+    }
+
+    /**
+     * 最后一个版本的变更被条数限制截断时补全该版本；先读变更再读清理水位，读取期间被清理的变更不会被遗漏
+     */
+    @Override
+    public NodeChangeFeed getChangesSince(String networkId, long version, int limit) {
+        if (nodeChangeDao == null) {
+            return NodeChangeFeed.reset(networkId, version);
+        }
+        List<NodeChangeEntity> entities = new ArrayList<>(nodeChangeDao.findByNetworkIdSince(networkId, version, limit + 1));
+        boolean hasMore = entities.size() > limit;
+        if (hasMore) {
+            entities.subList(limit, entities.size()).clear();
+            long last = entities.get(entities.size() - 1).getVersion();
+            entities.removeIf(entity -> entity.getVersion() == last);
+            entities.addAll(nodeChangeDao.findByNetworkIdAndVersion(networkId, last));
+        }
+        if (version < nodeChangeDao.findTruncatedVersion(networkId)) {
+            return NodeChangeFeed.reset(networkId, version);
+        }
+        List<NodeChange> changes = new ArrayList<>(entities.size());
+        for (NodeChangeEntity entity : entities) {
+            NodeChange.Type type = NodeChange.Type.valueOf(entity.getChangeType());
+            try {
+                WireGuardNetworkNode node = type == NodeChange.Type.UPSERT ? blobCodec.decodeNode(entity.getNodeData()) : null;
+                changes.add(new NodeChange(entity.getVersion(), entity.getNodeId(), type, node));
+            } catch (IOException e) {
+                log.error("Failed to deserialize network node", e);
+                throw new RuntimeException("Failed to get node changes of network " + networkId, e);
+            }
+        }
+        return NodeChangeFeed.of(networkId, version, changes, hasMore);
+    }
+
+    @Override
+    public void truncateChanges(String networkId, long beforeVersion) {
+        if (nodeChangeDao != null) {
+            nodeChangeDao.deleteByNetworkIdBefore(networkId, beforeVersion);
+        }
+    }
+
+    /**
+     * 在递增版本的同一事务中写入节点变更
+     */
+    private void saveChanges(String networkId, long version, Map<String, byte[]> savedNodes, Set<String> deletedNodes) {
+        if (nodeChangeDao == null) {
+            return;
+        }
+        List<NodeChangeEntity> entities = new ArrayList<>(savedNodes.size() + deletedNodes.size());
+        savedNodes.forEach((nodeId, nodeData) -> entities.add(
+                new NodeChangeEntity(networkId, version, nodeId, NodeChange.Type.UPSERT.name(), nodeData)));
+        deletedNodes.forEach(nodeId -> entities.add(
+                new NodeChangeEntity(networkId, version, nodeId, NodeChange.Type.DELETE.name(), null)));
+        nodeChangeDao.saveAll(entities);
+        if (version % CHANGE_TRUNCATE_INTERVAL == 0) {
+            nodeChangeDao.deleteByNetworkIdBefore(networkId, version - changeRetention + 1);
+        }
+    }
+
+    // ==================== 共享 peer 表 ====================
+
+    /**
+     * 拆分保存生成配置
+     * <p>
+     * 先写入只追加的 peer 表，再写入节点视图，部分保存期间未保存节点的视图始终有效；
+     * 保存覆盖表中全部节点时以新的代数重建 peer 表，两次写入之间读到的旧视图会因代数不一致而读取失败
+     * </p>
+     */
+    private void savePeerViews(String networkId, Map<String, WireGuardIniConfig> configs) {
+        synchronized (peerTableLocks.computeIfAbsent(networkId, key -> new Object())) {
+            for (int attempt = 0; attempt < PEER_TABLE_MAX_RETRIES; attempt++) {
+                CachedPeerTable current = loadPeerTable(networkId);
+                PeerTable table;
+                if (current == null) {
+                    table = new PeerTable(1);
+                } else if (current.table().isCoveredBy(configs.keySet())) {
+                    table = new PeerTable(current.table().getGeneration() + 1);
+                } else {
+                    table = current.table().copy();
+                }
+                List<GeneratedConfigEntity> entities = new ArrayList<>(configs.size());
+                long expectedVersion = current == null ? 0 : current.version();
+                long version = expectedVersion + 1;
+                boolean saved;
+                try {
+                    for (Map.Entry<String, WireGuardIniConfig> entry : configs.entrySet()) {
+                        NodePeerView view = table.split(entry.getKey(), entry.getValue());
+                        entities.add(new GeneratedConfigEntity(networkId, entry.getKey(), peerTableCodec.encodeView(view)));
+                    }
+                    saved = peerTableDao.saveIfVersion(new PeerTableEntity(networkId, peerTableCodec.encodeTable(table), version), expectedVersion);
+                } catch (IOException e) {
+                    log.error("Failed to serialize peer table", e);
+                    throw new RuntimeException("Failed to save generated configs", e);
+                }
+                if (!saved) {
+                    log.debug("Peer table of network {} changed since version {}, retrying", networkId, expectedVersion);
+                    peerTables.remove(networkId);
+                    continue;
+                }
+                generatedConfigDao.upsertAll(entities);
+                peerTables.put(networkId, new CachedPeerTable(version, table));
+                log.debug("Saved {} peer views of network {}, peer table generation {} with {} peers",
+                        entities.size(), networkId, table.getGeneration(), table.getPeers().size());
+                return;
+            }
+            throw new RuntimeException("Failed to save generated configs, peer table of network " + networkId + " is updated concurrently");
+        }
+    }
+
+    private void removePeerTableNode(String networkId, String nodeId) {
+        synchronized (peerTableLocks.computeIfAbsent(networkId, key -> new Object())) {
+            for (int attempt = 0; attempt < PEER_TABLE_MAX_RETRIES; attempt++) {
+                CachedPeerTable current = loadPeerTable(networkId);
+                if (current == null || !current.table().getNodeIds().contains(nodeId)) {
+                    return;
+                }
+                PeerTable table = current.table().copy();
+                table.removeNode(nodeId);
+                long version = current.version() + 1;
+                boolean saved;
+                try {
+                    saved = peerTableDao.saveIfVersion(new PeerTableEntity(networkId, peerTableCodec.encodeTable(table), version), current.version());
+                } catch (IOException e) {
+                    log.error("Failed to serialize peer table", e);
+                    throw new RuntimeException("Failed to delete generated config", e);
+                }
+                if (!saved) {
+                    log.debug("Peer table of network {} changed since version {}, retrying", networkId, current.version());
+                    peerTables.remove(networkId);
+                    continue;
+                }
+                peerTables.put(networkId, new CachedPeerTable(version, table));
+                return;
+            }
+            throw new RuntimeException("Failed to delete generated config, peer table of network " + networkId + " is updated concurrently");
+        }
+    }
+
+    /**
+     * 读取 peer 表，本地已解码且版本号一致时直接使用
+     *
+     * @return 网络没有 peer 表时返回 null
+     */
+    private CachedPeerTable loadPeerTable(String networkId) {
+        if (peerTableDao == null) {
+            return null;
+        }
+        Optional<Long> version = peerTableDao.findVersionByNetworkId(networkId);
+        if (version.isEmpty()) {
+            peerTables.remove(networkId);
+            return null;
+        }
+        CachedPeerTable cached = peerTables.get(networkId);
+        if (cached != null && cached.version() == version.get()) {
+            return cached;
+        }
+        Optional<PeerTableEntity> entity = peerTableDao.findByNetworkId(networkId);
+        if (entity.isEmpty()) {
+            return null;
+        }
+        try {
+            CachedPeerTable loaded = new CachedPeerTable(entity.get().getVersion(), peerTableCodec.decodeTable(entity.get().getTableData()));
+            peerTables.put(networkId, loaded);
+            return loaded;
+        } catch (IOException e) {
+            log.error("Failed to deserialize peer table", e);
+            throw new RuntimeException("Failed to load peer table", e);
+        }
+    }
+
+    private WireGuardIniConfig decodeConfig(GeneratedConfigEntity entity, PeerTableLoader loader) {
+        try {
+            if (!PeerTableCodec.isPeerView(entity.getConfigData())) {
+                return blobCodec.decodeConfig(entity.getConfigData());
+            }
+            PeerTable table = loader.get();
+            if (table == null) {
+                log.error("Peer table of network {} is missing, cannot assemble config of node {}", entity.getNetworkId(), entity.getNodeId());
+                return null;
+            }
+            return table.assemble(peerTableCodec.decodeView(entity.getConfigData()));
+        } catch (IOException | IllegalStateException e) {
+            log.error("Failed to deserialize generated config", e);
+            return null;
+        }
+    }
+
+    private record CachedPeerTable(long version, PeerTable table) {
+    }
+
+    /**
+     * 一次读取内最多加载一次 peer 表，全部为完整配置时不加载
+     */
+    private class PeerTableLoader {
+
+        private final String networkId;
+
+        private boolean loaded;
+
+        private PeerTable table;
+
+        PeerTableLoader(String networkId) {
+            this.networkId = networkId;
+        }
+
+        PeerTable get() {
+            if (!loaded) {
+                CachedPeerTable cached = loadPeerTable(networkId);
+                table = cached == null ? null : cached.table();
+                loaded = true;
+            }
+            return table;
         }
     }
-}
\ No newline at end of file
+}
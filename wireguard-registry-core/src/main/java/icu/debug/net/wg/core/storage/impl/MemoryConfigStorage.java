@@ -3,71 +3,215 @@ package icu.debug.net.wg.core.storage.impl;
 import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
 import icu.debug.net.wg.core.storage.ConfigStorage;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.NodeChange;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.NodeChangeLog;
+import icu.debug.net.wg.core.storage.NodeIndex;
+import icu.debug.net.wg.core.storage.RenderedConfig;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.wal.WriteAheadJournal;
+import lombok.Setter;
 
+import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 内存配置存储实现
  * 用于测试和开发环境
+ * <p>
+ * 指定日志目录时通过 {@link WriteAheadJournal} 持久化：写入仍只修改内存，变更由后台线程批量追加到预写日志并定期写快照，
+ * 重启后加载快照并回放日志，节点无需重新注册。日志写入磁盘失败且尚未恢复时，写入方法抛出 {@link IllegalStateException}，不修改内存。
+ * </p>
+ * <p>
+ * 节点保存为 {@link CompactNetworkNode}，相同的 dns、命令列表等值在节点之间共享，密钥以字节数组保存。
+ * 指定 {@link OffHeapConfigArena} 时生成配置编码后保存在堆外，堆内只保留索引，读取 ini 文本不需要解码配置。
+ * 每个网络维护 {@link NodeIndex} 二级索引，节点与索引在索引的监视器内一起修改，按公钥或地址查找节点不需要遍历网络。
+ * 读取节点返回副本，存储中的节点只通过写入方法修改。
+ * </p>
  */
-public class MemoryConfigStorage implements ConfigStorage {
+public class MemoryConfigStorage implements ConfigStorage, Closeable {
 
-    private final Map<String, Map<String, WireGuardNetworkNode>> networkNodes = new ConcurrentHashMap<>();
-    private final Map<String, Map<String, WireGuardIniConfig>> generatedConfigs = new ConcurrentHashMap<>();
+    // 按节点ID排序，分页读取时从上一页最后一个节点ID直接定位
+    private final Map<String, ConcurrentNavigableMap<String, WireGuardNetworkNode>> networkNodes = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentNavigableMap<String, StoredConfig>> generatedConfigs = new ConcurrentHashMap<>();
     private final Map<String, AtomicLong> networkVersions = new ConcurrentHashMap<>();
+    private final Map<String, NodeChangeLog<WireGuardNetworkNode>> changeLogs = new ConcurrentHashMap<>();
+    private final Map<String, NodeIndex> nodeIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * 每个网络保留节点变更的版本数
+     */
+    @Setter
+    private long changeRetention = 1000;
+
+    /**
+     * 生成配置的堆外内存区，为 null 时配置保存在堆内
+     */
+    private final OffHeapConfigArena configArena;
+
+    private final WriteAheadJournal<JournalEntry, Snapshot> journal;
+
+    public MemoryConfigStorage() {
+        this(null);
+    }
+
+    public MemoryConfigStorage(OffHeapConfigArena configArena) {
+        this.configArena = configArena;
+        this.journal = null;
+    }
+
+    /**
+     * 使用快照加预写日志持久化，已有数据时恢复
+     *
+     * @param directory           快照与日志文件目录
+     * @param blobCodec           节点与生成配置数据的编解码器
+     * @param flushIntervalMillis 两次刷盘之间的最小间隔（毫秒）
+     * @param snapshotEntries     写入快照的日志条目数阈值
+     */
+    public MemoryConfigStorage(Path directory, BlobCodec blobCodec, long flushIntervalMillis, long snapshotEntries) {
+        this(directory, blobCodec, flushIntervalMillis, snapshotEntries, null);
+    }
+
+    /**
+     * 使用快照加预写日志持久化，生成配置保存在指定的堆外内存区
+     */
+    public MemoryConfigStorage(Path directory, BlobCodec blobCodec, long flushIntervalMillis, long snapshotEntries,
+                               OffHeapConfigArena configArena) {
+        this.configArena = configArena;
+        this.journal = new WriteAheadJournal<>(directory, "config", new JournalCodec(blobCodec), flushIntervalMillis, snapshotEntries);
+        journal.open(this::restore, this::replay, this::snapshot);
+    }
 
     @Override
-    public void saveNetworkNode(String networkId, WireGuardNetworkNode node) {
-        networkNodes.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>())
-                .put(node.getServerNode().getHostname(), node);
-        updateNetworkVersion(networkId);
+    public void saveNetworkNode(String networkId, WireGuardNetworkNode savedNode) {
+        CompactNetworkNode node = CompactNetworkNode.of(savedNode);
+        record(() -> {
+            applyNodes(networkId, Map.of(node.getServerNode().getHostname(), node), Set.of());
+            ConfigUnitOfWork changes = new ConfigUnitOfWork(networkId).saveNode(node);
+            return new JournalEntry(changes, incrementVersion(changes), false);
+        });
     }
 
     @Override
     public Optional<WireGuardNetworkNode> getNetworkNode(String networkId, String nodeId) {
         return Optional.ofNullable(networkNodes.get(networkId))
-                .map(nodes -> nodes.get(nodeId));
+                .map(nodes -> nodes.get(nodeId))
+                .map(MemoryConfigStorage::copy);
     }
 
     @Override
     public List<WireGuardNetworkNode> getNetworkNodes(String networkId) {
-        return Optional.ofNullable(networkNodes.get(networkId))
-                .map(nodes -> new ArrayList<>(nodes.values()))
-                .orElse(new ArrayList<>());
+        List<WireGuardNetworkNode> result = new ArrayList<>();
+        Optional.ofNullable(networkNodes.get(networkId))
+                .ifPresent(nodes -> nodes.values().forEach(node -> result.add(copy(node))));
+        return result;
     }
 
     @Override
-    public void deleteNetworkNode(String networkId, String nodeId) {
+    public List<WireGuardNetworkNode> getNetworkNodes(String networkId, String afterNodeId, int limit) {
+        List<WireGuardNetworkNode> page = new ArrayList<>();
         Optional.ofNullable(networkNodes.get(networkId))
-                .ifPresent(nodes -> nodes.remove(nodeId));
-        updateNetworkVersion(networkId);
+                .ifPresent(nodes -> page(nodes, afterNodeId, limit, (nodeId, node) -> page.add(copy(node))));
+        return page;
+    }
+
+    @Override
+    public Optional<WireGuardNetworkNode> findNodeByPublicKey(String networkId, String publicKey) {
+        return findIndexed(networkId, index -> index.findByPublicKey(publicKey),
+                node -> publicKey.equals(NodeIndex.publicKeyOf(node))).stream().findFirst();
+    }
+
+    @Override
+    public List<WireGuardNetworkNode> findNodesByAddress(String networkId, String address) {
+        String normalized = NodeIndex.normalizeAddress(address);
+        return findIndexed(networkId, index -> index.findByAddress(normalized),
+                node -> normalized != null && normalized.equals(NodeIndex.normalizeAddress(node.getAddress())));
+    }
+
+    @Override
+    public void deleteNetworkNode(String networkId, String nodeId) {
+        record(() -> {
+            applyNodes(networkId, Map.of(), Set.of(nodeId));
+            ConfigUnitOfWork changes = new ConfigUnitOfWork(networkId).deleteNode(nodeId);
+            return new JournalEntry(changes, incrementVersion(changes), false);
+        });
     }
 
     @Override
     public void saveGeneratedConfig(String networkId, String nodeId, WireGuardIniConfig config) {
-        generatedConfigs.computeIfAbsent(networkId, k -> new ConcurrentHashMap<>())
-                .put(nodeId, config);
+        record(() -> {
+            putConfigs(networkId, Map.of(nodeId, config), currentVersion(networkId));
+            return new JournalEntry(new ConfigUnitOfWork(networkId).saveConfig(nodeId, config), -1, false);
+        });
+    }
+
+    @Override
+    public void saveGeneratedConfigs(String networkId, Map<String, WireGuardIniConfig> configs) {
+        record(() -> {
+            putConfigs(networkId, configs, currentVersion(networkId));
+            return new JournalEntry(new ConfigUnitOfWork(networkId).saveConfigs(configs), -1, false);
+        });
     }
 
     @Override
     public Optional<WireGuardIniConfig> getGeneratedConfig(String networkId, String nodeId) {
         return Optional.ofNullable(generatedConfigs.get(networkId))
-                .map(configs -> configs.get(nodeId));
+                .map(configs -> configs.get(nodeId))
+                .map(StoredConfig::config);
     }
 
+    /**
+     * 配置保存在堆外时直接返回指向堆外内存的只读切片，不解码配置
+     */
     @Override
-    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId) {
+    public Optional<RenderedConfig> getRenderedConfig(String networkId, String nodeId) {
         return Optional.ofNullable(generatedConfigs.get(networkId))
-                .map(HashMap::new)
-                .orElse(new HashMap<>());
+                .map(configs -> configs.get(nodeId))
+                .map(stored -> new RenderedConfig(networkId, nodeId, stored.version(), stored.rendered()));
     }
 
     @Override
-    public void deleteGeneratedConfig(String networkId, String nodeId) {
+    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId) {
+        Map<String, WireGuardIniConfig> configs = new HashMap<>();
         Optional.ofNullable(generatedConfigs.get(networkId))
-                .ifPresent(configs -> configs.remove(nodeId));
+                .ifPresent(stored -> stored.forEach((nodeId, config) -> configs.put(nodeId, config.config())));
+        return configs;
+    }
+
+    @Override
+    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId, String afterNodeId, int limit) {
+        Map<String, WireGuardIniConfig> page = new LinkedHashMap<>();
+        Optional.ofNullable(generatedConfigs.get(networkId))
+                .ifPresent(configs -> page(configs, afterNodeId, limit, (nodeId, stored) -> page.put(nodeId, stored.config())));
+        return page;
+    }
+
+    private static <V> void page(ConcurrentNavigableMap<String, V> values, String afterNodeId, int limit, BiConsumer<String, V> consumer) {
+        Map<String, V> tail = afterNodeId == null ? values : values.tailMap(afterNodeId, false);
+        int count = 0;
+        for (Iterator<Map.Entry<String, V>> iterator = tail.entrySet().iterator(); iterator.hasNext() && count < limit; count++) {
+            Map.Entry<String, V> entry = iterator.next();
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void deleteGeneratedConfig(String networkId, String nodeId) {
+        record(() -> {
+            removeConfigs(networkId, Set.of(nodeId));
+            return new JournalEntry(new ConfigUnitOfWork(networkId).deleteConfig(nodeId), -1, false);
+        });
     }
 
     @Override
@@ -81,9 +225,10 @@ public class MemoryConfigStorage implements ConfigStorage {
 
     @Override
     public void deleteNetwork(String networkId) {
-        networkNodes.remove(networkId);
-        generatedConfigs.remove(networkId);
-        networkVersions.remove(networkId);
+        record(() -> {
+            removeNetwork(networkId);
+            return new JournalEntry(new ConfigUnitOfWork(networkId), -1, true);
+        });
     }
 
     @Override
@@ -99,6 +244,458 @@ public class MemoryConfigStorage implements ConfigStorage {
 
     @Override
     public void updateNetworkVersion(String networkId) {
-        networkVersions.computeIfAbsent(networkId, k -> new AtomicLong(0)).incrementAndGet();
+        record(() -> {
+            ConfigUnitOfWork changes = new ConfigUnitOfWork(networkId);
+            return new JournalEntry(changes, incrementVersion(changes), false);
+        });
+    }
+
+    /**
+     * 内存存储的写入没有事务，所有写入完成后才递增版本，按版本读取的一方不会看到新版本号搭配旧配置。
+     * 写入在变更日志的监视器内完成，生成配置记录的是本次提交递增后的版本号
+     */
+    @Override
+    public long commit(ConfigUnitOfWork changes) {
+        String networkId = changes.getNetworkId();
+        if (changes.isEmpty()) {
+            return getNetworkVersion(networkId);
+        }
+        ConfigUnitOfWork unitOfWork = compact(changes);
+        long[] version = new long[1];
+        record(() -> {
+            version[0] = incrementVersion(unitOfWork, next -> applyChanges(unitOfWork, next));
+            return new JournalEntry(unitOfWork, version[0], false);
+        });
+        return version[0];
+    }
+
+    @Override
+    public NodeChangeFeed getChangesSince(String networkId, long version, int limit) {
+        NodeChangeLog<WireGuardNetworkNode> changeLog = changeLogs.get(networkId);
+        if (changeLog == null) {
+            return NodeChangeFeed.of(networkId, version, List.of(), false);
+        }
+        return changeLog.read(networkId, version, limit, MemoryConfigStorage::copy);
+    }
+
+    @Override
+    public void truncateChanges(String networkId, long beforeVersion) {
+        Optional.ofNullable(changeLogs.get(networkId)).ifPresent(changeLog -> changeLog.truncate(beforeVersion));
+    }
+
+    /**
+     * 写完未刷盘的日志并写入快照，未启用持久化时不做任何事
+     */
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * 获取生成配置堆外内存的统计信息，配置保存在堆内时为空
+     */
+    public Map<String, Object> getConfigArenaStats() {
+        return configArena == null ? Map.of() : configArena.getStats();
+    }
+
+    /**
+     * 获取持久化统计信息，未启用持久化时为空
+     */
+    public Map<String, Object> getJournalStats() {
+        return journal == null ? Map.of() : journal.getStats();
+    }
+
+    private void record(Supplier<JournalEntry> mutation) {
+        if (journal == null) {
+            mutation.get();
+        } else {
+            journal.record(mutation);
+        }
+    }
+
+    /**
+     * 递增网络版本并记录节点变更，两者在变更日志的监视器内完成
+     */
+    private long incrementVersion(ConfigUnitOfWork changes) {
+        return incrementVersion(changes, next -> {
+        });
+    }
+
+    /**
+     * 递增网络版本并记录节点变更，递增前以新版本号执行写入。版本只在变更日志的监视器内递增，写入期间新版本号不会被其他提交占用
+     */
+    private long incrementVersion(ConfigUnitOfWork changes, LongConsumer beforeIncrement) {
+        String networkId = changes.getNetworkId();
+        NodeChangeLog<WireGuardNetworkNode> changeLog = changeLogs.computeIfAbsent(networkId, k -> new NodeChangeLog<>());
+        synchronized (changeLog) {
+            AtomicLong counter = networkVersions.computeIfAbsent(networkId, k -> new AtomicLong(0));
+            long version = counter.get() + 1;
+            beforeIncrement.accept(version);
+            counter.set(version);
+            appendChanges(changeLog, version, changes);
+            return version;
+        }
+    }
+
+    private long currentVersion(String networkId) {
+        return Optional.ofNullable(networkVersions.get(networkId)).map(AtomicLong::get).orElse(0L);
+    }
+
+    private void appendChanges(NodeChangeLog<WireGuardNetworkNode> changeLog, long version, ConfigUnitOfWork changes) {
+        changes.getSavedNodes().forEach((nodeId, node) -> changeLog.append(version, nodeId, NodeChange.Type.UPSERT, node));
+        changes.getDeletedNodes().forEach(nodeId -> changeLog.append(version, nodeId, NodeChange.Type.DELETE, null));
+        changeLog.truncate(version - changeRetention + 1);
+    }
+
+    private void applyChanges(ConfigUnitOfWork unitOfWork, long version) {
+        String networkId = unitOfWork.getNetworkId();
+        if (!unitOfWork.getSavedNodes().isEmpty() || !unitOfWork.getDeletedNodes().isEmpty()) {
+            applyNodes(networkId, unitOfWork.getSavedNodes(), unitOfWork.getDeletedNodes());
+        }
+        if (!unitOfWork.getSavedConfigs().isEmpty()) {
+            putConfigs(networkId, unitOfWork.getSavedConfigs(), version);
+        }
+        removeConfigs(networkId, unitOfWork.getDeletedConfigs());
+    }
+
+    /**
+     * 保存生成配置并记录指定的网络版本号，被替换的堆外配置随即释放
+     */
+    private void putConfigs(String networkId, Map<String, WireGuardIniConfig> configs, long version) {
+        ConcurrentNavigableMap<String, StoredConfig> storedConfigs = generatedConfigs.computeIfAbsent(networkId, k -> new ConcurrentSkipListMap<>());
+        configs.forEach((nodeId, config) -> freeConfig(storedConfigs.put(nodeId, storeConfig(config, version))));
+        compactConfigs();
+    }
+
+    private void removeConfigs(String networkId, Collection<String> nodeIds) {
+        ConcurrentNavigableMap<String, StoredConfig> storedConfigs = generatedConfigs.get(networkId);
+        if (storedConfigs != null) {
+            nodeIds.forEach(nodeId -> freeConfig(storedConfigs.remove(nodeId)));
+        }
+    }
+
+    private StoredConfig storeConfig(WireGuardIniConfig config, long version) {
+        return configArena == null ? new StoredConfig.Heap(config, version) : configArena.store(config, version);
+    }
+
+    private void freeConfig(StoredConfig stored) {
+        if (configArena != null && stored != null) {
+            configArena.free(stored);
+        }
+    }
+
+    /**
+     * 堆外存活数据占比过低时把稀疏块中的配置复制到新块，复制期间被写入方替换的配置放弃复制。
+     * 与删除网络互斥，避免复制到已移除的网络中
+     */
+    private void compactConfigs() {
+        if (configArena == null || !configArena.shouldCompact()) {
+            return;
+        }
+        synchronized (generatedConfigs) {
+            if (!configArena.shouldCompact()) {
+                return;
+            }
+            for (ConcurrentNavigableMap<String, StoredConfig> storedConfigs : generatedConfigs.values()) {
+                storedConfigs.forEach((nodeId, stored) -> {
+                    if (configArena.isSparse(stored)) {
+                        StoredConfig relocated = configArena.relocate(stored);
+                        freeConfig(storedConfigs.replace(nodeId, stored, relocated) ? stored : relocated);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 保存的节点替换为 {@link CompactNetworkNode}，存储不再引用调用方的节点对象
+     */
+    private static ConfigUnitOfWork compact(ConfigUnitOfWork changes) {
+        if (changes.getSavedNodes().isEmpty()) {
+            return changes;
+        }
+        ConfigUnitOfWork compacted = new ConfigUnitOfWork(changes.getNetworkId());
+        changes.getSavedNodes().values().forEach(node -> compacted.saveNode(CompactNetworkNode.of(node)));
+        changes.getDeletedNodes().forEach(compacted::deleteNode);
+        compacted.saveConfigs(changes.getSavedConfigs());
+        changes.getDeletedConfigs().forEach(compacted::deleteConfig);
+        return compacted;
+    }
+
+    /**
+     * 在索引的监视器内修改节点并更新索引，只删除节点时不创建网络
+     */
+    private void applyNodes(String networkId, Map<String, WireGuardNetworkNode> savedNodes, Collection<String> deletedNodes) {
+        if (savedNodes.isEmpty() && !networkNodes.containsKey(networkId)) {
+            return;
+        }
+        NodeIndex index = nodeIndexes.computeIfAbsent(networkId, k -> new NodeIndex());
+        synchronized (index) {
+            Map<String, WireGuardNetworkNode> nodes = networkNodes.computeIfAbsent(networkId, k -> new ConcurrentSkipListMap<>());
+            savedNodes.forEach((nodeId, node) -> {
+                nodes.put(nodeId, node);
+                index.update(nodeId, node);
+            });
+            deletedNodes.forEach(nodeId -> {
+                nodes.remove(nodeId);
+                index.update(nodeId, null);
+            });
+        }
+    }
+
+    /**
+     * 在监视器内读取索引，再按当前节点复核，过滤读取索引之后被修改的节点
+     */
+    private List<WireGuardNetworkNode> findIndexed(String networkId, Function<NodeIndex, Set<String>> lookup,
+                                                   Predicate<WireGuardNetworkNode> matcher) {
+        NodeIndex index = nodeIndexes.get(networkId);
+        Map<String, WireGuardNetworkNode> nodes = networkNodes.get(networkId);
+        if (index == null || nodes == null) {
+            return new ArrayList<>();
+        }
+        Set<String> nodeIds;
+        synchronized (index) {
+            nodeIds = lookup.apply(index);
+        }
+        List<WireGuardNetworkNode> result = new ArrayList<>(nodeIds.size());
+        for (String nodeId : new TreeSet<>(nodeIds)) {
+            WireGuardNetworkNode node = nodes.get(nodeId);
+            if (node != null && matcher.test(node)) {
+                result.add(copy(node));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取时返回副本，调用方修改节点不会使存储中的节点、索引与变更日志失效
+     */
+    private static WireGuardNetworkNode copy(WireGuardNetworkNode node) {
+        return node instanceof CompactNetworkNode compact ? compact.copy() : CompactNetworkNode.of(node);
+    }
+
+    private void removeNetwork(String networkId) {
+        nodeIndexes.remove(networkId);
+        networkNodes.remove(networkId);
+        ConcurrentNavigableMap<String, StoredConfig> storedConfigs;
+        synchronized (generatedConfigs) {
+            storedConfigs = generatedConfigs.remove(networkId);
+        }
+        if (storedConfigs != null) {
+            storedConfigs.values().forEach(this::freeConfig);
+        }
+        networkVersions.remove(networkId);
+        changeLogs.remove(networkId);
+    }
+
+    private void replay(JournalEntry entry) {
+        String networkId = entry.changes().getNetworkId();
+        if (entry.deleteNetwork()) {
+            removeNetwork(networkId);
+            return;
+        }
+        ConfigUnitOfWork changes = compact(entry.changes());
+        applyChanges(changes, entry.version() >= 0 ? entry.version() : currentVersion(networkId));
+        if (entry.version() >= 0) {
+            networkVersions.computeIfAbsent(networkId, k -> new AtomicLong(0)).set(entry.version());
+            appendChanges(changeLogs.computeIfAbsent(networkId, k -> new NodeChangeLog<>()), entry.version(), changes);
+        }
+    }
+
+    private Snapshot snapshot() {
+        Map<String, Map<String, WireGuardNetworkNode>> nodes = new HashMap<>();
+        networkNodes.forEach((networkId, networkNodeMap) -> nodes.put(networkId, new HashMap<>(networkNodeMap)));
+        Map<String, Map<String, StoredConfig>> configs = new HashMap<>();
+        generatedConfigs.forEach((networkId, networkConfigs) -> configs.put(networkId, new HashMap<>(networkConfigs)));
+        Map<String, Long> versions = new HashMap<>();
+        networkVersions.forEach((networkId, version) -> versions.put(networkId, version.get()));
+        return new Snapshot(nodes, configs, versions);
+    }
+
+    private void restore(Snapshot snapshot) {
+        snapshot.nodes().forEach((networkId, nodes) -> {
+            NodeIndex index = new NodeIndex();
+            ConcurrentNavigableMap<String, WireGuardNetworkNode> compactNodes = new ConcurrentSkipListMap<>();
+            nodes.forEach((nodeId, node) -> {
+                CompactNetworkNode compact = CompactNetworkNode.of(node);
+                compactNodes.put(nodeId, compact);
+                index.update(nodeId, compact);
+            });
+            nodeIndexes.put(networkId, index);
+            networkNodes.put(networkId, compactNodes);
+        });
+        snapshot.versions().forEach((networkId, version) -> {
+            networkVersions.put(networkId, new AtomicLong(version));
+            // 快照不包含变更日志，更早版本的调用方需要全量同步
+            NodeChangeLog<WireGuardNetworkNode> changeLog = new NodeChangeLog<>();
+            changeLog.reset(version);
+            changeLogs.put(networkId, changeLog);
+        });
+        // 快照中的配置以堆内形式解码，按恢复后的网络版本号重新保存
+        snapshot.configs().forEach((networkId, configs) -> {
+            ConcurrentNavigableMap<String, StoredConfig> storedConfigs = new ConcurrentSkipListMap<>();
+            long version = Optional.ofNullable(snapshot.versions().get(networkId)).orElse(0L);
+            configs.forEach((nodeId, stored) -> storedConfigs.put(nodeId, storeConfig(stored.config(), version)));
+            generatedConfigs.put(networkId, storedConfigs);
+        });
+    }
+
+    /**
+     * 日志条目：一组节点与配置变更、变更后的网络版本号（-1 表示未变），或删除整个网络
+     */
+    private record JournalEntry(ConfigUnitOfWork changes, long version, boolean deleteNetwork) {
+    }
+
+    private record Snapshot(Map<String, Map<String, WireGuardNetworkNode>> nodes,
+                            Map<String, Map<String, StoredConfig>> configs,
+                            Map<String, Long> versions) {
+    }
+
+    /**
+     * 节点与配置数据沿用数据库存储的编解码器，条目与快照的结构按字段顺序写入
+     */
+    private static final class JournalCodec implements WriteAheadJournal.Codec<JournalEntry, Snapshot> {
+
+        private final BlobCodec blobCodec;
+
+        private JournalCodec(BlobCodec blobCodec) {
+            this.blobCodec = blobCodec;
+        }
+
+        @Override
+        public byte[] encodeEntry(JournalEntry entry) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            ConfigUnitOfWork changes = entry.changes();
+            out.writeUTF(changes.getNetworkId());
+            out.writeBoolean(entry.deleteNetwork());
+            out.writeLong(entry.version());
+            writeNodes(out, changes.getSavedNodes());
+            writeIds(out, changes.getDeletedNodes());
+            writeConfigs(out, changes.getSavedConfigs());
+            writeIds(out, changes.getDeletedConfigs());
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public JournalEntry decodeEntry(byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            ConfigUnitOfWork changes = new ConfigUnitOfWork(in.readUTF());
+            boolean deleteNetwork = in.readBoolean();
+            long version = in.readLong();
+            readNodes(in).values().forEach(changes::saveNode);
+            readIds(in).forEach(changes::deleteNode);
+            changes.saveConfigs(readConfigs(in));
+            readIds(in).forEach(changes::deleteConfig);
+            return new JournalEntry(changes, version, deleteNetwork);
+        }
+
+        @Override
+        public byte[] encodeSnapshot(Snapshot snapshot) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(snapshot.nodes().size());
+            for (Map.Entry<String, Map<String, WireGuardNetworkNode>> entry : snapshot.nodes().entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeNodes(out, entry.getValue());
+            }
+            out.writeInt(snapshot.configs().size());
+            for (Map.Entry<String, Map<String, StoredConfig>> entry : snapshot.configs().entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Map.Entry<String, StoredConfig> config : entry.getValue().entrySet()) {
+                    out.writeUTF(config.getKey());
+                    // 堆外配置使用同一个编解码器时直接复制编码后的数据
+                    writeBytes(out, config.getValue().encode(blobCodec));
+                }
+            }
+            out.writeInt(snapshot.versions().size());
+            for (Map.Entry<String, Long> entry : snapshot.versions().entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public Snapshot decodeSnapshot(byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            Map<String, Map<String, WireGuardNetworkNode>> nodes = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                nodes.put(in.readUTF(), readNodes(in));
+            }
+            Map<String, Map<String, StoredConfig>> configs = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                String networkId = in.readUTF();
+                Map<String, StoredConfig> networkConfigs = new LinkedHashMap<>();
+                readConfigs(in).forEach((nodeId, config) -> networkConfigs.put(nodeId, new StoredConfig.Heap(config, 0)));
+                configs.put(networkId, networkConfigs);
+            }
+            Map<String, Long> versions = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                versions.put(in.readUTF(), in.readLong());
+            }
+            return new Snapshot(nodes, configs, versions);
+        }
+
+        private void writeNodes(DataOutputStream out, Map<String, WireGuardNetworkNode> nodes) throws IOException {
+            out.writeInt(nodes.size());
+            for (Map.Entry<String, WireGuardNetworkNode> entry : nodes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeBytes(out, blobCodec.encodeNode(entry.getValue()));
+            }
+        }
+
+        private Map<String, WireGuardNetworkNode> readNodes(DataInputStream in) throws IOException {
+            Map<String, WireGuardNetworkNode> nodes = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                nodes.put(in.readUTF(), blobCodec.decodeNode(readBytes(in)));
+            }
+            return nodes;
+        }
+
+        private void writeConfigs(DataOutputStream out, Map<String, WireGuardIniConfig> configs) throws IOException {
+            out.writeInt(configs.size());
+            for (Map.Entry<String, WireGuardIniConfig> entry : configs.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeBytes(out, blobCodec.encodeConfig(entry.getValue()));
+            }
+        }
+
+        private Map<String, WireGuardIniConfig> readConfigs(DataInputStream in) throws IOException {
+            Map<String, WireGuardIniConfig> configs = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                configs.put(in.readUTF(), blobCodec.decodeConfig(readBytes(in)));
+            }
+            return configs;
+        }
+
+        private static void writeIds(DataOutputStream out, Collection<String> ids) throws IOException {
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.writeUTF(id);
+            }
+        }
+
+        private static List<String> readIds(DataInputStream in) throws IOException {
+            List<String> ids = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                ids.add(in.readUTF());
+            }
+            return ids;
+        }
+
+        private static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        private static byte[] readBytes(DataInputStream in) throws IOException {
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return data;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package icu.debug.net.wg.core.storage.impl;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 生成配置的堆外内存区
+ * <p>
+ * 每份配置编码后的数据与渲染后的 ini 文本追加写入固定大小的直接缓冲区（块），堆内只保留指向块内位置的槽位，
+ * 配置数量按节点数平方增长时堆大小与 GC 停顿不再随之增长。块只追加不覆盖，读取方拿到的切片在块被丢弃后仍然有效；
+ * 块内的配置全部被替换或删除后丢弃整个块，内存在块不再被引用时随 GC 释放。
+ * 存活数据占比过低时由 {@link MemoryConfigStorage} 把稀疏块中的配置复制到新块。
+ * </p>
+ */
+public class OffHeapConfigArena {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final BlobCodec blobCodec;
+
+    private final int chunkSize;
+
+    private final Set<Chunk> chunks = new HashSet<>();
+
+    private Chunk current;
+
+    private long allocatedBytes;
+
+    private long liveBytes;
+
+    private long relocatedBytes;
+
+    public OffHeapConfigArena(BlobCodec blobCodec, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.blobCodec = blobCodec;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 编码并渲染配置后写入堆外内存，编码与渲染在锁外进行
+     */
+    StoredConfig store(WireGuardIniConfig config, long version) {
+        byte[] blob;
+        try {
+            blob = blobCodec.encodeConfig(config);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode config", e);
+        }
+        byte[] ini = config.toIniString().getBytes(StandardCharsets.UTF_8);
+        return allocate(blob, ini, version);
+    }
+
+    /**
+     * 复制到当前块，用于整理稀疏块；复制后由调用方释放替换成功或失败的一方
+     */
+    StoredConfig relocate(StoredConfig stored) {
+        Slot slot = (Slot) stored;
+        byte[] blob = slot.blob();
+        byte[] ini = new byte[slot.iniLength];
+        slot.rendered().get(ini);
+        synchronized (this) {
+            relocatedBytes += slot.length();
+        }
+        return allocate(blob, ini, slot.version);
+    }
+
+    /**
+     * 释放被替换或删除的配置，堆内配置忽略
+     */
+    synchronized void free(StoredConfig stored) {
+        if (!(stored instanceof Slot slot)) {
+            return;
+        }
+        Chunk chunk = slot.chunk;
+        chunk.liveBytes -= slot.length();
+        liveBytes -= slot.length();
+        if (chunk.liveBytes == 0 && chunk != current) {
+            release(chunk);
+        }
+    }
+
+    /**
+     * 已分配的块中存活数据不足一半且超过两个块时需要整理
+     */
+    synchronized boolean shouldCompact() {
+        return allocatedBytes > 2L * chunkSize && liveBytes * 2 < allocatedBytes;
+    }
+
+    /**
+     * 配置所在的块是否需要整理，当前写入的块不整理
+     */
+    synchronized boolean isSparse(StoredConfig stored) {
+        if (!(stored instanceof Slot slot)) {
+            return false;
+        }
+        Chunk chunk = slot.chunk;
+        return chunk != current && chunk.liveBytes * 2 < chunk.buffer.capacity();
+    }
+
+    /**
+     * 获取堆外内存统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("chunkSize", chunkSize);
+        stats.put("chunks", chunks.size());
+        stats.put("allocatedBytes", allocatedBytes);
+        stats.put("liveBytes", liveBytes);
+        stats.put("relocatedBytes", relocatedBytes);
+        return stats;
+    }
+
+    private synchronized Slot allocate(byte[] blob, byte[] ini, long version) {
+        int length = blob.length + ini.length;
+        Chunk chunk = current;
+        if (length > chunkSize) {
+            // 超过块大小的配置单独占用一个块，不作为当前块
+            chunk = newChunk(length);
+        } else if (chunk == null || chunk.buffer.capacity() - chunk.position < length) {
+            Chunk previous = current;
+            chunk = newChunk(chunkSize);
+            current = chunk;
+            if (previous != null && previous.liveBytes == 0) {
+                release(previous);
+            }
+        }
+        int offset = chunk.position;
+        chunk.buffer.put(offset, blob);
+        chunk.buffer.put(offset + blob.length, ini);
+        chunk.position += length;
+        chunk.liveBytes += length;
+        liveBytes += length;
+        return new Slot(this, chunk, offset, blob.length, ini.length, version);
+    }
+
+    private Chunk newChunk(int capacity) {
+        Chunk chunk = new Chunk(ByteBuffer.allocateDirect(capacity));
+        chunks.add(chunk);
+        allocatedBytes += capacity;
+        return chunk;
+    }
+
+    private void release(Chunk chunk) {
+        if (chunks.remove(chunk)) {
+            allocatedBytes -= chunk.buffer.capacity();
+        }
+    }
+
+    private static final class Chunk {
+
+        private final ByteBuffer buffer;
+
+        private int position;
+
+        private long liveBytes;
+
+        private Chunk(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * 堆内的槽位，块内依次为编码后的配置与 ini 文本；块只追加，读取时按绝对位置切片无需加锁
+     */
+    private static final class Slot implements StoredConfig {
+
+        private final OffHeapConfigArena arena;
+
+        private final Chunk chunk;
+
+        private final int offset;
+
+        private final int blobLength;
+
+        private final int iniLength;
+
+        private final long version;
+
+        private Slot(OffHeapConfigArena arena, Chunk chunk, int offset, int blobLength, int iniLength, long version) {
+            this.arena = arena;
+            this.chunk = chunk;
+            this.offset = offset;
+            this.blobLength = blobLength;
+            this.iniLength = iniLength;
+            this.version = version;
+        }
+
+        private int length() {
+            return blobLength + iniLength;
+        }
+
+        private byte[] blob() {
+            byte[] blob = new byte[blobLength];
+            chunk.buffer.get(offset, blob);
+            return blob;
+        }
+
+        @Override
+        public long version() {
+            return version;
+        }
+
+        @Override
+        public WireGuardIniConfig config() {
+            try {
+                return arena.blobCodec.decodeConfig(blob());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to decode config", e);
+            }
+        }
+
+        @Override
+        public ByteBuffer rendered() {
+            return chunk.buffer.slice(offset + blobLength, iniLength).asReadOnlyBuffer();
+        }
+
+        @Override
+        public byte[] encode(BlobCodec codec) throws IOException {
+            return codec == arena.blobCodec ? blob() : codec.encodeConfig(config());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package icu.debug.net.wg.core.storage.impl;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link MemoryConfigStorage} 中保存的一份生成配置，配置对象在堆内或编码后保存在 {@link OffHeapConfigArena}
+ */
+interface StoredConfig {
+
+    /**
+     * 保存配置时的网络版本号
+     */
+    long version();
+
+    WireGuardIniConfig config();
+
+    /**
+     * UTF-8 编码的 ini 文本，只读
+     */
+    ByteBuffer rendered();
+
+    byte[] encode(BlobCodec blobCodec) throws IOException;
+
+    /**
+     * 堆内保存的配置，读取 ini 文本时渲染
+     */
+    record Heap(WireGuardIniConfig config, long version) implements StoredConfig {
+
+        @Override
+        public ByteBuffer rendered() {
+            return ByteBuffer.wrap(config.toIniString().getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        }
+
+        @Override
+        public byte[] encode(BlobCodec blobCodec) throws IOException {
+            return blobCodec.encodeConfig(config);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package icu.debug.net.wg.core.storage.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * 日志记录
+ * <p>
+ * 一条记录包含一组按顺序执行的操作，整条记录以 [负载长度][CRC32][负载] 的帧写入段文件，
+ * 负载为操作数量加各个操作。回放时 CRC 不匹配或长度越界的记录整体丢弃，因此一条记录内的操作要么全部生效，要么全部不生效。
+ * </p>
+ */
+final class LogRecord {
+
+    /**
+     * 帧头长度：负载长度与 CRC32 各 4 字节
+     */
+    static final int HEADER_BYTES = 8;
+
+    static final byte PUT_NODE = 1;
+    static final byte DELETE_NODE = 2;
+    static final byte PUT_CONFIG = 3;
+    static final byte DELETE_CONFIG = 4;
+    static final byte VERSION = 5;
+    static final byte DELETE_NETWORK = 6;
+
+    /**
+     * 检查点，回放到此处时丢弃之前段文件中的全部状态，压缩生成的段以它开头
+     */
+    static final byte CHECKPOINT = 7;
+
+    /**
+     * 丢弃网络的节点变更日志，只能从指定版本开始读取，压缩生成的段在每个网络的存活数据之后写入
+     */
+    static final byte RESET_CHANGES = 8;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private int operationCount;
+
+    LogRecord putNode(String networkId, String nodeId, byte[] data) {
+        return put(PUT_NODE, networkId, nodeId, data);
+    }
+
+    LogRecord deleteNode(String networkId, String nodeId) {
+        return delete(DELETE_NODE, networkId, nodeId);
+    }
+
+    LogRecord putConfig(String networkId, String nodeId, byte[] data) {
+        return put(PUT_CONFIG, networkId, nodeId, data);
+    }
+
+    LogRecord deleteConfig(String networkId, String nodeId) {
+        return delete(DELETE_CONFIG, networkId, nodeId);
+    }
+
+    LogRecord version(String networkId, long version) {
+        try {
+            writeHeader(VERSION, networkId);
+            out.writeLong(version);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    LogRecord resetChanges(String networkId, long version) {
+        try {
+            writeHeader(RESET_CHANGES, networkId);
+            out.writeLong(version);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    LogRecord deleteNetwork(String networkId) {
+        try {
+            writeHeader(DELETE_NETWORK, networkId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    LogRecord checkpoint() {
+        buffer.write(CHECKPOINT);
+        operationCount++;
+        return this;
+    }
+
+    boolean isEmpty() {
+        return operationCount == 0;
+    }
+
+    /**
+     * 当前负载的大约字节数
+     */
+    int size() {
+        return buffer.size() + 4;
+    }
+
+    /**
+     * 生成完整的帧
+     */
+    ByteBuffer toFrame() {
+        byte[] operations = buffer.toByteArray();
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + 4 + operations.length);
+        frame.putInt(4 + operations.length);
+        frame.putInt(0);
+        frame.putInt(operationCount);
+        frame.put(operations);
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), HEADER_BYTES, frame.capacity() - HEADER_BYTES);
+        frame.putInt(4, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    /**
+     * 校验指定位置的帧
+     *
+     * @return 帧的负载长度，帧不完整或校验失败时返回 -1
+     */
+    static int validate(ByteBuffer segment, int position) {
+        if (segment.limit() - position < HEADER_BYTES) {
+            return -1;
+        }
+        int length = segment.getInt(position);
+        if (length < 4 || length > segment.limit() - position - HEADER_BYTES) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(segment.slice(position + HEADER_BYTES, length));
+        return (int) crc.getValue() == segment.getInt(position + 4) ? length : -1;
+    }
+
+    /**
+     * 依次回放负载中的操作
+     *
+     * @param payload       从位置 0 开始的负载
+     * @param payloadOffset 负载在段文件中的偏移，用于计算值的位置
+     */
+    static void replay(ByteBuffer payload, long payloadOffset, Visitor visitor) {
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            byte type = payload.get();
+            if (type == CHECKPOINT) {
+                visitor.checkpoint();
+                continue;
+            }
+            String networkId = readString(payload);
+            switch (type) {
+                case PUT_NODE, PUT_CONFIG -> {
+                    String nodeId = readString(payload);
+                    int length = payload.getInt();
+                    long offset = payloadOffset + payload.position();
+                    payload.position(payload.position() + length);
+                    if (type == PUT_NODE) {
+                        visitor.putNode(networkId, nodeId, offset, length);
+                    } else {
+                        visitor.putConfig(networkId, nodeId, offset, length);
+                    }
+                }
+                case DELETE_NODE -> visitor.deleteNode(networkId, readString(payload));
+                case DELETE_CONFIG -> visitor.deleteConfig(networkId, readString(payload));
+                case VERSION -> visitor.version(networkId, payload.getLong());
+                case DELETE_NETWORK -> visitor.deleteNetwork(networkId);
+                case RESET_CHANGES -> visitor.resetChanges(networkId, payload.getLong());
+                default -> throw new IllegalStateException("Unknown log operation: " + type);
+            }
+        }
+    }
+
+    private LogRecord put(byte type, String networkId, String nodeId, byte[] data) {
+        try {
+            writeHeader(type, networkId);
+            writeString(nodeId);
+            out.writeInt(data.length);
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    private LogRecord delete(byte type, String networkId, String nodeId) {
+        try {
+            writeHeader(type, networkId);
+            writeString(nodeId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    private void writeHeader(byte type, String networkId) throws IOException {
+        out.write(type);
+        writeString(networkId);
+        operationCount++;
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 日志操作的回放目标
+     */
+    interface Visitor {
+
+        void putNode(String networkId, String nodeId, long offset, int length);
+
+        void deleteNode(String networkId, String nodeId);
+
+        void putConfig(String networkId, String nodeId, long offset, int length);
+
+        void deleteConfig(String networkId, String nodeId);
+
+        void version(String networkId, long version);
+
+        void deleteNetwork(String networkId);
+
+        void resetChanges(String networkId, long version);
+
+        void checkpoint();
+    }
+}
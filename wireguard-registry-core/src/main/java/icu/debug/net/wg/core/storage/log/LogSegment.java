@@ -0,0 +1,154 @@
+package icu.debug.net.wg.core.storage.log;
+
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 日志段文件
+ * <p>
+ * 活跃段只追加写入，读取走文件通道的定位读；封存后整段只读映射到内存，之后的读取直接从映射区复制。
+ * 段被压缩删除后映射区仍然有效，持有旧位置的读取不受影响。
+ * </p>
+ */
+final class LogSegment {
+
+    @Getter
+    private final long id;
+
+    @Getter
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private volatile long size;
+
+    private volatile MappedByteBuffer mapped;
+
+    private LogSegment(long id, Path path, FileChannel channel, long size) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    /**
+     * 创建新的空段
+     */
+    static LogSegment create(Path path, long id) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new LogSegment(id, path, channel, 0);
+    }
+
+    /**
+     * 打开已有的段并映射，用于启动时回放
+     */
+    static LogSegment open(Path path, long id) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        LogSegment segment = new LogSegment(id, path, channel, channel.size());
+        segment.seal();
+        return segment;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * 映射区，未封存时为 null
+     */
+    MappedByteBuffer mapped() {
+        return mapped;
+    }
+
+    /**
+     * 追加一帧，调用方负责串行化写入
+     *
+     * @return 帧在段中的偏移
+     */
+    long append(ByteBuffer frame) throws IOException {
+        Assert.state(mapped == null, "Log segment is sealed: " + path);
+        long offset = size;
+        long position = offset;
+        try {
+            while (frame.hasRemaining()) {
+                position += channel.write(frame, position);
+            }
+        } catch (IOException e) {
+            // 丢弃写了一半的帧，否则之后追加的记录在回放时会被当作损坏数据
+            try {
+                channel.truncate(offset);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        size = position;
+        return offset;
+    }
+
+    /**
+     * 读取指定位置的数据
+     */
+    byte[] read(long offset, int length) throws IOException {
+        byte[] data = new byte[length];
+        MappedByteBuffer buffer = mapped;
+        if (buffer == null) {
+            try {
+                ByteBuffer target = ByteBuffer.wrap(data);
+                while (target.hasRemaining()) {
+                    int read = channel.read(target, offset + target.position());
+                    Assert.state(read >= 0, "Unexpected end of log segment: " + path);
+                }
+                return data;
+            } catch (ClosedChannelException e) {
+                // 读取期间段已封存并被压缩关闭，此时映射区已经建立
+                buffer = mapped;
+                if (buffer == null) {
+                    throw e;
+                }
+            }
+        }
+        buffer.get((int) offset, data);
+        return data;
+    }
+
+    /**
+     * 刷盘并只读映射，之后不再追加
+     */
+    void seal() throws IOException {
+        Assert.state(size <= Integer.MAX_VALUE, "Log segment too large to map: " + path);
+        channel.force(false);
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    /**
+     * 截断到指定长度并重新映射，用于丢弃未写完整的尾部记录
+     */
+    void truncate(long newSize) throws IOException {
+        channel.truncate(newSize);
+        size = newSize;
+        seal();
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+}
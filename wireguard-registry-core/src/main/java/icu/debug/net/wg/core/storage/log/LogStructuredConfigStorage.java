@@ -0,0 +1,818 @@
+package icu.debug.net.wg.core.storage.log;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.ConfigStorage;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.NodeChange;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.NodeChangeLog;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 日志结构文件配置存储，用于单机模式持久化
+ * <p>
+ * 所有写入以 {@link LogRecord} 追加到当前活跃段，内存中只保存每个节点与配置数据所在的段和偏移；
+ * 段写满后封存并只读映射，读取直接从映射区复制后解码，不经过锁。一次写入（包括一个完整的 {@link ConfigUnitOfWork}）
+ * 对应一条带 CRC 的记录，崩溃后回放时未写完整的尾部记录被截断丢弃。
+ * </p>
+ * <p>
+ * 刷盘采用组提交：{@code syncIntervalMillis} 为 0 时写入返回前等待刷盘，并发写入者由先到的一方统一 fsync；
+ * 大于 0 时写入不等待，由后台按间隔刷盘，崩溃最多丢失一个间隔内的写入。
+ * </p>
+ * <p>
+ * 失效数据超过存活数据且不少于一个段时，压缩把存活数据写入以检查点开头的新段，原子改名后删除旧段；
+ * 回放遇到检查点时丢弃之前的状态，因此删除旧段前崩溃也不会恢复已删除的数据。
+ * </p>
+ * <p>
+ * 节点变更日志由写入和回放时的索引维护，只引用段中的数据位置；压缩只保留存活数据，之后变更日志从压缩时的版本重新开始。
+ * </p>
+ */
+@Slf4j
+public class LogStructuredConfigStorage implements ConfigStorage, Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+
+    /**
+     * 压缩时每条记录的大约大小
+     */
+    private static final int COMPACTION_RECORD_BYTES = 1 << 20;
+
+    /**
+     * 估算存活数据时每个条目的键与帧开销
+     */
+    private static final int ENTRY_OVERHEAD = 32;
+
+    private final Path directory;
+    private final BlobCodec blobCodec;
+    private final long segmentBytes;
+    private final long syncIntervalMillis;
+    private final ScheduledExecutorService maintenance;
+
+    /**
+     * 串行化追加、封存与压缩
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 组提交的 fsync 由持有此监视器的一方执行
+     */
+    private final Object syncMonitor = new Object();
+
+    private volatile Map<String, NetworkState> networks = new ConcurrentHashMap<>();
+
+    private final List<LogSegment> segments = new ArrayList<>();
+    private Indexer indexer;
+    private LogSegment active;
+    private long nextSegmentId;
+    private long totalBytes;
+
+    /**
+     * 启动以来追加的字节数，作为组提交的逻辑位置
+     */
+    private long writtenBytes;
+
+    private volatile long syncedBytes;
+    private volatile boolean closed;
+
+    private final LongAdder appendCount = new LongAdder();
+    private final LongAdder syncCount = new LongAdder();
+    private final LongAdder compactionCount = new LongAdder();
+
+    /**
+     * 每个网络保留节点变更的版本数
+     */
+    @Setter
+    private volatile long changeRetention = 1000;
+
+    /**
+     * @param directory             段文件目录，不存在时创建，已有段文件时回放恢复
+     * @param blobCodec             节点与生成配置数据的编解码器
+     * @param segmentBytes          活跃段达到该大小后封存并切换新段
+     * @param syncIntervalMillis    后台刷盘间隔（毫秒），0 表示每次写入返回前组提交刷盘
+     * @param compactIntervalMillis 检查是否需要压缩的间隔（毫秒），0 表示不自动压缩
+     */
+    public LogStructuredConfigStorage(Path directory, BlobCodec blobCodec, long segmentBytes,
+                                      long syncIntervalMillis, long compactIntervalMillis) {
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes must be positive and less than 2GB");
+        }
+        this.directory = directory;
+        this.blobCodec = blobCodec;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalMillis = syncIntervalMillis;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open log storage: " + directory, e);
+        }
+        if (syncIntervalMillis > 0 || compactIntervalMillis > 0) {
+            this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "config-log-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (syncIntervalMillis > 0) {
+                maintenance.scheduleWithFixedDelay(() -> runQuietly(this::sync, "sync"),
+                        syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            if (compactIntervalMillis > 0) {
+                maintenance.scheduleWithFixedDelay(() -> runQuietly(this::compactIfNeeded, "compact"),
+                        compactIntervalMillis, compactIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            this.maintenance = null;
+        }
+    }
+
+    @Override
+    public void saveNetworkNode(String networkId, WireGuardNetworkNode node) {
+        byte[] data = encodeNode(node);
+        String nodeId = node.getServerNode().getHostname();
+        write(networkId, true, record -> record.putNode(networkId, nodeId, data));
+    }
+
+    @Override
+    public Optional<WireGuardNetworkNode> getNetworkNode(String networkId, String nodeId) {
+        NetworkState state = networks.get(networkId);
+        ValueRef ref = state == null ? null : state.nodes.get(nodeId);
+        return ref == null ? Optional.empty() : Optional.of(decodeNode(ref));
+    }
+
+    @Override
+    public List<WireGuardNetworkNode> getNetworkNodes(String networkId) {
+        NetworkState state = networks.get(networkId);
+        if (state == null) {
+            return new ArrayList<>();
+        }
+        List<WireGuardNetworkNode> nodes = new ArrayList<>(state.nodes.size());
+        for (ValueRef ref : state.nodes.values()) {
+            nodes.add(decodeNode(ref));
+        }
+        return nodes;
+    }
+
+    @Override
+    public List<WireGuardNetworkNode> getNetworkNodes(String networkId, String afterNodeId, int limit) {
+        NetworkState state = networks.get(networkId);
+        List<WireGuardNetworkNode> nodes = new ArrayList<>();
+        if (state != null) {
+            page(state.nodes, afterNodeId, limit, (nodeId, ref) -> nodes.add(decodeNode(ref)));
+        }
+        return nodes;
+    }
+
+    @Override
+    public void deleteNetworkNode(String networkId, String nodeId) {
+        write(networkId, true, record -> record.deleteNode(networkId, nodeId));
+    }
+
+    @Override
+    public void saveGeneratedConfig(String networkId, String nodeId, WireGuardIniConfig config) {
+        byte[] data = encodeConfig(config);
+        write(networkId, false, record -> record.putConfig(networkId, nodeId, data));
+    }
+
+    @Override
+    public void saveGeneratedConfigs(String networkId, Map<String, WireGuardIniConfig> configs) {
+        Map<String, byte[]> encoded = encodeConfigs(configs);
+        write(networkId, false, record -> encoded.forEach((nodeId, data) -> record.putConfig(networkId, nodeId, data)));
+    }
+
+    @Override
+    public Optional<WireGuardIniConfig> getGeneratedConfig(String networkId, String nodeId) {
+        NetworkState state = networks.get(networkId);
+        ValueRef ref = state == null ? null : state.configs.get(nodeId);
+        return ref == null ? Optional.empty() : Optional.of(decodeConfig(ref));
+    }
+
+    @Override
+    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId) {
+        NetworkState state = networks.get(networkId);
+        Map<String, WireGuardIniConfig> configs = new HashMap<>();
+        if (state != null) {
+            state.configs.forEach((nodeId, ref) -> configs.put(nodeId, decodeConfig(ref)));
+        }
+        return configs;
+    }
+
+    @Override
+    public Map<String, WireGuardIniConfig> getNetworkConfigs(String networkId, String afterNodeId, int limit) {
+        NetworkState state = networks.get(networkId);
+        Map<String, WireGuardIniConfig> configs = new LinkedHashMap<>();
+        if (state != null) {
+            page(state.configs, afterNodeId, limit, (nodeId, ref) -> configs.put(nodeId, decodeConfig(ref)));
+        }
+        return configs;
+    }
+
+    /**
+     * 索引按节点ID排序，从上一页最后一个节点ID之后开始读取
+     */
+    private static void page(ConcurrentNavigableMap<String, ValueRef> refs, String afterNodeId, int limit, BiConsumer<String, ValueRef> consumer) {
+        Map<String, ValueRef> tail = afterNodeId == null ? refs : refs.tailMap(afterNodeId, false);
+        int count = 0;
+        for (Iterator<Map.Entry<String, ValueRef>> iterator = tail.entrySet().iterator(); iterator.hasNext() && count < limit; count++) {
+            Map.Entry<String, ValueRef> entry = iterator.next();
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void deleteGeneratedConfig(String networkId, String nodeId) {
+        write(networkId, false, record -> record.deleteConfig(networkId, nodeId));
+    }
+
+    @Override
+    public List<String> getAllNetworkIds() {
+        return new ArrayList<>(networks.keySet());
+    }
+
+    @Override
+    public void deleteNetwork(String networkId) {
+        write(networkId, false, record -> record.deleteNetwork(networkId));
+    }
+
+    @Override
+    public boolean networkExists(String networkId) {
+        return networks.containsKey(networkId);
+    }
+
+    @Override
+    public long getNetworkVersion(String networkId) {
+        NetworkState state = networks.get(networkId);
+        return state == null ? 0 : state.version;
+    }
+
+    @Override
+    public void updateNetworkVersion(String networkId) {
+        write(networkId, true, record -> {
+        });
+    }
+
+    /**
+     * 变更单元与递增后的版本号写为同一条记录，回放时要么全部生效，要么全部丢弃
+     */
+    @Override
+    public long commit(ConfigUnitOfWork unitOfWork) {
+        String networkId = unitOfWork.getNetworkId();
+        if (unitOfWork.isEmpty()) {
+            return getNetworkVersion(networkId);
+        }
+        Map<String, byte[]> nodes = new LinkedHashMap<>();
+        unitOfWork.getSavedNodes().forEach((nodeId, node) -> nodes.put(nodeId, encodeNode(node)));
+        Map<String, byte[]> configs = encodeConfigs(unitOfWork.getSavedConfigs());
+        return write(networkId, true, record -> {
+            nodes.forEach((nodeId, data) -> record.putNode(networkId, nodeId, data));
+            unitOfWork.getDeletedNodes().forEach(nodeId -> record.deleteNode(networkId, nodeId));
+            configs.forEach((nodeId, data) -> record.putConfig(networkId, nodeId, data));
+            unitOfWork.getDeletedConfigs().forEach(nodeId -> record.deleteConfig(networkId, nodeId));
+        });
+    }
+
+    @Override
+    public NodeChangeFeed getChangesSince(String networkId, long version, int limit) {
+        NetworkState state = networks.get(networkId);
+        if (state == null) {
+            return NodeChangeFeed.of(networkId, version, List.of(), false);
+        }
+        return state.changes.read(networkId, version, limit, this::decodeNode);
+    }
+
+    @Override
+    public void truncateChanges(String networkId, long beforeVersion) {
+        NetworkState state = networks.get(networkId);
+        if (state != null) {
+            state.changes.truncate(beforeVersion);
+        }
+    }
+
+    /**
+     * 把存活数据重写到新段并删除旧段
+     */
+    public void compact() {
+        writeLock.lock();
+        try {
+            Assert.state(!closed, "Log storage is closed");
+            // 先切换活跃段，失败时存储仍可继续写入
+            roll();
+            List<LogSegment> obsolete = new ArrayList<>(segments);
+            long before = totalBytes;
+
+            long compactedId = nextSegmentId++;
+            Path target = segmentPath(compactedId);
+            Path temp = target.resolveSibling(target.getFileName() + COMPACTING_SUFFIX);
+            LogSegment compacting = LogSegment.create(temp, compactedId);
+            try {
+                writeLiveData(compacting);
+                compacting.force();
+            } catch (IOException | RuntimeException e) {
+                compacting.delete();
+                throw e;
+            }
+            compacting.close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+
+            // 回放压缩段得到新的索引，保证与重启后的状态一致
+            LogSegment compacted;
+            Indexer compactedIndexer = new Indexer(new ConcurrentHashMap<>());
+            LogSegment next;
+            try {
+                compacted = LogSegment.open(target, compactedId);
+                compactedIndexer.segment = compacted;
+                Assert.state(replay(compacted, compactedIndexer) == compacted.size(), "Compacted segment is incomplete: " + target);
+                next = LogSegment.create(segmentPath(nextSegmentId), nextSegmentId++);
+            } catch (IOException | RuntimeException e) {
+                // 压缩段排在当前活跃段之后，留下它会在重启时覆盖之后的写入
+                Files.deleteIfExists(target);
+                throw e;
+            }
+            active = next;
+            compactedIndexer.segment = active;
+            indexer = compactedIndexer;
+            networks = compactedIndexer.networks;
+            segments.clear();
+            segments.add(compacted);
+            segments.add(active);
+            totalBytes = compacted.size();
+            for (LogSegment segment : obsolete) {
+                segment.delete();
+            }
+            syncDirectory();
+            compactionCount.increment();
+            log.info("Compacted log storage {}: {} -> {} bytes", directory, before, totalBytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact log storage: " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 失效数据超过存活数据且不少于一个段时压缩
+     *
+     * @return 是否执行了压缩
+     */
+    public boolean compactIfNeeded() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            long garbage = totalBytes - indexer.liveBytes;
+            if (garbage < segmentBytes || garbage <= indexer.liveBytes) {
+                return false;
+            }
+            compact();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 刷盘到当前已追加的位置
+     */
+    public void sync() {
+        synchronized (syncMonitor) {
+            LogSegment segment;
+            long position;
+            writeLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                segment = active;
+                position = writtenBytes;
+            } finally {
+                writeLock.unlock();
+            }
+            if (position <= syncedBytes) {
+                return;
+            }
+            try {
+                segment.force();
+            } catch (ClosedChannelException e) {
+                // 段已被压缩关闭，其数据在封存时已经刷盘
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to sync log storage: " + directory, e);
+            }
+            syncedBytes = position;
+            syncCount.increment();
+        }
+    }
+
+    /**
+     * 获取存储统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        writeLock.lock();
+        try {
+            stats.put("segments", segments.size());
+            stats.put("totalBytes", totalBytes);
+            stats.put("liveBytes", indexer.liveBytes);
+            stats.put("writtenBytes", writtenBytes);
+        } finally {
+            writeLock.unlock();
+        }
+        stats.put("networks", networks.size());
+        stats.put("appends", appendCount.sum());
+        stats.put("syncs", syncCount.sum());
+        stats.put("compactions", compactionCount.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (maintenance != null) {
+            maintenance.shutdown();
+        }
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.force();
+            for (LogSegment segment : segments) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close log storage: " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param bumpVersion 是否在记录末尾写入递增后的网络版本号
+     * @return 写入后的网络版本号
+     */
+    private long write(String networkId, boolean bumpVersion, Consumer<LogRecord> operations) {
+        long version;
+        long position;
+        writeLock.lock();
+        try {
+            Assert.state(!closed, "Log storage is closed");
+            LogRecord record = new LogRecord();
+            operations.accept(record);
+            version = getNetworkVersion(networkId);
+            if (bumpVersion) {
+                record.version(networkId, ++version);
+            }
+            if (record.isEmpty()) {
+                return version;
+            }
+            position = append(record);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append log record: " + directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+        if (syncIntervalMillis == 0 && syncedBytes < position) {
+            // 等待期间其他写入者可能已经完成覆盖本记录的刷盘
+            synchronized (syncMonitor) {
+                if (syncedBytes < position) {
+                    sync();
+                }
+            }
+        }
+        return version;
+    }
+
+    private long append(LogRecord record) throws IOException {
+        ByteBuffer frame = record.toFrame();
+        int frameLength = frame.remaining();
+        long offset = active.append(frame);
+        LogRecord.replay(frame.slice(LogRecord.HEADER_BYTES, frameLength - LogRecord.HEADER_BYTES),
+                offset + LogRecord.HEADER_BYTES, indexer);
+        writtenBytes += frameLength;
+        totalBytes += frameLength;
+        appendCount.increment();
+        if (active.size() >= segmentBytes) {
+            roll();
+        }
+        return writtenBytes;
+    }
+
+    /**
+     * 封存活跃段并切换到新段
+     */
+    private void roll() throws IOException {
+        active.seal();
+        active = LogSegment.create(segmentPath(nextSegmentId), nextSegmentId++);
+        segments.add(active);
+        indexer.segment = active;
+    }
+
+    private void writeLiveData(LogSegment target) throws IOException {
+        LogRecord record = new LogRecord().checkpoint();
+        for (Map.Entry<String, NetworkState> entry : networks.entrySet()) {
+            String networkId = entry.getKey();
+            NetworkState state = entry.getValue();
+            record.version(networkId, state.version);
+            for (Map.Entry<String, ValueRef> node : state.nodes.entrySet()) {
+                record.putNode(networkId, node.getKey(), node.getValue().read());
+                record = flushIfFull(target, record);
+            }
+            for (Map.Entry<String, ValueRef> config : state.configs.entrySet()) {
+                record.putConfig(networkId, config.getKey(), config.getValue().read());
+                record = flushIfFull(target, record);
+            }
+            record.resetChanges(networkId, state.version);
+        }
+        if (!record.isEmpty()) {
+            target.append(record.toFrame());
+        }
+    }
+
+    private LogRecord flushIfFull(LogSegment target, LogRecord record) throws IOException {
+        if (record.size() < COMPACTION_RECORD_BYTES) {
+            return record;
+        }
+        target.append(record.toFrame());
+        return new LogRecord();
+    }
+
+    /**
+     * 打开目录并回放已有段
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + COMPACTING_SUFFIX)) {
+            for (Path path : stream) {
+                log.warn("Deleting unfinished compaction output {}", path);
+                Files.deleteIfExists(path);
+            }
+        }
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                files.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), path);
+            }
+        }
+
+        indexer = new Indexer(networks);
+        long lastId = 0;
+        for (Map.Entry<Long, Path> entry : files.entrySet()) {
+            LogSegment segment = LogSegment.open(entry.getValue(), entry.getKey());
+            indexer.segment = segment;
+            long valid = replay(segment, indexer);
+            if (valid < segment.size()) {
+                Assert.state(entry.getKey().equals(files.lastKey()), () -> "Corrupted log segment: " + entry.getValue());
+                log.warn("Discarding {} bytes of incomplete records at the end of {}", segment.size() - valid, entry.getValue());
+                segment.truncate(valid);
+            }
+            lastId = entry.getKey();
+            if (segment.size() == 0) {
+                segment.delete();
+                continue;
+            }
+            segments.add(segment);
+            totalBytes += segment.size();
+        }
+        nextSegmentId = lastId + 1;
+        active = LogSegment.create(segmentPath(nextSegmentId), nextSegmentId++);
+        segments.add(active);
+        indexer.segment = active;
+        log.info("Opened log storage {}: {} segments, {} bytes, {} networks", directory, segments.size(), totalBytes, networks.size());
+    }
+
+    /**
+     * 回放封存段中的记录
+     *
+     * @return 有效数据的长度
+     */
+    private static long replay(LogSegment segment, Indexer indexer) {
+        ByteBuffer buffer = segment.mapped();
+        int position = 0;
+        int length;
+        while ((length = LogRecord.validate(buffer, position)) >= 0) {
+            LogRecord.replay(buffer.slice(position + LogRecord.HEADER_BYTES, length), position + LogRecord.HEADER_BYTES, indexer);
+            position += LogRecord.HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * 刷写目录元数据，使改名与删除在崩溃后可见；不支持打开目录的平台上忽略
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Directory sync not supported for {}", directory, e);
+        }
+    }
+
+    private void runQuietly(Runnable task, String name) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Log storage {} failed: {}", name, directory, e);
+        }
+    }
+
+    private byte[] encodeNode(WireGuardNetworkNode node) {
+        try {
+            return blobCodec.encodeNode(node);
+        } catch (IOException e) {
+            log.error("Failed to serialize network node", e);
+            throw new RuntimeException("Failed to save network node", e);
+        }
+    }
+
+    private Map<String, byte[]> encodeConfigs(Map<String, WireGuardIniConfig> configs) {
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        configs.forEach((nodeId, config) -> encoded.put(nodeId, encodeConfig(config)));
+        return encoded;
+    }
+
+    private byte[] encodeConfig(WireGuardIniConfig config) {
+        try {
+            return blobCodec.encodeConfig(config);
+        } catch (IOException e) {
+            log.error("Failed to serialize generated config", e);
+            throw new RuntimeException("Failed to save generated config", e);
+        }
+    }
+
+    private WireGuardNetworkNode decodeNode(ValueRef ref) {
+        try {
+            return blobCodec.decodeNode(ref.read());
+        } catch (IOException e) {
+            log.error("Failed to deserialize network node", e);
+            throw new RuntimeException("Failed to get network node", e);
+        }
+    }
+
+    private WireGuardIniConfig decodeConfig(ValueRef ref) {
+        try {
+            return blobCodec.decodeConfig(ref.read());
+        } catch (IOException e) {
+            log.error("Failed to deserialize generated config", e);
+            throw new RuntimeException("Failed to get generated config", e);
+        }
+    }
+
+    /**
+     * 数据在段中的位置
+     */
+    private record ValueRef(LogSegment segment, long offset, int length) {
+
+        byte[] read() throws IOException {
+            return segment.read(offset, length);
+        }
+    }
+
+    /**
+     * 单个网络的索引
+     */
+    private static final class NetworkState {
+        private final ConcurrentNavigableMap<String, ValueRef> nodes = new ConcurrentSkipListMap<>();
+        private final ConcurrentNavigableMap<String, ValueRef> configs = new ConcurrentSkipListMap<>();
+        private final NodeChangeLog<ValueRef> changes = new NodeChangeLog<>();
+
+        /**
+         * 当前记录中尚未分配版本号的节点变更，记录末尾的版本操作把它们追加到变更日志
+         */
+        private final List<PendingChange> pending = new ArrayList<>();
+        private volatile long version;
+    }
+
+    private record PendingChange(String nodeId, NodeChange.Type type, ValueRef ref) {
+    }
+
+    /**
+     * 把记录中的操作应用到索引，写入与回放共用，保证重启后的状态与写入时一致
+     */
+    private final class Indexer implements LogRecord.Visitor {
+
+        private final Map<String, NetworkState> networks;
+
+        /**
+         * 正在写入或回放的段
+         */
+        private LogSegment segment;
+
+        /**
+         * 存活数据的估算大小
+         */
+        private long liveBytes;
+
+        private Indexer(Map<String, NetworkState> networks) {
+            this.networks = networks;
+        }
+
+        @Override
+        public void putNode(String networkId, String nodeId, long offset, int length) {
+            NetworkState state = state(networkId);
+            ValueRef ref = new ValueRef(segment, offset, length);
+            release(state.nodes.put(nodeId, ref));
+            state.pending.add(new PendingChange(nodeId, NodeChange.Type.UPSERT, ref));
+            liveBytes += length + ENTRY_OVERHEAD;
+        }
+
+        @Override
+        public void deleteNode(String networkId, String nodeId) {
+            NetworkState state = networks.get(networkId);
+            if (state != null) {
+                release(state.nodes.remove(nodeId));
+                state.pending.add(new PendingChange(nodeId, NodeChange.Type.DELETE, null));
+            }
+        }
+
+        @Override
+        public void putConfig(String networkId, String nodeId, long offset, int length) {
+            release(state(networkId).configs.put(nodeId, new ValueRef(segment, offset, length)));
+            liveBytes += length + ENTRY_OVERHEAD;
+        }
+
+        @Override
+        public void deleteConfig(String networkId, String nodeId) {
+            NetworkState state = networks.get(networkId);
+            if (state != null) {
+                release(state.configs.remove(nodeId));
+            }
+        }
+
+        @Override
+        public void version(String networkId, long version) {
+            NetworkState state = state(networkId);
+            for (PendingChange change : state.pending) {
+                state.changes.append(version, change.nodeId(), change.type(), change.ref());
+            }
+            state.pending.clear();
+            state.changes.truncate(version - changeRetention + 1);
+            state.version = version;
+        }
+
+        @Override
+        public void deleteNetwork(String networkId) {
+            NetworkState state = networks.remove(networkId);
+            if (state != null) {
+                state.nodes.values().forEach(this::release);
+                state.configs.values().forEach(this::release);
+            }
+        }
+
+        @Override
+        public void resetChanges(String networkId, long version) {
+            NetworkState state = state(networkId);
+            state.pending.clear();
+            state.changes.reset(version);
+        }
+
+        @Override
+        public void checkpoint() {
+            networks.clear();
+            liveBytes = 0;
+        }
+
+        private NetworkState state(String networkId) {
+            return networks.computeIfAbsent(networkId, k -> new NetworkState());
+        }
+
+        private void release(ValueRef ref) {
+            if (ref != null) {
+                liveBytes -= ref.length() + ENTRY_OVERHEAD;
+            }
+        }
+    }
+}
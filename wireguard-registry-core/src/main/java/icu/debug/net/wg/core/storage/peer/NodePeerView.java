@@ -0,0 +1,45 @@
+package icu.debug.net.wg.core.storage.peer;
+
+import icu.debug.net.wg.core.model.config.WireGuardInterface;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 节点配置在共享 peer 表上的视图
+ * <p>
+ * 只保存接口段与按顺序引用的 peer 下标，下标以连续区间存储：
+ * {@code runs[2i]} 为区间起点，{@code runs[2i + 1]} 为区间长度。
+ * 同一网络内大多数节点引用的 peer 是连续的，通常只有同一局域网的少数 peer 端点类型不同，区间数量很小
+ * </p>
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class NodePeerView {
+
+    /**
+     * 引用的 peer 表代数，与 peer 表不一致时视图失效
+     */
+    private final long generation;
+
+    /**
+     * 配置文件名
+     */
+    private final String name;
+
+    private final WireGuardInterface wgInterface;
+
+    private final int[] runs;
+
+    /**
+     * 引用的 peer 数量
+     */
+    public int getPeerCount() {
+        int count = 0;
+        for (int i = 1; i < runs.length; i += 2) {
+            count += runs[i];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,131 @@
+package icu.debug.net.wg.core.storage.peer;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardPeer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+import java.util.*;
+
+/**
+ * 网络共享 peer 表
+ * <p>
+ * 同一网络内每个节点的配置都包含全部节点的 [Peer] 段，仅端点类型与心跳间隔随请求节点变化，
+ * 逐个保存完整配置时存储与写入量为 N² 个 peer。
+ * peer 表按内容去重保存网络内所有不同的 peer，节点配置拆分为 {@link NodePeerView}，只记录接口段与引用的 peer 下标，
+ * 读取时再组装，每次重新生成只写入一张共享表与 N 条节点记录。
+ * </p>
+ * <p>
+ * 下标只追加不复用，部分节点重新保存时未保存节点的视图仍然有效；
+ * 覆盖表中全部节点的保存以新的代数重建 peer 表，丢弃不再被引用的 peer。
+ * peer 表不是线程安全的，修改前应先 {@link #copy()}
+ * </p>
+ */
+@Getter
+public class PeerTable {
+
+    /**
+     * 代数，重建时递增
+     */
+    private final long generation;
+
+    /**
+     * 引用当前代数的节点ID
+     */
+    private final Set<String> nodeIds;
+
+    /**
+     * 去重后的 peer，下标即视图中的引用
+     */
+    private final List<WireGuardPeer> peers;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Integer> peerIndex;
+
+    public PeerTable(long generation) {
+        this(generation, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public PeerTable(long generation, Collection<String> nodeIds, List<WireGuardPeer> peers) {
+        this.generation = generation;
+        this.nodeIds = new LinkedHashSet<>(nodeIds);
+        this.peers = new ArrayList<>(peers);
+        this.peerIndex = new HashMap<>((int) (peers.size() / 0.75f) + 1);
+        for (int i = 0; i < peers.size(); i++) {
+            this.peerIndex.putIfAbsent(peers.get(i).toIniString(), i);
+        }
+    }
+
+    /**
+     * 复制当前代数的 peer 表，peer 对象共享
+     */
+    public PeerTable copy() {
+        return new PeerTable(generation, nodeIds, peers);
+    }
+
+    /**
+     * 是否覆盖表中的全部节点，覆盖时可以重建 peer 表
+     */
+    public boolean isCoveredBy(Set<String> savingNodeIds) {
+        return savingNodeIds.containsAll(nodeIds);
+    }
+
+    /**
+     * 拆分节点配置，表中不存在的 peer 追加到末尾
+     *
+     * @return 节点视图
+     */
+    public NodePeerView split(String nodeId, WireGuardIniConfig config) {
+        nodeIds.add(nodeId);
+        List<WireGuardPeer> configPeers = config.getPeers() == null ? Collections.emptyList() : config.getPeers();
+        int[] runs = new int[8];
+        int size = 0;
+        for (WireGuardPeer peer : configPeers) {
+            int index = indexOf(peer);
+            if (size > 0 && runs[size - 2] + runs[size - 1] == index) {
+                runs[size - 1]++;
+                continue;
+            }
+            if (size == runs.length) {
+                runs = Arrays.copyOf(runs, size * 2);
+            }
+            runs[size++] = index;
+            runs[size++] = 1;
+        }
+        return new NodePeerView(generation, config.getName(), config.getWgInterface(), Arrays.copyOf(runs, size));
+    }
+
+    /**
+     * 按视图组装节点配置，组装出的配置共享表中的 peer 对象
+     */
+    public WireGuardIniConfig assemble(NodePeerView view) {
+        Assert.state(view.getGeneration() == generation,
+                () -> "Peer view generation " + view.getGeneration() + " does not match peer table generation " + generation);
+        int[] runs = view.getRuns();
+        List<WireGuardPeer> configPeers = new ArrayList<>(view.getPeerCount());
+        for (int i = 0; i < runs.length; i += 2) {
+            Assert.state(runs[i] >= 0 && runs[i] + runs[i + 1] <= peers.size(),
+                    () -> "Peer view references missing peers in generation " + generation);
+            configPeers.addAll(peers.subList(runs[i], runs[i] + runs[i + 1]));
+        }
+        return new WireGuardIniConfig(view.getName(), view.getWgInterface(), configPeers);
+    }
+
+    /**
+     * 移除节点，其引用的 peer 在下次重建时丢弃
+     */
+    public boolean removeNode(String nodeId) {
+        return nodeIds.remove(nodeId);
+    }
+
+    private int indexOf(WireGuardPeer peer) {
+        Integer index = peerIndex.get(peer.toIniString());
+        if (index != null) {
+            return index;
+        }
+        peers.add(peer);
+        peerIndex.put(peer.toIniString(), peers.size() - 1);
+        return peers.size() - 1;
+    }
+}
@@ -0,0 +1,513 @@
+package icu.debug.net.wg.core.storage.wal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * 快照加预写日志的内存存储持久化
+ * <p>
+ * 内存存储在 {@link #record(Supplier)} 中修改内存状态并返回描述这次修改的日志条目。记录锁内只修改内存、分配序号并在队列中占位，
+ * 条目在锁外由调用线程编码，不同写入方的编码互不阻塞；后台写线程按序号等待编码结果，批量追加到日志文件并每批 fsync 一次，
+ * 写入方不等待磁盘。条目必须描述修改后的结果
+ * （例如写入后的版本号），而不是增量，回放时才能得到相同状态。
+ * </p>
+ * <p>
+ * 写入磁盘失败后日志进入不可写状态，之后的 {@link #record(Supplier)} 在修改内存之前抛出异常，写线程定期尝试写入完整快照，
+ * 成功后恢复写入。
+ * </p>
+ * <p>
+ * 自上次快照以来的条目数达到阈值时，写线程在记录锁内复制一份状态，写完该序号之前的条目后切换到新的日志文件，
+ * 把快照写入临时文件并原子改名，最后删除快照已覆盖的旧日志文件。启动时加载快照并回放序号更大的条目，
+ * 截断未写完整的尾部条目。崩溃最多丢失尚未刷盘的一批条目。
+ * </p>
+ *
+ * @param <E> 日志条目类型
+ * @param <S> 快照类型
+ */
+@Slf4j
+public class WriteAheadJournal<E, S> implements Closeable {
+
+    /**
+     * 日志条目与快照的编解码器
+     */
+    public interface Codec<E, S> {
+
+        byte[] encodeEntry(E entry) throws IOException;
+
+        E decodeEntry(byte[] data) throws IOException;
+
+        byte[] encodeSnapshot(S snapshot) throws IOException;
+
+        S decodeSnapshot(byte[] data) throws IOException;
+    }
+
+    private static final String JOURNAL_SUFFIX = ".wal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * 条目帧头：负载长度、CRC32 与序号
+     */
+    private static final int HEADER_BYTES = 16;
+
+    private static final int MAX_BATCH = 4096;
+
+    /**
+     * 写入失败后重新尝试写入快照的间隔（毫秒）
+     */
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private static final Object CLOSE = new Object();
+
+    private final Path directory;
+    private final String name;
+    private final Codec<E, S> codec;
+    private final long flushIntervalMillis;
+    private final long snapshotEntries;
+
+    /**
+     * 内存修改与分配序号在同一把锁内完成，保证日志顺序与内存中的修改顺序一致
+     */
+    private final Object recordLock = new Object();
+
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    private Supplier<S> snapshotSupplier;
+    private Thread writer;
+    private long sequence;
+    private boolean closed;
+
+    // 以下字段只由写线程访问
+    private FileChannel channel;
+    private Path journalFile;
+    private long writtenSequence;
+    private long entriesSinceSnapshot;
+
+    /**
+     * 已刷盘的最大序号
+     */
+    private volatile long flushedSequence;
+
+    /**
+     * 尚未恢复的写入失败原因，为 null 表示可以正常写入
+     */
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder snapshotCount = new LongAdder();
+
+    /**
+     * @param directory           快照与日志文件目录
+     * @param name                文件名前缀，同一目录下可以存放多个存储的日志
+     * @param codec               日志条目与快照的编解码器
+     * @param flushIntervalMillis 两次 fsync 之间的最小间隔（毫秒），期间的写入合并为一批，0 表示写完即刷盘
+     * @param snapshotEntries     自上次快照以来的条目数达到该值时写入新快照
+     */
+    public WriteAheadJournal(Path directory, String name, Codec<E, S> codec, long flushIntervalMillis, long snapshotEntries) {
+        if (snapshotEntries <= 0) {
+            throw new IllegalArgumentException("snapshotEntries must be positive");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.codec = codec;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.snapshotEntries = snapshotEntries;
+    }
+
+    /**
+     * 加载快照、回放日志并启动写线程
+     *
+     * @param restorer         加载快照的回调，没有快照时不调用
+     * @param replayer         按顺序回放快照之后条目的回调
+     * @param snapshotSupplier 在记录锁内复制当前状态，应只做浅复制
+     */
+    public void open(Consumer<S> restorer, Consumer<E> replayer, Supplier<S> snapshotSupplier) {
+        Assert.state(writer == null, "Journal already opened: " + name);
+        try {
+            recover(restorer, replayer);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to recover journal: " + directory.resolve(name), e);
+        }
+        this.snapshotSupplier = snapshotSupplier;
+        writer = new Thread(this::writeLoop, name + "-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 执行一次内存修改并记录日志
+     * <p>
+     * 条目在记录锁外、返回前编码为字节，之后调用方继续修改条目引用的对象不会影响写入的内容；
+     * 返回前条目引用的对象不能被其他线程修改
+     * </p>
+     *
+     * @param mutation 修改内存状态并返回描述修改结果的条目，返回 null 表示没有修改
+     * @throws IllegalStateException 日志已关闭或写入磁盘失败尚未恢复，此时不执行修改
+     */
+    public void record(Supplier<E> mutation) {
+        E entry;
+        Pending pending;
+        synchronized (recordLock) {
+            Assert.state(!closed, "Journal is closed: " + name);
+            Exception lastFailure = failure.get();
+            if (lastFailure != null) {
+                throw new IllegalStateException("Journal is not writable: " + name, lastFailure);
+            }
+            entry = mutation.get();
+            if (entry == null) {
+                return;
+            }
+            pending = new Pending(++sequence, new CompletableFuture<>());
+            queue.add(pending);
+        }
+        try {
+            pending.payload().complete(codec.encodeEntry(entry));
+        } catch (IOException | RuntimeException e) {
+            // 内存已修改，写线程跳过这个条目，由之后的快照补齐这次修改
+            fail(e);
+            pending.payload().completeExceptionally(e);
+            throw new RuntimeException("Failed to encode journal entry: " + name, e);
+        }
+    }
+
+    /**
+     * 是否可以正常写入磁盘
+     */
+    public boolean isHealthy() {
+        return failure.get() == null;
+    }
+
+    /**
+     * 获取日志统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (recordLock) {
+            stats.put("sequence", sequence);
+        }
+        stats.put("flushedSequence", flushedSequence);
+        stats.put("pending", queue.size());
+        stats.put("flushes", flushCount.sum());
+        stats.put("snapshots", snapshotCount.sum());
+        Exception lastFailure = failure.get();
+        stats.put("healthy", lastFailure == null);
+        if (lastFailure != null) {
+            stats.put("failure", String.valueOf(lastFailure.getMessage()));
+        }
+        return stats;
+    }
+
+    /**
+     * 写完队列中的条目并写入最终快照后停止写线程
+     */
+    @Override
+    public void close() {
+        synchronized (recordLock) {
+            if (closed || writer == null) {
+                closed = true;
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                Exception observed = failure.get();
+                Object first = observed == null ? queue.take() : queue.poll(RETRY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                observed = failure.get();
+                if (first == null) {
+                    // 写入失败后没有新条目，写入完整快照以恢复
+                    snapshot();
+                    recover(observed);
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH);
+                for (Object item : batch) {
+                    if (item == CLOSE) {
+                        running = false;
+                    } else {
+                        write(cast(item));
+                    }
+                }
+                batch.clear();
+                channel.force(false);
+                flushedSequence = writtenSequence;
+                flushCount.increment();
+                if (observed != null || entriesSinceSnapshot >= snapshotEntries || (!running && entriesSinceSnapshot > 0)) {
+                    snapshot();
+                }
+                recover(observed);
+                if (running && flushIntervalMillis > 0) {
+                    Thread.sleep(flushIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (IOException | RuntimeException e) {
+                // 丢弃这一批后继续运行，内存状态不受影响，磁盘恢复后的下一次快照会补齐丢失的条目
+                fail(e);
+                log.error("Failed to write journal {}", name, e);
+                for (Object item : batch) {
+                    if (item == CLOSE) {
+                        running = false;
+                    } else {
+                        writtenSequence = Math.max(writtenSequence, cast(item).sequence());
+                    }
+                }
+                batch.clear();
+                entriesSinceSnapshot = Math.max(entriesSinceSnapshot, snapshotEntries);
+                reopenAfterFailure();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal {}", name, e);
+        }
+    }
+
+    private void fail(Exception e) {
+        failure.set(e);
+    }
+
+    /**
+     * 快照覆盖了 observed 之前的所有修改后恢复写入，期间发生新的失败时保持不可写
+     */
+    private void recover(Exception observed) {
+        if (observed != null && failure.compareAndSet(observed, null)) {
+            log.info("Journal {} is writable again", name);
+        }
+    }
+
+    /**
+     * 写入失败后换用新的日志文件，避免之后的条目排在损坏的帧后面而无法回放
+     */
+    private void reopenAfterFailure() {
+        try {
+            channel.close();
+            openJournal(writtenSequence + 1);
+        } catch (IOException e) {
+            log.error("Failed to reopen journal {}", name, e);
+        }
+    }
+
+    /**
+     * 等待调用线程编码完成后写入条目，编码失败的条目不写入，失败已记录，由之后的快照覆盖
+     */
+    private void write(Pending pending) throws IOException {
+        byte[] payload;
+        try {
+            payload = pending.payload().join();
+        } catch (CompletionException e) {
+            writtenSequence = pending.sequence();
+            return;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt(0);
+        frame.putLong(pending.sequence());
+        frame.put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 8, frame.capacity() - 8);
+        frame.putInt(4, (int) crc.getValue());
+        frame.flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        writtenSequence = pending.sequence();
+        entriesSinceSnapshot++;
+    }
+
+    /**
+     * 复制状态后写完之前的条目，切换日志文件并写入快照
+     */
+    private void snapshot() throws IOException {
+        S state;
+        long snapshotSequence;
+        synchronized (recordLock) {
+            state = snapshotSupplier.get();
+            snapshotSequence = sequence;
+        }
+        // 复制状态前分配的条目都已在队列中，且位于之后分配的条目之前
+        while (writtenSequence < snapshotSequence) {
+            Object item = queue.poll();
+            Assert.state(item != null && item != CLOSE, "Journal queue is missing entries before the snapshot");
+            write(cast(item));
+        }
+        channel.force(false);
+        List<Path> obsolete = journalFiles();
+        channel.close();
+        openJournal(snapshotSequence + 1);
+        obsolete.remove(journalFile);
+
+        byte[] payload = codec.encodeSnapshot(state);
+        Path target = directory.resolve(name + SNAPSHOT_SUFFIX);
+        Path temp = directory.resolve(name + SNAPSHOT_SUFFIX + TEMP_SUFFIX);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt(0);
+        frame.putLong(snapshotSequence);
+        frame.put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 8, frame.capacity() - 8);
+        frame.putInt(4, (int) crc.getValue());
+        frame.flip();
+        try (FileChannel snapshotChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (frame.hasRemaining()) {
+                snapshotChannel.write(frame);
+            }
+            snapshotChannel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+        syncDirectory();
+        entriesSinceSnapshot = writtenSequence - snapshotSequence;
+        snapshotCount.increment();
+        log.debug("Wrote journal snapshot {} at sequence {}", name, snapshotSequence);
+    }
+
+    private void recover(Consumer<S> restorer, Consumer<E> replayer) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(name + SNAPSHOT_SUFFIX + TEMP_SUFFIX));
+
+        long snapshotSequence = 0;
+        Path snapshotFile = directory.resolve(name + SNAPSHOT_SUFFIX);
+        if (Files.exists(snapshotFile)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+            Assert.state(validate(buffer, 0) >= 0, () -> "Corrupted journal snapshot: " + snapshotFile);
+            snapshotSequence = buffer.getLong(8);
+            restorer.accept(codec.decodeSnapshot(Arrays.copyOfRange(buffer.array(), HEADER_BYTES, buffer.limit())));
+        }
+
+        long lastSequence = snapshotSequence;
+        long replayed = 0;
+        List<Path> files = journalFiles();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            int position = 0;
+            int length;
+            while ((length = validate(buffer, position)) >= 0) {
+                long entrySequence = buffer.getLong(position + 8);
+                if (entrySequence > snapshotSequence) {
+                    byte[] payload = Arrays.copyOfRange(buffer.array(), position + HEADER_BYTES, position + HEADER_BYTES + length);
+                    replayer.accept(codec.decodeEntry(payload));
+                    replayed++;
+                }
+                lastSequence = Math.max(lastSequence, entrySequence);
+                position += HEADER_BYTES + length;
+            }
+            if (position < buffer.limit()) {
+                Assert.state(i == files.size() - 1, () -> "Corrupted journal file: " + file);
+                log.warn("Discarding {} bytes of incomplete entries at the end of {}", buffer.limit() - position, file);
+                try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    truncate.truncate(position);
+                }
+            }
+        }
+        sequence = lastSequence;
+        writtenSequence = lastSequence;
+        flushedSequence = lastSequence;
+        entriesSinceSnapshot = replayed;
+        if (files.isEmpty()) {
+            openJournal(lastSequence + 1);
+        } else {
+            journalFile = files.get(files.size() - 1);
+            channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        log.info("Recovered journal {} at sequence {} (snapshot {}, {} entries replayed)", name, lastSequence, snapshotSequence, replayed);
+    }
+
+    /**
+     * 校验指定位置的帧
+     *
+     * @return 负载长度，帧不完整或校验失败时返回 -1
+     */
+    private static int validate(ByteBuffer buffer, int position) {
+        if (buffer.limit() - position < HEADER_BYTES) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length < 0 || length > buffer.limit() - position - HEADER_BYTES) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), position + 8, length + HEADER_BYTES - 8);
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? length : -1;
+    }
+
+    private void openJournal(long startSequence) throws IOException {
+        journalFile = directory.resolve(String.format("%s-%016d%s", name, startSequence, JOURNAL_SUFFIX));
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 按起始序号排序的日志文件
+     */
+    private List<Path> journalFiles() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        String prefix = name + "-";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + JOURNAL_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                String start = fileName.substring(prefix.length(), fileName.length() - JOURNAL_SUFFIX.length());
+                if (start.chars().allMatch(Character::isDigit)) {
+                    files.put(Long.parseLong(start), path);
+                }
+            }
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    private void syncDirectory() {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            log.debug("Directory sync not supported for {}", directory, e);
+        }
+    }
+
+    private static Pending cast(Object item) {
+        return (Pending) item;
+    }
+
+    /**
+     * 按序号排队的待写入条目，编码结果由记录的调用线程在锁外填入
+     */
+    private record Pending(long sequence, CompletableFuture<byte[]> payload) {
+    }
+}
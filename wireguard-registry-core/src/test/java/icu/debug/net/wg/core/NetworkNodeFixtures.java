@@ -0,0 +1,31 @@
+package icu.debug.net.wg.core;
+
+import icu.debug.net.wg.core.model.network.ServerNode;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+
+/**
+ * 测试中使用的节点构造方法
+ */
+public final class NetworkNodeFixtures {
+
+    private NetworkNodeFixtures() {
+    }
+
+    /**
+     * 只设置主机名的节点，地址与密钥由生成器分配
+     */
+    public static WireGuardNetworkNode newNode(String hostname) {
+        ServerNode serverNode = new ServerNode();
+        serverNode.setHostname(hostname);
+        WireGuardNetworkNode node = new WireGuardNetworkNode();
+        node.setServerNode(serverNode);
+        return node;
+    }
+
+    public static WireGuardNetworkNode newNode(String hostname, String publicKey, String address) {
+        WireGuardNetworkNode node = newNode(hostname);
+        node.setPublicKey(publicKey);
+        node.setAddress(address);
+        return node;
+    }
+}
@@ -12,8 +12,10 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -252,4 +254,140 @@ class WireGuardIniConfigGeneratorTest {
         assertNull(stringWireGuardIniConfigMap.get("group-tcloud-a-01").getWgInterface().getPrivateKey());
     }
 
-}
\ No newline at end of file
+    private static WireGuardNetworkNode newNetworkNode(String hostname, String publicAddress) {
+        ServerNode serverNode = new ServerNode();
+        serverNode.setHostname(hostname);
+        serverNode.setPublicAddress(publicAddress);
+        WireGuardNetworkNode node = new WireGuardNetworkNode();
+        node.setServerNode(serverNode);
+        node.setListenPort(51820);
+        return node;
+    }
+
+    private static void assertSameAsFullBuild(WireGuardConfigGenerator generator, List<NetworkNodeConfigWrapper> changed) {
+        changed.forEach(config -> assertEquals(generator.buildConfig(config.getHostName()).getConfig().toIniString(), config.getConfig().toIniString()));
+    }
+
+    @Test
+    @DisplayName("增量新增节点")
+    void testApplyDeltaAdded() {
+        WireGuardConfigGenerator generator = new WireGuardConfigGenerator(getWireGuardNetworkStruct(), getWireGuardNetProperties());
+        Map<String, WireGuardIniConfig> before = generator.buildWireGuardIniConfigMap();
+
+        List<NetworkNodeConfigWrapper> changed = generator.applyDelta(NetworkNodeDelta.added("local", newNetworkNode("local-3", "181.1.1.3")));
+        assertEquals(8, changed.size());
+        changed.forEach(config -> assertEquals(8, config.getConfig().getPeers().size()));
+        assertSameAsFullBuild(generator, changed);
+        // 已返回的配置不受增量更新影响
+        before.values().forEach(config -> assertEquals(7, config.getPeers().size()));
+    }
+
+    @Test
+    @DisplayName("增量更新节点")
+    void testApplyDeltaUpdated() {
+        WireGuardConfigGenerator generator = new WireGuardConfigGenerator(getWireGuardNetworkStruct(), getWireGuardNetProperties());
+        generator.buildWireGuardIniConfigs();
+        String address = generator.buildConfig("group-tcloud-b-01").getConfig().getWgInterface().getAddress();
+
+        WireGuardNetworkNode node = newNetworkNode("group-tcloud-b-01", "183.1.7.100");
+        List<NetworkNodeConfigWrapper> changed = generator.applyDelta(NetworkNodeDelta.updated(null, node));
+        assertEquals(7, changed.size());
+        assertSameAsFullBuild(generator, changed);
+        // 未指定地址时沿用已分配地址
+        assertEquals(address, node.getAddress());
+        changed.stream()
+                .filter(config -> !config.getHostName().equals("group-tcloud-b-01"))
+                .flatMap(config -> config.getConfig().getPeers().stream())
+                .filter(peer -> peer.getName().equals("group-tcloud-b-01"))
+                .forEach(peer -> assertEquals("183.1.7.100:51820", peer.getEndpoint()));
+    }
+
+    @Test
+    @DisplayName("增量应用内容不变的节点变更时没有配置变化")
+    void testApplyDeltaUnchanged() {
+        WireGuardConfigGenerator generator = new WireGuardConfigGenerator(getWireGuardNetworkStruct(), getWireGuardNetProperties());
+        Map<String, WireGuardIniConfig> before = generator.buildWireGuardIniConfigMap();
+        WireGuardNetworkNode node = generator.buildConfig("local-1").getNode();
+
+        assertTrue(generator.applyDelta(NetworkNodeDelta.updated(null, node)).isEmpty());
+        assertTrue(generator.applyDelta(NetworkNodeDelta.removed("not-exist")).isEmpty());
+        assertEquals(before, generator.buildWireGuardIniConfigMap());
+    }
+
+    @Test
+    @DisplayName("增量移除节点")
+    void testApplyDeltaRemoved() {
+        WireGuardConfigGenerator generator = new WireGuardConfigGenerator(getWireGuardNetworkStruct(), getWireGuardNetProperties());
+        generator.buildWireGuardIniConfigs();
+
+        List<NetworkNodeConfigWrapper> changed = generator.applyDelta(NetworkNodeDelta.removed("local-1"));
+        assertEquals(6, changed.size());
+        changed.forEach(config -> assertTrue(config.getConfig().getPeers().stream().noneMatch(peer -> peer.getName().equals("local-1"))));
+        assertSameAsFullBuild(generator, changed);
+        assertThrows(IllegalArgumentException.class, () -> generator.buildConfig("local-1"));
+    }
+
+    @Test
+    @DisplayName("并发预先分配新节点地址无重复，应用变更时沿用预分配的地址")
+    void testPreallocateAddress() throws Exception {
+        WireGuardConfigGenerator generator = new WireGuardConfigGenerator(getWireGuardNetworkStruct(), getWireGuardNetProperties());
+        generator.buildWireGuardIniConfigs();
+        List<WireGuardNetworkNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            nodes.add(newNetworkNode("new-" + i, "181.1.3." + i));
+        }
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            pool.submit(() -> nodes.parallelStream().forEach(generator::preallocateAddress)).get();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(nodes.size(), nodes.stream().map(WireGuardNetworkNode::getAddress).distinct().count());
+
+        WireGuardNetworkNode node = nodes.get(0);
+        String address = node.getAddress();
+        List<NetworkNodeConfigWrapper> changed = generator.applyDelta(NetworkNodeDelta.added(null, node));
+        assertEquals(address, node.getAddress());
+        assertSameAsFullBuild(generator, changed);
+    }
+
+    @Test
+    @DisplayName("并行生成结果与串行一致")
+    void testBuildWithForkJoinPool() {
+        List<WireGuardNetworkNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            nodes.add(newNetworkNode("node-" + i, "181.1.2." + i));
+        }
+        LocalAreaNetwork lan = new LocalAreaNetwork();
+        lan.setName("wan");
+        lan.setNetworkType(NetworkType.WAN);
+        lan.setNetworkNodes(nodes);
+        WireGuardNetworkStruct struct = new WireGuardNetworkStruct();
+        struct.setLocalAreaNetworks(List.of(lan));
+        WireGuardConfigGenerator generator = new WireGuardConfigGenerator(struct, getWireGuardNetProperties());
+
+        List<String> sequential = generator.buildWireGuardIniConfigs().stream().map(config -> config.getConfig().toIniString()).toList();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<String> parallel = generator.buildWireGuardIniConfigs(pool).stream().map(config -> config.getConfig().toIniString()).toList();
+            assertEquals(sequential, parallel);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("相同端点类型和心跳时间的请求节点共享peer")
+    void testPeerShared() {
+        WireGuardConfigGenerator generator = new WireGuardConfigGenerator(getWireGuardNetworkStruct(), getWireGuardNetProperties());
+        Map<String, WireGuardIniConfig> configs = generator.buildWireGuardIniConfigMap();
+        // group-tcloud-b-01 与 group-ali-cloud-C-01 均位于其他局域网，看到的 local-1 均为公网端点
+        WireGuardPeer fromB = configs.get("group-tcloud-b-01").getPeers().stream().filter(peer -> peer.getName().equals("local-1")).findFirst().orElseThrow();
+        WireGuardPeer fromC = configs.get("group-ali-cloud-C-01").getPeers().stream().filter(peer -> peer.getName().equals("local-1")).findFirst().orElseThrow();
+        assertSame(fromB, fromC);
+        WireGuardPeer fromLocal = configs.get("local-2").getPeers().stream().filter(peer -> peer.getName().equals("local-1")).findFirst().orElseThrow();
+        assertNotSame(fromB, fromLocal);
+        assertEquals("10.0.4.1:5219", fromLocal.getEndpoint());
+    }
+
+}
@@ -0,0 +1,181 @@
+package icu.debug.net.wg.core.auth;
+
+import icu.debug.net.wg.core.auth.storage.impl.MemoryAuthStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.curve25519.Curve25519;
+import org.whispersystems.curve25519.Curve25519KeyPair;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("节点签名验证与公钥缓存测试")
+class NodeAuthServiceTest {
+
+    private final Curve25519 curve25519 = Curve25519.getInstance(Curve25519.BEST);
+
+    @Test
+    @DisplayName("公钥缓存命中后不再读取存储，注册与删除公钥时失效")
+    void testCachedPublicKey() {
+        CountingAuthStorage storage = new CountingAuthStorage();
+        NodeAuthService service = new NodeAuthService(storage, new NodePublicKeyCache(16, 0));
+        Curve25519KeyPair keyPair = curve25519.generateKeyPair();
+        service.registerNodePublicKey("node-a", encode(keyPair.getPublicKey()));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.verifyNodeSignature("node-a", sign(keyPair, "heartbeat:" + i), "heartbeat:" + i));
+        }
+        assertEquals(1, storage.reads.get());
+        assertFalse(service.verifyNodeSignature("node-b", sign(keyPair, "heartbeat"), "heartbeat"));
+
+        Curve25519KeyPair rotated = curve25519.generateKeyPair();
+        service.registerNodePublicKey("node-a", encode(rotated.getPublicKey()));
+        assertTrue(service.verifyNodeSignature("node-a", sign(rotated, "heartbeat"), "heartbeat"));
+        assertFalse(service.verifyNodeSignature("node-a", sign(keyPair, "heartbeat"), "heartbeat"));
+
+        service.removeNodePublicKey("node-a");
+        assertFalse(service.verifyNodeSignature("node-a", sign(rotated, "heartbeat"), "heartbeat"));
+    }
+
+    @Test
+    @DisplayName("其他实例更新公钥后，验证失败时重新读取存储")
+    void testReloadAfterRemoteUpdate() throws InterruptedException {
+        CountingAuthStorage storage = new CountingAuthStorage();
+        NodeAuthService service = new NodeAuthService(storage, new NodePublicKeyCache(16, 0));
+        Curve25519KeyPair keyPair = curve25519.generateKeyPair();
+        service.registerNodePublicKey("node-a", encode(keyPair.getPublicKey()));
+        assertTrue(service.verifyNodeSignature("node-a", sign(keyPair, "heartbeat"), "heartbeat"));
+
+        // 直接修改存储，模拟其他实例上的重新注册
+        Curve25519KeyPair rotated = curve25519.generateKeyPair();
+        storage.saveNodePublicKey("node-a", encode(rotated.getPublicKey()));
+        Thread.sleep(1100);
+        assertTrue(service.verifyNodeSignature("node-a", sign(rotated, "heartbeat"), "heartbeat"));
+        int reads = storage.reads.get();
+        // 错误签名在重新读取间隔内不会再次读取存储
+        assertFalse(service.verifyNodeSignature("node-a", sign(keyPair, "heartbeat"), "heartbeat"));
+        assertEquals(reads, storage.reads.get());
+    }
+
+    @Test
+    @DisplayName("缓存不存在的节点，容量超出后淘汰，失效期间加载的旧公钥不写入缓存")
+    void testCache() throws Exception {
+        NodePublicKeyCache cache = new NodePublicKeyCache(2, 0);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, byte[]> missing = nodeId -> {
+            loads.incrementAndGet();
+            return null;
+        };
+        assertNull(cache.get("node-x", missing));
+        assertNull(cache.get("node-x", missing));
+        assertEquals(1, loads.get());
+
+        cache.get("node-a", nodeId -> new byte[]{1});
+        cache.get("node-b", nodeId -> new byte[]{2});
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        // 加载期间失效，加载结果返回给调用方但不留在缓存中
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Thread loader = new Thread(() -> cache.get("node-c", nodeId -> {
+            loading.countDown();
+            try {
+                invalidated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new byte[]{3};
+        }));
+        loader.start();
+        loading.await();
+        cache.invalidate("node-c");
+        invalidated.countDown();
+        loader.join();
+        assertArrayEquals(new byte[]{4}, cache.get("node-c", nodeId -> new byte[]{4}));
+        assertThrows(IllegalArgumentException.class, () -> new NodePublicKeyCache(0, 0));
+    }
+
+    @Test
+    @DisplayName("容量超出后淘汰最久未访问的条目，大量不存在的节点ID不会挤掉最近读取的公钥")
+    void testRecentlyReadKeySurvivesOverflow() {
+        NodePublicKeyCache cache = new NodePublicKeyCache(10, 0);
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, byte[]> loader = nodeId -> {
+            loads.incrementAndGet();
+            return nodeId.equals("node-a") ? new byte[]{1} : null;
+        };
+        cache.get("node-a", loader);
+        for (int i = 0; i < 100; i++) {
+            assertNull(cache.get("unknown-" + i, loader));
+            assertArrayEquals(new byte[]{1}, cache.get("node-a", loader));
+            assertTrue(cache.size() <= 10, "size " + cache.size());
+        }
+        // node-a 只在首次读取时加载
+        assertEquals(101, loads.get());
+        assertTrue(cache.getEvictionCount() >= 90);
+    }
+
+    @Test
+    @DisplayName("批量验证签名，结果按请求顺序返回")
+    void testBatchVerification() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NodeAuthService service = new NodeAuthService(new MemoryAuthStorage(), new NodePublicKeyCache(16, 0), pool);
+            Curve25519KeyPair keyPair = curve25519.generateKeyPair();
+            Curve25519KeyPair other = curve25519.generateKeyPair();
+            service.registerNodePublicKey("node-a", encode(keyPair.getPublicKey()));
+            long timestamp = service.getCurrentTimestamp();
+
+            List<SignedMessage> messages = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String data = "net:node-a:" + i;
+                if (i % 10 == 3) {
+                    messages.add(new SignedMessage("node-a", sign(other, data + ":" + timestamp), data, timestamp));
+                } else if (i % 10 == 7) {
+                    // 过期的时间戳
+                    messages.add(new SignedMessage("node-a", sign(keyPair, data + ":" + (timestamp - 3600)), data, timestamp - 3600));
+                } else {
+                    messages.add(new SignedMessage("node-a", sign(keyPair, data + ":" + timestamp), data, timestamp));
+                }
+            }
+            BitSet valid = service.verifySignaturesWithTimestamp(messages);
+            for (int i = 0; i < messages.size(); i++) {
+                assertEquals(i % 10 != 3 && i % 10 != 7, valid.get(i), "message " + i);
+            }
+            assertEquals(80, valid.cardinality());
+            assertTrue(service.verifySignaturesWithTimestamp(List.of()).isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private String sign(Curve25519KeyPair keyPair, String message) {
+        return encode(curve25519.calculateSignature(keyPair.getPrivateKey(), message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private static class CountingAuthStorage extends MemoryAuthStorage {
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public Optional<String> getNodePublicKey(String nodeId) {
+            reads.incrementAndGet();
+            return super.getNodePublicKey(nodeId);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package icu.debug.net.wg.core.benchmark;
+
+import icu.debug.net.wg.core.model.network.ConcurrentNetAddressAllocator;
+import icu.debug.net.wg.core.model.network.NetAddressAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地址分配器并发基准测试
+ * <p>
+ * 对比加锁的 {@link NetAddressAllocator} 与基于 CAS 的 {@link ConcurrentNetAddressAllocator}，
+ * 每次操作分配一个地址后立即释放，保持子网占用率稳定。运行方式：执行 {@link #main(String[])}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetAddressAllocatorBenchmark {
+
+    /**
+     * 预先占用的地址数量
+     */
+    @Param({"0", "30000"})
+    public int preallocated;
+
+    private NetAddressAllocator lockedAllocator;
+
+    private ConcurrentNetAddressAllocator concurrentAllocator;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        lockedAllocator = new NetAddressAllocator("10.201.0.1/16");
+        concurrentAllocator = new ConcurrentNetAddressAllocator("10.201.0.1/16");
+        for (int i = 0; i < preallocated; i++) {
+            lockedAllocator.allocateAddress();
+            concurrentAllocator.allocateAddress();
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int locked() {
+        int address;
+        synchronized (lockedAllocator) {
+            address = lockedAllocator.allocateAddress().getAsInt();
+        }
+        synchronized (lockedAllocator) {
+            lockedAllocator.releaseIP(address);
+        }
+        return address;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int concurrent() {
+        OptionalInt address = concurrentAllocator.allocateAddress();
+        concurrentAllocator.releaseIP(address.getAsInt());
+        return address.getAsInt();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(NetAddressAllocatorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,111 @@
+package icu.debug.net.wg.core.benchmark;
+
+import icu.debug.net.wg.core.helper.WireGuardGenKeyHelper;
+import icu.debug.net.wg.core.model.network.ServerNode;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.impl.CompactNetworkNode;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 内存存储每个节点占用堆内存的基准测试
+ * <p>
+ * 分别把 10k 与 100k 个节点保存到普通 Map（规范化之前的存储方式）、保存 {@link CompactNetworkNode} 的 Map
+ * 与 {@link MemoryConfigStorage}（另含二级索引与变更日志），对比保存前后的已用堆内存，输出每个节点的字节数。每个节点的 dns 与命令列表内容相同但实例独立，
+ * 与反序列化注册请求得到的节点一致。结果受 GC 影响，建议使用较小的堆并多运行几次，例如 -Xmx1g。
+ * 运行方式：执行 {@link #main(String[])}
+ * </p>
+ */
+public class NodeMemoryBenchmark {
+
+    private static final int[] NODE_COUNTS = {10_000, 100_000};
+
+    public static void main(String[] args) {
+        // 预热类加载与规范化池
+        for (Mode mode : Mode.values()) {
+            measure(1_000, mode);
+        }
+        for (int nodeCount : NODE_COUNTS) {
+            long plain = measure(nodeCount, Mode.PLAIN);
+            long compact = measure(nodeCount, Mode.COMPACT);
+            long storage = measure(nodeCount, Mode.STORAGE);
+            System.out.printf("nodes=%d plain=%d compact=%d storage=%d bytes/node, compact saved %.1f%%%n",
+                    nodeCount, plain / nodeCount, compact / nodeCount, storage / nodeCount, 100.0 * (plain - compact) / plain);
+        }
+    }
+
+    private static long measure(int nodeCount, Mode mode) {
+        long before = usedHeap();
+        List<WireGuardNetworkNode> nodes = newNodes(nodeCount);
+        Object retained;
+        if (mode == Mode.STORAGE) {
+            MemoryConfigStorage storage = new MemoryConfigStorage();
+            nodes.forEach(node -> storage.saveNetworkNode("net", node));
+            retained = storage;
+        } else {
+            Map<String, WireGuardNetworkNode> storage = new ConcurrentSkipListMap<>();
+            nodes.forEach(node -> storage.put(node.getServerNode().getHostname(),
+                    mode == Mode.COMPACT ? CompactNetworkNode.of(node) : node));
+            retained = storage;
+        }
+        // 只保留存储持有的数据
+        nodes.clear();
+        long used = usedHeap() - before;
+        Reference.reachabilityFence(retained);
+        return used;
+    }
+
+    private static List<WireGuardNetworkNode> newNodes(int nodeCount) {
+        Random random = new Random(nodeCount);
+        List<WireGuardNetworkNode> nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            ServerNode serverNode = new ServerNode();
+            serverNode.setHostname("node-" + i);
+            serverNode.setPublicAddress("203.0." + (i >> 8 & 0xff) + "." + (i & 0xff));
+            WireGuardNetworkNode node = new WireGuardNetworkNode();
+            node.setServerNode(serverNode);
+            node.setAddress("10.201." + (i >> 8 & 0xff) + "." + (i & 0xff) + "/32");
+            node.setListenPort(51820);
+            node.setPrivateKey(randomKey(random));
+            node.setPublicKey(WireGuardGenKeyHelper.genPubKeyByPrivateKey(node.getPrivateKey()));
+            node.setDns(new ArrayList<>(List.of(new String("1.1.1.1"), new String("8.8.8.8"))));
+            node.setTable(new String("off"));
+            node.setPostUp(new ArrayList<>(List.of(new String("iptables -A FORWARD -i %i -j ACCEPT"),
+                    new String("iptables -t nat -A POSTROUTING -o eth0 -j MASQUERADE"))));
+            node.setPostDown(new ArrayList<>(List.of(new String("iptables -D FORWARD -i %i -j ACCEPT"),
+                    new String("iptables -t nat -D POSTROUTING -o eth0 -j MASQUERADE"))));
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static String randomKey(Random random) {
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    private enum Mode {
+        PLAIN, COMPACT, STORAGE
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,116 @@
+package icu.debug.net.wg.core.benchmark;
+
+import icu.debug.net.wg.core.auth.NodeAuthService;
+import icu.debug.net.wg.core.auth.NodePublicKeyCache;
+import icu.debug.net.wg.core.auth.SignedMessage;
+import icu.debug.net.wg.core.auth.storage.impl.MemoryAuthStorage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.whispersystems.curve25519.Curve25519;
+import org.whispersystems.curve25519.Curve25519KeyPair;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 签名批量验证基准测试
+ * <p>
+ * 对比逐个调用 {@link NodeAuthService#verifySignatureWithTimestamp} 与按 CPU 核数并行的
+ * {@link NodeAuthService#verifySignaturesWithTimestamp}，结果为每个签名的平均耗时。运行方式：执行 {@link #main(String[])}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureVerificationBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * 注册的节点数量
+     */
+    @Param({"100", "1000"})
+    public int nodeCount;
+
+    private final Curve25519 curve25519 = Curve25519.getInstance(Curve25519.BEST);
+
+    private ForkJoinPool pool;
+
+    private NodeAuthService authService;
+
+    private List<Curve25519KeyPair> keyPairs;
+
+    private List<SignedMessage> messages;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        authService = new NodeAuthService(new MemoryAuthStorage(), new NodePublicKeyCache(nodeCount, 0), pool);
+        keyPairs = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            Curve25519KeyPair keyPair = curve25519.generateKeyPair();
+            authService.registerNodePublicKey("node-" + i, Base64.getEncoder().encodeToString(keyPair.getPublicKey()));
+            keyPairs.add(keyPair);
+        }
+    }
+
+    /**
+     * 每轮重新签名，时间戳保持在有效期内
+     */
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        long timestamp = Instant.now().getEpochSecond();
+        messages = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int node = i % nodeCount;
+            String data = "net:node-" + node + ":true";
+            byte[] signature = curve25519.calculateSignature(keyPairs.get(node).getPrivateKey(),
+                    (data + ":" + timestamp).getBytes(StandardCharsets.UTF_8));
+            messages.add(new SignedMessage("node-" + node, Base64.getEncoder().encodeToString(signature), data, timestamp));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int single() {
+        int valid = 0;
+        for (SignedMessage message : messages) {
+            if (authService.verifySignatureWithTimestamp(message.getNodeId(), message.getSignature(),
+                    message.getData(), message.getTimestamp())) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int batch() {
+        BitSet valid = authService.verifySignaturesWithTimestamp(messages);
+        return valid.cardinality();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SignatureVerificationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,74 @@
+package icu.debug.net.wg.core.helper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("公钥派生缓存测试")
+class PublicKeyCacheTest {
+
+    private static final String PRIVATE_KEY = "oKcbRtbaw+wooOQ6dxe5/5yvfjht9yc13YA/SJEXfmQ=";
+
+    private static final String PUBLIC_KEY = "bVlrpsmGYeVheI5g9RPcMIjhcVkW92rKi0R2mO6X7TY=";
+
+    @Test
+    @DisplayName("命中与未命中计数")
+    void testHitAndMiss() {
+        PublicKeyCache cache = new PublicKeyCache(16);
+        assertEquals(PUBLIC_KEY, cache.getPublicKey(PRIVATE_KEY));
+        assertEquals(PUBLIC_KEY, cache.getPublicKey(PRIVATE_KEY));
+        assertEquals(PUBLIC_KEY, cache.getPublicKey(PRIVATE_KEY));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("超出容量后淘汰条目，刚写入的条目保留")
+    void testEviction() {
+        PublicKeyCache cache = new PublicKeyCache(2);
+        cache.getPublicKey(WireGuardGenKeyHelper.genPrivateKey());
+        cache.getPublicKey(WireGuardGenKeyHelper.genPrivateKey());
+        cache.getPublicKey(PRIVATE_KEY);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        assertEquals(PUBLIC_KEY, cache.getPublicKey(PRIVATE_KEY));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    @DisplayName("多线程并发派生结果一致")
+    void testConcurrentAccess() throws InterruptedException {
+        PublicKeyCache cache = new PublicKeyCache(16);
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    results.add(cache.getPublicKey(PRIVATE_KEY));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800, results.size());
+        assertTrue(results.stream().allMatch(PUBLIC_KEY::equals));
+        assertEquals(800, cache.getHitCount() + cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("容量必须为正数")
+    void testInvalidMaxSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PublicKeyCache(0));
+    }
+}
@@ -6,6 +6,11 @@ import icu.debug.net.wg.core.model.config.WireGuardPeer;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,7 +39,44 @@ class WireGuardIniConfigTest {
     @Test
     @DisplayName("WireGuard配置文本生成测试")
     void toIniString() {
+        WireGuardIniConfig config = newConfig();
 
+        assertEquals(TEST_INI_CONTENT, config.toIniString());
+        assertEquals("wg0",config.getName());
+    }
+
+    @Test
+    @DisplayName("WireGuard配置流式写入测试")
+    void writeTo() throws IOException {
+        WireGuardIniConfig config = newConfig();
+
+        StringWriter writer = new StringWriter();
+        config.writeTo(writer);
+        assertEquals(TEST_INI_CONTENT, writer.toString());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        config.writeTo(stream);
+        assertEquals(TEST_INI_CONTENT, stream.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream channelStream = new ByteArrayOutputStream();
+        config.writeTo(Channels.newChannel(channelStream));
+        assertEquals(TEST_INI_CONTENT, channelStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("WireGuard配置按字段比较，渲染缓存不影响比较结果")
+    void testEquals() {
+        WireGuardIniConfig config = newConfig();
+        WireGuardIniConfig other = newConfig();
+        config.toIniString();
+        assertEquals(config, other);
+        assertEquals(config.hashCode(), other.hashCode());
+
+        other.getPeers().get(1).setPersistentKeepalive(30);
+        assertNotEquals(config, other);
+    }
+
+    private static WireGuardIniConfig newConfig() {
         WireGuardInterface wgInterface = new WireGuardInterface();
         wgInterface.setName("unit.test");
         wgInterface.setAddress("192.0.2.3/32");
@@ -49,8 +91,6 @@ class WireGuardIniConfigTest {
         config.setName("wg0");
         config.setWgInterface(wgInterface);
         config.setPeers(Arrays.asList(peer, peer));
-
-        assertEquals(TEST_INI_CONTENT, config.toIniString());
-        assertEquals("wg0",config.getName());
+        return config;
     }
 }
\ No newline at end of file
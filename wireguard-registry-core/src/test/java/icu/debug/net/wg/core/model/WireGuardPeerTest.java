@@ -4,7 +4,10 @@ import icu.debug.net.wg.core.model.config.WireGuardPeer;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +33,20 @@ class WireGuardPeerTest {
         assertEquals(PEER_EXAMPLE, peer.toIniString());
     }
 
+    @Test
+    @DisplayName("AllowedIPs 设置后复制为不可修改的列表，已渲染的文本不会过期")
+    void allowedIPsCopiedOnSet() {
+        WireGuardPeer peer = new WireGuardPeer();
+        List<String> allowedIPs = new ArrayList<>(List.of("10.201.1.1/32"));
+        peer.setAllowedIPs(allowedIPs);
+        String rendered = peer.toIniString();
+
+        allowedIPs.add("10.201.2.0/24");
+        assertEquals(List.of("10.201.1.1/32"), peer.getAllowedIPs());
+        assertThrows(UnsupportedOperationException.class, () -> peer.getAllowedIPs().add("10.201.2.0/24"));
+        assertEquals(rendered, peer.toIniString());
+    }
+
     @Test
     @DisplayName("Peer转ini配置部分字段为空场景测试")
     void toIniStringWithFieldEmpty() {
@@ -47,4 +64,33 @@ class WireGuardPeerTest {
                 peer.toIniString()
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Peer渲染结果缓存及修改后失效")
+    void toIniStringCached() {
+        WireGuardPeer peer = new WireGuardPeer();
+        peer.setName("unit.test");
+        peer.setPublicKey("TestXasdfqwerqrwerq=");
+        String ini = peer.toIniString();
+        assertSame(ini, peer.toIniString());
+
+        peer.setPersistentKeepalive(25);
+        assertNotSame(ini, peer.toIniString());
+        assertTrue(peer.toIniString().endsWith("PersistentKeepalive = 25"));
+    }
+
+    @Test
+    @DisplayName("Peer直接写入目标与渲染文本一致")
+    void writeIni() throws IOException {
+        WireGuardPeer peer = new WireGuardPeer();
+        peer.setName("unit.test");
+        peer.setEndpoint("unit.test:51820");
+        peer.setPublicKey("TestXasdfqwerqrwerq=");
+        peer.setAllowedIPs(Arrays.asList("10.201.1.1/32", "10.201.2.0/24"));
+        peer.setPersistentKeepalive(25);
+        StringBuilder out = new StringBuilder();
+        peer.writeIni(out);
+        assertEquals(peer.toIniString(), out.toString());
+        assertTrue(out.toString().contains("AllowedIPs = 10.201.1.1/32,10.201.2.0/24"));
+    }
+}
@@ -0,0 +1,116 @@
+package icu.debug.net.wg.core.model.network;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("并发子网分配器测试")
+class ConcurrentNetAddressAllocatorTest {
+
+    private static final int THREADS = 32;
+
+    @Test
+    @DisplayName("与顺序分配器结果一致")
+    void testSequential() {
+        ConcurrentNetAddressAllocator allocator = new ConcurrentNetAddressAllocator("10.2.1.1", "255.255.0.0");
+        assertEquals("10.2.0.1", allocator.allocateIP().get());
+        allocator.registerAllocatedIP("10.2.0.2");
+        assertTrue(allocator.isAllocated("10.2.0.2"));
+        assertFalse(allocator.isAllocated("10.3.0.2"));
+        assertEquals("10.2.0.3", allocator.allocateIP().get());
+        allocator.releaseIP("10.2.0.1");
+        assertFalse(allocator.isAllocated("10.2.0.1"));
+        assertEquals("10.2.0.1", allocator.allocateIP().get());
+        assertEquals(3, allocator.getAllocatedCount());
+    }
+
+    @Test
+    @DisplayName("ip分配为空")
+    void testAllocateEmpty() {
+        ConcurrentNetAddressAllocator allocator = new ConcurrentNetAddressAllocator("10.2.1.1", "255.255.255.252");
+        assertTrue(allocator.allocateIP().isPresent());
+        assertTrue(allocator.allocateIP().isPresent());
+        assertTrue(allocator.allocateIP().isEmpty());
+    }
+
+    @Test
+    @DisplayName("并发分配无重复")
+    void testConcurrentAllocateUnique() throws Exception {
+        ConcurrentNetAddressAllocator allocator = new ConcurrentNetAddressAllocator("10.2.0.0/16");
+        int hostCount = 65534;
+        List<List<Integer>> results = runConcurrently(THREADS, () -> {
+            List<Integer> addresses = new ArrayList<>();
+            OptionalInt address;
+            while ((address = allocator.allocateAddress()).isPresent()) {
+                addresses.add(address.getAsInt());
+            }
+            return addresses;
+        });
+
+        Set<Integer> unique = new HashSet<>();
+        int total = 0;
+        for (List<Integer> addresses : results) {
+            total += addresses.size();
+            unique.addAll(addresses);
+        }
+        assertEquals(hostCount, total);
+        assertEquals(hostCount, unique.size());
+        assertEquals(hostCount, allocator.getAllocatedCount());
+    }
+
+    @Test
+    @DisplayName("并发分配与释放无重复持有")
+    void testConcurrentAllocateRelease() throws Exception {
+        ConcurrentNetAddressAllocator allocator = new ConcurrentNetAddressAllocator("10.2.0.0/24");
+        Set<Integer> held = ConcurrentHashMap.newKeySet();
+        List<Integer> duplicates = runConcurrently(THREADS, () -> {
+            int duplicate = 0;
+            for (int i = 0; i < 5000; i++) {
+                OptionalInt address = allocator.allocateAddress();
+                if (address.isEmpty()) {
+                    continue;
+                }
+                if (!held.add(address.getAsInt())) {
+                    duplicate++;
+                    continue;
+                }
+                held.remove(address.getAsInt());
+                allocator.releaseIP(address.getAsInt());
+            }
+            return duplicate;
+        });
+        assertTrue(duplicates.stream().allMatch(count -> count == 0));
+        assertEquals(0, allocator.getAllocatedCount());
+        // 释放的地址都可以被重新分配
+        for (int i = 0; i < 254; i++) {
+            assertTrue(allocator.allocateAddress().isPresent());
+        }
+        assertTrue(allocator.allocateAddress().isEmpty());
+    }
+
+    private static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -84,4 +84,45 @@ class NetAddressAllocatorTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("整数地址分配")
+    void testIntegerAddress() {
+        NetAddressAllocator netAddressAllocator = new NetAddressAllocator("10.2.1.1", "255.255.0.0");
+        int address = netAddressAllocator.allocateAddress().getAsInt();
+        assertEquals("10.2.0.1", NetAddressAllocator.toAddress(address));
+        assertEquals(address, NetAddressAllocator.toInteger("10.2.0.1"));
+        assertTrue(netAddressAllocator.isAllocated(address));
+        assertEquals(-1, NetAddressAllocator.toInteger("10.2.333.1"));
+        assertEquals(-1, NetAddressAllocator.toInteger("10.2.1"));
+        netAddressAllocator.releaseIP(address);
+        assertFalse(netAddressAllocator.isAllocated("10.2.0.1"));
+    }
+
+    @Test
+    @DisplayName("释放后优先复用最小地址")
+    void testReuseLowestReleased() {
+        NetAddressAllocator netAddressAllocator = new NetAddressAllocator("10.2.1.1", "255.255.0.0");
+        for (int i = 0; i < 10; i++) {
+            netAddressAllocator.allocateIP();
+        }
+        netAddressAllocator.releaseIP("10.2.0.3");
+        netAddressAllocator.releaseIP("10.2.0.7");
+        assertEquals("10.2.0.3", netAddressAllocator.allocateIP().get());
+        assertEquals("10.2.0.7", netAddressAllocator.allocateIP().get());
+        assertEquals("10.2.0.11", netAddressAllocator.allocateIP().get());
+    }
+
+    @Test
+    @DisplayName("大子网分配")
+    void testLargeSubnet() {
+        NetAddressAllocator netAddressAllocator = new NetAddressAllocator("10.0.0.0/8");
+        netAddressAllocator.registerAllocatedIP("10.0.0.1");
+        assertEquals("10.0.0.2", netAddressAllocator.allocateIP().get());
+        for (int i = 0; i < 65534; i++) {
+            assertTrue(netAddressAllocator.allocateAddress().isPresent());
+        }
+        assertEquals(65536, netAddressAllocator.getAllocatedCount());
+        assertEquals("10.1.0.1", netAddressAllocator.allocateIP().get());
+    }
+}
@@ -0,0 +1,176 @@
+package icu.debug.net.wg.core.registry;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.registry.impl.AsyncListenerDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("监听器异步分发测试")
+class AsyncListenerDispatcherTest {
+
+    private AsyncListenerDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("慢监听器不阻塞调用方且保持顺序")
+    void testSlowListenerDoesNotBlock() throws InterruptedException {
+        dispatcher = new AsyncListenerDispatcher(2, 100, AsyncListenerDispatcher.OverflowPolicy.DROP_OLDEST);
+        RecordingListener slow = new RecordingListener(new CountDownLatch(1));
+        RecordingListener fast = new RecordingListener(null);
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= 10; i++) {
+            dispatcher.dispatchConfigChanged(slow, "net", "slow", null, null, i);
+            dispatcher.dispatchConfigChanged(fast, "net", "fast", null, null, i);
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+
+        waitUntil(() -> fast.versions.size() == 10);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), fast.versions);
+        assertTrue(slow.versions.size() <= 1);
+
+        slow.gate.countDown();
+        waitUntil(() -> slow.versions.size() == 10);
+        assertEquals(fast.versions, slow.versions);
+    }
+
+    @Test
+    @DisplayName("队列满时丢弃最早事件")
+    void testDropOldest() throws InterruptedException {
+        dispatcher = new AsyncListenerDispatcher(1, 3, AsyncListenerDispatcher.OverflowPolicy.DROP_OLDEST);
+        RecordingListener listener = blockFirstDelivery();
+        for (int i = 2; i <= 6; i++) {
+            dispatcher.dispatchConfigChanged(listener, "net", "node", null, null, i);
+        }
+        listener.gate.countDown();
+        waitUntil(() -> listener.versions.size() == 4);
+        assertEquals(List.of(1L, 4L, 5L, 6L), listener.versions);
+        assertEquals(2L, dispatcher.getStats().get("dropped"));
+    }
+
+    @Test
+    @DisplayName("队列满时合并为最新版本")
+    void testCoalesceLatest() throws InterruptedException {
+        dispatcher = new AsyncListenerDispatcher(1, 3, AsyncListenerDispatcher.OverflowPolicy.COALESCE_LATEST);
+        RecordingListener listener = blockFirstDelivery();
+        WireGuardIniConfig first = new WireGuardIniConfig();
+        dispatcher.dispatchConfigChanged(listener, "net", "node", first, null, 2);
+        dispatcher.dispatchNodeOffline(listener, "net", "other");
+        dispatcher.dispatchConfigChanged(listener, "net", "node", null, null, 3);
+        dispatcher.dispatchConfigChanged(listener, "net", "node", null, null, 4);
+        listener.gate.countDown();
+        waitUntil(() -> listener.versions.size() == 2 && listener.offline.size() == 1);
+        Thread.sleep(50);
+        assertEquals(List.of(1L, 4L), listener.versions);
+        assertSame(first, listener.lastOldConfig);
+        assertEquals(2L, dispatcher.getStats().get("coalesced"));
+    }
+
+    @Test
+    @DisplayName("equals 相同的不同监听器使用各自的队列")
+    void testListenersKeyedByIdentity() throws InterruptedException {
+        dispatcher = new AsyncListenerDispatcher(2, 100, AsyncListenerDispatcher.OverflowPolicy.DROP_OLDEST);
+        RecordingListener first = new EqualListener();
+        RecordingListener second = new EqualListener();
+        assertEquals(first, second);
+        dispatcher.dispatchConfigChanged(first, "net", "node", null, null, 1);
+        dispatcher.dispatchConfigChanged(second, "net", "node", null, null, 2);
+        waitUntil(() -> first.versions.size() == 1 && second.versions.size() == 1);
+        assertEquals(List.of(1L), first.versions);
+        assertEquals(List.of(2L), second.versions);
+        assertEquals(2, dispatcher.getStats().get("listeners"));
+
+        dispatcher.remove(new EqualListener());
+        assertEquals(2, dispatcher.getStats().get("listeners"));
+        dispatcher.remove(first);
+        assertEquals(1, dispatcher.getStats().get("listeners"));
+    }
+
+    private RecordingListener blockFirstDelivery() throws InterruptedException {
+        RecordingListener listener = new RecordingListener(new CountDownLatch(1));
+        dispatcher.dispatchConfigChanged(listener, "net", "node", null, null, 1);
+        waitUntil(() -> listener.entered.getCount() == 0);
+        return listener;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * 所有实例 equals 相同的监听器
+     */
+    private static class EqualListener extends RecordingListener {
+
+        EqualListener() {
+            super(null);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EqualListener;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
+    private static class RecordingListener implements ConfigChangeListener {
+
+        private final CountDownLatch gate;
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final List<Long> versions = new CopyOnWriteArrayList<>();
+
+        private final List<String> offline = new CopyOnWriteArrayList<>();
+
+        private volatile WireGuardIniConfig lastOldConfig;
+
+        RecordingListener(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void onConfigChanged(String networkId, String nodeId, WireGuardIniConfig oldConfig, WireGuardIniConfig newConfig, long version) {
+            entered.countDown();
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lastOldConfig = oldConfig;
+            versions.add(version);
+        }
+
+        @Override
+        public void onNodeOffline(String networkId, String nodeId) {
+            offline.add(nodeId);
+        }
+
+        @Override
+        public void onNetworkDeleted(String networkId) {
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package icu.debug.net.wg.core.registry;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.registry.impl.DefaultConfigRegistry;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("配置注册中心测试")
+class DefaultConfigRegistryTest {
+
+    @Test
+    @DisplayName("合并重新生成时保存分配的地址与密钥，再次生成后保持不变")
+    void testAssignmentsKeptAcrossRegenerations() throws InterruptedException {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        try (DefaultConfigRegistry registry = new DefaultConfigRegistry(storage, defaultProperties(), 20, 200)) {
+            registry.registerNode("net", newNode("node-a"));
+            registry.registerNode("net", newNode("node-b"));
+            await(() -> registry.getNodeConfig("net", "node-b") != null);
+
+            Map<String, List<String>> assigned = assignments(registry.getNodes("net"));
+            assigned.values().forEach(values -> assertFalse(values.contains(null), values.toString()));
+
+            // 新节点触发的重新生成与手动重新生成都沿用已分配的值
+            registry.registerNode("net", newNode("node-c"));
+            await(() -> registry.getNodeConfig("net", "node-c") != null);
+            registry.generateAndDistributeConfig("net");
+
+            Map<String, List<String>> regenerated = assignments(registry.getNodes("net"));
+            assertEquals(assigned.get("node-a"), regenerated.get("node-a"));
+            assertEquals(assigned.get("node-b"), regenerated.get("node-b"));
+            assertTrue(registry.getNodeConfig("net", "node-b").getPeers().stream()
+                    .anyMatch(peer -> peer.getPublicKey().equals(assigned.get("node-a").get(2))));
+        }
+    }
+
+    @Test
+    @DisplayName("配置变更事件携带提交时的版本号，投递推迟时不读取之后的版本")
+    void testEventCarriesCommittedVersion() throws InterruptedException {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        try (DefaultConfigRegistry registry = new DefaultConfigRegistry(storage, defaultProperties())) {
+            registry.registerNode("net", newNode("node-a"));
+            CountDownLatch release = new CountDownLatch(1);
+            List<Long> versions = new CopyOnWriteArrayList<>();
+            registry.subscribeConfigChange("net", "node-a", new ConfigChangeListener() {
+                @Override
+                public void onConfigChanged(String networkId, String nodeId, WireGuardIniConfig oldConfig, WireGuardIniConfig newConfig, long version) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    versions.add(version);
+                }
+
+                @Override
+                public void onNodeOffline(String networkId, String nodeId) {
+                }
+
+                @Override
+                public void onNetworkDeleted(String networkId) {
+                }
+            });
+
+            // 第一个事件投递期间提交第二次变更
+            registry.registerNode("net", newNode("node-a"));
+            long first = storage.getNetworkVersion("net");
+            registry.registerNode("net", newNode("node-a"));
+            long second = storage.getNetworkVersion("net");
+            release.countDown();
+            await(() -> versions.size() == 2);
+            assertEquals(List.of(first, second), versions);
+            assertTrue(first < second);
+        }
+    }
+
+    @Test
+    @DisplayName("同一实例上并发注册依次增量生成，不退化为全量生成")
+    void testConcurrentRegistersApplyDeltas() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        try (DefaultConfigRegistry registry = new DefaultConfigRegistry(storage, defaultProperties())) {
+            registry.registerNode("net", newNode("node-0"));
+            assertEquals(1, storage.fullReads.get());
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> futures = new CopyOnWriteArrayList<>();
+                for (int i = 1; i <= 16; i++) {
+                    String hostname = "node-" + i;
+                    futures.add(executor.submit(() -> registry.registerNode("net", newNode(hostname))));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(1, storage.fullReads.get());
+            assertEquals(17, registry.getNetworkConfigs("net").size());
+            registry.getNetworkConfigs("net").values().forEach(config -> assertEquals(17, config.getPeers().size()));
+        }
+    }
+
+    @Test
+    @DisplayName("节点变更只保存内容发生变化的配置")
+    void testDeltaSavesOnlyChangedConfigs() {
+        CountingStorage storage = new CountingStorage();
+        try (DefaultConfigRegistry registry = new DefaultConfigRegistry(storage, defaultProperties())) {
+            for (int i = 0; i < 4; i++) {
+                registry.registerNode("net", newNode("node-" + i));
+            }
+            assertEquals(4, storage.lastSavedConfigs.get());
+
+            // 重新注册已分配过地址与密钥的相同节点，配置没有变化
+            registry.registerNode("net", registry.getNode("net", "node-1"));
+            assertEquals(0, storage.lastSavedConfigs.get());
+
+            // 只修改节点自身的监听端口，其他节点中对应的 peer 不变
+            WireGuardNetworkNode node = registry.getNode("net", "node-1");
+            node.setListenPort(51821);
+            registry.registerNode("net", node);
+            assertEquals(1, storage.lastSavedConfigs.get());
+            assertEquals(1, storage.fullReads.get());
+        }
+    }
+
+    @Test
+    @DisplayName("关闭时完成已排队的合并重新生成，可重复关闭")
+    void testCloseFinishesPendingRegeneration() {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        DefaultConfigRegistry registry = new DefaultConfigRegistry(storage, defaultProperties(), 200, 1000);
+        registry.registerNode("net", newNode("node-a"));
+        assertNull(registry.getNodeConfig("net", "node-a"));
+
+        registry.close();
+        assertNotNull(registry.getNodeConfig("net", "node-a"));
+        registry.close();
+    }
+
+    private static Map<String, List<String>> assignments(List<WireGuardNetworkNode> nodes) {
+        return nodes.stream().collect(Collectors.toMap(node -> node.getServerNode().getHostname(),
+                node -> Arrays.asList(node.getAddress(), node.getPrivateKey(), node.getPublicKey())));
+    }
+
+    /**
+     * 统计全量读取节点列表的次数与每次提交保存的配置数
+     */
+    private static class CountingStorage extends MemoryConfigStorage {
+
+        private final AtomicInteger fullReads = new AtomicInteger();
+
+        private final AtomicInteger lastSavedConfigs = new AtomicInteger();
+
+        @Override
+        public List<WireGuardNetworkNode> getNetworkNodes(String networkId) {
+            fullReads.incrementAndGet();
+            return super.getNetworkNodes(networkId);
+        }
+
+        @Override
+        public long commit(ConfigUnitOfWork unitOfWork) {
+            lastSavedConfigs.set(unitOfWork.getSavedConfigs().size());
+            return super.commit(unitOfWork);
+        }
+    }
+
+    private static WireGuardNetProperties defaultProperties() {
+        WireGuardNetProperties properties = new WireGuardNetProperties();
+        properties.setAddress("10.201.0.1");
+        properties.setNetmask("255.255.0.0");
+        properties.setListenPort(51820);
+        return properties;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package icu.debug.net.wg.core.registry;
+
+import icu.debug.net.wg.core.registry.impl.HeartbeatTimingWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("心跳时间轮测试")
+class HeartbeatTimingWheelTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private final List<String> expired = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private HeartbeatTimingWheel newWheel() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(executor, 200, 20,
+                (networkId, nodeId) -> expired.add(networkId + "/" + nodeId));
+        wheel.start();
+        return wheel;
+    }
+
+    @Test
+    @DisplayName("超时节点触发回调")
+    void testExpire() throws InterruptedException {
+        HeartbeatTimingWheel wheel = newWheel();
+        long start = System.currentTimeMillis();
+        wheel.touch("net", "node-a");
+        while (expired.isEmpty() && System.currentTimeMillis() - start < 3000) {
+            Thread.sleep(5);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        assertEquals(List.of("net/node-a"), expired);
+        assertTrue(elapsed >= 180, "expired too early: " + elapsed);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("持续心跳的节点不会超时")
+    void testTouchKeepsAlive() throws InterruptedException {
+        HeartbeatTimingWheel wheel = newWheel();
+        wheel.touch("net", "node-a");
+        wheel.touch("net", "node-b");
+        for (int i = 0; i < 20; i++) {
+            Thread.sleep(25);
+            wheel.touch("net", "node-a");
+        }
+        assertEquals(List.of("net/node-b"), expired);
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    @DisplayName("取消后不再检测")
+    void testCancel() throws InterruptedException {
+        HeartbeatTimingWheel wheel = newWheel();
+        wheel.touch("net", "node-a");
+        wheel.touch("net", "node-b");
+        wheel.touch("other", "node-a");
+        wheel.cancel("net", "node-a");
+        wheel.cancelNetwork("other");
+        assertEquals(1, wheel.size());
+        Thread.sleep(400);
+        assertEquals(List.of("net/node-b"), expired);
+    }
+}
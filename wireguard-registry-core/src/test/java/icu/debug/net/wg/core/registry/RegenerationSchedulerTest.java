@@ -0,0 +1,77 @@
+package icu.debug.net.wg.core.registry;
+
+import icu.debug.net.wg.core.registry.impl.RegenerationScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("合并重新生成调度测试")
+class RegenerationSchedulerTest {
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+
+    private final List<String> regenerated = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("突发触发合并为一次生成")
+    void testMergeBurst() throws InterruptedException {
+        RegenerationScheduler scheduler = new RegenerationScheduler(executor, 100, 5000, regenerated::add);
+        for (int i = 0; i < 500; i++) {
+            scheduler.trigger("net-a");
+        }
+        scheduler.trigger("net-b");
+        assertTrue(scheduler.isPending("net-a"));
+
+        waitUntil(() -> regenerated.size() >= 2);
+        Thread.sleep(200);
+        assertEquals(2, regenerated.size());
+        assertTrue(regenerated.containsAll(List.of("net-a", "net-b")));
+        assertEquals(501, scheduler.getTriggerCount());
+        assertEquals(499, scheduler.getMergedTriggerCount());
+        assertEquals(2, scheduler.getRegenerateCount());
+        assertFalse(scheduler.isPending("net-a"));
+    }
+
+    @Test
+    @DisplayName("持续触发不超过最大延迟")
+    void testMaxDelay() throws InterruptedException {
+        RegenerationScheduler scheduler = new RegenerationScheduler(executor, 100, 300, regenerated::add);
+        long start = System.currentTimeMillis();
+        while (regenerated.isEmpty() && System.currentTimeMillis() - start < 3000) {
+            scheduler.trigger("net-a");
+            Thread.sleep(20);
+        }
+        assertFalse(regenerated.isEmpty());
+        assertTrue(System.currentTimeMillis() - start < 1500);
+    }
+
+    @Test
+    @DisplayName("取消待执行的生成")
+    void testCancel() throws InterruptedException {
+        RegenerationScheduler scheduler = new RegenerationScheduler(executor, 50, 100, regenerated::add);
+        scheduler.trigger("net-a");
+        scheduler.cancel("net-a");
+        Thread.sleep(200);
+        assertTrue(regenerated.isEmpty());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package icu.debug.net.wg.core.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.WireGuardConfigGenerator;
+import icu.debug.net.wg.core.helper.FileHelper;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
+import icu.debug.net.wg.core.model.network.ServerNode;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkStruct;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("二进制编解码测试")
+class BinaryBlobCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JsonBlobCodec jsonCodec = new JsonBlobCodec(objectMapper);
+
+    private Map<String, WireGuardIniConfig> generateConfigs() throws IOException {
+        WireGuardNetworkStruct struct = WireGuardNetworkStruct.ofJson(FileHelper.readResource("wireguard-network-example.json"));
+        WireGuardNetProperties properties = new WireGuardNetProperties();
+        properties.setAddress("10.201.0.1");
+        properties.setNetmask("255.255.0.0");
+        properties.setListenPort(51820);
+        properties.setDns(List.of("1.1.1.1", "dns.example.com"));
+        properties.setPostUp(List.of("iptables -A FORWARD -i %i -j ACCEPT"));
+        return new WireGuardConfigGenerator(struct, properties).buildWireGuardIniConfigMap();
+    }
+
+    @Test
+    @DisplayName("生成配置编解码无损且小于 JSON")
+    void testConfigRoundTrip() throws IOException {
+        Map<String, WireGuardIniConfig> configs = generateConfigs();
+        for (BlobCodec codec : List.of(new BinaryBlobCodec(false, jsonCodec), new BinaryBlobCodec(true, jsonCodec))) {
+            for (WireGuardIniConfig config : configs.values()) {
+                byte[] binary = codec.encodeConfig(config);
+                byte[] json = jsonCodec.encodeConfig(config);
+                assertTrue(binary.length < json.length / 2, binary.length + " vs " + json.length);
+                assertEquals(config.toIniString(), codec.decodeConfig(binary).toIniString());
+                assertEquals(config.getName(), codec.decodeConfig(binary).getName());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("旧的 JSON 数据仍可读取")
+    void testLegacyJson() throws IOException {
+        BinaryBlobCodec codec = new BinaryBlobCodec(true, jsonCodec);
+        WireGuardIniConfig config = generateConfigs().values().iterator().next();
+        byte[] legacy = objectMapper.writeValueAsBytes(config);
+        assertEquals(config.toIniString(), codec.decodeConfig(legacy).toIniString());
+    }
+
+    @Test
+    @DisplayName("网络节点编解码无损")
+    void testNodeRoundTrip() throws IOException {
+        ServerNode serverNode = new ServerNode();
+        serverNode.setHostname("node-a");
+        serverNode.setPublicAddress("181.1.1.1");
+        serverNode.setPrivateAddress("node-a.internal");
+        WireGuardNetworkNode node = new WireGuardNetworkNode();
+        node.setServerNode(serverNode);
+        node.setIgnoreDefault(true);
+        node.setAddress("10.201.0.7");
+        node.setListenPort(51820);
+        node.setKeepalive(25);
+        node.setPrivateKey("YBhHjZIeX3bCq1v8wWJOiC9wPpn7gxZ9Rr0dqVQbYXE=");
+        node.setPublicKey("not-a-standard-key");
+        node.setDns(Arrays.asList("010.0.0.1", "8.8.8.8", null));
+        node.setMtu(1420);
+        node.setPreDown(List.of("echo down"));
+
+        BinaryBlobCodec codec = new BinaryBlobCodec(false, jsonCodec);
+        WireGuardNetworkNode decoded = codec.decodeNode(codec.encodeNode(node));
+        assertEquals(objectMapper.writeValueAsString(node), objectMapper.writeValueAsString(decoded));
+    }
+}
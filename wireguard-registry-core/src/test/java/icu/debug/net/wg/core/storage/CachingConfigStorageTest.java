@@ -0,0 +1,179 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardPeer;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.impl.CachingConfigStorage;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("版本校验读缓存测试")
+class CachingConfigStorageTest {
+
+    /**
+     * 统计读取次数的内存存储
+     */
+    private static class CountingStorage extends MemoryConfigStorage {
+
+        private final AtomicInteger configReads = new AtomicInteger();
+
+        private final AtomicInteger nodesReads = new AtomicInteger();
+
+        @Override
+        public Optional<WireGuardIniConfig> getGeneratedConfig(String networkId, String nodeId) {
+            configReads.incrementAndGet();
+            return super.getGeneratedConfig(networkId, nodeId);
+        }
+
+        @Override
+        public List<WireGuardNetworkNode> getNetworkNodes(String networkId) {
+            nodesReads.incrementAndGet();
+            return super.getNetworkNodes(networkId);
+        }
+    }
+
+    @Test
+    @DisplayName("版本不变时复用缓存")
+    void testReuseUntilVersionMoves() {
+        CountingStorage delegate = new CountingStorage();
+        CachingConfigStorage storage = new CachingConfigStorage(delegate, 100, 1000);
+        storage.saveGeneratedConfig("net", "node-a", newConfig(2));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(storage.getGeneratedConfig("net", "node-a").isPresent());
+        }
+        assertEquals(1, delegate.configReads.get());
+        assertEquals(9, storage.getHitCount());
+        assertEquals(0.9, storage.getHitRatio(), 0.0001);
+
+        // 其他实例写入后递增版本
+        delegate.saveGeneratedConfig("net", "node-a", newConfig(3));
+        delegate.updateNetworkVersion("net");
+        assertEquals(3, storage.getGeneratedConfig("net", "node-a").get().getPeers().size());
+        assertEquals(2, delegate.configReads.get());
+    }
+
+    @Test
+    @DisplayName("本实例写入时失效缓存")
+    void testInvalidateOnWrite() {
+        CountingStorage delegate = new CountingStorage();
+        CachingConfigStorage storage = new CachingConfigStorage(delegate, 100, 1000);
+        storage.saveNetworkNode("net", newNode("node-a"));
+        assertEquals(1, storage.getNetworkNodes("net").size());
+        assertEquals(1, storage.getNetworkNodes("net").size());
+        assertEquals(1, delegate.nodesReads.get());
+
+        storage.saveNetworkNode("net", newNode("node-b"));
+        assertEquals(2, storage.getNetworkNodes("net").size());
+
+        storage.saveGeneratedConfigs("net", Map.of("node-a", newConfig(1)));
+        assertEquals(1, storage.getNetworkConfigs("net").size());
+        storage.saveGeneratedConfigs("net", Map.of("node-b", newConfig(1)));
+        assertEquals(2, storage.getNetworkConfigs("net").size());
+    }
+
+    @Test
+    @DisplayName("按数量与权重淘汰")
+    void testEviction() {
+        MemoryConfigStorage delegate = new MemoryConfigStorage();
+        CachingConfigStorage sizeLimited = new CachingConfigStorage(delegate, 2, 1000);
+        // 淘汰到权重上限的九成，即 10
+        CachingConfigStorage weightLimited = new CachingConfigStorage(delegate, 100, 11);
+        for (int i = 0; i < 5; i++) {
+            delegate.saveGeneratedConfig("net", "node-" + i, newConfig(4));
+        }
+        for (int i = 0; i < 5; i++) {
+            sizeLimited.getGeneratedConfig("net", "node-" + i);
+            weightLimited.getGeneratedConfig("net", "node-" + i);
+        }
+        assertEquals(2, sizeLimited.getStats().get("size"));
+        assertEquals(3L, sizeLimited.getEvictionCount());
+        // 每个配置权重为 5
+        assertEquals(10L, weightLimited.getStats().get("weight"));
+        assertEquals(3L, weightLimited.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("淘汰最久未访问的缓存项，最近读取的缓存项保留")
+    void testRecentlyReadEntrySurvivesEviction() throws InterruptedException {
+        CountingStorage delegate = new CountingStorage();
+        CachingConfigStorage storage = new CachingConfigStorage(delegate, 3, 1000);
+        for (int i = 0; i < 4; i++) {
+            delegate.saveGeneratedConfig("net", "node-" + i, newConfig(1));
+        }
+        for (int i = 0; i < 3; i++) {
+            storage.getGeneratedConfig("net", "node-" + i);
+            Thread.sleep(1);
+        }
+        storage.getGeneratedConfig("net", "node-0");
+
+        // 超出数量限制时淘汰 node-1
+        storage.getGeneratedConfig("net", "node-3");
+        assertEquals(4, delegate.configReads.get());
+        storage.getGeneratedConfig("net", "node-0");
+        assertEquals(4, delegate.configReads.get());
+        storage.getGeneratedConfig("net", "node-1");
+        assertEquals(5, delegate.configReads.get());
+    }
+
+    @Test
+    @DisplayName("权重超过上限的缓存项不缓存，也不挤掉其他缓存项")
+    void testOversizedEntryNotCached() {
+        CountingStorage delegate = new CountingStorage();
+        CachingConfigStorage storage = new CachingConfigStorage(delegate, 100, 10);
+        storage.saveGeneratedConfigs("net", Map.of("node-a", newConfig(4), "node-b", newConfig(4)));
+        assertEquals(4, storage.getGeneratedConfig("net", "node-a").orElseThrow().getPeers().size());
+
+        // 整个网络的配置权重为 11
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2, storage.getNetworkConfigs("net").size());
+        }
+        assertEquals(1, storage.getStats().get("size"));
+        assertEquals(5L, storage.getStats().get("weight"));
+        assertEquals(0L, storage.getEvictionCount());
+        storage.getGeneratedConfig("net", "node-a");
+        assertEquals(1, delegate.configReads.get());
+    }
+
+    @Test
+    @DisplayName("修改读取到的对象不影响缓存")
+    void testReturnedInstancesAreIsolated() {
+        CountingStorage delegate = new CountingStorage();
+        CachingConfigStorage storage = new CachingConfigStorage(delegate, 100, 1000);
+        storage.saveNetworkNode("net", newNode("node-a"));
+        storage.saveGeneratedConfig("net", "node-a", newConfig(2));
+
+        storage.getNetworkNode("net", "node-a").orElseThrow().getServerNode().setHostname("changed");
+        storage.getNetworkNodes("net").get(0).getServerNode().setHostname("changed");
+        storage.getGeneratedConfig("net", "node-a").orElseThrow().getPeers().clear();
+        storage.getNetworkConfigs("net").get("node-a").setName("changed");
+
+        assertEquals("node-a", storage.getNetworkNode("net", "node-a").orElseThrow().getServerNode().getHostname());
+        assertEquals("node-a", storage.getNetworkNodes("net").get(0).getServerNode().getHostname());
+        assertEquals(2, storage.getGeneratedConfig("net", "node-a").orElseThrow().getPeers().size());
+        assertNull(storage.getNetworkConfigs("net").get("node-a").getName());
+        // 第二次读取命中缓存
+        assertEquals(1, delegate.configReads.get());
+        assertEquals(1, delegate.nodesReads.get());
+    }
+
+    private static WireGuardIniConfig newConfig(int peers) {
+        List<WireGuardPeer> peerList = new ArrayList<>();
+        for (int i = 0; i < peers; i++) {
+            peerList.add(new WireGuardPeer());
+        }
+        WireGuardIniConfig config = new WireGuardIniConfig();
+        config.setPeers(peerList);
+        return config;
+    }
+}
@@ -0,0 +1,76 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.helper.WireGuardGenKeyHelper;
+import icu.debug.net.wg.core.model.network.EndpointType;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.impl.CompactNetworkNode;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("紧凑节点测试")
+class CompactNetworkNodeTest {
+
+    @Test
+    @DisplayName("密钥以字节保存后原样还原，非规范密钥按字符串保存")
+    void testKeys() {
+        String privateKey = WireGuardGenKeyHelper.genPrivateKey();
+        String publicKey = WireGuardGenKeyHelper.genPubKeyByPrivateKey(privateKey);
+        WireGuardNetworkNode node = newNode("node-a");
+        node.setPrivateKey(privateKey);
+        node.setPublicKey("not-a-key");
+
+        CompactNetworkNode compact = CompactNetworkNode.of(node);
+        assertEquals(privateKey, compact.getPrivateKey());
+        assertEquals("not-a-key", compact.getPublicKey());
+        assertEquals(privateKey, compact.toInterface().getPrivateKey());
+        assertEquals(publicKey, compact.toPeer(EndpointType.PUBLIC).getPublicKey());
+
+        compact.setPublicKey(publicKey);
+        assertEquals(publicKey, compact.getPublicKey());
+        compact.setPrivateKey(null);
+        assertNull(compact.getPrivateKey());
+    }
+
+    @Test
+    @DisplayName("相同的列表与字符串在节点之间共享")
+    void testSharedValues() {
+        WireGuardNetworkNode first = newNode("node-a");
+        first.setDns(new ArrayList<>(List.of("1.1.1.1", "8.8.8.8")));
+        first.setTable(new String("off"));
+        WireGuardNetworkNode second = newNode("node-b");
+        second.setDns(new ArrayList<>(List.of(new String("1.1.1.1"), new String("8.8.8.8"))));
+        second.setTable(new String("off"));
+        second.setPostUp(Arrays.asList("iptables -A FORWARD -i %i -j ACCEPT", null));
+
+        CompactNetworkNode a = CompactNetworkNode.of(first);
+        CompactNetworkNode b = CompactNetworkNode.of(second);
+        assertSame(a.getDns(), b.getDns());
+        assertSame(a.getTable(), b.getTable());
+        assertEquals(Arrays.asList("iptables -A FORWARD -i %i -j ACCEPT", null), b.getPostUp());
+        assertThrows(UnsupportedOperationException.class, () -> a.getDns().add("9.9.9.9"));
+    }
+
+    @Test
+    @DisplayName("内存存储保存节点副本，调用方之后的修改不影响存储")
+    void testStorageCopiesNodes() {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        WireGuardNetworkNode node = newNode("node-a");
+        node.setAddress("10.201.0.1");
+        storage.saveNetworkNode("net", node);
+        storage.commit(new ConfigUnitOfWork("net").saveNode(newNode("node-b")));
+        node.setAddress("10.201.0.9");
+
+        WireGuardNetworkNode stored = storage.getNetworkNode("net", "node-a").orElseThrow();
+        assertInstanceOf(CompactNetworkNode.class, stored);
+        assertEquals("10.201.0.1", stored.getAddress());
+        assertInstanceOf(CompactNetworkNode.class, storage.getNetworkNode("net", "node-b").orElseThrow());
+    }
+}
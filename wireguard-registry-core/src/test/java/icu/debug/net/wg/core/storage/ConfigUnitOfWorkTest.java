@@ -0,0 +1,87 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.impl.CachingConfigStorage;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("存储变更单元测试")
+class ConfigUnitOfWorkTest {
+
+    @Test
+    @DisplayName("同一节点以最后一次操作为准")
+    void testLastOperationWins() {
+        ConfigUnitOfWork unitOfWork = new ConfigUnitOfWork("net")
+                .saveNode(newNode("node-a"))
+                .deleteNode("node-a")
+                .deleteNode("node-b")
+                .saveNode(newNode("node-b"))
+                .saveConfig("node-a", newConfig("a"))
+                .deleteConfig("node-a");
+
+        assertEquals(List.of("node-b"), List.copyOf(unitOfWork.getSavedNodes().keySet()));
+        assertEquals(List.of("node-a"), List.copyOf(unitOfWork.getDeletedNodes()));
+        assertTrue(unitOfWork.getSavedConfigs().isEmpty());
+        assertEquals(List.of("node-a"), List.copyOf(unitOfWork.getDeletedConfigs()));
+    }
+
+    @Test
+    @DisplayName("在已存储节点上叠加未提交的变更")
+    void testApplyToNodes() {
+        ConfigUnitOfWork unitOfWork = new ConfigUnitOfWork("net").deleteNode("node-a").saveNode(newNode("node-c"));
+        List<WireGuardNetworkNode> nodes = unitOfWork.applyToNodes(List.of(newNode("node-a"), newNode("node-b")));
+        assertEquals(List.of("node-b", "node-c"), nodes.stream().map(node -> node.getServerNode().getHostname()).toList());
+    }
+
+    @Test
+    @DisplayName("提交只递增一次版本，空变更不递增")
+    void testCommitBumpsVersionOnce() {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        storage.saveNetworkNode("net", newNode("node-a"));
+        storage.saveGeneratedConfig("net", "node-a", newConfig("a"));
+        assertEquals(1, storage.getNetworkVersion("net"));
+
+        long version = storage.commit(new ConfigUnitOfWork("net")
+                .saveNode(newNode("node-b"))
+                .deleteNode("node-a")
+                .deleteConfig("node-a")
+                .saveConfigs(Map.of("node-b", newConfig("b"))));
+
+        assertEquals(2, version);
+        assertEquals(2, storage.getNetworkVersion("net"));
+        assertTrue(storage.getNetworkNode("net", "node-a").isEmpty());
+        assertTrue(storage.getNetworkNode("net", "node-b").isPresent());
+        assertEquals("b", storage.getGeneratedConfig("net", "node-b").orElseThrow().getName());
+        assertTrue(storage.getGeneratedConfig("net", "node-a").isEmpty());
+
+        assertEquals(2, storage.commit(new ConfigUnitOfWork("net")));
+    }
+
+    @Test
+    @DisplayName("缓存在提交后失效")
+    void testCachingCommitInvalidates() {
+        CachingConfigStorage storage = new CachingConfigStorage(new MemoryConfigStorage(), 100, 1000);
+        storage.commit(new ConfigUnitOfWork("net").saveNode(newNode("node-a")).saveConfig("node-a", newConfig("a1")));
+        assertEquals("a1", storage.getGeneratedConfig("net", "node-a").orElseThrow().getName());
+        assertEquals(1, storage.getNetworkNodes("net").size());
+
+        storage.commit(new ConfigUnitOfWork("net").saveNode(newNode("node-b")).saveConfig("node-a", newConfig("a2")));
+        assertEquals("a2", storage.getGeneratedConfig("net", "node-a").orElseThrow().getName());
+        assertEquals(2, storage.getNetworkNodes("net").size());
+    }
+
+    private static WireGuardIniConfig newConfig(String name) {
+        WireGuardIniConfig config = new WireGuardIniConfig();
+        config.setName(name);
+        config.setPeers(List.of());
+        return config;
+    }
+}
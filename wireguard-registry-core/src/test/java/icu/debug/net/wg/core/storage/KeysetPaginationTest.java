@@ -0,0 +1,90 @@
+package icu.debug.net.wg.core.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import icu.debug.net.wg.core.storage.log.LogStructuredConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("按键分页读取测试")
+class KeysetPaginationTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("游标逐页加载，跳过数据的短页不会提前结束")
+    void testCursor() {
+        List<String> keys = IntStream.range(0, 25).mapToObj(i -> String.format("key-%02d", i)).toList();
+        AtomicInteger loads = new AtomicInteger();
+        KeysetCursor.PageLoader<String> loader = (afterKey, limit) -> {
+            loads.incrementAndGet();
+            // 模拟加载时跳过一条无法解码的数据
+            return keys.stream()
+                    .filter(key -> afterKey == null || key.compareTo(afterKey) > 0)
+                    .limit(limit)
+                    .filter(key -> !key.equals("key-03"))
+                    .toList();
+        };
+
+        List<String> result = KeysetCursor.stream(loader, key -> key, 10).toList();
+        assertEquals(24, result.size());
+        assertFalse(result.contains("key-03"));
+        assertEquals(4, loads.get());
+        assertEquals(2, KeysetCursor.stream(loader, key -> key, 10).limit(2).count());
+        assertThrows(IllegalArgumentException.class, () -> new KeysetCursor<>(loader, key -> key, 0));
+    }
+
+    @Test
+    @DisplayName("内存与日志结构存储按节点ID顺序分页")
+    void testStoragePages() {
+        MemoryConfigStorage memory = new MemoryConfigStorage();
+        try (LogStructuredConfigStorage log = new LogStructuredConfigStorage(directory,
+                new BinaryBlobCodec(false, new JsonBlobCodec(new ObjectMapper())), 1 << 20, 0, 0)) {
+            for (ConfigStorage storage : List.of(memory, log)) {
+                for (int i = 9; i >= 0; i--) {
+                    storage.saveNetworkNode("net", newNode("node-" + i));
+                    storage.saveGeneratedConfig("net", "node-" + i, newConfig("config-" + i));
+                }
+
+                assertEquals(List.of("node-0", "node-1", "node-2"), hostnames(storage.getNetworkNodes("net", null, 3)));
+                assertEquals(List.of("node-3", "node-4"), hostnames(storage.getNetworkNodes("net", "node-2", 2)));
+                assertTrue(storage.getNetworkNodes("net", "node-9", 5).isEmpty());
+                assertEquals(List.of("node-8", "node-9"), new ArrayList<>(storage.getNetworkConfigs("net", "node-7", 5).keySet()));
+
+                assertEquals(hostnames(storage.getNetworkNodes("net")).stream().sorted().toList(),
+                        hostnames(storage.streamNetworkNodes("net", 3).toList()));
+                List<Map.Entry<String, WireGuardIniConfig>> configs = storage.streamNetworkConfigs("net", 4).toList();
+                assertEquals(10, configs.size());
+                assertEquals("config-9", configs.get(9).getValue().getName());
+                assertEquals(0, storage.streamNetworkNodes("unknown", 3).count());
+            }
+        }
+    }
+
+    private static List<String> hostnames(List<WireGuardNetworkNode> nodes) {
+        return nodes.stream().map(node -> node.getServerNode().getHostname()).toList();
+    }
+
+    private static WireGuardIniConfig newConfig(String name) {
+        WireGuardIniConfig config = new WireGuardIniConfig();
+        config.setName(name);
+        config.setPeers(List.of());
+        return config;
+    }
+}
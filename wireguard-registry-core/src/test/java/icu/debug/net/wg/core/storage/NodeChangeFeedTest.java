@@ -0,0 +1,103 @@
+package icu.debug.net.wg.core.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import icu.debug.net.wg.core.storage.log.LogStructuredConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("节点变更订阅测试")
+class NodeChangeFeedTest {
+
+    private final BlobCodec codec = new BinaryBlobCodec(false, new JsonBlobCodec(new ObjectMapper()));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("按版本顺序返回变更，同一版本的变更一起返回")
+    void testChangesSince() {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        storage.saveNetworkNode("net", newNode("node-a"));
+        storage.commit(new ConfigUnitOfWork("net")
+                .saveNode(newNode("node-b"))
+                .saveNode(newNode("node-c"))
+                .deleteNode("node-a"));
+        storage.updateNetworkVersion("net");
+        storage.deleteNetworkNode("net", "node-b");
+
+        NodeChangeFeed feed = storage.getChangesSince("net", 0, 2);
+        assertFalse(feed.isResetRequired());
+        assertTrue(feed.isHasMore());
+        assertEquals(List.of("1:node-a:UPSERT", "2:node-b:UPSERT", "2:node-c:UPSERT", "2:node-a:DELETE"), describe(feed));
+        assertEquals("node-c", feed.getChanges().get(2).getNode().getServerNode().getHostname());
+        assertEquals(2, feed.getNextVersion());
+
+        feed = storage.getChangesSince("net", feed.getNextVersion(), 10);
+        assertFalse(feed.isHasMore());
+        assertEquals(List.of("4:node-b:DELETE"), describe(feed));
+        assertNull(feed.getChanges().get(0).getNode());
+
+        feed = storage.getChangesSince("net", 4, 10);
+        assertTrue(feed.getChanges().isEmpty());
+        assertEquals(4, feed.getNextVersion());
+        assertTrue(storage.getChangesSince("unknown", 0, 10).getChanges().isEmpty());
+    }
+
+    @Test
+    @DisplayName("超出保留数的版本被清理后要求全量同步")
+    void testRetention() {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        storage.setChangeRetention(3);
+        for (int i = 0; i < 10; i++) {
+            storage.saveNetworkNode("net", newNode("node-" + i));
+        }
+        assertTrue(storage.getChangesSince("net", 6, 10).isResetRequired());
+        assertEquals(List.of("8:node-7:UPSERT", "9:node-8:UPSERT", "10:node-9:UPSERT"), describe(storage.getChangesSince("net", 7, 10)));
+
+        storage.truncateChanges("net", 9);
+        assertTrue(storage.getChangesSince("net", 7, 10).isResetRequired());
+        assertEquals(List.of("9:node-8:UPSERT", "10:node-9:UPSERT"), describe(storage.getChangesSince("net", 8, 10)));
+    }
+
+    @Test
+    @DisplayName("日志结构存储重启后回放变更，压缩后从压缩时的版本重新开始")
+    void testLogStructuredChanges() {
+        try (LogStructuredConfigStorage storage = new LogStructuredConfigStorage(directory, codec, 1 << 20, 0, 0)) {
+            storage.saveNetworkNode("net", newNode("node-a"));
+            storage.commit(new ConfigUnitOfWork("net").saveNode(newNode("node-b")).deleteNode("node-a"));
+        }
+
+        try (LogStructuredConfigStorage storage = new LogStructuredConfigStorage(directory, codec, 1 << 20, 0, 0)) {
+            NodeChangeFeed feed = storage.getChangesSince("net", 0, 10);
+            assertEquals(List.of("1:node-a:UPSERT", "2:node-b:UPSERT", "2:node-a:DELETE"), describe(feed));
+            assertEquals("node-b", feed.getChanges().get(1).getNode().getServerNode().getHostname());
+
+            storage.compact();
+            assertTrue(storage.getChangesSince("net", 1, 10).isResetRequired());
+            storage.saveNetworkNode("net", newNode("node-c"));
+            assertEquals(List.of("3:node-c:UPSERT"), describe(storage.getChangesSince("net", 2, 10)));
+        }
+
+        try (LogStructuredConfigStorage storage = new LogStructuredConfigStorage(directory, codec, 1 << 20, 0, 0)) {
+            assertTrue(storage.getChangesSince("net", 1, 10).isResetRequired());
+            assertEquals(List.of("3:node-c:UPSERT"), describe(storage.getChangesSince("net", 2, 10)));
+        }
+    }
+
+    private static List<String> describe(NodeChangeFeed feed) {
+        return feed.getChanges().stream()
+                .map(change -> change.getVersion() + ":" + change.getNodeId() + ":" + change.getType())
+                .toList();
+    }
+}
@@ -0,0 +1,85 @@
+package icu.debug.net.wg.core.storage;
+
+import icu.debug.net.wg.core.helper.WireGuardGenKeyHelper;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("节点二级索引测试")
+class NodeIndexTest {
+
+    @Test
+    @DisplayName("保存、修改与删除节点时同步更新公钥和地址索引")
+    void testMemoryStorageIndex() {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        storage.saveNetworkNode("net", newNode("node-a", "key-a", "10.201.0.1/32"));
+        storage.saveNetworkNode("net", newNode("node-b", "key-b", "10.201.0.2"));
+
+        assertEquals("node-a", storage.findNodeByPublicKey("net", "key-a").orElseThrow().getServerNode().getHostname());
+        assertEquals("node-b", storage.findNodesByAddress("net", "10.201.0.2/32").get(0).getServerNode().getHostname());
+        assertTrue(storage.findNodeByPublicKey("other", "key-a").isEmpty());
+
+        // 修改公钥和地址后旧键不再命中
+        storage.saveNetworkNode("net", newNode("node-a", "key-c", "10.201.0.2"));
+        assertTrue(storage.findNodeByPublicKey("net", "key-a").isEmpty());
+        assertTrue(storage.findNodesByAddress("net", "10.201.0.1").isEmpty());
+        assertEquals(List.of("node-a", "node-b"), storage.findNodesByAddress("net", "10.201.0.2").stream()
+                .map(node -> node.getServerNode().getHostname()).toList());
+
+        storage.commit(new ConfigUnitOfWork("net").deleteNode("node-b"));
+        assertTrue(storage.findNodeByPublicKey("net", "key-b").isEmpty());
+        assertEquals(1, storage.findNodesByAddress("net", "10.201.0.2").size());
+
+        storage.deleteNetwork("net");
+        assertTrue(storage.findNodeByPublicKey("net", "key-c").isEmpty());
+    }
+
+    @Test
+    @DisplayName("未设置公钥的节点按私钥推导的公钥建立索引，原地修改后旧键也能移除")
+    void testDerivedPublicKey() {
+        String privateKey = WireGuardGenKeyHelper.genPrivateKey();
+        String publicKey = WireGuardGenKeyHelper.genPubKeyByPrivateKey(privateKey);
+        WireGuardNetworkNode node = newNode("node-a", null, "10.201.0.1");
+        node.setPrivateKey(privateKey);
+
+        NodeIndex index = new NodeIndex();
+        index.update("node-a", node);
+        assertEquals(Set.of("node-a"), index.findByPublicKey(publicKey));
+
+        node.setPublicKey("key-a");
+        node.setAddress("10.201.0.9");
+        index.update("node-a", node);
+        assertTrue(index.findByPublicKey(publicKey).isEmpty());
+        assertTrue(index.findByAddress("10.201.0.1").isEmpty());
+        assertEquals(Set.of("node-a"), index.findByAddress("10.201.0.9/24"));
+
+        index.update("node-a", null);
+        assertTrue(index.findByPublicKey("key-a").isEmpty());
+    }
+
+    @Test
+    @DisplayName("读取的节点为副本，修改后不影响存储与索引")
+    void testReadReturnsCopy() {
+        MemoryConfigStorage storage = new MemoryConfigStorage();
+        storage.saveNetworkNode("net", newNode("node-a", "key-a", "10.201.0.1"));
+
+        WireGuardNetworkNode node = storage.getNetworkNode("net", "node-a").orElseThrow();
+        node.setAddress("10.201.0.9");
+        node.getServerNode().setHostname("node-x");
+        storage.getNetworkNodes("net").get(0).setPublicKey("key-x");
+
+        WireGuardNetworkNode stored = storage.getNetworkNode("net", "node-a").orElseThrow();
+        assertEquals("10.201.0.1", stored.getAddress());
+        assertEquals("node-a", stored.getServerNode().getHostname());
+        assertEquals("key-a", stored.getPublicKey());
+        assertEquals("node-a", storage.findNodesByAddress("net", "10.201.0.1").get(0).getServerNode().getHostname());
+        assertTrue(storage.findNodesByAddress("net", "10.201.0.9").isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+package icu.debug.net.wg.core.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardInterface;
+import icu.debug.net.wg.core.model.config.WireGuardPeer;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import icu.debug.net.wg.core.storage.impl.OffHeapConfigArena;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("生成配置堆外存储测试")
+class OffHeapConfigArenaTest {
+
+    private final BlobCodec codec = new BinaryBlobCodec(false, new JsonBlobCodec(new ObjectMapper()));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("读取配置与渲染后的 ini 文本，替换与删除后释放堆外数据")
+    void testReadAndFree() {
+        OffHeapConfigArena arena = new OffHeapConfigArena(codec, 64 * 1024);
+        MemoryConfigStorage storage = new MemoryConfigStorage(arena);
+        storage.saveNetworkNode("net", newNode("node-a"));
+        WireGuardIniConfig config = newConfig("node-a", 3);
+        storage.saveGeneratedConfig("net", "node-a", config);
+
+        assertEquals(3, storage.getGeneratedConfig("net", "node-a").orElseThrow().getPeers().size());
+        RenderedConfig rendered = storage.getRenderedConfig("net", "node-a").orElseThrow();
+        assertEquals(1, rendered.getVersion());
+        assertTrue(rendered.getContent().isReadOnly());
+        assertEquals(config.toIniString(), text(rendered.getContent()));
+        long live = (long) arena.getStats().get("liveBytes");
+
+        storage.commit(new ConfigUnitOfWork("net").saveConfig("node-a", newConfig("node-a", 1)));
+        assertTrue((long) arena.getStats().get("liveBytes") < live);
+        // 之前取得的切片仍指向旧数据
+        assertEquals(config.toIniString(), text(rendered.getContent()));
+
+        storage.deleteNetwork("net");
+        assertEquals(0L, arena.getStats().get("liveBytes"));
+        assertTrue(storage.getRenderedConfig("net", "node-a").isEmpty());
+    }
+
+    @Test
+    @DisplayName("反复重新生成后整理稀疏块，分配的内存不随写入次数增长")
+    void testCompaction() {
+        OffHeapConfigArena arena = new OffHeapConfigArena(codec, 4096);
+        MemoryConfigStorage storage = new MemoryConfigStorage(arena);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 20; i++) {
+                storage.saveGeneratedConfig("net", "node-" + i, newConfig("node-" + i, round % 4 + 1));
+            }
+            // 部分节点的配置不再更新，稀疏块中只剩它们时需要复制
+            if (round == 0) {
+                storage.saveGeneratedConfigs("other", Map.of("node-x", newConfig("node-x", 2)));
+            }
+        }
+        Map<String, Object> stats = arena.getStats();
+        long allocated = (long) stats.get("allocatedBytes");
+        long live = (long) stats.get("liveBytes");
+        assertTrue(allocated <= Math.max(4L * 4096, live * 2 + 2 * 4096), stats.toString());
+        assertTrue((long) stats.get("relocatedBytes") > 0, stats.toString());
+        assertEquals(2, storage.getGeneratedConfig("other", "node-x").orElseThrow().getPeers().size());
+        assertEquals(20, storage.getNetworkConfigs("net").size());
+        assertEquals(newConfig("node-7", 2).toIniString(), text(storage.getRenderedConfig("net", "node-7").orElseThrow().getContent()));
+    }
+
+    @Test
+    @DisplayName("快照直接写入堆外的编码数据，恢复后重新保存到堆外")
+    void testJournalRecovery() {
+        try (MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 0, 5, new OffHeapConfigArena(codec, 4096))) {
+            storage.saveNetworkNode("net", newNode("node-a"));
+            for (int i = 0; i < 10; i++) {
+                storage.saveGeneratedConfig("net", "node-a", newConfig("node-a", i + 1));
+            }
+        }
+        OffHeapConfigArena arena = new OffHeapConfigArena(codec, 4096);
+        try (MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 0, 5, arena)) {
+            assertEquals(10, storage.getGeneratedConfig("net", "node-a").orElseThrow().getPeers().size());
+            assertEquals(1, storage.getRenderedConfig("net", "node-a").orElseThrow().getVersion());
+            assertTrue((long) arena.getStats().get("liveBytes") > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("提交中的生成配置记录提交后的网络版本号，回放后版本号不变")
+    void testCommitVersion() {
+        long version;
+        try (MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 0, 100, new OffHeapConfigArena(codec, 4096))) {
+            storage.saveNetworkNode("net", newNode("node-a"));
+            version = storage.commit(new ConfigUnitOfWork("net")
+                    .saveNode(newNode("node-b"))
+                    .saveConfigs(Map.of("node-a", newConfig("node-a", 1), "node-b", newConfig("node-b", 1))));
+            assertEquals(2, version);
+            assertEquals(version, storage.getNetworkVersion("net"));
+            assertEquals(version, storage.getRenderedConfig("net", "node-a").orElseThrow().getVersion());
+            assertEquals(version, storage.getRenderedConfig("net", "node-b").orElseThrow().getVersion());
+        }
+        try (MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 0, 100, new OffHeapConfigArena(codec, 4096))) {
+            assertEquals(version, storage.getRenderedConfig("net", "node-b").orElseThrow().getVersion());
+        }
+    }
+
+    private static String text(ByteBuffer content) {
+        ByteBuffer buffer = content.duplicate();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static WireGuardIniConfig newConfig(String name, int peerCount) {
+        WireGuardInterface wgInterface = new WireGuardInterface();
+        wgInterface.setName(name);
+        wgInterface.setAddress("10.201.0.1/32");
+        wgInterface.setListenPort(51820);
+        List<WireGuardPeer> peers = new ArrayList<>();
+        for (int i = 0; i < peerCount; i++) {
+            WireGuardPeer peer = new WireGuardPeer();
+            peer.setName("peer-" + i);
+            peer.setPublicKey("publicKey" + i);
+            peer.setAllowedIPs(List.of("10.201.1." + i + "/32"));
+            peers.add(peer);
+        }
+        return new WireGuardIniConfig(name, wgInterface, peers);
+    }
+}
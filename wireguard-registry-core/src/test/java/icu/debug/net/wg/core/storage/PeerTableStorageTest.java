@@ -0,0 +1,271 @@
+package icu.debug.net.wg.core.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.WireGuardConfigGenerator;
+import icu.debug.net.wg.core.helper.FileHelper;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkStruct;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.codec.PeerTableCodec;
+import icu.debug.net.wg.core.storage.dao.GeneratedConfigDao;
+import icu.debug.net.wg.core.storage.dao.PeerTableDao;
+import icu.debug.net.wg.core.storage.entity.GeneratedConfigEntity;
+import icu.debug.net.wg.core.storage.entity.PeerTableEntity;
+import icu.debug.net.wg.core.storage.impl.DatabaseConfigStorage;
+import icu.debug.net.wg.core.storage.peer.PeerTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("共享 peer 表存储测试")
+class PeerTableStorageTest {
+
+    private static final String NETWORK_ID = "test-network";
+
+    private final JsonBlobCodec jsonCodec = new JsonBlobCodec(new ObjectMapper());
+
+    private final InMemoryGeneratedConfigDao configDao = new InMemoryGeneratedConfigDao();
+
+    private final InMemoryPeerTableDao peerTableDao = new InMemoryPeerTableDao();
+
+    private Map<String, WireGuardIniConfig> generateConfigs(String address) throws IOException {
+        WireGuardNetworkStruct struct = WireGuardNetworkStruct.ofJson(FileHelper.readResource("wireguard-network-example.json"));
+        WireGuardNetProperties properties = new WireGuardNetProperties();
+        properties.setAddress(address);
+        properties.setNetmask("255.255.0.0");
+        properties.setListenPort(51820);
+        return new WireGuardConfigGenerator(struct, properties).buildWireGuardIniConfigMap();
+    }
+
+    private DatabaseConfigStorage createStorage(BlobCodec codec) {
+        return new DatabaseConfigStorage(null, configDao, null, codec, peerTableDao);
+    }
+
+    private PeerTable storedTable(BlobCodec codec) throws IOException {
+        return new PeerTableCodec(codec).decodeTable(peerTableDao.tables.get(NETWORK_ID).getTableData());
+    }
+
+    private static void assertSameConfigs(Map<String, WireGuardIniConfig> expected, Map<String, WireGuardIniConfig> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((nodeId, config) -> {
+            assertEquals(config.toIniString(), actual.get(nodeId).toIniString());
+            assertEquals(config.getName(), actual.get(nodeId).getName());
+        });
+    }
+
+    @Test
+    @DisplayName("拆分保存后组装出相同的配置")
+    void testRoundTrip() throws IOException {
+        Map<String, WireGuardIniConfig> configs = generateConfigs("10.202.0.1");
+        for (BlobCodec codec : List.of(jsonCodec, new BinaryBlobCodec(true, jsonCodec))) {
+            DatabaseConfigStorage storage = createStorage(codec);
+            storage.saveGeneratedConfigs(NETWORK_ID, configs);
+
+            assertSameConfigs(configs, storage.getNetworkConfigs(NETWORK_ID));
+            // 新实例没有本地缓存，从编码数据组装
+            assertSameConfigs(configs, createStorage(codec).getNetworkConfigs(NETWORK_ID));
+            for (String nodeId : configs.keySet()) {
+                assertEquals(configs.get(nodeId).toIniString(),
+                        createStorage(codec).getGeneratedConfig(NETWORK_ID, nodeId).orElseThrow().toIniString());
+            }
+
+            int totalPeers = configs.values().stream().mapToInt(config -> config.getPeers().size()).sum();
+            PeerTable table = storedTable(codec);
+            assertTrue(table.getPeers().size() < totalPeers, table.getPeers().size() + " vs " + totalPeers);
+            assertEquals(configs.keySet(), table.getNodeIds());
+        }
+    }
+
+    @Test
+    @DisplayName("节点视图远小于完整配置")
+    void testViewSize() throws IOException {
+        Map<String, WireGuardIniConfig> configs = generateConfigs("10.201.0.1");
+        BlobCodec codec = new BinaryBlobCodec(false, jsonCodec);
+        createStorage(codec).saveGeneratedConfigs(NETWORK_ID, configs);
+
+        long full = 0;
+        for (WireGuardIniConfig config : configs.values()) {
+            full += codec.encodeConfig(config).length;
+        }
+        long split = peerTableDao.tables.get(NETWORK_ID).getTableData().length;
+        for (GeneratedConfigEntity entity : configDao.configs.values()) {
+            assertTrue(PeerTableCodec.isPeerView(entity.getConfigData()));
+            split += entity.getConfigData().length;
+        }
+        assertTrue(split < full, split + " vs " + full);
+    }
+
+    @Test
+    @DisplayName("部分保存追加 peer，全部保存时重建")
+    void testPartialSaveAndRebuild() throws IOException {
+        DatabaseConfigStorage storage = createStorage(jsonCodec);
+        Map<String, WireGuardIniConfig> configs = generateConfigs("10.201.0.1");
+        storage.saveGeneratedConfigs(NETWORK_ID, configs);
+        PeerTable first = storedTable(jsonCodec);
+
+        // 地址段变化后所有 peer 都不同，只保存一个节点的新配置，其他节点仍引用旧的 peer
+        Map<String, WireGuardIniConfig> changed = generateConfigs("10.202.0.1");
+        String nodeId = configs.keySet().iterator().next();
+        storage.saveGeneratedConfigs(NETWORK_ID, Map.of(nodeId, changed.get(nodeId)));
+        PeerTable appended = storedTable(jsonCodec);
+        assertEquals(first.getGeneration(), appended.getGeneration());
+        assertTrue(appended.getPeers().size() > first.getPeers().size());
+
+        Map<String, WireGuardIniConfig> expected = new HashMap<>(configs);
+        expected.put(nodeId, changed.get(nodeId));
+        assertSameConfigs(expected, createStorage(jsonCodec).getNetworkConfigs(NETWORK_ID));
+
+        storage.saveGeneratedConfigs(NETWORK_ID, changed);
+        PeerTable rebuilt = storedTable(jsonCodec);
+        assertEquals(first.getGeneration() + 1, rebuilt.getGeneration());
+        assertEquals(first.getPeers().size(), rebuilt.getPeers().size());
+        assertSameConfigs(changed, createStorage(jsonCodec).getNetworkConfigs(NETWORK_ID));
+    }
+
+    @Test
+    @DisplayName("删除节点后剩余节点的保存触发重建，旧的完整配置仍可读取")
+    void testDeleteAndLegacyRows() throws IOException {
+        Map<String, WireGuardIniConfig> configs = generateConfigs("10.201.0.1");
+        Iterator<String> nodeIds = configs.keySet().iterator();
+        String legacyNodeId = nodeIds.next();
+        String deletedNodeId = nodeIds.next();
+        configDao.save(new GeneratedConfigEntity(NETWORK_ID, legacyNodeId, jsonCodec.encodeConfig(configs.get(legacyNodeId))));
+
+        DatabaseConfigStorage storage = createStorage(jsonCodec);
+        Map<String, WireGuardIniConfig> remaining = new LinkedHashMap<>(configs);
+        remaining.remove(legacyNodeId);
+        storage.saveGeneratedConfigs(NETWORK_ID, remaining);
+        assertSameConfigs(configs, createStorage(jsonCodec).getNetworkConfigs(NETWORK_ID));
+
+        storage.deleteGeneratedConfig(NETWORK_ID, deletedNodeId);
+        assertFalse(storedTable(jsonCodec).getNodeIds().contains(deletedNodeId));
+        assertTrue(storage.getGeneratedConfig(NETWORK_ID, deletedNodeId).isEmpty());
+
+        long generation = storedTable(jsonCodec).getGeneration();
+        remaining.remove(deletedNodeId);
+        storage.saveGeneratedConfigs(NETWORK_ID, remaining);
+        assertEquals(generation + 1, storedTable(jsonCodec).getGeneration());
+        assertEquals(configs.get(legacyNodeId).toIniString(),
+                storage.getGeneratedConfig(NETWORK_ID, legacyNodeId).orElseThrow().toIniString());
+    }
+
+    @Test
+    @DisplayName("其他实例先写入 peer 表时重新读取后重试，不覆盖对方追加的 peer")
+    void testConcurrentInstances() throws IOException {
+        DatabaseConfigStorage first = createStorage(jsonCodec);
+        DatabaseConfigStorage second = createStorage(jsonCodec);
+        Map<String, WireGuardIniConfig> configs = generateConfigs("10.201.0.1");
+        first.saveGeneratedConfigs(NETWORK_ID, configs);
+
+        Map<String, WireGuardIniConfig> changed = generateConfigs("10.202.0.1");
+        Iterator<String> nodeIds = configs.keySet().iterator();
+        String firstNodeId = nodeIds.next();
+        String secondNodeId = nodeIds.next();
+        // 第一个实例写入 peer 表之前，第二个实例完成了自己的读改写
+        peerTableDao.beforeNextSave = () -> second.saveGeneratedConfigs(NETWORK_ID, Map.of(secondNodeId, changed.get(secondNodeId)));
+        first.saveGeneratedConfigs(NETWORK_ID, Map.of(firstNodeId, changed.get(firstNodeId)));
+
+        Map<String, WireGuardIniConfig> expected = new HashMap<>(configs);
+        expected.put(firstNodeId, changed.get(firstNodeId));
+        expected.put(secondNodeId, changed.get(secondNodeId));
+        assertSameConfigs(expected, createStorage(jsonCodec).getNetworkConfigs(NETWORK_ID));
+        assertEquals(3L, peerTableDao.tables.get(NETWORK_ID).getVersion());
+    }
+
+    private static class InMemoryGeneratedConfigDao implements GeneratedConfigDao {
+
+        private final Map<String, GeneratedConfigEntity> configs = new LinkedHashMap<>();
+
+        @Override
+        public void save(GeneratedConfigEntity entity) {
+            configs.put(entity.getNetworkId() + "/" + entity.getNodeId(), entity);
+        }
+
+        @Override
+        public void upsertAll(List<GeneratedConfigEntity> entities) {
+            entities.forEach(this::save);
+        }
+
+        @Override
+        public Optional<GeneratedConfigEntity> findByNetworkIdAndNodeId(String networkId, String nodeId) {
+            return Optional.ofNullable(configs.get(networkId + "/" + nodeId));
+        }
+
+        @Override
+        public List<GeneratedConfigEntity> findByNetworkId(String networkId) {
+            return configs.values().stream().filter(entity -> entity.getNetworkId().equals(networkId)).toList();
+        }
+
+        @Override
+        public List<GeneratedConfigEntity> findByNetworkIdAfter(String networkId, String afterNodeId, int limit) {
+            return findByNetworkId(networkId).stream()
+                    .filter(entity -> afterNodeId == null || entity.getNodeId().compareTo(afterNodeId) > 0)
+                    .sorted(Comparator.comparing(GeneratedConfigEntity::getNodeId))
+                    .limit(limit)
+                    .toList();
+        }
+
+        @Override
+        public void deleteByNetworkIdAndNodeId(String networkId, String nodeId) {
+            configs.remove(networkId + "/" + nodeId);
+        }
+
+        @Override
+        public void deleteByNetworkId(String networkId) {
+            configs.values().removeIf(entity -> entity.getNetworkId().equals(networkId));
+        }
+    }
+
+    private static class InMemoryPeerTableDao implements PeerTableDao {
+
+        private final Map<String, PeerTableEntity> tables = new HashMap<>();
+
+        /**
+         * 下一次条件写入之前执行，模拟其他实例的并发写入
+         */
+        private Runnable beforeNextSave;
+
+        @Override
+        public void save(PeerTableEntity entity) {
+            tables.put(entity.getNetworkId(), entity);
+        }
+
+        @Override
+        public boolean saveIfVersion(PeerTableEntity entity, long expectedVersion) {
+            Runnable hook = beforeNextSave;
+            beforeNextSave = null;
+            if (hook != null) {
+                hook.run();
+            }
+            PeerTableEntity current = tables.get(entity.getNetworkId());
+            long currentVersion = current == null ? 0 : current.getVersion();
+            if (currentVersion != expectedVersion) {
+                return false;
+            }
+            tables.put(entity.getNetworkId(), entity);
+            return true;
+        }
+
+        @Override
+        public Optional<PeerTableEntity> findByNetworkId(String networkId) {
+            return Optional.ofNullable(tables.get(networkId));
+        }
+
+        @Override
+        public Optional<Long> findVersionByNetworkId(String networkId) {
+            return findByNetworkId(networkId).map(PeerTableEntity::getVersion);
+        }
+
+        @Override
+        public void deleteByNetworkId(String networkId) {
+            tables.remove(networkId);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package icu.debug.net.wg.core.storage.jdbc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.WireGuardConfigGenerator;
+import icu.debug.net.wg.core.helper.FileHelper;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkStruct;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.NodeChange;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.dao.jdbc.*;
+import icu.debug.net.wg.core.storage.entity.GeneratedConfigEntity;
+import icu.debug.net.wg.core.storage.entity.NetworkNodeEntity;
+import icu.debug.net.wg.core.storage.entity.NetworkVersionEntity;
+import icu.debug.net.wg.core.storage.entity.PeerTableEntity;
+import icu.debug.net.wg.core.storage.impl.DatabaseConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JDBC 数据访问测试")
+class JdbcDaoTest {
+
+    enum Database {
+        SQLITE, H2
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate createJdbcTemplate(Database database) {
+        DataSource dataSource = switch (database) {
+            case SQLITE -> new DriverManagerDataSource("jdbc:sqlite:" + tempDir.resolve("registry.db") + "?busy_timeout=5000");
+            case H2 -> new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        };
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        JdbcStorageSchema.initialize(jdbcTemplate, JdbcDialect.detect(dataSource));
+        return jdbcTemplate;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 带非 UTF-8 字节的二进制数据，确保数据列不会按文本处理
+     */
+    private static byte[] binary(String text) {
+        byte[] bytes = bytes(text);
+        byte[] data = Arrays.copyOf(new byte[]{(byte) 0x80, (byte) 0xFF, 0}, 3 + bytes.length);
+        System.arraycopy(bytes, 0, data, 3, bytes.length);
+        return data;
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("识别方言并启用 WAL")
+    void testDialect(Database database) {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        assertEquals(database.name(), JdbcDialect.detect(jdbcTemplate.getDataSource()).name());
+        if (database == Database.SQLITE) {
+            assertEquals("wal", jdbcTemplate.queryForObject("PRAGMA journal_mode", String.class));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("节点插入或更新与查询")
+    void testNetworkNode(Database database) {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcNetworkNodeDao dao = new JdbcNetworkNodeDao(jdbcTemplate, JdbcDialect.detect(jdbcTemplate.getDataSource()));
+
+        dao.save(new NetworkNodeEntity("net-1", "node-a", binary("a1")));
+        dao.save(new NetworkNodeEntity("net-1", "node-b", binary("b1")));
+        dao.save(new NetworkNodeEntity("net-2", "node-a", binary("a2")));
+        dao.save(new NetworkNodeEntity("net-1", "node-a", binary("a1-updated")));
+
+        NetworkNodeEntity node = dao.findByNetworkIdAndNodeId("net-1", "node-a").orElseThrow();
+        assertArrayEquals(binary("a1-updated"), node.getNodeData());
+        assertEquals(2L, node.getVersion());
+        assertNotNull(node.getCreatedAt());
+        assertEquals(List.of("node-a", "node-b"), dao.findByNetworkId("net-1").stream().map(NetworkNodeEntity::getNodeId).toList());
+        assertEquals(Set.of("net-1", "net-2"), new HashSet<>(dao.findAllNetworkIds()));
+        assertTrue(dao.existsByNetworkId("net-2"));
+
+        assertEquals(List.of("node-a"), dao.findByNetworkIdAfter("net-1", null, 1).stream().map(NetworkNodeEntity::getNodeId).toList());
+        assertEquals(List.of("node-b"), dao.findByNetworkIdAfter("net-1", "node-a", 10).stream().map(NetworkNodeEntity::getNodeId).toList());
+        assertTrue(dao.findByNetworkIdAfter("net-1", "node-b", 10).isEmpty());
+
+        dao.deleteByNetworkIdAndNodeId("net-1", "node-b");
+        assertTrue(dao.findByNetworkIdAndNodeId("net-1", "node-b").isEmpty());
+        dao.deleteByNetworkId("net-2");
+        assertFalse(dao.existsByNetworkId("net-2"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("生成配置批量插入或更新")
+    void testGeneratedConfigBatch(Database database) {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcGeneratedConfigDao dao = new JdbcGeneratedConfigDao(jdbcTemplate, JdbcDialect.detect(jdbcTemplate.getDataSource()));
+
+        List<GeneratedConfigEntity> first = IntStream.range(0, 1200)
+                .mapToObj(i -> new GeneratedConfigEntity("net-1", "node-" + i, binary("v1-" + i)))
+                .toList();
+        dao.upsertAll(first);
+        List<GeneratedConfigEntity> second = IntStream.range(600, 1800)
+                .mapToObj(i -> new GeneratedConfigEntity("net-1", "node-" + i, binary("v2-" + i)))
+                .toList();
+        dao.upsertAll(second);
+
+        List<GeneratedConfigEntity> stored = dao.findByNetworkId("net-1");
+        assertEquals(1800, stored.size());
+        assertArrayEquals(binary("v1-1"), dao.findByNetworkIdAndNodeId("net-1", "node-1").orElseThrow().getConfigData());
+        GeneratedConfigEntity updated = dao.findByNetworkIdAndNodeId("net-1", "node-700").orElseThrow();
+        assertArrayEquals(binary("v2-700"), updated.getConfigData());
+        assertEquals(2L, updated.getVersion());
+
+        // 按键分页遍历，每页以上一页最后一个节点ID为起点
+        List<String> paged = new ArrayList<>();
+        String after = null;
+        List<GeneratedConfigEntity> page;
+        while (!(page = dao.findByNetworkIdAfter("net-1", after, 500)).isEmpty()) {
+            page.forEach(entity -> paged.add(entity.getNodeId()));
+            after = page.get(page.size() - 1).getNodeId();
+        }
+        assertEquals(stored.stream().map(GeneratedConfigEntity::getNodeId).toList(), paged);
+
+        dao.deleteByNetworkId("net-1");
+        assertTrue(dao.findByNetworkId("net-1").isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("版本号原子递增并返回新值")
+    void testIncrementVersion(Database database) throws Exception {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcNetworkVersionDao dao = new JdbcNetworkVersionDao(jdbcTemplate, JdbcDialect.detect(jdbcTemplate.getDataSource()));
+
+        assertEquals(1L, dao.incrementVersion("net-1"));
+        assertEquals(2L, dao.incrementVersion("net-1"));
+        dao.save(new NetworkVersionEntity("net-2"));
+        assertEquals(2L, dao.incrementVersion("net-2"));
+
+        int threads = 4;
+        int increments = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> values = new ArrayList<>();
+                    for (int i = 0; i < increments; i++) {
+                        values.add(dao.incrementVersion("net-1"));
+                    }
+                    return values;
+                }));
+            }
+            Set<Long> values = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                values.addAll(future.get(60, TimeUnit.SECONDS));
+            }
+            // 每次递增返回的值互不相同
+            assertEquals(threads * increments, values.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2L + threads * increments, dao.findByNetworkId("net-1").orElseThrow().getVersion());
+        assertEquals(Set.of("net-1", "net-2"), new HashSet<>(dao.findAllNetworkIds()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("peer 表插入或更新与版本查询")
+    void testPeerTable(Database database) {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcPeerTableDao dao = new JdbcPeerTableDao(jdbcTemplate, JdbcDialect.detect(jdbcTemplate.getDataSource()));
+
+        assertTrue(dao.findVersionByNetworkId("net-1").isEmpty());
+        dao.save(new PeerTableEntity("net-1", binary("table-1"), 1));
+        dao.save(new PeerTableEntity("net-1", binary("table-2"), 2));
+        assertEquals(Optional.of(2L), dao.findVersionByNetworkId("net-1"));
+        assertArrayEquals(binary("table-2"), dao.findByNetworkId("net-1").orElseThrow().getTableData());
+
+        // 按版本号条件写入，版本不一致或记录已存在时不写入
+        assertFalse(dao.saveIfVersion(new PeerTableEntity("net-1", binary("table-3"), 3), 1));
+        assertTrue(dao.saveIfVersion(new PeerTableEntity("net-1", binary("table-3"), 3), 2));
+        assertFalse(dao.saveIfVersion(new PeerTableEntity("net-1", binary("table-x"), 1), 0));
+        assertArrayEquals(binary("table-3"), dao.findByNetworkId("net-1").orElseThrow().getTableData());
+        assertEquals(Optional.of(3L), dao.findVersionByNetworkId("net-1"));
+        assertTrue(dao.saveIfVersion(new PeerTableEntity("net-2", binary("table-1"), 1), 0));
+        assertArrayEquals(binary("table-1"), dao.findByNetworkId("net-2").orElseThrow().getTableData());
+
+        dao.deleteByNetworkId("net-1");
+        assertTrue(dao.findByNetworkId("net-1").isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("旧版本文本列中的数据仍可读取")
+    void testLegacyTextColumn(Database database) {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        jdbcTemplate.execute("DROP TABLE generated_config");
+        jdbcTemplate.execute("CREATE TABLE generated_config (network_id VARCHAR(128) NOT NULL, node_id VARCHAR(255) NOT NULL, "
+                + "config_data " + (database == Database.H2 ? "CLOB" : "TEXT") + " NOT NULL, created_at TIMESTAMP, updated_at TIMESTAMP, "
+                + "version BIGINT NOT NULL DEFAULT 1, PRIMARY KEY (network_id, node_id))");
+        jdbcTemplate.update("INSERT INTO generated_config (network_id, node_id, config_data) VALUES (?, ?, ?)", "net-1", "node-a", "{\"name\":\"wg0\"}");
+
+        JdbcGeneratedConfigDao dao = new JdbcGeneratedConfigDao(jdbcTemplate, JdbcDialect.detect(jdbcTemplate.getDataSource()));
+        assertArrayEquals(bytes("{\"name\":\"wg0\"}"), dao.findByNetworkIdAndNodeId("net-1", "node-a").orElseThrow().getConfigData());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("数据库配置存储读写共享 peer 表")
+    void testDatabaseConfigStorage(Database database) throws IOException {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcDialect dialect = JdbcDialect.detect(jdbcTemplate.getDataSource());
+        DatabaseConfigStorage storage = new DatabaseConfigStorage(new JdbcNetworkNodeDao(jdbcTemplate, dialect),
+                new JdbcGeneratedConfigDao(jdbcTemplate, dialect), new JdbcNetworkVersionDao(jdbcTemplate, dialect),
+                new BinaryBlobCodec(true, new JsonBlobCodec(new ObjectMapper())), new JdbcPeerTableDao(jdbcTemplate, dialect));
+
+        WireGuardNetworkStruct struct = WireGuardNetworkStruct.ofJson(FileHelper.readResource("wireguard-network-example.json"));
+        WireGuardNetProperties properties = new WireGuardNetProperties();
+        properties.setAddress("10.201.0.1");
+        properties.setNetmask("255.255.0.0");
+        properties.setListenPort(51820);
+        Map<String, WireGuardIniConfig> configs = new WireGuardConfigGenerator(struct, properties).buildWireGuardIniConfigMap();
+
+        assertEquals(0L, storage.getNetworkVersion("net-1"));
+        storage.saveGeneratedConfigs("net-1", configs);
+        storage.updateNetworkVersion("net-1");
+        assertEquals(1L, storage.getNetworkVersion("net-1"));
+        assertTrue(storage.networkExists("net-1"));
+
+        Map<String, WireGuardIniConfig> stored = storage.getNetworkConfigs("net-1");
+        assertEquals(configs.keySet(), stored.keySet());
+        configs.forEach((nodeId, config) -> assertEquals(config.toIniString(), stored.get(nodeId).toIniString()));
+
+        storage.deleteNetwork("net-1");
+        assertFalse(storage.networkExists("net-1"));
+        assertTrue(storage.getNetworkConfigs("net-1").isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("批量保存生成配置一次调用同时更新已有节点并插入新节点")
+    void testSaveGeneratedConfigs(Database database) {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcDialect dialect = JdbcDialect.detect(jdbcTemplate.getDataSource());
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        JdbcGeneratedConfigDao configDao = new JdbcGeneratedConfigDao(jdbcTemplate, dialect) {
+            @Override
+            public void upsertAll(List<GeneratedConfigEntity> entities) {
+                batchSizes.add(entities.size());
+                super.upsertAll(entities);
+            }
+        };
+        DatabaseConfigStorage storage = new DatabaseConfigStorage(new JdbcNetworkNodeDao(jdbcTemplate, dialect), configDao,
+                new JdbcNetworkVersionDao(jdbcTemplate, dialect), new JsonBlobCodec(new ObjectMapper()));
+
+        storage.saveGeneratedConfig("net-1", "node-a", new WireGuardIniConfig("wg-a1", null, List.of()));
+        storage.saveGeneratedConfig("net-1", "node-b", new WireGuardIniConfig("wg-b1", null, List.of()));
+
+        Map<String, WireGuardIniConfig> configs = new LinkedHashMap<>();
+        configs.put("node-a", new WireGuardIniConfig("wg-a2", null, List.of()));
+        configs.put("node-c", new WireGuardIniConfig("wg-c1", null, List.of()));
+        storage.saveGeneratedConfigs("net-1", configs);
+
+        assertEquals(List.of(2), batchSizes);
+        assertEquals("wg-a2", storage.getGeneratedConfig("net-1", "node-a").orElseThrow().getName());
+        assertEquals("wg-b1", storage.getGeneratedConfig("net-1", "node-b").orElseThrow().getName());
+        assertEquals("wg-c1", storage.getGeneratedConfig("net-1", "node-c").orElseThrow().getName());
+        assertEquals(2L, configDao.findByNetworkIdAndNodeId("net-1", "node-a").orElseThrow().getVersion());
+        assertEquals(1L, configDao.findByNetworkIdAndNodeId("net-1", "node-b").orElseThrow().getVersion());
+        assertEquals(1L, configDao.findByNetworkIdAndNodeId("net-1", "node-c").orElseThrow().getVersion());
+        assertEquals(Set.of("node-a", "node-b", "node-c"), storage.getNetworkConfigs("net-1").keySet());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("变更单元在一个事务中提交，失败时整体回滚")
+    void testCommitRollback(Database database) throws IOException {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcDialect dialect = JdbcDialect.detect(jdbcTemplate.getDataSource());
+        JdbcNetworkVersionDao versionDao = new JdbcNetworkVersionDao(jdbcTemplate, dialect);
+        JdbcNetworkVersionDao failingVersionDao = new JdbcNetworkVersionDao(jdbcTemplate, dialect) {
+            @Override
+            public long incrementVersion(String networkId) {
+                throw new IllegalStateException("version conflict");
+            }
+        };
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        JsonBlobCodec codec = new JsonBlobCodec(new ObjectMapper());
+        JdbcNetworkNodeDao nodeDao = new JdbcNetworkNodeDao(jdbcTemplate, dialect);
+        JdbcGeneratedConfigDao configDao = new JdbcGeneratedConfigDao(jdbcTemplate, dialect);
+
+        ConfigUnitOfWork unitOfWork = new ConfigUnitOfWork("net-1");
+        WireGuardNetworkStruct struct = WireGuardNetworkStruct.ofJson(FileHelper.readResource("wireguard-network-example.json"));
+        struct.getLocalAreaNetworks().forEach(lan -> lan.getNetworkNodes().forEach(unitOfWork::saveNode));
+        unitOfWork.getSavedNodes().keySet().forEach(nodeId -> unitOfWork.saveConfig(nodeId, new WireGuardIniConfig(nodeId, null, List.of())));
+
+        DatabaseConfigStorage failing = new DatabaseConfigStorage(nodeDao, configDao, failingVersionDao, codec, null, transactionTemplate);
+        assertThrows(IllegalStateException.class, () -> failing.commit(unitOfWork));
+        assertTrue(nodeDao.findByNetworkId("net-1").isEmpty());
+        assertTrue(configDao.findByNetworkId("net-1").isEmpty());
+
+        DatabaseConfigStorage storage = new DatabaseConfigStorage(nodeDao, configDao, versionDao, codec, null, transactionTemplate);
+        assertEquals(1L, storage.commit(unitOfWork));
+        assertEquals(unitOfWork.getSavedNodes().size(), storage.getNetworkNodes("net-1").size());
+        assertEquals(unitOfWork.getSavedConfigs().keySet(), storage.getNetworkConfigs("net-1").keySet());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Database.class)
+    @DisplayName("节点变更与版本在同一事务中写入，清理后要求全量同步")
+    void testNodeChanges(Database database) throws IOException {
+        JdbcTemplate jdbcTemplate = createJdbcTemplate(database);
+        JdbcDialect dialect = JdbcDialect.detect(jdbcTemplate.getDataSource());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        JdbcNodeChangeDao changeDao = new JdbcNodeChangeDao(jdbcTemplate, dialect);
+        DatabaseConfigStorage storage = new DatabaseConfigStorage(new JdbcNetworkNodeDao(jdbcTemplate, dialect),
+                new JdbcGeneratedConfigDao(jdbcTemplate, dialect), new JdbcNetworkVersionDao(jdbcTemplate, dialect),
+                new JsonBlobCodec(new ObjectMapper()), null, transactionTemplate, changeDao);
+
+        WireGuardNetworkStruct struct = WireGuardNetworkStruct.ofJson(FileHelper.readResource("wireguard-network-example.json"));
+        ConfigUnitOfWork unitOfWork = new ConfigUnitOfWork("net-1");
+        struct.getLocalAreaNetworks().forEach(lan -> lan.getNetworkNodes().forEach(unitOfWork::saveNode));
+        int nodeCount = unitOfWork.getSavedNodes().size();
+        String first = unitOfWork.getSavedNodes().keySet().iterator().next();
+        storage.commit(unitOfWork);
+        storage.deleteNetworkNode("net-1", first);
+
+        // 条数限制落在版本 1 中间时补全该版本
+        NodeChangeFeed feed = storage.getChangesSince("net-1", 0, 1);
+        assertTrue(feed.isHasMore());
+        assertEquals(nodeCount, feed.getChanges().size());
+        assertTrue(feed.getChanges().stream().allMatch(change -> change.getVersion() == 1 && change.getNode() != null));
+
+        feed = storage.getChangesSince("net-1", feed.getNextVersion(), 10);
+        assertFalse(feed.isHasMore());
+        assertEquals(1, feed.getChanges().size());
+        assertEquals(first, feed.getChanges().get(0).getNodeId());
+        assertEquals(NodeChange.Type.DELETE, feed.getChanges().get(0).getType());
+
+        storage.truncateChanges("net-1", 2);
+        assertEquals(1L, changeDao.findTruncatedVersion("net-1"));
+        assertFalse(storage.getChangesSince("net-1", 1, 10).isResetRequired());
+        assertTrue(storage.getChangesSince("net-1", 0, 10).isResetRequired());
+
+        storage.deleteNetwork("net-1");
+        assertEquals(0L, changeDao.findTruncatedVersion("net-1"));
+        assertTrue(changeDao.findByNetworkIdSince("net-1", 0, 10).isEmpty());
+    }
+}
@@ -0,0 +1,221 @@
+package icu.debug.net.wg.core.storage.log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("日志结构文件存储测试")
+class LogStructuredConfigStorageTest {
+
+    private final BlobCodec codec = new BinaryBlobCodec(false, new JsonBlobCodec(new ObjectMapper()));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("重启后回放恢复节点、配置与版本")
+    void testReplayAfterRestart() {
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            storage.saveNetworkNode("net", newNode("node-a"));
+            storage.saveNetworkNode("net", newNode("node-b"));
+            storage.saveGeneratedConfig("net", "node-a", newConfig("a"));
+            storage.saveGeneratedConfig("net", "node-b", newConfig("b"));
+            storage.deleteNetworkNode("net", "node-b");
+            storage.deleteGeneratedConfig("net", "node-b");
+            storage.saveNetworkNode("other", newNode("node-c"));
+            storage.deleteNetwork("other");
+            assertEquals(3, storage.getNetworkVersion("net"));
+        }
+
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            assertEquals(List.of("net"), storage.getAllNetworkIds());
+            assertEquals(3, storage.getNetworkVersion("net"));
+            assertEquals(List.of("node-a"), hostnames(storage.getNetworkNodes("net")));
+            assertEquals("a", storage.getGeneratedConfig("net", "node-a").orElseThrow().getName());
+            assertTrue(storage.getGeneratedConfig("net", "node-b").isEmpty());
+            assertFalse(storage.networkExists("other"));
+        }
+    }
+
+    @Test
+    @DisplayName("变更单元作为一条记录提交，只递增一次版本")
+    void testCommitIsSingleRecord() {
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            storage.saveNetworkNode("net", newNode("node-a"));
+            long appends = (long) storage.getStats().get("appends");
+
+            long version = storage.commit(new ConfigUnitOfWork("net")
+                    .saveNode(newNode("node-b"))
+                    .deleteNode("node-a")
+                    .saveConfig("node-b", newConfig("b")));
+
+            assertEquals(2, version);
+            assertEquals(appends + 1, (long) storage.getStats().get("appends"));
+            assertEquals(2, storage.commit(new ConfigUnitOfWork("net")));
+        }
+
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            assertEquals(2, storage.getNetworkVersion("net"));
+            assertEquals(List.of("node-b"), hostnames(storage.getNetworkNodes("net")));
+            assertEquals("b", storage.getGeneratedConfig("net", "node-b").orElseThrow().getName());
+        }
+    }
+
+    @Test
+    @DisplayName("丢弃未写完整的尾部记录")
+    void testTruncatesTornTail() throws Exception {
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            storage.saveNetworkNode("net", newNode("node-a"));
+        }
+        Path last = segmentFiles().get(segmentFiles().size() - 1);
+        long validSize = Files.size(last);
+        // 模拟写到一半时崩溃：声明了 100 字节负载但只写入了一部分
+        Files.write(last, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            assertEquals(validSize, Files.size(last));
+            assertEquals(1, storage.getNetworkVersion("net"));
+            storage.saveNetworkNode("net", newNode("node-b"));
+        }
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            assertEquals(2, storage.getNetworkVersion("net"));
+            assertEquals(2, storage.getNetworkNodes("net").size());
+        }
+    }
+
+    @Test
+    @DisplayName("压缩后只保留存活数据，封存段从映射区读取")
+    void testCompaction() throws Exception {
+        try (LogStructuredConfigStorage storage = open(4096)) {
+            for (int i = 0; i < 200; i++) {
+                storage.saveNetworkNode("net", newNode("node-" + (i % 5)));
+                storage.saveGeneratedConfig("net", "node-" + (i % 5), newConfig("config-" + i));
+            }
+            int segmentsBefore = segmentFiles().size();
+            assertTrue(segmentsBefore > 3);
+            assertEquals("config-195", storage.getGeneratedConfig("net", "node-0").orElseThrow().getName());
+
+            assertTrue(storage.compactIfNeeded());
+            assertEquals(2, segmentFiles().size());
+            assertFalse(storage.compactIfNeeded());
+
+            assertEquals(200, storage.getNetworkVersion("net"));
+            assertEquals(5, storage.getNetworkNodes("net").size());
+            assertEquals("config-199", storage.getGeneratedConfig("net", "node-4").orElseThrow().getName());
+
+            storage.saveNetworkNode("net", newNode("node-5"));
+        }
+
+        try (LogStructuredConfigStorage storage = open(4096)) {
+            assertEquals(201, storage.getNetworkVersion("net"));
+            assertEquals(6, storage.getNetworkNodes("net").size());
+            assertEquals("config-195", storage.getGeneratedConfig("net", "node-0").orElseThrow().getName());
+        }
+    }
+
+    @Test
+    @DisplayName("压缩后旧段未删除时，检查点阻止已删除数据恢复")
+    void testCheckpointDiscardsLeftoverSegments() throws Exception {
+        List<Path> leftovers = new ArrayList<>();
+        try (LogStructuredConfigStorage storage = open(4096)) {
+            storage.saveNetworkNode("net", newNode("node-a"));
+            storage.saveNetworkNode("net", newNode("node-b"));
+            storage.deleteNetworkNode("net", "node-b");
+            storage.sync();
+            for (Path segment : segmentFiles()) {
+                Path copy = segment.resolveSibling(segment.getFileName() + ".bak");
+                Files.copy(segment, copy);
+                leftovers.add(copy);
+            }
+            storage.compact();
+        }
+        // 模拟改名完成后、删除旧段前崩溃
+        for (Path copy : leftovers) {
+            String name = copy.getFileName().toString();
+            Files.move(copy, copy.resolveSibling(name.substring(0, name.length() - ".bak".length())));
+        }
+        Files.write(directory.resolve("segment-9999999999999999.log.compacting"), new byte[]{1, 2, 3});
+
+        try (LogStructuredConfigStorage storage = open(4096)) {
+            assertEquals(List.of("node-a"), hostnames(storage.getNetworkNodes("net")));
+            assertEquals(3, storage.getNetworkVersion("net"));
+        }
+        assertFalse(Files.exists(directory.resolve("segment-9999999999999999.log.compacting")));
+    }
+
+    @Test
+    @DisplayName("并发写入通过组提交合并刷盘")
+    void testGroupCommit() throws Exception {
+        int threads = 8;
+        int writesPerThread = 50;
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < writesPerThread; i++) {
+                            storage.saveNetworkNode("net", newNode("node-" + thread + "-" + i));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            long appends = (long) storage.getStats().get("appends");
+            long syncs = (long) storage.getStats().get("syncs");
+            assertEquals(threads * writesPerThread, appends);
+            assertTrue(syncs > 0 && syncs <= appends);
+        }
+
+        try (LogStructuredConfigStorage storage = open(1 << 20)) {
+            assertEquals(threads * writesPerThread, storage.getNetworkNodes("net").size());
+            assertEquals(threads * writesPerThread, storage.getNetworkVersion("net"));
+        }
+    }
+
+    private LogStructuredConfigStorage open(long segmentBytes) {
+        return new LogStructuredConfigStorage(directory, codec, segmentBytes, 0, 0);
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static List<String> hostnames(List<WireGuardNetworkNode> nodes) {
+        return nodes.stream().map(node -> node.getServerNode().getHostname()).sorted().toList();
+    }
+
+    private static WireGuardIniConfig newConfig(String name) {
+        WireGuardIniConfig config = new WireGuardIniConfig();
+        config.setName(name);
+        config.setPeers(List.of());
+        return config;
+    }
+}
@@ -0,0 +1,278 @@
+package icu.debug.net.wg.core.storage.wal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.auth.AdminRole;
+import icu.debug.net.wg.core.auth.AdminUser;
+import icu.debug.net.wg.core.auth.TemporaryKey;
+import icu.debug.net.wg.core.auth.storage.impl.MemoryAuthStorage;
+import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
+import icu.debug.net.wg.core.storage.ConfigUnitOfWork;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static icu.debug.net.wg.core.NetworkNodeFixtures.newNode;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("内存存储快照加预写日志测试")
+class WriteAheadJournalTest {
+
+    private final BlobCodec codec = new BinaryBlobCodec(false, new JsonBlobCodec(new ObjectMapper()));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("重启后加载快照并回放之后的日志")
+    void testConfigStorageRecovery() throws Exception {
+        try (MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 0, 50)) {
+            for (int i = 0; i < 120; i++) {
+                storage.saveNetworkNode("net", newNode("node-" + (i % 10)));
+            }
+            storage.commit(new ConfigUnitOfWork("net")
+                    .deleteNode("node-9")
+                    .saveConfig("node-0", newConfig("config-0")));
+            storage.saveNetworkNode("other", newNode("node-x"));
+            storage.deleteNetwork("other");
+        }
+        assertTrue(Files.exists(directory.resolve("config.snapshot")));
+
+        try (MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 0, 50)) {
+            assertEquals(121, storage.getNetworkVersion("net"));
+            assertEquals(9, storage.getNetworkNodes("net").size());
+            assertTrue(storage.getNetworkNode("net", "node-9").isEmpty());
+            assertEquals("config-0", storage.getGeneratedConfig("net", "node-0").orElseThrow().getName());
+            assertFalse(storage.networkExists("other"));
+        }
+    }
+
+    @Test
+    @DisplayName("没有快照时回放日志，丢弃未写完整的尾部条目")
+    void testReplayWithoutSnapshot() throws Exception {
+        MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 0, 1_000_000);
+        storage.saveNetworkNode("net", newNode("node-a"));
+        storage.saveGeneratedConfig("net", "node-a", newConfig("a"));
+        // 模拟崩溃：等待写线程刷盘后，在关闭存储写入快照之前复制日志文件
+        waitForFlush(storage, 2);
+        Path copy = Files.createDirectory(directory.resolve("copy"));
+        for (Path file : journalFiles(directory)) {
+            Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        storage.close();
+        Files.write(journalFiles(copy).get(0), new byte[]{0, 0, 0, 50, 1, 2}, StandardOpenOption.APPEND);
+
+        try (MemoryConfigStorage recovered = new MemoryConfigStorage(copy, codec, 0, 1_000_000)) {
+            assertFalse(Files.exists(copy.resolve("config.snapshot")));
+            assertEquals(1, recovered.getNetworkVersion("net"));
+            assertEquals("a", recovered.getGeneratedConfig("net", "node-a").orElseThrow().getName());
+            recovered.saveNetworkNode("net", newNode("node-b"));
+        }
+        try (MemoryConfigStorage recovered = new MemoryConfigStorage(copy, codec, 0, 1_000_000)) {
+            assertEquals(2, recovered.getNetworkVersion("net"));
+            assertEquals(2, recovered.getNetworkNodes("net").size());
+        }
+    }
+
+    @Test
+    @DisplayName("条目在记录时编码，调用方之后修改对象不影响日志内容")
+    void testEntryEncodedOnRecord() throws Exception {
+        MemoryConfigStorage storage = new MemoryConfigStorage(directory, codec, 300, 1_000_000);
+        storage.saveNetworkNode("net", newNode("node-a"));
+        // 写线程刷盘后进入间隔等待，下一条目在等待期间入队
+        waitForFlush(storage, 1);
+        WireGuardIniConfig config = newConfig("config-a");
+        storage.saveGeneratedConfig("net", "node-a", config);
+        config.setName("changed");
+        waitForFlush(storage, 2);
+        Path copy = Files.createDirectory(directory.resolve("copy"));
+        for (Path file : journalFiles(directory)) {
+            Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        storage.close();
+
+        try (MemoryConfigStorage recovered = new MemoryConfigStorage(copy, codec, 0, 1_000_000)) {
+            assertEquals("config-a", recovered.getGeneratedConfig("net", "node-a").orElseThrow().getName());
+        }
+    }
+
+    @Test
+    @DisplayName("日志失败时记录方收到异常，写入快照后恢复")
+    void testFailureSurfacedToCaller() throws Exception {
+        List<String> state = new ArrayList<>();
+        CountDownLatch snapshotGate = new CountDownLatch(1);
+        WriteAheadJournal<String, String> journal = new WriteAheadJournal<>(directory, "strings", new StringCodec(snapshotGate, new CountDownLatch(0)), 0, 1_000_000);
+        journal.open(snapshot -> state.addAll(List.of(snapshot.split(","))), state::add, () -> String.join(",", state));
+
+        journal.record(() -> add(state, "a"));
+        assertThrows(RuntimeException.class, () -> journal.record(() -> add(state, "bad")));
+        assertFalse(journal.isHealthy());
+        // 恢复之前拒绝写入，不修改内存
+        assertThrows(IllegalStateException.class, () -> journal.record(() -> add(state, "b")));
+        assertEquals(List.of("a", "bad"), state);
+
+        snapshotGate.countDown();
+        for (int i = 0; i < 500 && !journal.isHealthy(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(journal.isHealthy());
+        journal.record(() -> add(state, "c"));
+        journal.close();
+
+        List<String> recovered = new ArrayList<>();
+        WriteAheadJournal<String, String> reopened = new WriteAheadJournal<>(directory, "strings", new StringCodec(snapshotGate, new CountDownLatch(0)), 0, 1_000_000);
+        reopened.open(snapshot -> recovered.addAll(List.of(snapshot.split(","))), recovered::add, () -> String.join(",", recovered));
+        reopened.close();
+        assertEquals(List.of("a", "bad", "c"), recovered);
+    }
+
+    @Test
+    @DisplayName("条目在记录锁外编码，编码较慢的写入不阻塞其他写入，日志顺序不变")
+    void testEncodeOutsideRecordLock() throws Exception {
+        List<String> state = new ArrayList<>();
+        CountDownLatch slowGate = new CountDownLatch(1);
+        StringCodec stringCodec = new StringCodec(new CountDownLatch(0), slowGate);
+        WriteAheadJournal<String, String> journal = new WriteAheadJournal<>(directory, "strings", stringCodec, 0, 1_000_000);
+        journal.open(snapshot -> state.addAll(List.of(snapshot.split(","))), state::add, () -> String.join(",", state));
+
+        Thread slowWriter = new Thread(() -> journal.record(() -> add(state, "slow")));
+        slowWriter.start();
+        for (int i = 0; i < 500 && !stringCodec.slowEncoding().get(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(stringCodec.slowEncoding().get());
+        // 另一个写入方在慢条目编码期间完成记录
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> journal.record(() -> add(state, "fast")));
+        slowGate.countDown();
+        slowWriter.join();
+        journal.close();
+
+        List<String> recovered = new ArrayList<>();
+        WriteAheadJournal<String, String> reopened = new WriteAheadJournal<>(directory, "strings", stringCodec, 0, 1_000_000);
+        reopened.open(snapshot -> recovered.addAll(List.of(snapshot.split(","))), recovered::add, () -> String.join(",", recovered));
+        reopened.close();
+        assertEquals(List.of("slow", "fast"), recovered);
+    }
+
+    private static String add(List<String> state, String value) {
+        state.add(value);
+        return value;
+    }
+
+    /**
+     * 拒绝编码 "bad" 条目，"slow" 条目在 slowGate 打开前阻塞编码，快照在 snapshotGate 打开前阻塞
+     */
+    private record StringCodec(CountDownLatch snapshotGate, CountDownLatch slowGate, AtomicBoolean slowEncoding)
+            implements WriteAheadJournal.Codec<String, String> {
+
+        StringCodec(CountDownLatch snapshotGate, CountDownLatch slowGate) {
+            this(snapshotGate, slowGate, new AtomicBoolean());
+        }
+
+        @Override
+        public byte[] encodeEntry(String entry) throws IOException {
+            if ("bad".equals(entry)) {
+                throw new IOException("cannot encode " + entry);
+            }
+            if ("slow".equals(entry)) {
+                slowEncoding.set(true);
+                try {
+                    slowGate.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return entry.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decodeEntry(byte[] data) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] encodeSnapshot(String snapshot) throws IOException {
+            try {
+                snapshotGate.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return snapshot.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decodeSnapshot(byte[] data) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @DisplayName("认证存储重启后保留公钥、管理员与撤销的令牌")
+    void testAuthStorageRecovery() {
+        long version;
+        try (MemoryAuthStorage storage = new MemoryAuthStorage(directory, 5, 3)) {
+            storage.saveNodePublicKey("node-a", "key-a");
+            storage.saveNodePublicKey("node-b", "key-b");
+            storage.deleteNodePublicKey("node-b");
+            storage.saveTemporaryKey(new TemporaryKey("temp", "net", "private", "public", Instant.now().plusSeconds(300)));
+            AdminUser admin = new AdminUser();
+            admin.setUsername("admin");
+            admin.setPasswordHash("hash");
+            admin.setRoles(Set.of(AdminRole.SUPER_ADMIN));
+            admin.setActive(true);
+            admin.setCreatedAt(Instant.now());
+            storage.saveAdminUser(admin);
+            storage.revokeToken("token");
+            version = storage.getDataVersion();
+        }
+
+        try (MemoryAuthStorage storage = new MemoryAuthStorage(directory, 5, 3)) {
+            assertEquals(version, storage.getDataVersion());
+            assertEquals("key-a", storage.getNodePublicKey("node-a").orElseThrow());
+            assertFalse(storage.isNodeRegistered("node-b"));
+            assertEquals("private", storage.getTemporaryKey("temp").orElseThrow().getPrivateKey());
+            AdminUser admin = storage.getAdminUser("admin").orElseThrow();
+            assertEquals("hash", admin.getPasswordHash());
+            assertEquals(Set.of(AdminRole.SUPER_ADMIN), admin.getRoles());
+            assertTrue(storage.isTokenRevoked("token"));
+            assertTrue(storage.isHealthy());
+        }
+    }
+
+    private static void waitForFlush(MemoryConfigStorage storage, long sequence) throws InterruptedException {
+        for (int i = 0; i < 500 && (long) storage.getJournalStats().get("flushedSequence") < sequence; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(sequence, storage.getJournalStats().get("flushedSequence"));
+    }
+
+    private static List<Path> journalFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static WireGuardIniConfig newConfig(String name) {
+        WireGuardIniConfig config = new WireGuardIniConfig();
+        config.setName(name);
+        config.setPeers(List.of());
+        return config;
+    }
+}
@@ -3,16 +3,28 @@ package icu.debug.net.wg.service.config;
 import icu.debug.net.wg.core.auth.storage.AuthStorage;
 import icu.debug.net.wg.core.auth.storage.impl.DatabaseAuthStorage;
 import icu.debug.net.wg.core.storage.ConfigStorage;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
+import icu.debug.net.wg.core.storage.impl.CachingConfigStorage;
 import icu.debug.net.wg.core.storage.impl.DatabaseConfigStorage;
 import icu.debug.net.wg.core.storage.dao.GeneratedConfigDao;
 import icu.debug.net.wg.core.storage.dao.NetworkNodeDao;
 import icu.debug.net.wg.core.storage.dao.NetworkVersionDao;
+import icu.debug.net.wg.core.storage.dao.NodeChangeDao;
+import icu.debug.net.wg.core.storage.dao.PeerTableDao;
 import icu.debug.net.wg.core.auth.storage.impl.DatabaseAuthStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
 
 /**
  * 集群模式配置类
@@ -34,9 +46,38 @@ public class ClusterConfiguration {
     public ConfigStorage clusterConfigStorage(NetworkNodeDao networkNodeDao,
                                              GeneratedConfigDao generatedConfigDao,
                                              NetworkVersionDao networkVersionDao,
-                                             com.fasterxml.jackson.databind.ObjectMapper objectMapper) {
+                                             ObjectProvider<PeerTableDao> peerTableDao,
+                                             NodeChangeDao nodeChangeDao,
+                                             DataSource dataSource,
+                                             com.fasterxml.jackson.databind.ObjectMapper objectMapper,
+                                             @Value("${wireguard.registry.storage.codec:json}") String codec,
+                                             @Value("${wireguard.registry.storage.compress:true}") boolean compress,
+                                             @Value("${wireguard.registry.storage.peer-table:false}") boolean peerTable,
+                                             @Value("${wireguard.registry.storage.change-retention:1000}") long changeRetention,
+                                             @Value("${wireguard.registry.cache.enabled:true}") boolean cacheEnabled,
+                                             @Value("${wireguard.registry.cache.max-entries:10000}") int cacheMaxEntries,
+                                             @Value("${wireguard.registry.cache.max-weight:1000000}") long cacheMaxWeight) {
         log.info("Creating database-based config storage for cluster mode");
-        return new DatabaseConfigStorage(networkNodeDao, generatedConfigDao, networkVersionDao, objectMapper);
+        BlobCodec blobCodec = new JsonBlobCodec(objectMapper);
+        if ("binary".equalsIgnoreCase(codec)) {
+            log.info("Using binary blob codec, compress: {}", compress);
+            blobCodec = new BinaryBlobCodec(compress, blobCodec);
+        }
+        PeerTableDao sharedPeerTableDao = null;
+        if (peerTable) {
+            log.info("Storing generated configs as shared peer table with per-node views");
+            sharedPeerTableDao = peerTableDao.getObject();
+        }
+        // 变更单元在同一数据源的事务中提交，数据访问实现内部的事务加入该事务
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        DatabaseConfigStorage storage = new DatabaseConfigStorage(networkNodeDao, generatedConfigDao, networkVersionDao, blobCodec,
+                sharedPeerTableDao, transactionTemplate, nodeChangeDao);
+        storage.setChangeRetention(changeRetention);
+        if (!cacheEnabled) {
+            return storage;
+        }
+        log.info("Enabling version-validated config cache, max entries {}, max weight {}", cacheMaxEntries, cacheMaxWeight);
+        return new CachingConfigStorage(storage, cacheMaxEntries, cacheMaxWeight);
     }
 
     /**
@@ -0,0 +1,29 @@
+package icu.debug.net.wg.service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 配置生成相关配置类
+ */
+@Configuration
+public class GenerateConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerateConfiguration.class);
+
+    /**
+     * 并行生成配置使用的线程池，parallelism 大于 0 时启用
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("${wireguard.generate.parallelism:0} > 0")
+    public ForkJoinPool generateForkJoinPool(@Value("${wireguard.generate.parallelism}") int parallelism) {
+        log.info("Creating config generate fork join pool, parallelism {}", parallelism);
+        return new ForkJoinPool(parallelism);
+    }
+}
@@ -0,0 +1,70 @@
+package icu.debug.net.wg.service.config;
+
+import icu.debug.net.wg.core.storage.dao.jdbc.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * 集群模式 JDBC 存储配置类
+ * <p>
+ * 基于 spring.datasource 数据源创建数据访问实现，支持 SQLite、H2、MySQL
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "wireguard.registry.mode", havingValue = "cluster")
+public class JdbcStorageConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcStorageConfiguration.class);
+
+    @Bean
+    public JdbcDialect jdbcDialect(DataSource dataSource) {
+        JdbcDialect dialect = JdbcDialect.detect(dataSource);
+        log.info("Detected storage database dialect {}", dialect);
+        return dialect;
+    }
+
+    /**
+     * 存储使用的 JdbcTemplate，init-schema 为 true 时创建不存在的表
+     */
+    @Bean
+    public JdbcTemplate storageJdbcTemplate(DataSource dataSource, JdbcDialect dialect,
+                                            @Value("${wireguard.registry.storage.init-schema:true}") boolean initSchema) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (initSchema) {
+            JdbcStorageSchema.initialize(jdbcTemplate, dialect);
+        }
+        return jdbcTemplate;
+    }
+
+    @Bean
+    public JdbcNetworkNodeDao networkNodeDao(JdbcTemplate storageJdbcTemplate, JdbcDialect dialect) {
+        return new JdbcNetworkNodeDao(storageJdbcTemplate, dialect);
+    }
+
+    @Bean
+    public JdbcGeneratedConfigDao generatedConfigDao(JdbcTemplate storageJdbcTemplate, JdbcDialect dialect) {
+        return new JdbcGeneratedConfigDao(storageJdbcTemplate, dialect);
+    }
+
+    @Bean
+    public JdbcNetworkVersionDao networkVersionDao(JdbcTemplate storageJdbcTemplate, JdbcDialect dialect) {
+        return new JdbcNetworkVersionDao(storageJdbcTemplate, dialect);
+    }
+
+    @Bean
+    public JdbcPeerTableDao peerTableDao(JdbcTemplate storageJdbcTemplate, JdbcDialect dialect) {
+        return new JdbcPeerTableDao(storageJdbcTemplate, dialect);
+    }
+
+    @Bean
+    public JdbcNodeChangeDao nodeChangeDao(JdbcTemplate storageJdbcTemplate, JdbcDialect dialect) {
+        return new JdbcNodeChangeDao(storageJdbcTemplate, dialect);
+    }
+}
@@ -3,26 +3,38 @@ package icu.debug.net.wg.service.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import icu.debug.net.wg.core.WireGuardConfigGenerator;
 import icu.debug.net.wg.core.auth.AdminAuthService;
 import icu.debug.net.wg.core.auth.NodeAuthService;
+import icu.debug.net.wg.core.auth.NodePublicKeyCache;
 import icu.debug.net.wg.core.auth.storage.AuthStorage;
 import icu.debug.net.wg.core.auth.storage.impl.MemoryAuthStorage;
 import icu.debug.net.wg.core.config.DeploymentConfig;
 import icu.debug.net.wg.core.config.DeploymentMode;
+import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
 import icu.debug.net.wg.core.registry.ConfigRegistry;
+import icu.debug.net.wg.core.registry.impl.AsyncListenerDispatcher;
 import icu.debug.net.wg.core.registry.impl.DefaultConfigRegistry;
 import icu.debug.net.wg.core.storage.ConfigStorage;
+import icu.debug.net.wg.core.storage.codec.BinaryBlobCodec;
+import icu.debug.net.wg.core.storage.codec.BlobCodec;
+import icu.debug.net.wg.core.storage.codec.JsonBlobCodec;
 import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import icu.debug.net.wg.core.storage.impl.OffHeapConfigArena;
+import icu.debug.net.wg.core.storage.log.LogStructuredConfigStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
+import java.nio.file.Path;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 注册中心配置类
@@ -66,12 +78,48 @@ public class RegistryConfiguration {
 
     /**
      * 配置存储（单机模式）
+     * <p>
+     * {@code wireguard.registry.storage.type} 为 log 时使用日志结构文件存储，重启后回放恢复
+     * </p>
      */
     @Bean
     @ConditionalOnProperty(name = "wireguard.registry.mode", havingValue = "standalone", matchIfMissing = true)
-    public ConfigStorage standaloneConfigStorage() {
-        log.info("Creating memory-based config storage for standalone mode");
-        return new MemoryConfigStorage();
+    public ConfigStorage standaloneConfigStorage(ObjectMapper objectMapper,
+                                                 @Value("${wireguard.registry.storage.type:memory}") String type,
+                                                 @Value("${wireguard.registry.storage.compress:true}") boolean compress,
+                                                 @Value("${wireguard.registry.storage.log.directory:data/config-log}") String directory,
+                                                 @Value("${wireguard.registry.storage.log.segment-size:67108864}") long segmentSize,
+                                                 @Value("${wireguard.registry.storage.log.sync-interval:0}") long syncInterval,
+                                                 @Value("${wireguard.registry.storage.log.compact-interval:60000}") long compactInterval,
+                                                 @Value("${wireguard.registry.storage.journal.enabled:false}") boolean journalEnabled,
+                                                 @Value("${wireguard.registry.storage.journal.directory:data/journal}") String journalDirectory,
+                                                 @Value("${wireguard.registry.storage.journal.flush-interval:10}") long flushInterval,
+                                                 @Value("${wireguard.registry.storage.journal.snapshot-entries:10000}") long snapshotEntries,
+                                                 @Value("${wireguard.registry.storage.off-heap.enabled:false}") boolean offHeapEnabled,
+                                                 @Value("${wireguard.registry.storage.off-heap.chunk-size:4194304}") int offHeapChunkSize,
+                                                 @Value("${wireguard.registry.storage.change-retention:1000}") long changeRetention) {
+        BlobCodec blobCodec = new BinaryBlobCodec(compress, new JsonBlobCodec(objectMapper));
+        if ("log".equalsIgnoreCase(type)) {
+            log.info("Creating log-structured config storage in {} for standalone mode", directory);
+            LogStructuredConfigStorage storage = new LogStructuredConfigStorage(Path.of(directory), blobCodec, segmentSize, syncInterval, compactInterval);
+            storage.setChangeRetention(changeRetention);
+            return storage;
+        }
+        OffHeapConfigArena configArena = null;
+        if (offHeapEnabled) {
+            log.info("Storing generated configs off-heap in {} byte chunks", offHeapChunkSize);
+            configArena = new OffHeapConfigArena(blobCodec, offHeapChunkSize);
+        }
+        MemoryConfigStorage storage;
+        if (journalEnabled) {
+            log.info("Creating memory-based config storage with journal in {} for standalone mode", journalDirectory);
+            storage = new MemoryConfigStorage(Path.of(journalDirectory), blobCodec, flushInterval, snapshotEntries, configArena);
+        } else {
+            log.info("Creating memory-based config storage for standalone mode");
+            storage = new MemoryConfigStorage(configArena);
+        }
+        storage.setChangeRetention(changeRetention);
+        return storage;
     }
     
     /**
@@ -79,7 +127,14 @@ public class RegistryConfiguration {
      */
     @Bean
     @ConditionalOnProperty(name = "wireguard.registry.mode", havingValue = "standalone", matchIfMissing = true)
-    public AuthStorage standaloneAuthStorage() {
+    public AuthStorage standaloneAuthStorage(@Value("${wireguard.registry.storage.journal.enabled:false}") boolean journalEnabled,
+                                             @Value("${wireguard.registry.storage.journal.directory:data/journal}") String journalDirectory,
+                                             @Value("${wireguard.registry.storage.journal.flush-interval:10}") long flushInterval,
+                                             @Value("${wireguard.registry.storage.journal.snapshot-entries:10000}") long snapshotEntries) {
+        if (journalEnabled) {
+            log.info("Creating memory-based auth storage with journal in {} for standalone mode", journalDirectory);
+            return new MemoryAuthStorage(Path.of(journalDirectory), flushInterval, snapshotEntries);
+        }
         log.info("Creating memory-based auth storage for standalone mode");
         return new MemoryAuthStorage();
     }
@@ -89,19 +144,61 @@ public class RegistryConfiguration {
      */
 
     /**
-     * 配置注册中心
+     * 注册中心生成配置时使用的默认网络属性
      */
     @Bean
-    public ConfigRegistry configRegistry(ConfigStorage configStorage) {
-        return new DefaultConfigRegistry(configStorage, null);
+    @ConfigurationProperties(prefix = "wireguard.registry.default")
+    public WireGuardNetProperties registryDefaultProperties() {
+        return new WireGuardNetProperties();
+    }
+
+    /**
+     * 配置变更监听器异步分发器
+     */
+    @Bean(destroyMethod = "shutdown")
+    public AsyncListenerDispatcher listenerDispatcher(@Value("${wireguard.registry.listener.threads:2}") int threads,
+                                                      @Value("${wireguard.registry.listener.queue-capacity:1024}") int queueCapacity,
+                                                      @Value("${wireguard.registry.listener.overflow-policy:coalesce_latest}") String overflowPolicy,
+                                                      @Value("${wireguard.registry.listener.block-timeout:1000}") long blockTimeout) {
+        return new AsyncListenerDispatcher(threads, queueCapacity,
+                AsyncListenerDispatcher.OverflowPolicy.valueOf(overflowPolicy.toUpperCase()), blockTimeout);
+    }
+
+    /**
+     * 配置注册中心
+     */
+    @Bean(destroyMethod = "close")
+    public ConfigRegistry configRegistry(ConfigStorage configStorage, WireGuardNetProperties registryDefaultProperties,
+                                         @Value("${wireguard.registry.regenerate.window:0}") long regenerateWindow,
+                                         @Value("${wireguard.registry.regenerate.max-delay:0}") long regenerateMaxDelay,
+                                         @Value("${wireguard.registry.heartbeat.resolution:1000}") long heartbeatResolution,
+                                         AsyncListenerDispatcher listenerDispatcher,
+                                         @Qualifier("generateForkJoinPool") ObjectProvider<ForkJoinPool> generatePool) {
+        DefaultConfigRegistry registry = new DefaultConfigRegistry(configStorage, registryDefaultProperties, regenerateWindow, regenerateMaxDelay,
+                heartbeatResolution, listenerDispatcher);
+        registry.setGeneratePool(generatePool.getIfAvailable());
+        return registry;
+    }
+
+    /**
+     * 批量验证节点签名使用的线程池，parallelism 为 0 时与 CPU 核数相同
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool signatureVerificationPool(@Value("${wireguard.registry.auth.verify-parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("Creating signature verification pool, parallelism {}", threads);
+        return new ForkJoinPool(threads);
     }
 
     /**
      * 节点认证服务
      */
     @Bean
-    public NodeAuthService nodeAuthService(AuthStorage authStorage) {
-        return new NodeAuthService(authStorage);
+    public NodeAuthService nodeAuthService(AuthStorage authStorage,
+                                           @Qualifier("signatureVerificationPool") ForkJoinPool signatureVerificationPool,
+                                           @Value("${wireguard.registry.auth.key-cache.max-size:65536}") int keyCacheMaxSize,
+                                           @Value("${wireguard.registry.auth.key-cache.ttl:60000}") long keyCacheTtl) {
+        return new NodeAuthService(authStorage, new NodePublicKeyCache(keyCacheMaxSize, keyCacheTtl), signatureVerificationPool);
     }
 
     /**
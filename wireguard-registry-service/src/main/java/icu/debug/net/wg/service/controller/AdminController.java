@@ -6,6 +6,7 @@ import icu.debug.net.wg.core.auth.AdminUser;
 import icu.debug.net.wg.core.auth.NodeAuthService;
 import icu.debug.net.wg.core.auth.TemporaryKey;
 import icu.debug.net.wg.core.registry.ConfigRegistry;
+import icu.debug.net.wg.core.registry.impl.DefaultConfigRegistry;
 import icu.debug.net.wg.service.entity.HttpResult;
 import icu.debug.net.wg.service.entity.LoginRequest;
 import icu.debug.net.wg.service.entity.CreateUserRequest;
@@ -15,7 +16,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -219,6 +222,26 @@ public class AdminController {
         }
     }
 
+    /**
+     * 获取注册中心统计信息（需要网络管理员权限）
+     */
+    @GetMapping("/registry/stats")
+    public HttpResult<Map<String, Object>> getRegistryStats(HttpServletRequest request) {
+        AdminUser currentUser = getCurrentUser(request);
+        if (currentUser == null) {
+            return HttpResult.error("用户未登录");
+        }
+
+        if (!currentUser.hasRole(AdminRole.NETWORK_ADMIN)) {
+            return HttpResult.error("权限不足");
+        }
+
+        if (configRegistry instanceof DefaultConfigRegistry defaultConfigRegistry) {
+            return HttpResult.success(defaultConfigRegistry.getStats());
+        }
+        return HttpResult.success(Collections.emptyMap());
+    }
+
     /**
      * 获取当前用户
      */
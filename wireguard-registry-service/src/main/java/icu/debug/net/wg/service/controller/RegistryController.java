@@ -1,16 +1,35 @@
 package icu.debug.net.wg.service.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import icu.debug.net.wg.core.auth.NodeAuthService;
+import icu.debug.net.wg.core.auth.SignedMessage;
 import icu.debug.net.wg.core.model.config.WireGuardIniConfig;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkNode;
 import icu.debug.net.wg.core.registry.ConfigRegistry;
+import icu.debug.net.wg.core.storage.NodeChangeFeed;
+import icu.debug.net.wg.core.storage.RenderedConfig;
+import icu.debug.net.wg.service.entity.HeartbeatBatchRequest;
 import icu.debug.net.wg.service.entity.HttpResult;
 import icu.debug.net.wg.service.entity.NodeRegistrationRequest;
 import icu.debug.net.wg.service.entity.NodeStatusRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * 注册中心REST API控制器
@@ -20,10 +39,27 @@ import java.util.Map;
 @Slf4j
 public class RegistryController {
 
+    private static final int MAX_CHANGES_LIMIT = 5000;
+
+    private static final int MAX_HEARTBEAT_BATCH = 5000;
+
     private final ConfigRegistry configRegistry;
 
-    public RegistryController(ConfigRegistry configRegistry) {
+    private final NodeAuthService nodeAuthService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 输出整个网络时每页读取的条数
+     */
+    private final int streamPageSize;
+
+    public RegistryController(ConfigRegistry configRegistry, NodeAuthService nodeAuthService, ObjectMapper objectMapper,
+                              @Value("${wireguard.registry.stream.page-size:500}") int streamPageSize) {
         this.configRegistry = configRegistry;
+        this.nodeAuthService = nodeAuthService;
+        this.objectMapper = objectMapper;
+        this.streamPageSize = streamPageSize;
     }
 
     /**
@@ -62,12 +98,19 @@ public class RegistryController {
     }
 
     /**
-     * 获取网络下的所有节点
+     * 获取网络下的所有节点，逐页读取并直接写入响应流，响应格式与 {@link HttpResult} 相同
      */
-    @GetMapping("/networks/{networkId}/nodes")
-    public HttpResult<List<WireGuardNetworkNode>> getNodes(@PathVariable String networkId) {
-        List<WireGuardNetworkNode> nodes = configRegistry.getNodes(networkId);
-        return HttpResult.success(nodes);
+    @GetMapping(value = "/networks/{networkId}/nodes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getNodes(@PathVariable String networkId, HttpServletResponse response) throws IOException {
+        writeSuccess(response, generator -> {
+            generator.writeStartArray();
+            try (Stream<WireGuardNetworkNode> nodes = configRegistry.streamNodes(networkId, streamPageSize)) {
+                for (Iterator<WireGuardNetworkNode> iterator = nodes.iterator(); iterator.hasNext(); ) {
+                    generator.writeObject(iterator.next());
+                }
+            }
+            generator.writeEndArray();
+        });
     }
 
     /**
@@ -84,12 +127,43 @@ public class RegistryController {
     }
 
     /**
-     * 获取网络的所有配置
+     * 获取节点配置文件（ini 文本），存储保存的渲染结果直接写入响应流
+     */
+    @GetMapping(value = "/networks/{networkId}/nodes/{nodeId}/config/ini", produces = MediaType.TEXT_PLAIN_VALUE)
+    public void getNodeConfigIni(@PathVariable String networkId,
+                                 @PathVariable String nodeId,
+                                 HttpServletResponse response) throws IOException {
+        RenderedConfig config = configRegistry.getRenderedNodeConfig(networkId, nodeId);
+        if (config == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Config not found");
+            return;
+        }
+        response.setContentType("text/plain;charset=UTF-8");
+        response.setContentLength(config.getLength());
+        // 节点ID来自请求路径，按 RFC 5987 编码后写入文件名，避免注入响应头
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(nodeId + ".conf", StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        config.writeTo(Channels.newChannel(response.getOutputStream()));
+    }
+
+    /**
+     * 获取网络的所有配置，逐页读取并直接写入响应流，响应格式与 {@link HttpResult} 相同
      */
-    @GetMapping("/networks/{networkId}/configs")
-    public HttpResult<Map<String, WireGuardIniConfig>> getNetworkConfigs(@PathVariable String networkId) {
-        Map<String, WireGuardIniConfig> configs = configRegistry.getNetworkConfigs(networkId);
-        return HttpResult.success(configs);
+    @GetMapping(value = "/networks/{networkId}/configs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getNetworkConfigs(@PathVariable String networkId, HttpServletResponse response) throws IOException {
+        writeSuccess(response, generator -> {
+            generator.writeStartObject();
+            try (Stream<Map.Entry<String, WireGuardIniConfig>> configs = configRegistry.streamNetworkConfigs(networkId, streamPageSize)) {
+                for (Iterator<Map.Entry<String, WireGuardIniConfig>> iterator = configs.iterator(); iterator.hasNext(); ) {
+                    Map.Entry<String, WireGuardIniConfig> entry = iterator.next();
+                    generator.writeFieldName(entry.getKey());
+                    generator.writeObject(entry.getValue());
+                }
+            }
+            generator.writeEndObject();
+        });
     }
 
     /**
@@ -111,6 +185,20 @@ public class RegistryController {
         return HttpResult.success(version);
     }
 
+    /**
+     * 获取指定版本之后的节点变更
+     * <p>
+     * {@code resetRequired} 为 true 时调用方需要重新获取网络版本与全部节点，否则以 {@code nextVersion} 继续请求
+     * </p>
+     */
+    @GetMapping("/networks/{networkId}/changes")
+    public HttpResult<NodeChangeFeed> getChanges(@PathVariable String networkId,
+                                                 @RequestParam(defaultValue = "0") long since,
+                                                 @RequestParam(defaultValue = "500") int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_CHANGES_LIMIT));
+        return HttpResult.success(configRegistry.getChangesSince(networkId, since, boundedLimit));
+    }
+
     /**
      * 更新节点状态（心跳）
      */
@@ -122,6 +210,36 @@ public class RegistryController {
         return HttpResult.success();
     }
 
+    /**
+     * 批量更新节点状态（心跳），签名并行验证后只应用验证通过的心跳
+     * <p>
+     * 每个心跳的签名消息为 {@code networkId:nodeId:online:timestamp}，返回与请求顺序一致的验证结果
+     * </p>
+     */
+    @PostMapping("/networks/{networkId}/heartbeats")
+    public HttpResult<List<Boolean>> updateNodeStatuses(@PathVariable String networkId,
+                                                        @RequestBody HeartbeatBatchRequest request) {
+        List<HeartbeatBatchRequest.SignedHeartbeat> heartbeats = request.getHeartbeats() == null ? List.of() : request.getHeartbeats();
+        if (heartbeats.size() > MAX_HEARTBEAT_BATCH) {
+            return HttpResult.error("Too many heartbeats, at most " + MAX_HEARTBEAT_BATCH);
+        }
+        List<SignedMessage> messages = new ArrayList<>(heartbeats.size());
+        for (HeartbeatBatchRequest.SignedHeartbeat heartbeat : heartbeats) {
+            String data = networkId + ":" + heartbeat.getNodeId() + ":" + heartbeat.isOnline();
+            messages.add(new SignedMessage(heartbeat.getNodeId(), heartbeat.getSignature(), data, heartbeat.getTimestamp()));
+        }
+        BitSet verified = nodeAuthService.verifySignaturesWithTimestamp(messages);
+        List<Boolean> results = new ArrayList<>(heartbeats.size());
+        for (int i = 0; i < heartbeats.size(); i++) {
+            HeartbeatBatchRequest.SignedHeartbeat heartbeat = heartbeats.get(i);
+            if (verified.get(i)) {
+                configRegistry.updateNodeStatus(networkId, heartbeat.getNodeId(), heartbeat.isOnline());
+            }
+            results.add(verified.get(i));
+        }
+        return HttpResult.success(results);
+    }
+
     /**
      * 检查节点是否在线
      */
@@ -150,4 +268,29 @@ public class RegistryController {
         configRegistry.deleteNetwork(networkId);
         return HttpResult.success();
     }
-}
\ No newline at end of file
+
+    /**
+     * 以 {@link HttpResult#success(Object)} 的格式写入响应，data 字段由调用方逐个写入
+     * <p>
+     * 写入开始后响应已提交，之后的异常只能中断连接，客户端会得到不完整的 JSON
+     * </p>
+     */
+    private void writeSuccess(HttpServletResponse response, DataWriter dataWriter) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeNumberField("status", 0);
+            generator.writeStringField("msg", "success");
+            generator.writeFieldName("data");
+            dataWriter.write(generator);
+            generator.writeEndObject();
+        }
+    }
+
+    @FunctionalInterface
+    private interface DataWriter {
+
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,35 @@
+package icu.debug.net.wg.service.entity;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量心跳请求实体
+ */
+@Data
+public class HeartbeatBatchRequest {
+
+    private List<SignedHeartbeat> heartbeats;
+
+    /**
+     * 带签名的单个节点心跳，签名的消息为 {@code networkId:nodeId:online:timestamp}
+     */
+    @Data
+    public static class SignedHeartbeat {
+
+        private String nodeId;
+
+        private boolean online;
+
+        /**
+         * 签名时间戳（秒）
+         */
+        private long timestamp;
+
+        /**
+         * 节点私钥对消息的 Base64 编码签名
+         */
+        private String signature;
+    }
+}
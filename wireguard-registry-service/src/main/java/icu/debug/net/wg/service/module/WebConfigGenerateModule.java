@@ -6,9 +6,12 @@ import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
 import icu.debug.net.wg.core.model.network.WireGuardNetworkStruct;
 import icu.debug.net.wg.service.entity.GenerateRequest;
 import icu.debug.net.wg.service.entity.GenerateResult;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author hanjinxiang@debug.icu
@@ -17,12 +20,20 @@ import java.util.List;
 @Component
 public class WebConfigGenerateModule {
 
+    /**
+     * 并行生成线程池，未配置时串行生成
+     */
+    private final ForkJoinPool generatePool;
+
+    public WebConfigGenerateModule(@Qualifier("generateForkJoinPool") ObjectProvider<ForkJoinPool> generatePool) {
+        this.generatePool = generatePool.getIfAvailable();
+    }
 
     public List<GenerateResult> generate(GenerateRequest request) {
         WireGuardNetworkStruct struct = request.getStruct();
         WireGuardNetProperties properties = request.getProperties();
         WireGuardConfigGenerator generator = new WireGuardConfigGenerator(struct, properties);
-        List<NetworkNodeConfigWrapper> configs = generator.buildWireGuardIniConfigs();
+        List<NetworkNodeConfigWrapper> configs = generator.buildWireGuardIniConfigs(generatePool);
         return configs.stream().map(GenerateResult::of).toList();
     }
 
@@ -0,0 +1,114 @@
+package icu.debug.net.wg.service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import icu.debug.net.wg.core.auth.NodeAuthService;
+import icu.debug.net.wg.core.auth.NodePublicKeyCache;
+import icu.debug.net.wg.core.auth.storage.impl.MemoryAuthStorage;
+import icu.debug.net.wg.core.model.config.WireGuardNetProperties;
+import icu.debug.net.wg.core.registry.impl.DefaultConfigRegistry;
+import icu.debug.net.wg.core.storage.impl.MemoryConfigStorage;
+import icu.debug.net.wg.service.entity.HeartbeatBatchRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.whispersystems.curve25519.Curve25519;
+import org.whispersystems.curve25519.Curve25519KeyPair;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DisplayName("注册中心接口测试")
+class RegistryControllerTest {
+
+    private final Curve25519 curve25519 = Curve25519.getInstance(Curve25519.BEST);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+
+    @Test
+    @DisplayName("批量心跳只应用签名验证通过的条目，结果按请求顺序返回")
+    void testHeartbeatBatch() throws Exception {
+        RecordingConfigRegistry registry = new RecordingConfigRegistry(new MemoryConfigStorage());
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            NodeAuthService authService = new NodeAuthService(new MemoryAuthStorage(), new NodePublicKeyCache(16, 0), pool);
+            Curve25519KeyPair keyA = curve25519.generateKeyPair();
+            Curve25519KeyPair keyB = curve25519.generateKeyPair();
+            authService.registerNodePublicKey("node-a", encode(keyA.getPublicKey()));
+            authService.registerNodePublicKey("node-b", encode(keyB.getPublicKey()));
+            long timestamp = authService.getCurrentTimestamp();
+
+            HeartbeatBatchRequest request = new HeartbeatBatchRequest();
+            List<HeartbeatBatchRequest.SignedHeartbeat> heartbeats = new ArrayList<>();
+            heartbeats.add(heartbeat("node-a", true, timestamp, keyA));
+            // 签名使用其他节点的私钥
+            heartbeats.add(heartbeat("node-a", false, timestamp, keyB));
+            heartbeats.add(heartbeat("node-b", false, timestamp, keyB));
+            // 过期的时间戳
+            heartbeats.add(heartbeat("node-a", false, timestamp - 3600, keyA));
+            // 未注册公钥的节点
+            heartbeats.add(heartbeat("node-c", true, timestamp, keyB));
+            request.setHeartbeats(heartbeats);
+
+            MockMvc mockMvc = MockMvcBuilders
+                    .standaloneSetup(new RegistryController(registry, authService, objectMapper, 500))
+                    .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                    .build();
+            mockMvc.perform(post("/v1/registry/networks/net/heartbeats")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value(0))
+                    .andExpect(jsonPath("$.data").value(contains(true, false, true, false, false)));
+
+            assertEquals(List.of("node-a:true", "node-b:false"), registry.statusUpdates);
+        } finally {
+            pool.shutdown();
+            registry.close();
+        }
+    }
+
+    private HeartbeatBatchRequest.SignedHeartbeat heartbeat(String nodeId, boolean online, long timestamp,
+                                                             Curve25519KeyPair keyPair) {
+        String message = "net:" + nodeId + ":" + online + ":" + timestamp;
+        HeartbeatBatchRequest.SignedHeartbeat heartbeat = new HeartbeatBatchRequest.SignedHeartbeat();
+        heartbeat.setNodeId(nodeId);
+        heartbeat.setOnline(online);
+        heartbeat.setTimestamp(timestamp);
+        heartbeat.setSignature(encode(curve25519.calculateSignature(keyPair.getPrivateKey(), message.getBytes(StandardCharsets.UTF_8))));
+        return heartbeat;
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * 按调用顺序记录节点状态更新
+     */
+    private static class RecordingConfigRegistry extends DefaultConfigRegistry {
+
+        private final List<String> statusUpdates = new ArrayList<>();
+
+        RecordingConfigRegistry(MemoryConfigStorage configStorage) {
+            super(configStorage, new WireGuardNetProperties());
+        }
+
+        @Override
+        public void updateNodeStatus(String networkId, String nodeId, boolean online) {
+            statusUpdates.add(nodeId + ":" + online);
+        }
+    }
+}